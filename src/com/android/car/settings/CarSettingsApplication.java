@@ -26,37 +26,76 @@ import android.car.CarOccupantZoneManager;
 import android.car.CarOccupantZoneManager.OccupantZoneConfigChangeListener;
 import android.car.CarOccupantZoneManager.OccupantZoneInfo;
 import android.car.media.CarAudioManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Configuration;
 import android.view.Display;
 
-import androidx.annotation.GuardedBy;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.car.settings.common.PreferenceXmlParser;
+import com.android.car.settings.common.SettingsFragment;
+import com.android.car.settings.common.TaskScheduler;
+import com.android.car.settings.common.TimingRecorder;
+import com.android.car.settings.datausage.UidDetailResolver;
+import com.android.car.settings.qc.SettingsQCProvider;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Application class for CarSettings.
+ *
+ * <p>Once zone information has been persisted, the connection to the car service is made
+ * asynchronously so that it never blocks the first frame. Until the car service is connected,
+ * zone information from the previous run of Settings is returned, and {@link
+ * #getCarAudioManager()} returns {@code null}. Components which need the live values can wait on
+ * {@link #getZoneInfoReadyFuture()} or register an {@link OnZoneInfoChangedListener}. When
+ * nothing is persisted, e.g. on the first run, {@link #onCreate()} waits for the car service as
+ * before, so that no screen is ever built for a default zone.
  */
 public class CarSettingsApplication extends Application {
 
-    private CarOccupantZoneManager mCarOccupantZoneManager;
+    @VisibleForTesting
+    static final String ZONE_INFO_PREFERENCES = "car_settings_zone_info";
+    private static final String KEY_OCCUPANT_ZONE_TYPE = "occupant_zone_type";
+    private static final String KEY_OCCUPANT_ZONE_DISPLAY_ID = "occupant_zone_display_id";
+    private static final String KEY_AUDIO_ZONE_ID = "audio_zone_id";
+
+    /**
+     * Listener notified on the main thread when the zone information of the user, or the car
+     * managers, change.
+     */
+    public interface OnZoneInfoChangedListener {
+        /**
+         * Called when the zone information or the {@link CarAudioManager} returned by the getters
+         * have changed, e.g. once the car service is connected.
+         */
+        void onZoneInfoChanged();
+    }
 
-    private final Object mInfoLock = new Object();
-    private final Object mCarAudioManagerLock = new Object();
+    private final List<OnZoneInfoChangedListener> mZoneInfoListeners =
+            new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Void> mZoneInfoReadyFuture = new CompletableFuture<>();
 
-    @GuardedBy("mInfoLock")
-    private int mOccupantZoneDisplayId = Display.DEFAULT_DISPLAY;
-    @GuardedBy("mInfoLock")
-    private int mAudioZoneId = CarAudioManager.INVALID_AUDIO_ZONE;
-    @GuardedBy("mInfoLock")
-    private int mOccupantZoneType = CarOccupantZoneManager.OCCUPANT_TYPE_INVALID;
-    @GuardedBy("mCarAudioManagerLock")
-    private CarAudioManager mCarAudioManager = null;
+    private volatile CarOccupantZoneManager mCarOccupantZoneManager;
+    private volatile CarAudioManager mCarAudioManager;
+    // The car audio manager the listeners were last notified of. Only used on the main thread.
+    private CarAudioManager mNotifiedCarAudioManager;
+    // Replaced as a whole so that readers never wait for the car service.
+    private volatile ZoneInfo mZoneInfo = ZoneInfo.DEFAULT;
+    // Set while onCreate waits for the car service. Only used on the main thread.
+    private boolean mWaitingForCarService;
 
     /**
      * Listener to monitor any Occupant Zone configuration change.
      */
-    private final OccupantZoneConfigChangeListener mConfigChangeListener = flags -> {
-        synchronized (mInfoLock) {
-            updateZoneInfoLocked();
-        }
-    };
+    private final OccupantZoneConfigChangeListener mConfigChangeListener =
+            flags -> updateZoneInfoAsync();
 
     /**
      * Listener to monitor the Lifecycle of car service.
@@ -64,9 +103,8 @@ public class CarSettingsApplication extends Application {
     private final CarServiceLifecycleListener mCarServiceLifecycleListener = (car, ready) -> {
         if (!ready) {
             mCarOccupantZoneManager = null;
-            synchronized (mCarAudioManagerLock) {
-                mCarAudioManager = null;
-            }
+            mCarAudioManager = null;
+            executeUiTask(() -> notifyZoneInfoChanged(/* zoneInfoChanged= */ false));
             return;
         }
         mCarOccupantZoneManager = (CarOccupantZoneManager) car.getCarManager(
@@ -75,11 +113,12 @@ public class CarSettingsApplication extends Application {
             mCarOccupantZoneManager.registerOccupantZoneConfigChangeListener(
                     mConfigChangeListener);
         }
-        synchronized (mCarAudioManagerLock) {
-            mCarAudioManager = (CarAudioManager) car.getCarManager(Car.AUDIO_SERVICE);
-        }
-        synchronized (mInfoLock) {
-            updateZoneInfoLocked();
+        mCarAudioManager = (CarAudioManager) car.getCarManager(Car.AUDIO_SERVICE);
+        if (mWaitingForCarService) {
+            // Called from onCreate, which needs the zone information before any screen is built.
+            onZoneInfoQueried(queryZoneInfo());
+        } else {
+            updateZoneInfoAsync();
         }
     };
 
@@ -87,8 +126,32 @@ public class CarSettingsApplication extends Application {
     public void onCreate() {
         super.onCreate();
 
-        Car.createCar(this, /* handler= */ null , Car.CAR_WAIT_TIMEOUT_WAIT_FOREVER,
-                mCarServiceLifecycleListener);
+        long startNanos = TimingRecorder.getInstance().begin(TimingRecorder.PHASE_APP_CREATE,
+                getClass().getName());
+        ZoneInfo cachedZoneInfo = loadCachedZoneInfo();
+        if (cachedZoneInfo != null) {
+            mZoneInfo = cachedZoneInfo;
+            Car.createCar(this, /* handler= */ null, Car.CAR_WAIT_TIMEOUT_DO_NOT_WAIT,
+                    mCarServiceLifecycleListener);
+        } else {
+            // Screens and quick controls built with a default zone would show the driver's
+            // settings to passengers, so wait for the car service rather than guessing.
+            mWaitingForCarService = true;
+            Car.createCar(this, /* handler= */ null, Car.CAR_WAIT_TIMEOUT_WAIT_FOREVER,
+                    mCarServiceLifecycleListener);
+            mWaitingForCarService = false;
+        }
+        TimingRecorder.getInstance().end(TimingRecorder.PHASE_APP_CREATE, getClass().getName(),
+                startNanos);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        PreferenceXmlParser.clearMetadataCache();
+        SettingsFragment.clearScreenPlanCache();
+        SettingsQCProvider.clearQCItemCache();
+        UidDetailResolver.clearCache();
     }
 
     /**
@@ -97,27 +160,21 @@ public class CarSettingsApplication extends Application {
      * should be available or not.
      */
     public final int getMyOccupantZoneType() {
-        synchronized (mInfoLock) {
-            return mOccupantZoneType;
-        }
+        return mZoneInfo.mOccupantZoneType;
     }
 
     /**
      * Returns displayId assigned for the current user.
      */
     public final int getMyOccupantZoneDisplayId() {
-        synchronized (mInfoLock) {
-            return mOccupantZoneDisplayId;
-        }
+        return mZoneInfo.mOccupantZoneDisplayId;
     }
 
     /**
      * Returns audio zone id assigned for the current user.
      */
     public final int getMyAudioZoneId() {
-        synchronized (mInfoLock) {
-            return mAudioZoneId;
-        }
+        return mZoneInfo.mAudioZoneId;
     }
 
     /**
@@ -125,25 +182,158 @@ public class CarSettingsApplication extends Application {
      */
     @Nullable
     public final CarAudioManager getCarAudioManager() {
-        synchronized (mCarAudioManagerLock) {
-            return mCarAudioManager;
+        return mCarAudioManager;
+    }
+
+    /**
+     * Returns a future which completes on the main thread once the car service is connected and
+     * zone information has been read from it. Until then, the zone getters return the values from
+     * the previous run, and {@link #getCarAudioManager()} returns {@code null}.
+     */
+    public final CompletableFuture<Void> getZoneInfoReadyFuture() {
+        return mZoneInfoReadyFuture;
+    }
+
+    /** Registers {@code listener} to be notified when the zone information changes. */
+    public final void addOnZoneInfoChangedListener(OnZoneInfoChangedListener listener) {
+        mZoneInfoListeners.add(listener);
+    }
+
+    /** Unregisters a listener added with {@link #addOnZoneInfoChangedListener}. */
+    public final void removeOnZoneInfoChangedListener(OnZoneInfoChangedListener listener) {
+        mZoneInfoListeners.remove(listener);
+    }
+
+    @VisibleForTesting
+    void executeBackgroundTask(Runnable runnable) {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, runnable);
+    }
+
+    @VisibleForTesting
+    void executeUiTask(Runnable runnable) {
+        ThreadUtils.postOnMainThread(runnable);
+    }
+
+    private void updateZoneInfoAsync() {
+        executeBackgroundTask(() -> {
+            ZoneInfo zoneInfo = queryZoneInfo();
+            executeUiTask(() -> onZoneInfoQueried(zoneInfo));
+        });
+    }
+
+    @WorkerThread
+    @Nullable
+    private ZoneInfo queryZoneInfo() {
+        CarOccupantZoneManager occupantZoneManager = mCarOccupantZoneManager;
+        if (occupantZoneManager == null) {
+            return null;
+        }
+        OccupantZoneInfo info = occupantZoneManager.getMyOccupantZone();
+        if (info == null) {
+            return null;
         }
+        ZoneInfo current = mZoneInfo;
+        int audioZoneId = occupantZoneManager.getAudioZoneIdForOccupant(info);
+        Display display = occupantZoneManager.getDisplayForOccupant(info, DISPLAY_TYPE_MAIN);
+        int displayId = display != null ? display.getDisplayId()
+                : current.mOccupantZoneDisplayId;
+        return new ZoneInfo(info.occupantType, displayId, audioZoneId);
     }
 
-    @GuardedBy("mInfoLock")
-    private void updateZoneInfoLocked() {
-        if (mCarOccupantZoneManager == null) {
+    /**
+     * Publishes {@code zoneInfo}, or keeps the current zone information if the car service could
+     * not provide it.
+     */
+    @MainThread
+    private void onZoneInfoQueried(@Nullable ZoneInfo zoneInfo) {
+        ZoneInfo previous = mZoneInfo;
+        boolean changed = zoneInfo != null && !zoneInfo.equals(previous);
+        if (changed) {
+            mZoneInfo = zoneInfo;
+            if (zoneInfo.mOccupantZoneType != previous.mOccupantZoneType) {
+                SettingsFragment.clearScreenPlanCache();
+                SettingsQCProvider.clearQCItemCache();
+            }
+            getZoneInfoPreferences().edit()
+                    .putInt(KEY_OCCUPANT_ZONE_TYPE, zoneInfo.mOccupantZoneType)
+                    .putInt(KEY_OCCUPANT_ZONE_DISPLAY_ID, zoneInfo.mOccupantZoneDisplayId)
+                    .putInt(KEY_AUDIO_ZONE_ID, zoneInfo.mAudioZoneId)
+                    .apply();
+        }
+        mZoneInfoReadyFuture.complete(null);
+        notifyZoneInfoChanged(changed);
+    }
+
+    /** Notifies the listeners if the zone information or the car audio manager changed. */
+    @MainThread
+    private void notifyZoneInfoChanged(boolean zoneInfoChanged) {
+        CarAudioManager carAudioManager = mCarAudioManager;
+        boolean carAudioManagerChanged = carAudioManager != mNotifiedCarAudioManager;
+        mNotifiedCarAudioManager = carAudioManager;
+        if (!zoneInfoChanged && !carAudioManagerChanged) {
             return;
         }
-        OccupantZoneInfo info = mCarOccupantZoneManager.getMyOccupantZone();
-        if (info != null) {
-            mOccupantZoneType = info.occupantType;
-            mAudioZoneId = mCarOccupantZoneManager.getAudioZoneIdForOccupant(info);
-            Display display = mCarOccupantZoneManager
-                    .getDisplayForOccupant(info, DISPLAY_TYPE_MAIN);
-            if (display != null) {
-                mOccupantZoneDisplayId = display.getDisplayId();
+        for (OnZoneInfoChangedListener listener : mZoneInfoListeners) {
+            listener.onZoneInfoChanged();
+        }
+    }
+
+    /**
+     * Returns the zone information persisted by a previous run, or {@code null} if there is
+     * none.
+     *
+     * <p>This reads the preferences file on the main thread. The file only holds three ints, so
+     * reading it costs far less than the blocking connection to the car service it replaces.
+     */
+    @Nullable
+    private ZoneInfo loadCachedZoneInfo() {
+        SharedPreferences preferences = getZoneInfoPreferences();
+        if (!preferences.contains(KEY_OCCUPANT_ZONE_TYPE)) {
+            return null;
+        }
+        return new ZoneInfo(
+                preferences.getInt(KEY_OCCUPANT_ZONE_TYPE, ZoneInfo.DEFAULT.mOccupantZoneType),
+                preferences.getInt(KEY_OCCUPANT_ZONE_DISPLAY_ID,
+                        ZoneInfo.DEFAULT.mOccupantZoneDisplayId),
+                preferences.getInt(KEY_AUDIO_ZONE_ID, ZoneInfo.DEFAULT.mAudioZoneId));
+    }
+
+    private SharedPreferences getZoneInfoPreferences() {
+        return getSharedPreferences(ZONE_INFO_PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    /** Immutable snapshot of the zone information of the current user. */
+    private static final class ZoneInfo {
+        static final ZoneInfo DEFAULT = new ZoneInfo(CarOccupantZoneManager.OCCUPANT_TYPE_INVALID,
+                Display.DEFAULT_DISPLAY, CarAudioManager.INVALID_AUDIO_ZONE);
+
+        final int mOccupantZoneType;
+        final int mOccupantZoneDisplayId;
+        final int mAudioZoneId;
+
+        ZoneInfo(int occupantZoneType, int occupantZoneDisplayId, int audioZoneId) {
+            mOccupantZoneType = occupantZoneType;
+            mOccupantZoneDisplayId = occupantZoneDisplayId;
+            mAudioZoneId = audioZoneId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
             }
+            if (!(o instanceof ZoneInfo)) {
+                return false;
+            }
+            ZoneInfo other = (ZoneInfo) o;
+            return mOccupantZoneType == other.mOccupantZoneType
+                    && mOccupantZoneDisplayId == other.mOccupantZoneDisplayId
+                    && mAudioZoneId == other.mAudioZoneId;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((mOccupantZoneType * 31) + mOccupantZoneDisplayId) * 31 + mAudioZoneId;
         }
     }
 }
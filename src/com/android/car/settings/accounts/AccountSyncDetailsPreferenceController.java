@@ -39,9 +39,9 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.BackgroundLoadingPreferenceController;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
-import com.android.car.settings.common.PreferenceController;
 import com.android.settingslib.accounts.AuthenticatorHelper;
 import com.android.settingslib.utils.ThreadUtils;
 
@@ -60,7 +60,8 @@ import java.util.Set;
  * <p>Largely derived from {@link com.android.settings.accounts.AccountSyncSettings}.
  */
 public class AccountSyncDetailsPreferenceController extends
-        PreferenceController<PreferenceGroup> implements
+        BackgroundLoadingPreferenceController<PreferenceGroup,
+                List<AccountSyncDetailsPreferenceController.SyncAdapterState>> implements
         AuthenticatorHelper.OnAccountsUpdateListener {
     private static final Logger LOG = new Logger(AccountSyncDetailsPreferenceController.class);
     /**
@@ -77,7 +78,7 @@ public class AccountSyncDetailsPreferenceController extends
                 // The observer call may occur even if the fragment hasn't been started, so
                 // only force an update if the fragment hasn't been stopped.
                 if (isStarted()) {
-                    forceUpdateSyncCategory();
+                    requestRefreshUi();
                 }
             });
 
@@ -159,14 +160,80 @@ public class AccountSyncDetailsPreferenceController extends
     public void onAccountsUpdate(UserHandle userHandle) {
         // Only force a refresh if accounts have changed for the current user.
         if (userHandle.equals(mUserHandle)) {
-            forceUpdateSyncCategory();
+            requestRefreshUi();
         }
     }
 
+    /**
+     * Queries the state of the visible sync adapters for the account. The sync status queries
+     * are binder calls per authority, so they are kept off the main thread.
+     *
+     * <p> Derived from {@link com.android.settings.accounts.AccountSyncSettings#setFeedsState}
+     * and {@link com.android.settings.accounts.AccountSyncSettings#updateAccountSwitches}.
+     */
     @Override
-    public void updateState(PreferenceGroup preferenceGroup) {
-        // Add preferences for each account if the controller should be available
-        forceUpdateSyncCategory();
+    protected List<SyncAdapterState> loadData() {
+        int userId = mUserHandle.getIdentifier();
+        PackageManager packageManager = getContext().getPackageManager();
+        List<SyncInfo> currentSyncs = ContentResolver.getCurrentSyncsAsUser(userId);
+        // Whether one time sync is enabled rather than automtic sync
+        boolean oneTimeSyncMode = !ContentResolver.getMasterSyncAutomaticallyAsUser(userId);
+
+        List<SyncAdapterState> states = new ArrayList<>();
+        Set<SyncAdapterType> syncAdapters = AccountSyncHelper.getVisibleSyncAdaptersForAccount(
+                getContext(), mAccount, mUserHandle);
+        for (SyncAdapterType syncAdapter : syncAdapters) {
+            String authority = syncAdapter.authority;
+
+            int uid;
+            try {
+                uid = packageManager.getPackageUidAsUser(syncAdapter.getPackageName(), userId);
+            } catch (PackageManager.NameNotFoundException e) {
+                LOG.e("No uid for package" + syncAdapter.getPackageName(), e);
+                // If we can't get the Uid for the package hosting the sync adapter, don't show it
+                continue;
+            }
+
+            SyncStatusInfo status = ContentResolver.getSyncStatusAsUser(mAccount, authority,
+                    userId);
+            boolean syncEnabled = ContentResolver.getSyncAutomaticallyAsUser(mAccount, authority,
+                    userId);
+            boolean activelySyncing = AccountSyncHelper.isSyncing(mAccount, currentSyncs,
+                    authority);
+            states.add(new SyncAdapterState(authority, syncAdapter.getPackageName(), uid,
+                    AccountSyncHelper.getTitle(getContext(), authority, mUserHandle), status,
+                    syncEnabled, activelySyncing, oneTimeSyncMode));
+        }
+        return states;
+    }
+
+    /**
+     * Updates the sync adapter preferences. Existing preferences are reused so that their
+     * position is kept across refreshes.
+     */
+    @Override
+    protected void bind(PreferenceGroup preferenceGroup, List<SyncAdapterState> states) {
+        Set<String> preferencesToRemove = new HashSet<>(mSyncPreferences.keySet());
+        List<SyncPreference> preferences = getSyncPreferences(states, preferencesToRemove);
+
+        // Sort the preferences, add the ones that need to be added, and remove the ones that need
+        // to be removed. Manually set the order so that existing preferences are reordered
+        // correctly.
+        Collections.sort(preferences, Comparator.comparing(
+                (SyncPreference a) -> a.getTitle().toString())
+                .thenComparing((SyncPreference a) -> a.getSummary().toString()));
+
+        for (int i = 0; i < preferences.size(); i++) {
+            SyncPreference pref = preferences.get(i);
+            pref.setOrder(i);
+            mSyncPreferences.put(pref.getKey(), pref);
+            preferenceGroup.addPreference(pref);
+        }
+
+        for (String key : preferencesToRemove) {
+            preferenceGroup.removePreference(mSyncPreferences.get(key));
+            mSyncPreferences.remove(key);
+        }
     }
 
     /**
@@ -262,100 +329,43 @@ public class AccountSyncDetailsPreferenceController extends
         }
     }
 
-    /** Forces a refresh of the sync adapter preferences. */
-    private void forceUpdateSyncCategory() {
-        Set<String> preferencesToRemove = new HashSet<>(mSyncPreferences.keySet());
-        List<SyncPreference> preferences = getSyncPreferences(preferencesToRemove);
-
-        // Sort the preferences, add the ones that need to be added, and remove the ones that need
-        // to be removed. Manually set the order so that existing preferences are reordered
-        // correctly.
-        Collections.sort(preferences, Comparator.comparing(
-                (SyncPreference a) -> a.getTitle().toString())
-                .thenComparing((SyncPreference a) -> a.getSummary().toString()));
-
-        for (int i = 0; i < preferences.size(); i++) {
-            SyncPreference pref = preferences.get(i);
-            pref.setOrder(i);
-            mSyncPreferences.put(pref.getKey(), pref);
-            getPreference().addPreference(pref);
-        }
-
-        for (String key : preferencesToRemove) {
-            getPreference().removePreference(mSyncPreferences.get(key));
-            mSyncPreferences.remove(key);
-        }
-    }
-
     /**
-     * Returns a list of preferences corresponding to the visible sync adapters for the current
-     * user.
-     *
-     * <p> Derived from {@link com.android.settings.accounts.AccountSyncSettings#setFeedsState}
-     * and {@link com.android.settings.accounts.AccountSyncSettings#updateAccountSwitches}.
+     * Returns a list of preferences corresponding to the given sync adapter states.
      *
      * @param preferencesToRemove the keys for the preferences currently being shown; only the keys
      *                            for preferences to be removed will remain after method execution
      */
-    private List<SyncPreference> getSyncPreferences(Set<String> preferencesToRemove) {
-        int userId = mUserHandle.getIdentifier();
-        PackageManager packageManager = getContext().getPackageManager();
-        List<SyncInfo> currentSyncs = ContentResolver.getCurrentSyncsAsUser(userId);
-        // Whether one time sync is enabled rather than automtic sync
-        boolean oneTimeSyncMode = !ContentResolver.getMasterSyncAutomaticallyAsUser(userId);
-
+    private List<SyncPreference> getSyncPreferences(List<SyncAdapterState> states,
+            Set<String> preferencesToRemove) {
         List<SyncPreference> syncPreferences = new ArrayList<>();
-
-        Set<SyncAdapterType> syncAdapters = AccountSyncHelper.getVisibleSyncAdaptersForAccount(
-                getContext(), mAccount, mUserHandle);
-        for (SyncAdapterType syncAdapter : syncAdapters) {
-            String authority = syncAdapter.authority;
-
-            int uid;
-            try {
-                uid = packageManager.getPackageUidAsUser(syncAdapter.getPackageName(), userId);
-            } catch (PackageManager.NameNotFoundException e) {
-                LOG.e("No uid for package" + syncAdapter.getPackageName(), e);
-                // If we can't get the Uid for the package hosting the sync adapter, don't show it
-                continue;
-            }
-
-            // If we've reached this point, the sync adapter should be shown. If a preference for
-            // the sync adapter already exists, update its state. Otherwise, create a new
-            // preference.
-            SyncPreference pref = mSyncPreferences.getOrDefault(authority,
-                    new SyncPreference(getContext(), authority));
-            pref.setUid(uid);
-            pref.setPackageName(syncAdapter.getPackageName());
+        for (SyncAdapterState state : states) {
+            // If a preference for the sync adapter already exists, update its state. Otherwise,
+            // create a new preference.
+            SyncPreference pref = mSyncPreferences.getOrDefault(state.mAuthority,
+                    new SyncPreference(getContext(), state.mAuthority));
+            pref.setUid(state.mUid);
+            pref.setPackageName(state.mPackageName);
             pref.setOnPreferenceClickListener(
                     (Preference p) -> onSyncPreferenceClicked((SyncPreference) p));
-
-            CharSequence title = AccountSyncHelper.getTitle(getContext(), authority, mUserHandle);
-            pref.setTitle(title);
+            pref.setTitle(state.mTitle);
 
             // Keep track of preferences that need to be added and removed
             syncPreferences.add(pref);
-            preferencesToRemove.remove(authority);
-
-            SyncStatusInfo status = ContentResolver.getSyncStatusAsUser(mAccount, authority,
-                    userId);
-            boolean syncEnabled = ContentResolver.getSyncAutomaticallyAsUser(mAccount, authority,
-                    userId);
-            boolean activelySyncing = AccountSyncHelper.isSyncing(mAccount, currentSyncs,
-                    authority);
+            preferencesToRemove.remove(state.mAuthority);
 
             // The preference should be checked if one one-time sync or regular sync is enabled
-            boolean checked = oneTimeSyncMode || syncEnabled;
+            boolean checked = state.mOneTimeSyncMode || state.mSyncEnabled;
             pref.setChecked(checked);
 
-            String summary = getSummary(status, syncEnabled, activelySyncing);
+            String summary = getSummary(state.mStatus, state.mSyncEnabled,
+                    state.mActivelySyncing);
             pref.setSummary(summary);
 
             // Update the sync state so the icon is updated
-            AccountSyncHelper.SyncState syncState = AccountSyncHelper.getSyncState(status,
-                    syncEnabled, activelySyncing);
+            AccountSyncHelper.SyncState syncState = AccountSyncHelper.getSyncState(state.mStatus,
+                    state.mSyncEnabled, state.mActivelySyncing);
             pref.setSyncState(syncState);
-            pref.setOneTimeSyncMode(oneTimeSyncMode);
+            pref.setOneTimeSyncMode(state.mOneTimeSyncMode);
         }
 
         return syncPreferences;
@@ -382,4 +392,30 @@ public class AccountSyncDetailsPreferenceController extends
         return DateFormat.getDateFormat(getContext()).format(date) + " " + DateFormat.getTimeFormat(
                 getContext()).format(date);
     }
+
+    /** Snapshot of the sync state of a single sync adapter, produced off the main thread. */
+    static final class SyncAdapterState {
+        final String mAuthority;
+        final String mPackageName;
+        final int mUid;
+        final CharSequence mTitle;
+        @Nullable
+        final SyncStatusInfo mStatus;
+        final boolean mSyncEnabled;
+        final boolean mActivelySyncing;
+        final boolean mOneTimeSyncMode;
+
+        SyncAdapterState(String authority, String packageName, int uid, CharSequence title,
+                @Nullable SyncStatusInfo status, boolean syncEnabled, boolean activelySyncing,
+                boolean oneTimeSyncMode) {
+            mAuthority = authority;
+            mPackageName = packageName;
+            mUid = uid;
+            mTitle = title;
+            mStatus = status;
+            mSyncEnabled = syncEnabled;
+            mActivelySyncing = activelySyncing;
+            mOneTimeSyncMode = oneTimeSyncMode;
+        }
+    }
 }
@@ -26,6 +26,7 @@ import android.os.UserHandle;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.car.settings.common.TaskScheduler;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
@@ -56,7 +57,7 @@ public class InstalledAppCountItemManager {
      * Starts fetching installed apps and counting the non-system apps
      */
     public void startLoading() {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, () -> {
             List<ApplicationInfo> appList = mContext.getPackageManager()
                     .getInstalledApplications(PackageManager.MATCH_DISABLED_COMPONENTS
                             | PackageManager.MATCH_DISABLED_UNTIL_USED_COMPONENTS);
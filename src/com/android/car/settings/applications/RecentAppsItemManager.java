@@ -31,6 +31,7 @@ import androidx.annotation.VisibleForTesting;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
 import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.utils.ThreadUtils;
@@ -89,7 +90,7 @@ public class RecentAppsItemManager implements Comparator<UsageStats> {
      * Starts fetching recently used apps
      */
     public void startLoading() {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, () -> {
             loadDisplayableRecentApps(mMaximumApps);
             for (int i = 0; i < mAppStatsListeners.size(); i++) {
                 int finalIndex = i;
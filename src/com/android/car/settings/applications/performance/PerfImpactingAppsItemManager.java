@@ -20,6 +20,7 @@ import android.content.Context;
 
 import androidx.annotation.NonNull;
 
+import com.android.car.settings.common.TaskScheduler;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
@@ -49,7 +50,7 @@ public class PerfImpactingAppsItemManager {
      * Starts fetching installed apps and counting the non-system apps
      */
     public void startLoading() {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, () -> {
             int disabledPackagesCount = PerfImpactingAppsUtils.getDisabledPackages(mContext).size();
             for (PerfImpactingAppsListener listener : mPerfImpactingAppsListeners) {
                 ThreadUtils.postOnMainThread(() -> listener
@@ -137,7 +137,12 @@ public class BluetoothBondedDevicesPreferenceController extends
 
     @Override
     public void onDeviceBondStateChanged(CachedBluetoothDevice cachedDevice, int bondState) {
-        refreshUi();
+        onDeviceChanged(cachedDevice);
+    }
+
+    @Override
+    protected void onDevicePreferenceAdded(BluetoothDevicePreference preference) {
+        updateActionAvailability(preference);
     }
 
     @Override
@@ -20,6 +20,8 @@ import android.annotation.CallSuper;
 import android.bluetooth.BluetoothAdapter;
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.UserManager;
 
 import androidx.annotation.VisibleForTesting;
@@ -43,15 +45,23 @@ import java.util.Set;
  * defined filter and removing preferences for devices that no longer pass. Subclasses are
  * dispatched click events on individual preferences to customize the behavior.
  *
- * <p>Note: {@link #refreshUi()} is called whenever a device is added or removed with {@link
- * #onDeviceAdded(CachedBluetoothDevice)} or {@link #onDeviceDeleted(CachedBluetoothDevice)}.
+ * <p>Note: devices added or removed with {@link #onDeviceAdded(CachedBluetoothDevice)} or {@link
+ * #onDeviceDeleted(CachedBluetoothDevice)} only update the preference of the affected device, so
+ * that discovering many devices at once does not re-filter the whole device cache for every
+ * event. A full {@link #refreshUi()} follows such updates after a short delay as a safety net.
  * Subclasses should listen to state changes (and possibly override additional {@link
- * BluetoothCallback} methods) and call {@link #refreshUi()} for changes which affect their
- * implementation of {@link #getDeviceFilter()}.
+ * BluetoothCallback} methods) and call {@link #onDeviceChanged(CachedBluetoothDevice)} or {@link
+ * #refreshUi()} for changes which affect their implementation of {@link #getDeviceFilter()}.
  */
 public abstract class BluetoothDevicesGroupPreferenceController extends
         BluetoothPreferenceController<PreferenceGroup> {
 
+    /** Delay after an incremental update before the whole group is reconciled. */
+    @VisibleForTesting
+    static final long RECONCILE_DELAY_MS = 3000;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mReconcileRunnable = this::refreshUi;
     private final Map<CachedBluetoothDevice, BluetoothDevicePreference> mPreferenceMap =
             new HashMap<>();
     private final Preference.OnPreferenceClickListener mDevicePreferenceClickListener =
@@ -118,9 +128,44 @@ public abstract class BluetoothDevicesGroupPreferenceController extends
         return mPreferenceMap;
     }
 
+    /**
+     * Called when the preference of {@code cachedDevice} is added by an incremental update, i.e.
+     * outside of {@link #updateState(PreferenceGroup)}. Subclasses which update their
+     * preferences in {@link #updateState(PreferenceGroup)} should apply the same update here.
+     */
+    protected void onDevicePreferenceAdded(BluetoothDevicePreference preference) {
+    }
+
+    /**
+     * Adds or removes the preference of {@code cachedDevice} according to {@link
+     * #getDeviceFilter()} without touching the rest of the group.
+     */
+    protected final void onDeviceChanged(CachedBluetoothDevice cachedDevice) {
+        if (getDeviceFilter().matches(cachedDevice.getDevice())) {
+            BluetoothDevicePreference preference = addPreference(cachedDevice);
+            if (preference != null) {
+                onDevicePreferenceAdded(preference);
+                // A full refresh applies the restrictions to the whole group.
+                restrictPreference(preference, shouldApplyUxRestrictions(getUxRestrictions()));
+            }
+        } else {
+            removePreference(cachedDevice);
+        }
+        onIncrementalUpdate();
+    }
+
+    @Override
+    @CallSuper
+    protected void onStopInternal() {
+        super.onStopInternal();
+        mHandler.removeCallbacks(mReconcileRunnable);
+    }
+
     @Override
     @CallSuper
     protected void updateState(PreferenceGroup preferenceGroup) {
+        // A full pass supersedes any pending reconciliation.
+        mHandler.removeCallbacks(mReconcileRunnable);
         Collection<CachedBluetoothDevice> cachedDevices =
                 getBluetoothManager().getCachedDeviceManager().getCachedDevicesCopy();
 
@@ -152,23 +197,42 @@ public abstract class BluetoothDevicesGroupPreferenceController extends
         }
     }
 
+    @Override
+    protected boolean shouldCoalesceRefreshes() {
+        return true;
+    }
+
     @Override
     public final void onDeviceAdded(CachedBluetoothDevice cachedDevice) {
-        refreshUi();
+        onDeviceChanged(cachedDevice);
     }
 
     @Override
     public final void onDeviceDeleted(CachedBluetoothDevice cachedDevice) {
-        refreshUi();
+        removePreference(cachedDevice);
+        onIncrementalUpdate();
+    }
+
+    private void onIncrementalUpdate() {
+        int availabilityStatus = getAvailabilityStatus();
+        boolean available = availabilityStatus == AVAILABLE
+                || availabilityStatus == AVAILABLE_FOR_VIEWING;
+        getPreference().setVisible(available && getPreference().getPreferenceCount() > 0);
+        if (!mHandler.hasCallbacks(mReconcileRunnable)) {
+            mHandler.postDelayed(mReconcileRunnable, RECONCILE_DELAY_MS);
+        }
     }
 
-    private void addPreference(CachedBluetoothDevice cachedDevice) {
-        if (!mPreferenceMap.containsKey(cachedDevice)) {
-            BluetoothDevicePreference devicePreference = createDevicePreference(cachedDevice);
-            devicePreference.setOnPreferenceClickListener(mDevicePreferenceClickListener);
-            mPreferenceMap.put(cachedDevice, devicePreference);
-            getPreference().addPreference(devicePreference);
+    /** Returns the newly created preference, or {@code null} if the device already had one. */
+    private BluetoothDevicePreference addPreference(CachedBluetoothDevice cachedDevice) {
+        if (mPreferenceMap.containsKey(cachedDevice)) {
+            return null;
         }
+        BluetoothDevicePreference devicePreference = createDevicePreference(cachedDevice);
+        devicePreference.setOnPreferenceClickListener(mDevicePreferenceClickListener);
+        mPreferenceMap.put(cachedDevice, devicePreference);
+        getPreference().addPreference(devicePreference);
+        return devicePreference;
     }
 
     private void removePreference(CachedBluetoothDevice cachedDevice) {
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.preference.Preference;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link PreferenceController} which splits {@link #updateState(Preference)} into a
+ * {@link #loadData()} phase that runs on a background thread and a {@link #bind(Preference,
+ * Object)} phase that runs on the main thread. Controllers which need binder calls or other
+ * blocking work to populate their preference should extend this class.
+ *
+ * <p>Each refresh starts a new load. Results of loads which have been superseded by a newer
+ * refresh, or which complete after the controller is stopped or destroyed, are dropped without
+ * being bound.
+ *
+ * @param <V> the upper bound on the type of {@link Preference} on which the controller
+ *            expects to operate.
+ * @param <D> the type of data produced by {@link #loadData()}.
+ */
+public abstract class BackgroundLoadingPreferenceController<V extends Preference, D> extends
+        PreferenceController<V> {
+
+    private Executor mBackgroundExecutor =
+            TaskScheduler.getInstance().getExecutor(TaskScheduler.LANE_UI_CRITICAL);
+    private Executor mMainExecutor = ThreadUtils::postOnMainThread;
+    // Only accessed on the main thread.
+    private int mLoadGeneration;
+
+    public BackgroundLoadingPreferenceController(Context context, String preferenceKey,
+            FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
+        super(context, preferenceKey, fragmentController, uxRestrictions);
+    }
+
+    /**
+     * Starts loading the data for the preference. The preference keeps its current presentation
+     * until {@link #bind(Preference, Object)} is called with the result.
+     */
+    @Override
+    protected final void updateState(V preference) {
+        int generation = ++mLoadGeneration;
+        mBackgroundExecutor.execute(() -> {
+            D data = loadData();
+            mMainExecutor.execute(() -> {
+                if (generation != mLoadGeneration) {
+                    return;
+                }
+                bind(getPreference(), data);
+                onApplyUxRestrictions(getUxRestrictions());
+            });
+        });
+    }
+
+    @Override
+    void cancelPendingWork() {
+        mLoadGeneration++;
+    }
+
+    /**
+     * Sets the executors used to load and bind data.
+     */
+    @VisibleForTesting
+    public final void setExecutors(Executor backgroundExecutor, Executor mainExecutor) {
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+    }
+
+    /**
+     * Loads the data to be presented by the preference. Called on a background thread, so
+     * implementations must not touch the preference.
+     */
+    @WorkerThread
+    protected abstract D loadData();
+
+    /**
+     * Updates the presentation of {@code preference} with the result of {@link #loadData()}. Only
+     * called for the most recent load while the controller is started.
+     */
+    @MainThread
+    protected abstract void bind(V preference, D data);
+}
@@ -48,6 +48,7 @@ import androidx.preference.PreferenceFragmentCompat;
 import com.android.car.apps.common.util.Themes;
 import com.android.car.settings.R;
 import com.android.car.settings.common.rotary.SettingsFocusParkingView;
+import com.android.car.settings.wifi.WifiTrackerHub;
 import com.android.car.ui.baselayout.Insets;
 import com.android.car.ui.baselayout.InsetsChangedListener;
 import com.android.car.ui.core.CarUi;
@@ -56,6 +57,8 @@ import com.android.car.ui.toolbar.NavButtonMode;
 import com.android.car.ui.toolbar.ToolbarController;
 import com.android.settingslib.core.lifecycle.HideNonSystemOverlayMixin;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.Collections;
 import java.util.List;
 
@@ -133,6 +136,8 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long startNanos = TimingRecorder.getInstance().begin(
+                TimingRecorder.PHASE_ACTIVITY_CREATE, getClass().getName());
         super.onCreate(savedInstanceState);
         getLifecycle().addObserver(new HideNonSystemOverlayMixin(this));
         if (savedInstanceState != null) {
@@ -167,6 +172,8 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
         }
         setUpFocusChangeListener(true);
         hideFocusParkingViewIfNeeded();
+        TimingRecorder.getInstance().end(TimingRecorder.PHASE_ACTIVITY_CREATE,
+                getClass().getName(), startNanos);
     }
 
     @Override
@@ -184,6 +191,16 @@ public abstract class BaseCarSettingsActivity extends FragmentActivity implement
         super.onDestroy();
     }
 
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd,
+            @NonNull PrintWriter writer, @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        TaskScheduler.getInstance().dump(prefix, writer);
+        WifiTrackerHub.dumpInstance(prefix, writer);
+        ExtraSettingsTileCache.dumpInstance(prefix, writer);
+        TimingRecorder.getInstance().dump(prefix, writer);
+    }
+
     @Override
     public void onBackPressed() {
         super.onBackPressed();
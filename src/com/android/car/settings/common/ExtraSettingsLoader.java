@@ -18,6 +18,7 @@ package com.android.car.settings.common;
 
 import static com.android.settingslib.drawer.CategoryKey.CATEGORY_DEVICE;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_KEY_ORDER;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYHINT;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SUMMARY;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SUMMARY_URI;
@@ -36,6 +37,7 @@ import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 
 import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
@@ -43,7 +45,10 @@ import androidx.preference.Preference;
 import com.android.car.settings.R;
 import com.android.car.ui.preference.CarUiPreference;
 import com.android.settingslib.drawer.TileUtils;
+import com.android.settingslib.utils.ThreadUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -63,10 +68,12 @@ public class ExtraSettingsLoader {
     private final boolean mIsTopLevelSummariesEnabled;
     private Map<Preference, Bundle> mPreferenceBundleMap;
     private PackageManager mPm;
+    private ExtraSettingsTileCache mTileCache;
 
     public ExtraSettingsLoader(Context context) {
         mContext = context;
         mPm = context.getPackageManager();
+        mTileCache = ExtraSettingsTileCache.getInstance(context);
         mPreferenceBundleMap = new LinkedHashMap<>();
         mTopLevelCategories = Set.of(mContext.getResources().getStringArray(
                 R.array.config_top_level_injection_categories));
@@ -79,6 +86,11 @@ public class ExtraSettingsLoader {
         mPm = pm;
     }
 
+    @VisibleForTesting
+    void setTileCache(ExtraSettingsTileCache tileCache) {
+        mTileCache = tileCache;
+    }
+
     /**
      * Returns a map of {@link Preference} and {@link Bundle} representing settings injected from
      * system apps and their metadata. The given intent must specify the action to use for
@@ -92,87 +104,62 @@ public class ExtraSettingsLoader {
      * @param intent intent specifying the extra settings category to load
      */
     public Map<Preference, Bundle> loadPreferences(Intent intent) {
-        intent.setAction(TileUtils.IA_SETTINGS_ACTION);
-        List<ResolveInfo> results = mPm.queryIntentActivitiesAsUser(intent,
-                PackageManager.GET_META_DATA, ActivityManager.getCurrentUser());
-
-        intent.setAction(TileUtils.EXTRA_SETTINGS_ACTION);
-        List<ResolveInfo> extra_settings_results = mPm.queryIntentActivitiesAsUser(intent,
-                PackageManager.GET_META_DATA, ActivityManager.getCurrentUser());
-        for (ResolveInfo extra_settings_resolveInfo : extra_settings_results) {
-            if (!results.contains(extra_settings_resolveInfo)) {
-                results.add(extra_settings_resolveInfo);
-            }
-        }
-
         String extraCategory = intent.getStringExtra(META_DATA_PREFERENCE_CATEGORY);
+        long startNanos = TimingRecorder.getInstance().begin(
+                TimingRecorder.PHASE_LOAD_INJECTED_SETTINGS, String.valueOf(extraCategory));
 
-        // Filter to only include valid results and then sort the results
-        // Filter criteria: must be a system application and must have metaData
-        // Sort criteria: sort results based on [order, package within order]
-        results = results.stream()
-                .filter(r -> r.system && r.activityInfo != null && r.activityInfo.metaData != null)
-                .sorted((r1, r2) -> {
-                    // First sort by order
-                    int orderCompare = r2.activityInfo.metaData.getInt(META_DATA_KEY_ORDER)
-                            - r1.activityInfo.metaData.getInt(META_DATA_KEY_ORDER);
-                    if (orderCompare != 0) {
-                        return orderCompare;
-                    }
-
-                    // Then sort by package name
-                    String package1 = r1.activityInfo.packageName;
-                    String package2 = r2.activityInfo.packageName;
-                    return CASE_INSENSITIVE_ORDER.compare(package1, package2);
-                })
-                .collect(Collectors.toList());
+        intent.setAction(TileUtils.IA_SETTINGS_ACTION);
+        Intent queryIntent = intent.cloneFilter();
+        int userId = ActivityManager.getCurrentUser();
+        ExtraSettingsTileCache.Tiles tiles = mTileCache.get(queryIntent, userId);
+        if (tiles == null) {
+            int generation = mTileCache.getGeneration();
+            tiles = queryTiles(intent, userId);
+            mTileCache.put(queryIntent, userId, tiles, generation);
+        }
+        List<ResolveInfo> results = tiles.get(extraCategory);
+        if (results == null) {
+            results = Collections.emptyList();
+        }
 
+        // Resources are only needed for metadata given as resource ids, and are shared by all
+        // activities of a package.
+        Map<String, Resources> resourcesCache = new ArrayMap<>();
         for (ResolveInfo resolved : results) {
+            ActivityInfo activityInfo = resolved.activityInfo;
+            // The metadata is shared with every other screen loading from the cache.
+            Bundle metaData = new Bundle(activityInfo.metaData);
             String key = null;
             String title = null;
             String summary = null;
-            String category = null;
-            ActivityInfo activityInfo = resolved.activityInfo;
-            Bundle metaData = activityInfo.metaData;
             try {
-                Resources res = mPm.getResourcesForApplication(activityInfo.packageName);
                 if (metaData.containsKey(META_DATA_PREFERENCE_KEYHINT)) {
-                    key = extractMetaDataString(metaData, META_DATA_PREFERENCE_KEYHINT, res);
+                    key = extractMetaDataString(metaData, META_DATA_PREFERENCE_KEYHINT,
+                            activityInfo.packageName, resourcesCache);
                 }
                 if (!metaData.containsKey(META_DATA_PREFERENCE_TITLE_URI)) {
-                    title = extractMetaDataString(metaData, META_DATA_PREFERENCE_TITLE, res);
+                    title = extractMetaDataString(metaData, META_DATA_PREFERENCE_TITLE,
+                            activityInfo.packageName, resourcesCache);
                     if (TextUtils.isEmpty(title)) {
                         LOG.d("no title.");
                         title = activityInfo.loadLabel(mPm).toString();
                     }
                 }
                 if (!metaData.containsKey(META_DATA_PREFERENCE_SUMMARY_URI)) {
-                    summary = extractMetaDataString(metaData, META_DATA_PREFERENCE_SUMMARY, res);
+                    summary = extractMetaDataString(metaData, META_DATA_PREFERENCE_SUMMARY,
+                            activityInfo.packageName, resourcesCache);
                     if (TextUtils.isEmpty(summary)) {
                         LOG.d("no description.");
                     }
                 }
-                category = extractMetaDataString(metaData, META_DATA_PREFERENCE_CATEGORY, res);
-                if (TextUtils.isEmpty(category)) {
-                    LOG.d("no category.");
-                }
             } catch (PackageManager.NameNotFoundException | Resources.NotFoundException e) {
                 LOG.d("Couldn't find info", e);
             }
             Intent extraSettingIntent =
                     new Intent().setClassName(activityInfo.packageName, activityInfo.name);
-            if (category == null) {
-                // If category is not specified or not supported, default to device.
-                category = CATEGORY_DEVICE;
-            }
-            boolean isTopLevel = mTopLevelCategories.contains(category);
+            boolean isTopLevel = mTopLevelCategories.contains(extraCategory);
             metaData.putBoolean(META_DATA_PREFERENCE_IS_TOP_LEVEL, isTopLevel);
-            Drawable icon = ExtraSettingsUtil.createIcon(mContext, metaData,
-                    activityInfo.packageName);
 
-            if (!TextUtils.equals(extraCategory, category)) {
-                continue;
-            }
             CarUiPreference preference;
             if (isTopLevel) {
                 preference = new TopLevelPreference(mContext);
@@ -189,22 +176,125 @@ public class ExtraSettingsLoader {
             if (key != null) {
                 preference.setKey(key);
             }
-            if (icon != null) {
-                preference.setIcon(icon);
-            }
+            loadIcon(preference, metaData, activityInfo.packageName);
             preference.setIntent(extraSettingIntent);
             mPreferenceBundleMap.put(preference, metaData);
         }
+        TimingRecorder.getInstance().end(TimingRecorder.PHASE_LOAD_INJECTED_SETTINGS,
+                String.valueOf(extraCategory), startNanos);
         return mPreferenceBundleMap;
     }
 
+    /**
+     * Queries the activities injecting settings with {@code intent} and indexes them by
+     * category. Only the category is resolved here, everything else is resolved for the
+     * activities of the screen being loaded.
+     */
+    private ExtraSettingsTileCache.Tiles queryTiles(Intent intent, int userId) {
+        intent.setAction(TileUtils.IA_SETTINGS_ACTION);
+        List<ResolveInfo> results = mPm.queryIntentActivitiesAsUser(intent,
+                PackageManager.GET_META_DATA, userId);
+
+        intent.setAction(TileUtils.EXTRA_SETTINGS_ACTION);
+        List<ResolveInfo> extra_settings_results = mPm.queryIntentActivitiesAsUser(intent,
+                PackageManager.GET_META_DATA, userId);
+        for (ResolveInfo extra_settings_resolveInfo : extra_settings_results) {
+            if (!results.contains(extra_settings_resolveInfo)) {
+                results.add(extra_settings_resolveInfo);
+            }
+        }
+
+        // Filter to only include valid results and then sort the results
+        // Filter criteria: must be a system application and must have metaData
+        // Sort criteria: sort results based on [order, package within order]
+        results = results.stream()
+                .filter(r -> r.system && r.activityInfo != null && r.activityInfo.metaData != null)
+                .sorted((r1, r2) -> {
+                    // First sort by order
+                    int orderCompare = r2.activityInfo.metaData.getInt(META_DATA_KEY_ORDER)
+                            - r1.activityInfo.metaData.getInt(META_DATA_KEY_ORDER);
+                    if (orderCompare != 0) {
+                        return orderCompare;
+                    }
+
+                    // Then sort by package name
+                    String package1 = r1.activityInfo.packageName;
+                    String package2 = r2.activityInfo.packageName;
+                    return CASE_INSENSITIVE_ORDER.compare(package1, package2);
+                })
+                .collect(Collectors.toList());
+
+        Map<String, Resources> resourcesCache = new ArrayMap<>();
+        Map<String, List<ResolveInfo>> byCategory = new ArrayMap<>();
+        for (ResolveInfo resolved : results) {
+            ActivityInfo activityInfo = resolved.activityInfo;
+            String category = null;
+            try {
+                category = extractMetaDataString(activityInfo.metaData,
+                        META_DATA_PREFERENCE_CATEGORY, activityInfo.packageName, resourcesCache);
+            } catch (PackageManager.NameNotFoundException | Resources.NotFoundException e) {
+                LOG.d("Couldn't find info", e);
+            }
+            if (TextUtils.isEmpty(category)) {
+                LOG.d("no category.");
+            }
+            if (category == null) {
+                // If category is not specified or not supported, default to device.
+                category = CATEGORY_DEVICE;
+            }
+            List<ResolveInfo> categoryResults = byCategory.get(category);
+            if (categoryResults == null) {
+                categoryResults = new ArrayList<>();
+                byCategory.put(category, categoryResults);
+            }
+            categoryResults.add(resolved);
+        }
+        // Two activity queries, plus the resources loaded to resolve categories.
+        int packageManagerCalls = 2 + resourcesCache.size();
+        return new ExtraSettingsTileCache.Tiles(byCategory, packageManagerCalls);
+    }
+
+    /**
+     * Loads the icon of {@code preference} in the background, as decoding it can take a while.
+     * A placeholder icon keeps the title from shifting once the icon is set.
+     */
+    private void loadIcon(CarUiPreference preference, Bundle metaData, String packageName) {
+        if (!metaData.containsKey(META_DATA_PREFERENCE_ICON)) {
+            // Icons from a uri are loaded by ExtraSettingsPreferenceController.
+            return;
+        }
+        preference.setIcon(R.drawable.ic_placeholder);
+        executeBackgroundTask(() -> {
+            Drawable icon = ExtraSettingsUtil.createIcon(mContext, metaData, packageName);
+            executeUiTask(() -> preference.setIcon(icon));
+        });
+    }
+
+    @VisibleForTesting
+    void executeBackgroundTask(Runnable r) {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, r);
+    }
+
+    @VisibleForTesting
+    void executeUiTask(Runnable r) {
+        ThreadUtils.postOnMainThread(r);
+    }
+
     /**
      * Extracts the value in the metadata specified by the key.
      * If it is resource, resolve the string and return. Otherwise, return the string itself.
+     * The resources of {@code packageName} are only loaded if needed, and kept in {@code
+     * resourcesCache}.
      */
-    private String extractMetaDataString(Bundle metaData, String key, Resources res) {
+    private String extractMetaDataString(Bundle metaData, String key, String packageName,
+            Map<String, Resources> resourcesCache) throws PackageManager.NameNotFoundException {
         if (metaData.containsKey(key)) {
             if (metaData.get(key) instanceof Integer) {
+                Resources res = resourcesCache.get(packageName);
+                if (res == null) {
+                    res = mPm.getResourcesForApplication(packageName);
+                    resourcesCache.put(packageName, res);
+                }
                 return res.getString(metaData.getInt(key));
             }
             return metaData.getString(key);
@@ -213,7 +213,7 @@ public class ExtraSettingsPreferenceController extends PreferenceController<Pref
 
     @VisibleForTesting
     void executeBackgroundTask(Runnable r) {
-        ThreadUtils.postOnBackgroundThread(r);
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, r);
     }
 
     @VisibleForTesting
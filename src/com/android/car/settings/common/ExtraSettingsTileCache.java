@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ResolveInfo;
+import android.util.ArrayMap;
+import android.util.Pair;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the activities injecting settings, indexed by category, so that
+ * opening a screen with injected settings does not query the package manager again.
+ *
+ * <p>Entries are keyed by the filter of the query intent and the user, and dropped when a
+ * package is added, removed or changed or the user is switched.
+ */
+final class ExtraSettingsTileCache {
+    private static final Logger LOG = new Logger(ExtraSettingsTileCache.class);
+
+    /** Activities injecting settings of one query, by category. */
+    static final class Tiles {
+        private final Map<String, List<ResolveInfo>> mByCategory;
+        // Package manager calls made to compute the tiles.
+        private final int mCost;
+
+        Tiles(Map<String, List<ResolveInfo>> byCategory, int cost) {
+            mByCategory = byCategory;
+            mCost = cost;
+        }
+
+        /** Returns the activities of {@code category}, in display order. */
+        @Nullable
+        List<ResolveInfo> get(String category) {
+            return mByCategory.get(category);
+        }
+    }
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static ExtraSettingsTileCache sInstance;
+
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final ArrayMap<Pair<Intent.FilterComparison, Integer>, Tiles> mTiles =
+            new ArrayMap<>();
+    // Bumped on every invalidation, so that tiles computed before it are not cached.
+    @GuardedBy("mLock")
+    private int mGeneration;
+    @GuardedBy("mLock")
+    private long mCallCount;
+    @GuardedBy("mLock")
+    private long mSavedCallCount;
+    @GuardedBy("mLock")
+    private long mHitCount;
+    @GuardedBy("mLock")
+    private long mInvalidationCount;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            LOG.d("Invalidating injected settings on " + intent.getAction());
+            invalidate();
+        }
+    };
+
+    /**
+     * Returns the process-wide instance, which starts listening to package and user changes
+     * when it is created.
+     */
+    static ExtraSettingsTileCache getInstance(Context context) {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                sInstance = new ExtraSettingsTileCache();
+                sInstance.registerReceivers(context.getApplicationContext());
+            }
+            return sInstance;
+        }
+    }
+
+    /** Dumps the statistics of the process-wide instance, if it exists. */
+    static void dumpInstance(String prefix, PrintWriter writer) {
+        synchronized (sInstanceLock) {
+            if (sInstance != null) {
+                sInstance.dump(prefix, writer);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    ExtraSettingsTileCache() {
+    }
+
+    /**
+     * Returns the cached tiles of {@code queryIntent} for {@code userId}, or {@code null} if they
+     * have to be computed and passed to {@link #put}.
+     */
+    @Nullable
+    Tiles get(Intent queryIntent, int userId) {
+        synchronized (mLock) {
+            Tiles tiles = mTiles.get(getKey(queryIntent, userId));
+            if (tiles != null) {
+                mHitCount++;
+                mSavedCallCount += tiles.mCost;
+            }
+            return tiles;
+        }
+    }
+
+    /** Returns the generation to pass to {@link #put} for tiles computed from now on. */
+    int getGeneration() {
+        synchronized (mLock) {
+            return mGeneration;
+        }
+    }
+
+    /**
+     * Caches {@code tiles}, unless the cache was invalidated since {@code generation} was read.
+     */
+    void put(Intent queryIntent, int userId, Tiles tiles, int generation) {
+        synchronized (mLock) {
+            mCallCount += tiles.mCost;
+            if (generation == mGeneration) {
+                mTiles.put(getKey(queryIntent, userId), tiles);
+            }
+        }
+    }
+
+    /** Drops all tiles. */
+    void invalidate() {
+        synchronized (mLock) {
+            mTiles.clear();
+            mGeneration++;
+            mInvalidationCount++;
+        }
+    }
+
+    /** Returns the number of package manager calls made to compute tiles. */
+    long getCallCount() {
+        synchronized (mLock) {
+            return mCallCount;
+        }
+    }
+
+    /** Returns the number of package manager calls saved by serving cached tiles. */
+    long getSavedCallCount() {
+        synchronized (mLock) {
+            return mSavedCallCount;
+        }
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        synchronized (mLock) {
+            writer.println(prefix + "Injected settings: " + mTiles.size() + " cached queries, "
+                    + mCallCount + " package manager calls made, " + mSavedCallCount
+                    + " saved by " + mHitCount + " hits, " + mInvalidationCount
+                    + " invalidations");
+        }
+    }
+
+    private void registerReceivers(Context context) {
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        context.registerReceiver(mReceiver, packageFilter);
+        context.registerReceiver(mReceiver, new IntentFilter(Intent.ACTION_USER_SWITCHED));
+    }
+
+    private static Pair<Intent.FilterComparison, Integer> getKey(Intent queryIntent,
+            int userId) {
+        // Extras, such as the category, do not change which activities are resolved.
+        return Pair.create(new Intent.FilterComparison(queryIntent.cloneFilter()), userId);
+    }
+}
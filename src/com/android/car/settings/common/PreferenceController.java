@@ -188,6 +188,8 @@ public abstract class PreferenceController<V extends Preference> implements
     private boolean mIsStarted;
     private long mDebounceStartTimeMs;
     private int mAvailabilityStatusForZone;
+    @Nullable
+    private RefreshScheduler mRefreshScheduler;
 
     /**
      * Controllers should be instantiated from XML. To pass additional arguments see
@@ -228,6 +230,13 @@ public abstract class PreferenceController<V extends Preference> implements
         }
     }
 
+    /**
+     * Called by {@link SettingsFragment} to set the scheduler used by {@link #requestRefreshUi()}.
+     */
+    final void setRefreshScheduler(@Nullable RefreshScheduler refreshScheduler) {
+        mRefreshScheduler = refreshScheduler;
+    }
+
     /**
      * Returns the context used to construct the controller.
      */
@@ -304,7 +313,27 @@ public abstract class PreferenceController<V extends Preference> implements
     @Override
     public final void onUxRestrictionsChanged(CarUxRestrictions uxRestrictions) {
         mUxRestrictions = uxRestrictions;
-        refreshUi();
+        if (shouldCoalesceRefreshes()) {
+            requestRefreshUi();
+        } else {
+            refreshUi();
+        }
+    }
+
+    /**
+     * Requests a call to {@link #refreshUi()} on the next frame. Requests made before the frame
+     * is drawn are coalesced into a single refresh, which makes this preferable to
+     * {@link #refreshUi()} for callbacks that may fire in bursts (e.g. scan results). Falls back
+     * to an immediate refresh when the controller is not hosted by a {@link SettingsFragment}.
+     *
+     * <p>Must be called on the main thread.
+     */
+    public final void requestRefreshUi() {
+        if (mRefreshScheduler == null) {
+            refreshUi();
+            return;
+        }
+        mRefreshScheduler.schedule(this);
     }
 
     /**
@@ -354,7 +383,11 @@ public abstract class PreferenceController<V extends Preference> implements
                     getZoneDisabledPreferenceOnClick());
         }
         mIsCreated = true;
+        long startNanos = TimingRecorder.getInstance().begin(TimingRecorder.PHASE_FIRST_REFRESH,
+                getClass().getName());
         refreshUi();
+        TimingRecorder.getInstance().end(TimingRecorder.PHASE_FIRST_REFRESH,
+                getClass().getName(), startNanos);
     }
 
     /**
@@ -407,6 +440,7 @@ public abstract class PreferenceController<V extends Preference> implements
         }
         mIsStarted = false;
         onStopInternal();
+        cancelPendingWork();
     }
 
     /**
@@ -421,6 +455,14 @@ public abstract class PreferenceController<V extends Preference> implements
         }
         mIsCreated = false;
         onDestroyInternal();
+        cancelPendingWork();
+    }
+
+    /**
+     * Called after the controller is stopped or destroyed so that work started on behalf of the
+     * controller can be dropped.
+     */
+    void cancelPendingWork() {
     }
 
     // Methods for override ========================================================================
@@ -430,6 +472,15 @@ public abstract class PreferenceController<V extends Preference> implements
      */
     protected abstract Class<V> getPreferenceType();
 
+    /**
+     * Subclasses may override this method to return {@code true} so that refreshes triggered by
+     * {@link CarUxRestrictions} changes are coalesced per frame, as with
+     * {@link #requestRefreshUi()}. Defaults to {@code false}.
+     */
+    protected boolean shouldCoalesceRefreshes() {
+        return false;
+    }
+
     /**
      * Subclasses may override this method to throw {@link IllegalStateException} if any expected
      * post-instantiation setup is not completed using {@link SettingsFragment#use(Class, int)}
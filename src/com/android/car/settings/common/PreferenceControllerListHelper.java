@@ -16,24 +16,14 @@
 
 package com.android.car.settings.common;
 
-import static com.android.car.settings.common.PreferenceXmlParser.METADATA_CONTROLLER;
-import static com.android.car.settings.common.PreferenceXmlParser.METADATA_KEY;
-import static com.android.car.settings.common.PreferenceXmlParser.METADATA_OCCUPANT_ZONE;
-import static com.android.car.settings.common.PreferenceXmlParser.SUPPORTED_AVAILABILITY_STATUS;
-
 import android.annotation.NonNull;
 import android.annotation.Nullable;
 import android.annotation.XmlRes;
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
-import android.os.Bundle;
-import android.text.TextUtils;
-
-import com.android.car.settings.CarSettingsApplication;
 
-import org.xmlpull.v1.XmlPullParserException;
+import androidx.annotation.VisibleForTesting;
 
-import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -64,56 +54,50 @@ class PreferenceControllerListHelper {
     static List<PreferenceController> getPreferenceControllersFromXml(Context context,
             @XmlRes int xmlResId, FragmentController fragmentController,
             CarUxRestrictions uxRestrictions) {
-        List<PreferenceController> controllers = new ArrayList<>();
-        List<Bundle> preferenceMetadata;
-        try {
-            int zoneType = ((CarSettingsApplication) context.getApplicationContext())
-                    .getMyOccupantZoneType();
-            preferenceMetadata = PreferenceXmlParser.extractMetadata(context, xmlResId,
-                    PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
-                            | PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_CONTROLLER
-                            | PreferenceXmlParser.getMetadataFlagForOccupantZoneType(zoneType)
-                    );
-        } catch (IOException | XmlPullParserException e) {
-            throw new IllegalArgumentException(
-                    "Failed to parse preference XML for getting controllers", e);
-        }
-
-        for (Bundle metadata : preferenceMetadata) {
-            String controllerName = metadata.getString(METADATA_CONTROLLER);
-            if (TextUtils.isEmpty(controllerName)) {
-                continue; // Preference does not require a controller.
-            }
-            String key = metadata.getString(METADATA_KEY);
-            if (TextUtils.isEmpty(key)) {
-                throw new IllegalArgumentException("Missing key for controller: " + controllerName);
-            }
-            String availabilityStatusForZone = metadata.getString(METADATA_OCCUPANT_ZONE);
-            if (!TextUtils.isEmpty(availabilityStatusForZone)
-                    && !SUPPORTED_AVAILABILITY_STATUS.contains(availabilityStatusForZone)) {
-                throw new IllegalArgumentException("Invalid availability status : "
-                        + availabilityStatusForZone);
-            }
-
-            controllers.add(createInstance(controllerName, context, key, fragmentController,
-                    uxRestrictions, availabilityStatusForZone));
+        List<ScreenPlan.ControllerSpec> specs =
+                ScreenPlan.get(context, xmlResId).getControllerSpecs();
+        List<PreferenceController> controllers = new ArrayList<>(specs.size());
+        for (ScreenPlan.ControllerSpec spec : specs) {
+            controllers.add(createInstance(spec.mControllerName, context, spec.mPreferenceKey,
+                    fragmentController, uxRestrictions, spec.mAvailabilityStatusForZone));
         }
 
         return controllers;
     }
 
-    private static PreferenceController createInstance(String controllerName,
+    /**
+     * Creates the controller named {@code controllerName}. Controllers declared in the preference
+     * XMLs are constructed directly by {@link GeneratedPreferenceControllerFactory}; reflection is
+     * only used for controllers that were not known at build time.
+     */
+    @VisibleForTesting
+    static PreferenceController createInstance(String controllerName,
             Context context, String key, FragmentController fragmentController,
             CarUxRestrictions restrictionInfo, @Nullable String availabilityStatusForZone) {
+        long startNanos = TimingRecorder.getInstance().begin(
+                TimingRecorder.PHASE_CONSTRUCT_CONTROLLER, controllerName);
+        PreferenceController preferenceController = GeneratedPreferenceControllerFactory.create(
+                controllerName, context, key, fragmentController, restrictionInfo);
+        if (preferenceController == null) {
+            preferenceController = createInstanceReflectively(controllerName, context, key,
+                    fragmentController, restrictionInfo);
+        }
+        TimingRecorder.getInstance().end(TimingRecorder.PHASE_CONSTRUCT_CONTROLLER,
+                controllerName, startNanos);
+        preferenceController.setAvailabilityStatusForZone(availabilityStatusForZone);
+        return preferenceController;
+    }
+
+    @VisibleForTesting
+    static PreferenceController createInstanceReflectively(String controllerName,
+            Context context, String key, FragmentController fragmentController,
+            CarUxRestrictions restrictionInfo) {
         try {
             Class<?> clazz = Class.forName(controllerName);
             Constructor<?> preferenceConstructor = clazz.getConstructor(Context.class, String.class,
                     FragmentController.class, CarUxRestrictions.class);
             Object[] params = new Object[]{context, key, fragmentController, restrictionInfo};
-            PreferenceController preferenceController =
-                    (PreferenceController) preferenceConstructor.newInstance(params);
-            preferenceController.setAvailabilityStatusForZone(availabilityStatusForZone);
-            return preferenceController;
+            return (PreferenceController) preferenceConstructor.newInstance(params);
         } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
                 | InvocationTargetException | IllegalAccessException e) {
             throw new IllegalArgumentException(
@@ -121,4 +105,3 @@ class PreferenceControllerListHelper {
         }
     }
 }
-
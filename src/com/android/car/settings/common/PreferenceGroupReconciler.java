@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.util.ArrayMap;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the children of a {@link PreferenceGroup} in sync with a list of items without
+ * recreating preferences that are still present. Intended for dynamic lists such as Wi-Fi
+ * networks, Bluetooth devices, apps or accounts which are refreshed many times while a screen is
+ * shown.
+ *
+ * <p>Each item is identified by a stable key. On {@link #reconcile(PreferenceGroup, List)}:
+ * <ul>
+ * <li>preferences whose key is no longer present are removed,
+ * <li>preferences whose key is still present are updated in place and reordered,
+ * <li>new keys get a newly created preference.
+ * </ul>
+ *
+ * <p>The reconciler assumes it owns every preference of the group that it has added. Callers
+ * which need to add other children to the same group should not use it. All methods must be
+ * called on the main thread.
+ *
+ * @param <T> the type of item rendered by each preference.
+ * @param <P> the type of preference used to render an item.
+ */
+public final class PreferenceGroupReconciler<T, P extends Preference> {
+    private static final Logger LOG = new Logger(PreferenceGroupReconciler.class);
+
+    /** Creates and updates the preferences of a {@link PreferenceGroupReconciler}. */
+    public interface Binder<T, P extends Preference> {
+        /** Returns the stable key of {@code item}. Keys must be unique within a list. */
+        String getKey(T item);
+
+        /** Returns a new preference rendering {@code item}. */
+        P createPreference(T item);
+
+        /**
+         * Updates {@code preference}, previously created for an item with the same key, to
+         * render {@code item}. Returns {@code false} if the preference cannot be reused, in which
+         * case it is replaced by a new one.
+         */
+        boolean updatePreference(P preference, T item);
+    }
+
+    private final Binder<T, P> mBinder;
+    private Map<String, P> mPreferences = new ArrayMap<>();
+
+    private long mCreatedCount;
+    private long mUpdatedCount;
+    private long mRemovedCount;
+
+    public PreferenceGroupReconciler(Binder<T, P> binder) {
+        mBinder = binder;
+    }
+
+    /**
+     * Updates the children of {@code group} so that they render {@code items} in order.
+     */
+    public void reconcile(PreferenceGroup group, List<T> items) {
+        Map<String, P> previous = mPreferences;
+        Map<String, P> current = new ArrayMap<>(items.size());
+        long created = 0;
+        long updated = 0;
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            String key = mBinder.getKey(item);
+            if (current.containsKey(key)) {
+                LOG.w("Skipping item with duplicate key: " + key);
+                continue;
+            }
+            P preference = previous.remove(key);
+            if (preference != null && !mBinder.updatePreference(preference, item)) {
+                group.removePreference(preference);
+                mRemovedCount++;
+                preference = null;
+            }
+            if (preference == null) {
+                preference = mBinder.createPreference(item);
+                // Set the order before adding so groups ordered as added respect it.
+                preference.setOrder(i);
+                group.addPreference(preference);
+                created++;
+            } else {
+                // No-op unless the item moved.
+                preference.setOrder(i);
+                updated++;
+            }
+            current.put(key, preference);
+        }
+        for (P stale : previous.values()) {
+            group.removePreference(stale);
+        }
+        mRemovedCount += previous.size();
+        mCreatedCount += created;
+        mUpdatedCount += updated;
+        mPreferences = current;
+        LOG.d("Reconciled " + items.size() + " items: created=" + created + " updated="
+                + updated + " removed=" + previous.size());
+    }
+
+    /**
+     * Removes all preferences added by this reconciler from {@code group}.
+     */
+    public void clear(PreferenceGroup group) {
+        for (P preference : mPreferences.values()) {
+            group.removePreference(preference);
+        }
+        mRemovedCount += mPreferences.size();
+        mPreferences = new ArrayMap<>();
+    }
+
+    /** Returns the preference currently rendering the item with {@code key}, if any. */
+    public P getPreference(String key) {
+        return mPreferences.get(key);
+    }
+
+    /** Returns the number of preferences created since this reconciler was constructed. */
+    public long getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    /** Returns the number of preferences updated in place. */
+    public long getUpdatedCount() {
+        return mUpdatedCount;
+    }
+
+    /** Returns the number of preferences removed from the group. */
+    public long getRemovedCount() {
+        return mRemovedCount;
+    }
+}
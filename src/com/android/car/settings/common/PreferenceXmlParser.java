@@ -24,9 +24,11 @@ import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.os.Bundle;
 import android.util.AttributeSet;
+import android.util.LruCache;
 import android.util.Xml;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.car.settings.R;
 
@@ -38,6 +40,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -88,9 +91,22 @@ public class PreferenceXmlParser {
     static final String METADATA_CONTROLLER = "controller";
     public static final String METADATA_OCCUPANT_ZONE = "occupant_zone";
 
+    private static final int METADATA_CACHE_SIZE = 64;
+
+    /**
+     * Process-wide cache of parsed metadata keyed by {@link #getCacheKey(int, int)}. Fragment
+     * attach and search indexing parse the same screens repeatedly, so the result of the first
+     * parse is kept until the configuration changes.
+     */
+    private static final LruCache<Long, List<Bundle>> sMetadataCache =
+            new LruCache<>(METADATA_CACHE_SIZE);
+
     /**
      * Extracts metadata from each preference XML and puts them into a {@link Bundle}.
      *
+     * <p>Results are cached per {@code xmlResId} and {@code flags}, so only the first call for
+     * a screen parses the XML. Callers receive copies and may modify the returned bundles.
+     *
      * @param xmlResId xml res id of a preference screen
      * @param flags one or more of {@link MetadataFlag}
      * @return a list of Bundles containing the extracted metadata
@@ -98,11 +114,44 @@ public class PreferenceXmlParser {
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             LOG.d(xmlResId + " is invalid.");
-            return metadata;
+            return new ArrayList<>();
         }
+        long cacheKey = getCacheKey(xmlResId, flags);
+        List<Bundle> cached = sMetadataCache.get(cacheKey);
+        if (cached == null) {
+            cached = Collections.unmodifiableList(parseMetadata(context, xmlResId, flags));
+            sMetadataCache.put(cacheKey, cached);
+        }
+        List<Bundle> metadata = new ArrayList<>(cached.size());
+        for (Bundle bundle : cached) {
+            metadata.add(new Bundle(bundle));
+        }
+        return metadata;
+    }
+
+    /**
+     * Drops all cached metadata. Called when the configuration changes since preference XMLs may
+     * be qualified by configuration.
+     */
+    public static void clearMetadataCache() {
+        sMetadataCache.evictAll();
+    }
+
+    @VisibleForTesting
+    static int getMetadataCacheSize() {
+        return sMetadataCache.size();
+    }
+
+    private static long getCacheKey(@XmlRes int xmlResId, int flags) {
+        return ((long) xmlResId << 32) | (flags & 0xffffffffL);
+    }
+
+    @VisibleForTesting
+    static List<Bundle> parseMetadata(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
+        final List<Bundle> metadata = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
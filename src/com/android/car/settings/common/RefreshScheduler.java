@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.util.ArraySet;
+import android.view.Choreographer;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coalesces {@link PreferenceController#requestRefreshUi()} calls so that each dirty controller
+ * is refreshed at most once per frame. One scheduler is owned by each {@link SettingsFragment}.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+class RefreshScheduler implements Choreographer.FrameCallback {
+    private static final Logger LOG = new Logger(RefreshScheduler.class);
+
+    private final Choreographer mChoreographer;
+    private final ArraySet<PreferenceController> mDirtyControllers = new ArraySet<>();
+
+    private boolean mFrameCallbackPosted;
+    private long mRequestedRefreshCount;
+    private long mExecutedRefreshCount;
+
+    RefreshScheduler() {
+        this(Choreographer.getInstance());
+    }
+
+    @VisibleForTesting
+    RefreshScheduler(Choreographer choreographer) {
+        mChoreographer = choreographer;
+    }
+
+    /**
+     * Marks {@code controller} as dirty. Its {@link PreferenceController#refreshUi()} will be
+     * called on the next frame, once, regardless of how many times it was scheduled.
+     */
+    void schedule(PreferenceController controller) {
+        mRequestedRefreshCount++;
+        mDirtyControllers.add(controller);
+        if (!mFrameCallbackPosted) {
+            mFrameCallbackPosted = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Drops all pending refreshes.
+     */
+    void cancel() {
+        mDirtyControllers.clear();
+        if (mFrameCallbackPosted) {
+            mFrameCallbackPosted = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+        LOG.d("Refreshes requested: " + mRequestedRefreshCount + ", executed: "
+                + mExecutedRefreshCount);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameCallbackPosted = false;
+        // Controllers may schedule again while refreshing; those refreshes run next frame.
+        List<PreferenceController> controllers = new ArrayList<>(mDirtyControllers);
+        mDirtyControllers.clear();
+        for (PreferenceController controller : controllers) {
+            mExecutedRefreshCount++;
+            controller.refreshUi();
+        }
+    }
+
+    /**
+     * Returns the number of refreshes requested through {@link #schedule(PreferenceController)}.
+     */
+    long getRequestedRefreshCount() {
+        return mRequestedRefreshCount;
+    }
+
+    /**
+     * Returns the number of refreshes actually executed.
+     */
+    long getExecutedRefreshCount() {
+        return mExecutedRefreshCount;
+    }
+}
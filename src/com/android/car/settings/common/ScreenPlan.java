@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.android.car.settings.common.PreferenceXmlParser.METADATA_CONTROLLER;
+import static com.android.car.settings.common.PreferenceXmlParser.METADATA_KEY;
+import static com.android.car.settings.common.PreferenceXmlParser.METADATA_OCCUPANT_ZONE;
+import static com.android.car.settings.common.PreferenceXmlParser.SUPPORTED_AVAILABILITY_STATUS;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.XmlRes;
+
+import com.android.car.settings.CarSettingsApplication;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of the controllers declared by a preference screen XML for the current
+ * occupant zone. Plans are validated once and cached process-wide, so navigating to a screen
+ * again only has to instantiate its controllers.
+ *
+ * <p>The cache must be cleared with {@link #clearCache()} when the configuration (e.g. locale)
+ * or the occupant zone configuration changes.
+ */
+final class ScreenPlan {
+    private static final int CACHE_SIZE = 64;
+
+    private static final Object sLock = new Object();
+    @GuardedBy("sLock")
+    private static final LruCache<Long, ScreenPlan> sCache = new LruCache<>(CACHE_SIZE);
+    @GuardedBy("sLock")
+    private static int sHitCount;
+    @GuardedBy("sLock")
+    private static int sMissCount;
+
+    /** Controller to be created for a preference of the screen. */
+    static final class ControllerSpec {
+        final String mControllerName;
+        final String mPreferenceKey;
+        @Nullable
+        final String mAvailabilityStatusForZone;
+
+        private ControllerSpec(String controllerName, String preferenceKey,
+                @Nullable String availabilityStatusForZone) {
+            mControllerName = controllerName;
+            mPreferenceKey = preferenceKey;
+            mAvailabilityStatusForZone = availabilityStatusForZone;
+        }
+    }
+
+    private final List<ControllerSpec> mControllerSpecs;
+
+    private ScreenPlan(List<ControllerSpec> controllerSpecs) {
+        mControllerSpecs = Collections.unmodifiableList(controllerSpecs);
+    }
+
+    /**
+     * Returns the plan of the screen declared by {@code xmlResId} for the occupant zone of the
+     * current user.
+     *
+     * @throws IllegalArgumentException if the XML resource cannot be parsed or declares a
+     *         controller without a key or with an invalid zone availability.
+     */
+    @NonNull
+    static ScreenPlan get(Context context, @XmlRes int xmlResId) {
+        int zoneType = ((CarSettingsApplication) context.getApplicationContext())
+                .getMyOccupantZoneType();
+        long cacheKey = ((long) xmlResId << 32) | (zoneType & 0xffffffffL);
+        synchronized (sLock) {
+            ScreenPlan plan = sCache.get(cacheKey);
+            if (plan != null) {
+                sHitCount++;
+                return plan;
+            }
+            sMissCount++;
+        }
+        ScreenPlan plan = build(context, xmlResId, zoneType);
+        synchronized (sLock) {
+            sCache.put(cacheKey, plan);
+        }
+        return plan;
+    }
+
+    /** Drops all cached plans. */
+    static void clearCache() {
+        synchronized (sLock) {
+            sCache.evictAll();
+        }
+    }
+
+    @VisibleForTesting
+    static int getHitCount() {
+        synchronized (sLock) {
+            return sHitCount;
+        }
+    }
+
+    @VisibleForTesting
+    static int getMissCount() {
+        synchronized (sLock) {
+            return sMissCount;
+        }
+    }
+
+    /** Returns the controllers to create, in XML order. */
+    List<ControllerSpec> getControllerSpecs() {
+        return mControllerSpecs;
+    }
+
+    private static ScreenPlan build(Context context, @XmlRes int xmlResId, int zoneType) {
+        List<Bundle> preferenceMetadata;
+        String owner = "xml/" + context.getResources().getResourceEntryName(xmlResId);
+        long startNanos = TimingRecorder.getInstance().begin(TimingRecorder.PHASE_PARSE_XML,
+                owner);
+        try {
+            preferenceMetadata = PreferenceXmlParser.extractMetadata(context, xmlResId,
+                    PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
+                            | PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+                            | PreferenceXmlParser.getMetadataFlagForOccupantZoneType(zoneType)
+                    );
+        } catch (IOException | XmlPullParserException e) {
+            throw new IllegalArgumentException(
+                    "Failed to parse preference XML for getting controllers", e);
+        } finally {
+            TimingRecorder.getInstance().end(TimingRecorder.PHASE_PARSE_XML, owner, startNanos);
+        }
+
+        List<ControllerSpec> specs = new ArrayList<>();
+        for (Bundle metadata : preferenceMetadata) {
+            String controllerName = metadata.getString(METADATA_CONTROLLER);
+            if (TextUtils.isEmpty(controllerName)) {
+                continue; // Preference does not require a controller.
+            }
+            String key = metadata.getString(METADATA_KEY);
+            if (TextUtils.isEmpty(key)) {
+                throw new IllegalArgumentException("Missing key for controller: " + controllerName);
+            }
+            String availabilityStatusForZone = metadata.getString(METADATA_OCCUPANT_ZONE);
+            if (!TextUtils.isEmpty(availabilityStatusForZone)
+                    && !SUPPORTED_AVAILABILITY_STATUS.contains(availabilityStatusForZone)) {
+                throw new IllegalArgumentException("Invalid availability status : "
+                        + availabilityStatusForZone);
+            }
+            specs.add(new ControllerSpec(controllerName, key, availabilityStatusForZone));
+        }
+        return new ScreenPlan(specs);
+    }
+}
@@ -85,8 +85,18 @@ public abstract class SettingsFragment extends PreferenceFragment implements
             new SparseArray<>();
 
     private CarUxRestrictions mUxRestrictions;
+    private RefreshScheduler mRefreshScheduler;
     private HighlightablePreferenceGroupAdapter mAdapter;
     private int mCurrentRequestIndex = 0;
+    private long mLaunchStartNanos;
+
+    /**
+     * Drops the cached controller plans of all screens. Must be called when the configuration or
+     * the occupant zone of the user changes, as both affect which controllers a screen declares.
+     */
+    public static void clearScreenPlanCache() {
+        ScreenPlan.clearCache();
+    }
 
     /**
      * Returns the resource id for the preference XML of this fragment.
@@ -144,6 +154,9 @@ public abstract class SettingsFragment extends PreferenceFragment implements
 
     @Override
     public void onAttach(Context context) {
+        mLaunchStartNanos = TimingRecorder.getInstance().beginAsync(
+                TimingRecorder.PHASE_FRAGMENT_LAUNCH, getClass().getName(),
+                System.identityHashCode(this));
         super.onAttach(context);
         if (!(getActivity() instanceof UxRestrictionsProvider)) {
             throw new IllegalStateException("Must attach to a UxRestrictionsProvider");
@@ -164,13 +177,19 @@ public abstract class SettingsFragment extends PreferenceFragment implements
 
         mUxRestrictions = ((UxRestrictionsProvider) requireActivity()).getCarUxRestrictions();
         mPreferenceControllers.clear();
+        long startNanos = TimingRecorder.getInstance().begin(
+                TimingRecorder.PHASE_CREATE_CONTROLLERS, getClass().getName());
         mPreferenceControllers.addAll(
                 PreferenceControllerListHelper.getPreferenceControllersFromXml(styledContext,
                         getPreferenceScreenResId(), /* fragmentController= */ this,
                         mUxRestrictions));
+        TimingRecorder.getInstance().end(TimingRecorder.PHASE_CREATE_CONTROLLERS,
+                getClass().getName(), startNanos);
 
+        mRefreshScheduler = new RefreshScheduler();
         Lifecycle lifecycle = getLifecycle();
         mPreferenceControllers.forEach(controller -> {
+            controller.setRefreshScheduler(mRefreshScheduler);
             lifecycle.addObserver(controller);
             mPreferenceControllersLookup.put(controller.getPreferenceKey(), controller);
         });
@@ -187,6 +206,8 @@ public abstract class SettingsFragment extends PreferenceFragment implements
             throw new IllegalStateException(
                     "Fragment must specify a preference screen resource ID");
         }
+        long startNanos = TimingRecorder.getInstance().begin(
+                TimingRecorder.PHASE_INFLATE_PREFERENCES, getClass().getName());
         addPreferencesFromResource(resId);
         PreferenceScreen screen = getPreferenceScreen();
         for (PreferenceController controller : mPreferenceControllers) {
@@ -194,6 +215,8 @@ public abstract class SettingsFragment extends PreferenceFragment implements
 
             controller.setPreference(pref);
         }
+        TimingRecorder.getInstance().end(TimingRecorder.PHASE_INFLATE_PREFERENCES,
+                getClass().getName(), startNanos);
     }
 
     @Override
@@ -222,12 +245,26 @@ public abstract class SettingsFragment extends PreferenceFragment implements
         }
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        if (mLaunchStartNanos != 0) {
+            TimingRecorder.getInstance().endAsync(TimingRecorder.PHASE_FRAGMENT_LAUNCH,
+                    getClass().getName(), System.identityHashCode(this), mLaunchStartNanos);
+            mLaunchStartNanos = 0;
+        }
+    }
+
     @Override
     public void onDetach() {
         super.onDetach();
         Lifecycle lifecycle = getLifecycle();
         mPreferenceControllers.forEach(lifecycle::removeObserver);
         mActivityResultCallbackMap.clear();
+        if (mRefreshScheduler != null) {
+            mRefreshScheduler.cancel();
+            mRefreshScheduler = null;
+        }
     }
 
     @Override
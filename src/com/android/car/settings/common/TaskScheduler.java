@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntDef;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App-wide scheduler for background work. Settings stays resident on the head unit, so rather
+ * than each component starting its own threads, work is submitted to one of a few bounded lanes:
+ *
+ * <ul>
+ * <li>{@link #LANE_UI_CRITICAL} for work whose result is about to be shown on screen.
+ * <li>{@link #LANE_BULK} for long running or low priority work, e.g. resets and indexing.
+ * <li>{@link #LANE_FAN_OUT} for short tasks which a caller, possibly on another lane, runs in
+ * parallel and waits for, e.g. asking every search index provider for its keys.
+ * </ul>
+ *
+ * <p>Components which need a {@link Looper} (e.g. Wi-Fi trackers) share a single worker thread
+ * through {@link #createWorkerHandler()}. Lifecycle bound work should be submitted through a
+ * {@link TaskScope} so that it is cancelled together.
+ */
+public final class TaskScheduler {
+
+    /** Lanes to which work can be submitted. */
+    @IntDef({LANE_UI_CRITICAL, LANE_BULK, LANE_FAN_OUT})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Lane {
+    }
+
+    /** Lane for work whose result is needed to render the current screen. */
+    public static final int LANE_UI_CRITICAL = 0;
+    /** Lane for long running or deferrable work. */
+    public static final int LANE_BULK = 1;
+    /** Lane for parallel sub-tasks whose caller waits for them. */
+    public static final int LANE_FAN_OUT = 2;
+
+    private static final int UI_CRITICAL_POOL_SIZE = 2;
+    private static final int BULK_POOL_SIZE = 2;
+    private static final int FAN_OUT_POOL_SIZE = 4;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private static TaskScheduler sInstance;
+
+    private final LaneExecutor[] mLanes;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private HandlerThread mWorkerThread;
+
+    /** Returns the process-wide instance. */
+    public static synchronized TaskScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new TaskScheduler();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    TaskScheduler() {
+        mLanes = new LaneExecutor[]{
+                new LaneExecutor("ui", UI_CRITICAL_POOL_SIZE, Process.THREAD_PRIORITY_DEFAULT),
+                new LaneExecutor("bulk", BULK_POOL_SIZE, Process.THREAD_PRIORITY_BACKGROUND),
+                new LaneExecutor("fanOut", FAN_OUT_POOL_SIZE,
+                        Process.THREAD_PRIORITY_BACKGROUND)};
+    }
+
+    /** Submits {@code task} to {@code lane}. */
+    public Future<?> submit(@Lane int lane, Runnable task) {
+        return mLanes[lane].submit(mLanes[lane].wrap(task));
+    }
+
+    /** Submits {@code task} to {@code lane}. */
+    public <T> Future<T> submit(@Lane int lane, Callable<T> task) {
+        LaneExecutor executor = mLanes[lane];
+        long enqueueTimeNanos = SystemClock.elapsedRealtimeNanos();
+        return executor.submit(() -> {
+            long startNanos = executor.onTaskStarted(enqueueTimeNanos);
+            try {
+                return task.call();
+            } finally {
+                executor.onTaskFinished(startNanos);
+            }
+        });
+    }
+
+    /** Returns an {@link Executor} which submits to {@code lane}. */
+    public Executor getExecutor(@Lane int lane) {
+        return task -> submit(lane, task);
+    }
+
+    /**
+     * Returns a new {@link Handler} on the shared worker thread. Each caller gets its own handler
+     * so that it can remove its pending messages without affecting other users of the thread.
+     */
+    public Handler createWorkerHandler() {
+        synchronized (mLock) {
+            if (mWorkerThread == null) {
+                mWorkerThread = new HandlerThread("CarSettings-worker",
+                        Process.THREAD_PRIORITY_BACKGROUND);
+                mWorkerThread.start();
+            }
+            return new Handler(mWorkerThread.getLooper());
+        }
+    }
+
+    /** Returns a new {@link TaskScope} backed by this scheduler. */
+    public TaskScope createScope() {
+        return new TaskScope(this);
+    }
+
+    /** Returns the number of tasks waiting to run on {@code lane}. */
+    public int getQueueDepth(@Lane int lane) {
+        return mLanes[lane].getQueue().size();
+    }
+
+    /** Returns the number of tasks which have completed on {@code lane}. */
+    public long getCompletedTaskCount(@Lane int lane) {
+        return mLanes[lane].mCompletedTasks.get();
+    }
+
+    /** Dumps per-lane queue depth and latency. */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TaskScheduler:");
+        for (LaneExecutor lane : mLanes) {
+            lane.dump(prefix + "  ", writer);
+        }
+        synchronized (mLock) {
+            writer.println(prefix + "  worker thread started: " + (mWorkerThread != null));
+        }
+    }
+
+    private static final class LaneExecutor extends ThreadPoolExecutor {
+        private final String mName;
+        private final AtomicLong mCompletedTasks = new AtomicLong();
+        private final AtomicLong mTotalWaitNanos = new AtomicLong();
+        private final AtomicLong mMaxWaitNanos = new AtomicLong();
+        private final AtomicLong mTotalRunNanos = new AtomicLong();
+
+        LaneExecutor(String name, int poolSize, int threadPriority) {
+            super(poolSize, poolSize, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new LaneThreadFactory(name, threadPriority));
+            mName = name;
+            // Let idle lanes release their threads.
+            allowCoreThreadTimeOut(true);
+        }
+
+        Runnable wrap(Runnable task) {
+            long enqueueTimeNanos = SystemClock.elapsedRealtimeNanos();
+            return () -> {
+                long startNanos = onTaskStarted(enqueueTimeNanos);
+                try {
+                    task.run();
+                } finally {
+                    onTaskFinished(startNanos);
+                }
+            };
+        }
+
+        long onTaskStarted(long enqueueTimeNanos) {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            long waitNanos = startNanos - enqueueTimeNanos;
+            mTotalWaitNanos.addAndGet(waitNanos);
+            mMaxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+            return startNanos;
+        }
+
+        void onTaskFinished(long startNanos) {
+            mTotalRunNanos.addAndGet(SystemClock.elapsedRealtimeNanos() - startNanos);
+            mCompletedTasks.incrementAndGet();
+        }
+
+        void dump(String prefix, PrintWriter writer) {
+            long completed = mCompletedTasks.get();
+            long divisor = Math.max(completed, 1);
+            writer.println(prefix + mName + ": threads=" + getPoolSize()
+                    + " active=" + getActiveCount()
+                    + " queued=" + getQueue().size()
+                    + " completed=" + completed
+                    + " avgWaitMs=" + TimeUnit.NANOSECONDS.toMillis(mTotalWaitNanos.get() / divisor)
+                    + " maxWaitMs=" + TimeUnit.NANOSECONDS.toMillis(mMaxWaitNanos.get())
+                    + " avgRunMs=" + TimeUnit.NANOSECONDS.toMillis(mTotalRunNanos.get() / divisor));
+        }
+    }
+
+    private static final class LaneThreadFactory implements ThreadFactory {
+        private final String mName;
+        private final int mThreadPriority;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        LaneThreadFactory(String name, int threadPriority) {
+            mName = name;
+            mThreadPriority = threadPriority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(mThreadPriority);
+                runnable.run();
+            }, "CarSettings-" + mName + "-" + mCount.incrementAndGet());
+        }
+    }
+}
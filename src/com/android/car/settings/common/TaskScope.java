@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.os.Handler;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+/**
+ * Groups work submitted to a {@link TaskScheduler} so that it can be cancelled at once, e.g. when
+ * the owning fragment or controller is destroyed. A scope may be observed by a lifecycle, in
+ * which case it is cancelled on destroy.
+ *
+ * <p>Cancelling removes queued tasks and pending worker handler messages. Tasks which are already
+ * running are allowed to finish, so callers posting results should check {@link #isCancelled()}.
+ * Once cancelled, new submissions are rejected.
+ */
+public final class TaskScope implements DefaultLifecycleObserver {
+    private final TaskScheduler mScheduler;
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final List<Future<?>> mFutures = new ArrayList<>();
+    @GuardedBy("mLock")
+    private final List<Handler> mHandlers = new ArrayList<>();
+    @GuardedBy("mLock")
+    private boolean mCancelled;
+
+    TaskScope(TaskScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Submits {@code task} to {@code lane}.
+     *
+     * @throws CancellationException if the scope has been cancelled
+     */
+    public Future<?> submit(@TaskScheduler.Lane int lane, Runnable task) {
+        synchronized (mLock) {
+            checkNotCancelledLocked();
+            return trackLocked(mScheduler.submit(lane, task));
+        }
+    }
+
+    /**
+     * Submits {@code task} to {@code lane}.
+     *
+     * @throws CancellationException if the scope has been cancelled
+     */
+    public <T> Future<T> submit(@TaskScheduler.Lane int lane, Callable<T> task) {
+        synchronized (mLock) {
+            checkNotCancelledLocked();
+            return trackLocked(mScheduler.submit(lane, task));
+        }
+    }
+
+    /**
+     * Returns a {@link Handler} on the shared worker thread whose pending messages are removed
+     * when the scope is cancelled.
+     *
+     * @throws CancellationException if the scope has been cancelled
+     */
+    public Handler createWorkerHandler() {
+        synchronized (mLock) {
+            checkNotCancelledLocked();
+            Handler handler = mScheduler.createWorkerHandler();
+            mHandlers.add(handler);
+            return handler;
+        }
+    }
+
+    /** Returns whether {@link #cancel()} has been called. */
+    public boolean isCancelled() {
+        synchronized (mLock) {
+            return mCancelled;
+        }
+    }
+
+    /** Cancels all queued work and pending worker handler messages of this scope. */
+    public void cancel() {
+        synchronized (mLock) {
+            mCancelled = true;
+            for (Future<?> future : mFutures) {
+                future.cancel(/* mayInterruptIfRunning= */ false);
+            }
+            mFutures.clear();
+            for (Handler handler : mHandlers) {
+                handler.removeCallbacksAndMessages(/* token= */ null);
+            }
+            mHandlers.clear();
+        }
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        cancel();
+    }
+
+    @GuardedBy("mLock")
+    private <F extends Future<?>> F trackLocked(F future) {
+        mFutures.removeIf(Future::isDone);
+        mFutures.add(future);
+        return future;
+    }
+
+    @GuardedBy("mLock")
+    private void checkNotCancelledLocked() {
+        if (mCancelled) {
+            throw new CancellationException("TaskScope has been cancelled");
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.StringDef;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long the phases of starting Settings and opening a screen take, keyed by the
+ * class doing the work (application, fragment or controller). Each phase is also emitted as a
+ * {@link Trace} section so that it shows up in system traces.
+ *
+ * <p>Recorded timings are printed by {@code adb shell dumpsys activity
+ * com.android.car.settings}.
+ */
+public final class TimingRecorder {
+
+    /** Phases which are recorded. */
+    @StringDef({PHASE_APP_CREATE, PHASE_ACTIVITY_CREATE, PHASE_FRAGMENT_LAUNCH, PHASE_PARSE_XML,
+            PHASE_CREATE_CONTROLLERS, PHASE_CONSTRUCT_CONTROLLER, PHASE_INFLATE_PREFERENCES,
+            PHASE_FIRST_REFRESH, PHASE_NON_INDEXABLE_KEYS, PHASE_LOAD_INJECTED_SETTINGS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Phase {
+    }
+
+    /** Application creation, including starting the connection to the car service. */
+    public static final String PHASE_APP_CREATE = "appCreate";
+    /** Settings activity creation. */
+    public static final String PHASE_ACTIVITY_CREATE = "activityCreate";
+    /** From attaching a fragment until it is resumed. */
+    public static final String PHASE_FRAGMENT_LAUNCH = "fragmentLaunch";
+    /** Parsing the preference XML of a screen. */
+    public static final String PHASE_PARSE_XML = "parseXml";
+    /** Creating all controllers of a fragment. */
+    public static final String PHASE_CREATE_CONTROLLERS = "createControllers";
+    /** Constructing a single controller. */
+    public static final String PHASE_CONSTRUCT_CONTROLLER = "constructController";
+    /** Inflating the preferences of a fragment. */
+    public static final String PHASE_INFLATE_PREFERENCES = "inflatePreferences";
+    /** The first refresh of a controller after it is created. */
+    public static final String PHASE_FIRST_REFRESH = "firstRefresh";
+    /** Getting the non-indexable keys of a search index provider. */
+    public static final String PHASE_NON_INDEXABLE_KEYS = "nonIndexableKeys";
+    /** Loading the injected settings of one category. */
+    public static final String PHASE_LOAD_INJECTED_SETTINGS = "loadInjectedSettings";
+
+    // Trace section names are limited to 127 characters.
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    private static final TimingRecorder INSTANCE = new TimingRecorder();
+
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final ArrayMap<String, ArrayMap<String, Stats>> mStats = new ArrayMap<>();
+
+    /** Returns the process-wide instance. */
+    public static TimingRecorder getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    TimingRecorder() {
+    }
+
+    /**
+     * Starts timing {@code phase} for {@code owner} and opens a trace section. Must be followed
+     * by {@link #end(String, String, long)} on the same thread.
+     *
+     * @return the start time to pass to {@link #end(String, String, long)}.
+     */
+    public long begin(@Phase String phase, String owner) {
+        Trace.beginSection(getSectionName(phase, owner));
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Closes the trace section opened by {@link #begin(String, String)} and records it. */
+    public void end(@Phase String phase, String owner, long startNanos) {
+        long durationNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        Trace.endSection();
+        record(phase, owner, durationNanos);
+    }
+
+    /**
+     * Like {@link #begin(String, String)} but for phases which span several main thread
+     * messages. Uses an async trace section identified by {@code cookie}, which must be passed
+     * to {@link #endAsync(String, String, int, long)}.
+     */
+    public long beginAsync(@Phase String phase, String owner, int cookie) {
+        Trace.beginAsyncSection(getSectionName(phase, owner), cookie);
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /** Closes the section opened by {@link #beginAsync(String, String, int)} and records it. */
+    public void endAsync(@Phase String phase, String owner, int cookie, long startNanos) {
+        long durationNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        Trace.endAsyncSection(getSectionName(phase, owner), cookie);
+        record(phase, owner, durationNanos);
+    }
+
+    /** Returns the number of times {@code phase} was recorded for {@code owner}. */
+    public int getCount(@Phase String phase, String owner) {
+        synchronized (mLock) {
+            Stats stats = getStatsLocked(phase, owner);
+            return stats == null ? 0 : stats.mCount;
+        }
+    }
+
+    /** Drops all recorded timings. */
+    public void clear() {
+        synchronized (mLock) {
+            mStats.clear();
+        }
+    }
+
+    /** Dumps the recorded timings, slowest owners first within each phase. */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "TimingRecorder (count, avg ms, max ms):");
+        synchronized (mLock) {
+            for (int i = 0; i < mStats.size(); i++) {
+                writer.println(prefix + "  " + mStats.keyAt(i) + ":");
+                ArrayMap<String, Stats> phaseStats = mStats.valueAt(i);
+                List<Integer> order = new ArrayList<>(phaseStats.size());
+                for (int j = 0; j < phaseStats.size(); j++) {
+                    order.add(j);
+                }
+                order.sort((a, b) -> Long.compare(phaseStats.valueAt(b).mTotalNanos,
+                        phaseStats.valueAt(a).mTotalNanos));
+                for (int index : order) {
+                    Stats stats = phaseStats.valueAt(index);
+                    writer.println(prefix + "    " + phaseStats.keyAt(index) + ": "
+                            + stats.mCount + ", "
+                            + toMillis(stats.mTotalNanos / stats.mCount) + ", "
+                            + toMillis(stats.mMaxNanos));
+                }
+            }
+        }
+    }
+
+    private void record(String phase, String owner, long durationNanos) {
+        synchronized (mLock) {
+            ArrayMap<String, Stats> phaseStats = mStats.get(phase);
+            if (phaseStats == null) {
+                phaseStats = new ArrayMap<>();
+                mStats.put(phase, phaseStats);
+            }
+            Stats stats = phaseStats.get(owner);
+            if (stats == null) {
+                stats = new Stats();
+                phaseStats.put(owner, stats);
+            }
+            stats.add(durationNanos);
+        }
+    }
+
+    @GuardedBy("mLock")
+    @Nullable
+    private Stats getStatsLocked(String phase, String owner) {
+        ArrayMap<String, Stats> phaseStats = mStats.get(phase);
+        return phaseStats == null ? null : phaseStats.get(owner);
+    }
+
+    private static String getSectionName(String phase, String owner) {
+        String sectionName = phase + ":" + owner;
+        if (sectionName.length() > MAX_SECTION_NAME_LENGTH) {
+            // Keep the end, which has the simple class name.
+            sectionName = sectionName.substring(sectionName.length() - MAX_SECTION_NAME_LENGTH);
+        }
+        return sectionName;
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static final class Stats {
+        private int mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+
+        void add(long durationNanos) {
+            mCount++;
+            mTotalNanos += durationNanos;
+            mMaxNanos = Math.max(mMaxNanos, durationNanos);
+        }
+    }
+}
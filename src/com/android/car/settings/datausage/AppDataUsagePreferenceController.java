@@ -16,35 +16,27 @@
 
 package com.android.car.settings.datausage;
 
-import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
-import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
-
-import android.annotation.NonNull;
-import android.app.usage.NetworkStats;
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
-import android.content.pm.UserInfo;
 import android.net.NetworkTemplate;
-import android.os.UserHandle;
+import android.util.ArrayMap;
 import android.util.SparseArray;
 
 import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.PreferenceController;
 import com.android.car.settings.common.ProgressBarPreference;
-import com.android.car.settings.profiles.ProfileHelper;
+import com.android.car.ui.preference.CarUiPreference;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.UidDetail;
-import com.android.settingslib.net.UidDetailProvider;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
@@ -52,38 +44,36 @@ import javax.annotation.Nullable;
  * Controller that adds all the applications using the data sorted by the amount of data used. The
  * first application that used most amount of data will be at the top with progress 100 percentage.
  * All other progress are calculated relatively.
+ *
+ * <p>Only the top {@link #PAGE_SIZE} applications are shown at first, followed by a preference
+ * which shows the next page when clicked.
  */
 public class AppDataUsagePreferenceController extends
         PreferenceController<PreferenceGroup> implements AppsNetworkStatsManager.Callback {
 
-    private final UidDetailProvider mUidDetailProvider;
+    @VisibleForTesting
+    static final int PAGE_SIZE = 20;
+    @VisibleForTesting
+    static final String SHOW_MORE_KEY = "show_more";
+
+    private final UidDetailResolver mUidDetailResolver;
     private NetworkTemplate mNetworkTemplate;
+    private AppDataUsageSummary mSummary = AppDataUsageSummary.EMPTY;
+    private int mShownCount = PAGE_SIZE;
+    private CarUiPreference mShowMorePreference;
 
     public AppDataUsagePreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
         this(context, preferenceKey, fragmentController, uxRestrictions,
-                new UidDetailProvider(context));
+                UidDetailResolver.getInstance(context));
     }
 
     @VisibleForTesting
     AppDataUsagePreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions,
-            UidDetailProvider uidDetailProvider) {
+            UidDetailResolver uidDetailResolver) {
         super(context, preferenceKey, fragmentController, uxRestrictions);
-        mUidDetailProvider = uidDetailProvider;
-    }
-
-    @VisibleForTesting
-    boolean hasNextBucket(@NonNull NetworkStats stats) {
-        return stats.hasNextBucket();
-    }
-
-    @NonNull
-    @VisibleForTesting
-    NetworkStats.Bucket getNextBucket(@NonNull NetworkStats stats) {
-        NetworkStats.Bucket bucket = new NetworkStats.Bucket();
-        stats.getNextBucket(bucket);
-        return bucket;
+        mUidDetailResolver = uidDetailResolver;
     }
 
     @Override
@@ -92,23 +82,16 @@ public class AppDataUsagePreferenceController extends
     }
 
     @Override
-    public void onDataLoaded(@Nullable NetworkStats stats, @Nullable int[] restrictedUids) {
-        List<AppItem> items = new ArrayList<>();
-        long largest = 0;
-
-        List<UserInfo> profiles = ProfileHelper.getInstance(getContext()).getAllProfiles();
-        SparseArray<AppItem> knownItems = new SparseArray<>();
-
-        if (stats != null) {
-            while (hasNextBucket(stats)) {
-                NetworkStats.Bucket entry = getNextBucket(stats);
-                long size = aggregateDataUsage(knownItems, items, entry, profiles);
-                largest = Math.max(size, largest);
-            }
+    public void onDataLoaded(@Nullable AppDataUsageSummary summary) {
+        if (summary == null) {
+            summary = AppDataUsageSummary.EMPTY;
         }
-
-        updateRestrictedState(restrictedUids, knownItems, items, profiles);
-        sortAndAddPreferences(items, largest);
+        // Pages opened for another cycle are not kept, but a reload of the same cycle keeps them.
+        if (summary.getStart() != mSummary.getStart() || summary.getEnd() != mSummary.getEnd()) {
+            mShownCount = PAGE_SIZE;
+        }
+        mSummary = summary;
+        updatePreferences();
     }
 
     /** Sets the {@link NetworkTemplate}  */
@@ -116,165 +99,134 @@ public class AppDataUsagePreferenceController extends
         mNetworkTemplate = networkTemplate;
     }
 
-    private long aggregateDataUsage(SparseArray<AppItem> knownItems, List<AppItem> items,
-            NetworkStats.Bucket entry, List<UserInfo> profiles) {
-        int currentUserId = UserHandle.myUserId();
-
-        // Decide how to collapse items together.
-        int uid = entry.getUid();
-
-        int collapseKey;
-        int category;
-        int userId = UserHandle.getUserId(uid);
-
-        if (isUidValid(uid)) {
-            collapseKey = uid;
-            category = AppItem.CATEGORY_APP;
-            return accumulate(collapseKey, knownItems, entry, category, items);
-        }
-
-        if (!UserHandle.isApp(uid)) {
-            collapseKey = android.os.Process.SYSTEM_UID;
-            category = AppItem.CATEGORY_APP;
-            return accumulate(collapseKey, knownItems, entry, category, items);
+    /**
+     * Shows the top items of the summary. Preferences of apps which are still shown are updated
+     * in place, so that their icon and label do not have to be loaded again. The icons and labels
+     * which are not cached are resolved together, and shown in a single update.
+     */
+    private void updatePreferences() {
+        List<AppItem> items = mSummary.getTopItems(mShownCount);
+        long largest = mSummary.getLargest();
+        PreferenceGroup group = getPreference();
+        Map<String, AppDataUsagePreference> existing = new ArrayMap<>();
+        for (int i = 0; i < group.getPreferenceCount(); i++) {
+            Preference preference = group.getPreference(i);
+            if (preference instanceof AppDataUsagePreference) {
+                existing.put(preference.getKey(), (AppDataUsagePreference) preference);
+            }
         }
 
-        if (profileContainsUserId(profiles, userId) && userId == currentUserId) {
-            // Add to app item.
-            collapseKey = uid;
-            category = AppItem.CATEGORY_APP;
-            return accumulate(collapseKey, knownItems, entry, category, items);
+        List<AppDataUsagePreference> preferences = new ArrayList<>(items.size());
+        SparseArray<AppDataUsagePreference> unresolved = new SparseArray<>();
+        for (int i = 0; i < items.size(); i++) {
+            AppItem item = items.get(i);
+            int percentTotal = largest != 0 ? (int) (item.total * 100 / largest) : 0;
+            AppDataUsagePreference preference = existing.remove(String.valueOf(item.key));
+            if (preference != null) {
+                preference.update(item, percentTotal);
+            } else {
+                preference = new AppDataUsagePreference(getContext(), item, percentTotal);
+                UidDetail detail = mUidDetailResolver.getCachedDetail(item.key);
+                if (detail != null) {
+                    preference.setDetail(detail);
+                } else {
+                    unresolved.put(item.key, preference);
+                }
+            }
+            preference.setOrder(i);
+            preferences.add(preference);
         }
 
-        if (profileContainsUserId(profiles, userId) && userId != currentUserId) {
-            // Add to a managed user item.
-            int managedKey = UidDetailProvider.buildKeyForUser(userId);
-            long usersLargest = accumulate(managedKey, knownItems, entry, AppItem.CATEGORY_USER,
-                    items);
-            collapseKey = uid;
-            category = AppItem.CATEGORY_APP;
-            long appLargest = accumulate(collapseKey, knownItems, entry, category, items);
-            return Math.max(usersLargest, appLargest);
+        for (AppDataUsagePreference preference : existing.values()) {
+            group.removePreference(preference);
         }
-
-        // If it is a removed user add it to the removed users' key.
-        Optional<UserInfo> info = profiles.stream().filter(
-                userInfo -> userInfo.id == userId).findFirst();
-        if (!info.isPresent()) {
-            collapseKey = UID_REMOVED;
-            category = AppItem.CATEGORY_APP;
-        } else {
-            // Add to other user item.
-            collapseKey = UidDetailProvider.buildKeyForUser(userId);
-            category = AppItem.CATEGORY_USER;
+        for (AppDataUsagePreference preference : preferences) {
+            if (preference.getParent() == null) {
+                group.addPreference(preference);
+            }
         }
-
-        return accumulate(collapseKey, knownItems, entry, category, items);
-    }
-
-    /**
-     * UID does not belong to a regular app and maybe belongs to a removed application or
-     * application using for tethering traffic.
-     */
-    private boolean isUidValid(int uid) {
-        return !UserHandle.isApp(uid) && (uid == UID_REMOVED || uid == UID_TETHERING);
-    }
-
-    private boolean profileContainsUserId(List<UserInfo> profiles, int userId) {
-        return profiles.stream().anyMatch(userInfo -> userInfo.id == userId);
+        updateShowMorePreference(group, items.size());
+        resolveDetails(unresolved);
     }
 
-    private void updateRestrictedState(@Nullable int[] restrictedUids,
-            SparseArray<AppItem> knownItems, List<AppItem> items, List<UserInfo> profiles) {
-        if (restrictedUids == null) {
+    private void resolveDetails(SparseArray<AppDataUsagePreference> preferences) {
+        if (preferences.size() == 0) {
             return;
         }
-
-        for (int i = 0; i < restrictedUids.length; ++i) {
-            int uid = restrictedUids[i];
-            // Only splice in restricted state for current user or managed users.
-            if (!profileContainsUserId(profiles, uid)) {
-                continue;
+        int[] uids = new int[preferences.size()];
+        for (int i = 0; i < preferences.size(); i++) {
+            uids[i] = preferences.keyAt(i);
+        }
+        mUidDetailResolver.resolve(uids, details -> {
+            for (int i = 0; i < preferences.size(); i++) {
+                preferences.valueAt(i).setDetail(details.get(preferences.keyAt(i)));
             }
+        });
+    }
 
-            AppItem item = knownItems.get(uid);
-            if (item == null) {
-                item = new AppItem(uid);
-                item.total = -1;
-                items.add(item);
-                knownItems.put(item.key, item);
+    private void updateShowMorePreference(PreferenceGroup group, int shownCount) {
+        boolean hasMore = shownCount < mSummary.getItemCount();
+        if (!hasMore) {
+            if (mShowMorePreference != null) {
+                group.removePreference(mShowMorePreference);
             }
-            item.restricted = true;
+            return;
         }
-    }
-
-    private void sortAndAddPreferences(List<AppItem> items, long largest) {
-        getPreference().removeAll();
-        Collections.sort(items);
-        for (int i = 0; i < items.size(); i++) {
-            int percentTotal = largest != 0 ? (int) (items.get(i).total * 100 / largest) : 0;
-            AppDataUsagePreference preference = new AppDataUsagePreference(getContext(),
-                    items.get(i), percentTotal, mUidDetailProvider);
-            getPreference().addPreference(preference);
+        if (mShowMorePreference == null) {
+            mShowMorePreference = new CarUiPreference(getContext());
+            mShowMorePreference.setKey(SHOW_MORE_KEY);
+            mShowMorePreference.setTitle(R.string.data_usage_show_more_apps);
+            mShowMorePreference.setOnPreferenceClickListener(p -> {
+                mShownCount += PAGE_SIZE;
+                updatePreferences();
+                return true;
+            });
         }
-    }
-
-    /**
-     * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
-     * Creates the item if needed.
-     *
-     * @param collapseKey  the collapse key used to map the item.
-     * @param knownItems   collection of known (already existing) items.
-     * @param entry        the network stats entry to extract data usage from.
-     * @param itemCategory the item is categorized on the list view by this category. Must be
-     */
-    private static long accumulate(int collapseKey, SparseArray<AppItem> knownItems,
-            NetworkStats.Bucket entry, int itemCategory, List<AppItem> items) {
-        int uid = entry.getUid();
-        AppItem item = knownItems.get(collapseKey);
-        if (item == null) {
-            item = new AppItem(collapseKey);
-            item.category = itemCategory;
-            items.add(item);
-            knownItems.put(item.key, item);
+        mShowMorePreference.setOrder(shownCount);
+        if (mShowMorePreference.getParent() == null) {
+            group.addPreference(mShowMorePreference);
         }
-        item.addUid(uid);
-        item.total += entry.getRxBytes() + entry.getTxBytes();
-        return item.total;
     }
 
     private class AppDataUsagePreference extends ProgressBarPreference {
 
-        private final AppItem mItem;
-        private final int mPercent;
+        private AppItem mItem;
+        private int mPercent;
         private UidDetail mDetail;
 
-        AppDataUsagePreference(Context context, AppItem item, int percent,
-                UidDetailProvider provider) {
+        AppDataUsagePreference(Context context, AppItem item, int percent) {
             super(context);
             mItem = item;
             mPercent = percent;
             setLayoutResource(R.layout.progress_bar_preference);
             setKey(String.valueOf(item.key));
-            if (item.restricted && item.total <= 0) {
+            setUsageSummary();
+        }
+
+        /** Shows the label and icon of the app. */
+        void setDetail(@Nullable UidDetail detail) {
+            mDetail = detail;
+            setAppInfo();
+            setOnClickListener();
+        }
+
+        /** Shows the usage of {@code item}, which has the same key as the current item. */
+        void update(AppItem item, int percent) {
+            mItem = item;
+            mPercent = percent;
+            setUsageSummary();
+            if (mDetail != null) {
+                setProgress(mPercent);
+            }
+        }
+
+        private void setUsageSummary() {
+            if (mItem.restricted && mItem.total <= 0) {
                 setSummary(R.string.data_usage_app_restricted);
             } else {
-                CharSequence s = DataUsageUtils.bytesToIecUnits(context, item.total);
+                CharSequence s = DataUsageUtils.bytesToIecUnits(getContext(), mItem.total);
                 setSummary(s);
             }
-            mDetail = provider.getUidDetail(item.key, /* blocking= */ false);
-            if (mDetail != null) {
-                setAppInfo();
-                setOnClickListener();
-            } else {
-                ThreadUtils.postOnBackgroundThread(() -> {
-                    mDetail = provider.getUidDetail(mItem.key, /* blocking= */ true);
-                    ThreadUtils.postOnMainThread(() -> {
-                        setAppInfo();
-                        setOnClickListener();
-                    });
-                });
-            }
         }
 
         private void setAppInfo() {
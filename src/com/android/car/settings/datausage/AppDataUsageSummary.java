@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data usage of a billing cycle aggregated per app, ranked the way it is shown by {@link
+ * AppDataUsagePreferenceController}.
+ *
+ * <p>Built on the loader thread by a {@link Builder}, which accumulates the usage of every
+ * {@link android.app.usage.NetworkStats.Bucket} into primitive arrays. The summary keeps these
+ * arrays, and only creates {@link AppItem AppItems} for the top ranks which are shown, selected
+ * with a bounded heap rather than by sorting every app.
+ */
+public final class AppDataUsageSummary {
+
+    // Category of items which were only added as restricted, which keep the default of AppItem.
+    private static final int DEFAULT_CATEGORY = new AppItem().category;
+
+    /** Summary without any usage. */
+    public static final AppDataUsageSummary EMPTY = new Builder(new int[0], 0).build();
+
+    private final int mSize;
+    private final int[] mKeys;
+    private final int[] mCategories;
+    private final long[] mTotals;
+    private final boolean[] mRestricted;
+    private final long[] mItemUids;
+    private final long mLargest;
+    private final long mStart;
+    private final long mEnd;
+
+    private AppDataUsageSummary(int size, int[] keys, int[] categories, long[] totals,
+            boolean[] restricted, long[] itemUids, long largest, long start, long end) {
+        mSize = size;
+        mKeys = keys;
+        mCategories = categories;
+        mTotals = totals;
+        mRestricted = restricted;
+        mItemUids = itemUids;
+        mLargest = largest;
+        mStart = start;
+        mEnd = end;
+    }
+
+    /** Returns the number of items. */
+    public int getItemCount() {
+        return mSize;
+    }
+
+    /** Returns all items, sorted by category and then by decreasing usage. */
+    public List<AppItem> getItems() {
+        return getTopItems(mSize);
+    }
+
+    /**
+     * Returns the first {@code count} items in the order of {@link #getItems()}, without
+     * creating or sorting the others.
+     */
+    public List<AppItem> getTopItems(int count) {
+        int[] indexes = selectTop(Math.min(count, mSize));
+        SparseIntArray positions = new SparseIntArray(indexes.length);
+        AppItem[] items = new AppItem[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            int index = indexes[i];
+            AppItem item = new AppItem(mKeys[index]);
+            item.category = mCategories[index];
+            item.total = mTotals[index];
+            item.restricted = mRestricted[index];
+            items[i] = item;
+            positions.put(index, i);
+        }
+        for (long itemUid : mItemUids) {
+            int position = positions.get((int) (itemUid >>> 32), -1);
+            if (position >= 0) {
+                items[position].addUid((int) itemUid);
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    /** Returns the largest usage of any item, in bytes. */
+    public long getLargest() {
+        return mLargest;
+    }
+
+    /** Returns the start of the range the usage was measured over, in ms since the epoch. */
+    public long getStart() {
+        return mStart;
+    }
+
+    /** Returns the end of the range the usage was measured over, in ms since the epoch. */
+    public long getEnd() {
+        return mEnd;
+    }
+
+    /** Returns the indexes of the first {@code count} items, in order. */
+    private int[] selectTop(int count) {
+        if (count == 0) {
+            return new int[0];
+        }
+        // Max-heap of the best items seen so far, with the worst of them at the root.
+        int[] heap = new int[count];
+        int heapSize = 0;
+        for (int index = 0; index < mSize; index++) {
+            if (heapSize < count) {
+                heap[heapSize] = index;
+                siftUp(heap, heapSize++);
+            } else if (compare(index, heap[0]) < 0) {
+                heap[0] = index;
+                siftDown(heap, heapSize);
+            }
+        }
+        // Popping the worst item first fills the result from the end.
+        int[] top = new int[count];
+        for (int i = count - 1; i >= 0; i--) {
+            top[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize);
+        }
+        return top;
+    }
+
+    private void siftUp(int[] heap, int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (compare(heap[position], heap[parent]) <= 0) {
+                return;
+            }
+            swap(heap, position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size) {
+        int position = 0;
+        while (true) {
+            int largest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && compare(heap[left], heap[largest]) > 0) {
+                largest = left;
+            }
+            if (right < size && compare(heap[right], heap[largest]) > 0) {
+                largest = right;
+            }
+            if (largest == position) {
+                return;
+            }
+            swap(heap, position, largest);
+            position = largest;
+        }
+    }
+
+    /** Orders items like {@link AppItem#compareTo}, keeping the order in which they were added. */
+    private int compare(int index1, int index2) {
+        int comparison = Integer.compare(mCategories[index1], mCategories[index2]);
+        if (comparison == 0) {
+            comparison = Long.compare(mTotals[index2], mTotals[index1]);
+        }
+        if (comparison == 0) {
+            comparison = Integer.compare(index1, index2);
+        }
+        return comparison;
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int index = heap[i];
+        heap[i] = heap[j];
+        heap[j] = index;
+    }
+
+    /** Accumulates the usage of each uid into the items shown for it. */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 32;
+
+        private final SparseBooleanArray mProfileUserIds = new SparseBooleanArray();
+        private final int mCurrentUserId;
+
+        // Collapse key to the index of the item in the arrays below.
+        private final SparseIntArray mIndexes = new SparseIntArray();
+        private int mSize;
+        private int[] mKeys = new int[INITIAL_CAPACITY];
+        private int[] mCategories = new int[INITIAL_CAPACITY];
+        private long[] mTotals = new long[INITIAL_CAPACITY];
+        private boolean[] mRestricted = new boolean[INITIAL_CAPACITY];
+        // Item index in the high and uid in the low 32 bits, one entry per bucket and item.
+        private long[] mItemUids = new long[INITIAL_CAPACITY];
+        private int mItemUidCount;
+        private long mStart;
+        private long mEnd;
+
+        /**
+         * @param profileUserIds the ids of all profiles of the device
+         * @param currentUserId the id of the user the usage is shown to
+         */
+        public Builder(int[] profileUserIds, int currentUserId) {
+            for (int userId : profileUserIds) {
+                mProfileUserIds.put(userId, true);
+            }
+            mCurrentUserId = currentUserId;
+        }
+
+        /** Adds {@code bytes} used by {@code uid}. */
+        public Builder add(int uid, long bytes) {
+            if (isUidValid(uid)) {
+                accumulate(uid, AppItem.CATEGORY_APP, uid, bytes);
+                return this;
+            }
+            if (!UserHandle.isApp(uid)) {
+                accumulate(Process.SYSTEM_UID, AppItem.CATEGORY_APP, uid, bytes);
+                return this;
+            }
+            int userId = UserHandle.getUserId(uid);
+            if (!mProfileUserIds.get(userId)) {
+                // A removed user.
+                accumulate(UID_REMOVED, AppItem.CATEGORY_APP, uid, bytes);
+                return this;
+            }
+            if (userId != mCurrentUserId) {
+                // Also add to a managed user item.
+                accumulate(UidDetailProvider.buildKeyForUser(userId), AppItem.CATEGORY_USER,
+                        uid, bytes);
+            }
+            accumulate(uid, AppItem.CATEGORY_APP, uid, bytes);
+            return this;
+        }
+
+        /** Marks the items of {@code restrictedUids} as restricted, adding them if needed. */
+        public Builder setRestricted(int[] restrictedUids) {
+            for (int uid : restrictedUids) {
+                // Only splice in restricted state for current user or managed users.
+                if (!mProfileUserIds.get(uid)) {
+                    continue;
+                }
+                int index = mIndexes.get(uid, -1);
+                if (index < 0) {
+                    index = addItem(uid, DEFAULT_CATEGORY);
+                    mTotals[index] = -1;
+                }
+                mRestricted[index] = true;
+            }
+            return this;
+        }
+
+        /** Sets the range the usage was measured over. */
+        public Builder setRange(long start, long end) {
+            mStart = start;
+            mEnd = end;
+            return this;
+        }
+
+        /** Returns the summary of the usage added so far. The builder must not be reused. */
+        public AppDataUsageSummary build() {
+            long largest = 0;
+            for (int i = 0; i < mSize; i++) {
+                largest = Math.max(largest, mTotals[i]);
+            }
+            return new AppDataUsageSummary(mSize, mKeys, mCategories, mTotals, mRestricted,
+                    Arrays.copyOf(mItemUids, mItemUidCount), largest, mStart, mEnd);
+        }
+
+        private void accumulate(int collapseKey, int category, int uid, long bytes) {
+            int index = mIndexes.get(collapseKey, -1);
+            if (index < 0) {
+                index = addItem(collapseKey, category);
+            }
+            mTotals[index] += bytes;
+            if (mItemUidCount == mItemUids.length) {
+                mItemUids = Arrays.copyOf(mItemUids, mItemUidCount * 2);
+            }
+            mItemUids[mItemUidCount++] = ((long) index << 32) | (uid & 0xFFFFFFFFL);
+        }
+
+        private int addItem(int collapseKey, int category) {
+            if (mSize == mKeys.length) {
+                int capacity = mSize * 2;
+                mKeys = Arrays.copyOf(mKeys, capacity);
+                mCategories = Arrays.copyOf(mCategories, capacity);
+                mTotals = Arrays.copyOf(mTotals, capacity);
+                mRestricted = Arrays.copyOf(mRestricted, capacity);
+            }
+            int index = mSize++;
+            mKeys[index] = collapseKey;
+            mCategories[index] = category;
+            mIndexes.put(collapseKey, index);
+            return index;
+        }
+
+        /**
+         * UID does not belong to a regular app and maybe belongs to a removed application or
+         * application using for tethering traffic.
+         */
+        private static boolean isUidValid(int uid) {
+            return !UserHandle.isApp(uid) && (uid == UID_REMOVED || uid == UID_TETHERING);
+        }
+    }
+}
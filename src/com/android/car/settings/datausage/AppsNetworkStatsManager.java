@@ -16,9 +16,6 @@
 
 package com.android.car.settings.datausage;
 
-import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
-
-import android.app.usage.NetworkStats;
 import android.app.usage.NetworkStatsManager;
 import android.content.Context;
 import android.net.NetworkPolicyManager;
@@ -47,8 +44,10 @@ public class AppsNetworkStatsManager {
         /**
          * Called when the data is successfully loaded from
          * {@link AppsNetworkStatsManager.AppsNetworkStatsResult}.
+         *
+         * @param summary the usage aggregated per app, or {@code null} if there is none
          */
-        void onDataLoaded(@Nullable NetworkStats stats, @Nullable int[] restrictedUids);
+        void onDataLoaded(@Nullable AppDataUsageSummary summary);
     }
 
     private static final Logger LOG = new Logger(AppsNetworkStatsManager.class);
@@ -97,31 +96,32 @@ public class AppsNetworkStatsManager {
         loaderManager.restartLoader(NETWORK_STATS_ID, bundle, new AppsNetworkStatsResult());
     }
 
-    private void onAppsNetworkStatsLoaded(NetworkStats stats, int[] restrictedUids) {
+    private void onAppsNetworkStatsLoaded(@Nullable AppDataUsageSummary summary) {
         for (AppsNetworkStatsManager.Callback listener : mAppsNetworkStatsListeners) {
-            listener.onDataLoaded(stats, restrictedUids);
+            listener.onDataLoaded(summary);
         }
     }
 
     /**
      * Callback to calculate applications network stats.
      */
-    private class AppsNetworkStatsResult implements LoaderManager.LoaderCallbacks<NetworkStats> {
+    private class AppsNetworkStatsResult
+            implements LoaderManager.LoaderCallbacks<AppDataUsageSummary> {
         @Override
-        public Loader<NetworkStats> onCreateLoader(int id, Bundle args) {
-            return new SummaryForAllUidLoader(mContext, mNetworkStatsManager, args);
+        public Loader<AppDataUsageSummary> onCreateLoader(int id, Bundle args) {
+            return new SummaryForAllUidLoader(mContext, mNetworkStatsManager,
+                    mNetworkPolicyManager, args);
         }
 
         @Override
-        public void onLoadFinished(Loader<NetworkStats> loader, NetworkStats data) {
-            int[] restrictedUids = mNetworkPolicyManager.getUidsWithPolicy(
-                    POLICY_REJECT_METERED_BACKGROUND);
-            onAppsNetworkStatsLoaded(data, restrictedUids);
+        public void onLoadFinished(Loader<AppDataUsageSummary> loader,
+                AppDataUsageSummary data) {
+            onAppsNetworkStatsLoaded(data);
         }
 
         @Override
-        public void onLoaderReset(Loader<NetworkStats> loader) {
-            onAppsNetworkStatsLoaded(/* stats= */ null, /* restrictedUids= */ new int[0]);
+        public void onLoaderReset(Loader<AppDataUsageSummary> loader) {
+            onAppsNetworkStatsLoaded(/* summary= */ null);
         }
     }
 }
@@ -81,5 +81,7 @@ public class CycleResetDayOfMonthPickerPreferenceController extends
     private void onDayOfMonthPicked(int dayOfMonth) {
         getNetworkPolicyEditor().setPolicyCycleDay(getNetworkTemplate(), dayOfMonth,
                 TimeZone.getDefault().getID());
+        // The cycles have moved.
+        DataUsageCycleManager.clearCache();
     }
 }
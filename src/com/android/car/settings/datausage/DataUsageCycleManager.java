@@ -18,7 +18,9 @@ package com.android.car.settings.datausage;
 import android.content.Context;
 import android.net.NetworkTemplate;
 import android.os.Bundle;
+import android.os.SystemClock;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 import androidx.loader.app.LoaderManager;
@@ -29,9 +31,13 @@ import com.android.settingslib.net.NetworkCycleChartDataLoader;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class to manage the callbacks needed to calculate data usage cycles.
+ *
+ * <p>The cycles loaded for a template are kept for a short while, so that opening the data usage
+ * screens again does not reload the usage of every cycle.
  */
 public class DataUsageCycleManager {
 
@@ -48,6 +54,17 @@ public class DataUsageCycleManager {
 
     @VisibleForTesting
     static final int NETWORK_CYCLE_LOADER_ID = 11;
+    // The network stats are not polled more often than this anyway.
+    @VisibleForTesting
+    static final long MAX_CACHED_DATA_AGE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Object sCacheLock = new Object();
+    @GuardedBy("sCacheLock")
+    private static NetworkTemplate sCachedTemplate;
+    @GuardedBy("sCacheLock")
+    private static List<NetworkCycleChartData> sCachedData;
+    @GuardedBy("sCacheLock")
+    private static long sCachedDataTime;
 
     private final Context mContext;
     private final NetworkTemplate mNetworkTemplate;
@@ -79,9 +96,41 @@ public class DataUsageCycleManager {
      * Start calculating the storage stats.
      */
     public void startLoading(LoaderManager loaderManager) {
+        List<NetworkCycleChartData> cachedData = getCachedData(mNetworkTemplate);
+        if (cachedData != null) {
+            onReceive(cachedData);
+            return;
+        }
         loaderManager.restartLoader(NETWORK_CYCLE_LOADER_ID, null, new NetworkDataCyclesResult());
     }
 
+    /** Drops the cycles loaded so far, e.g. because the cycle reset day changed. */
+    public static void clearCache() {
+        synchronized (sCacheLock) {
+            sCachedTemplate = null;
+            sCachedData = null;
+        }
+    }
+
+    private static List<NetworkCycleChartData> getCachedData(NetworkTemplate template) {
+        synchronized (sCacheLock) {
+            if (sCachedData == null || !template.equals(sCachedTemplate)
+                    || SystemClock.elapsedRealtime() - sCachedDataTime > MAX_CACHED_DATA_AGE_MS) {
+                return null;
+            }
+            return sCachedData;
+        }
+    }
+
+    private static void putCachedData(NetworkTemplate template,
+            List<NetworkCycleChartData> data) {
+        synchronized (sCacheLock) {
+            sCachedTemplate = template;
+            sCachedData = data;
+            sCachedDataTime = SystemClock.elapsedRealtime();
+        }
+    }
+
     private void onReceive(List<NetworkCycleChartData> networkCycleDataLoaderList) {
         for (DataUsageCycleManager.DataUsageCycleLoaderCallback listener : mListeners) {
             listener.onDataLoaded(networkCycleDataLoaderList);
@@ -103,6 +152,9 @@ public class DataUsageCycleManager {
         @Override
         public void onLoadFinished(@NonNull Loader<List<NetworkCycleChartData>> loader,
                 List<NetworkCycleChartData> networkCycleDataLoaderList) {
+            if (networkCycleDataLoaderList != null) {
+                putCachedData(mNetworkTemplate, networkCycleDataLoaderList);
+            }
             onReceive(networkCycleDataLoaderList);
         }
 
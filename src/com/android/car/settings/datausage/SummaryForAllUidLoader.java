@@ -16,30 +16,45 @@
 
 package com.android.car.settings.datausage;
 
+import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
+
 import android.app.usage.NetworkStats;
 import android.app.usage.NetworkStatsManager;
 import android.content.Context;
+import android.content.pm.UserInfo;
 import android.net.ConnectivityManager;
+import android.net.NetworkPolicyManager;
 import android.net.NetworkTemplate;
 import android.os.Bundle;
 import android.os.RemoteException;
+import android.os.UserHandle;
+import android.util.SparseLongArray;
 
+import androidx.annotation.Nullable;
 import androidx.loader.content.AsyncTaskLoader;
 
+import com.android.car.settings.profiles.ProfileHelper;
+
+import java.util.List;
+
 /**
- * Fetches the network stats using the {@link NetworkStatsManager}.
+ * Fetches the network stats using the {@link NetworkStatsManager} and aggregates them per app.
  *
- * <p>Class is taken from {@link com.android.settingslib.net.SummaryForAllUidLoader}. The only
- * difference is we are using {@link AsyncTaskLoader} instead of {@link
- * android.content.AsyncTaskLoader}.
+ * <p>Class is taken from {@link com.android.settingslib.net.SummaryForAllUidLoader}. It uses
+ * {@link AsyncTaskLoader} instead of {@link android.content.AsyncTaskLoader}, and aggregates the
+ * usage into an {@link AppDataUsageSummary} on the loader thread instead of leaving it to the
+ * main thread. The usage per uid is read through {@link UidDataUsageCache}, so that only the
+ * usage which is not cached yet is queried.
  */
-public class SummaryForAllUidLoader extends AsyncTaskLoader<NetworkStats> {
+public class SummaryForAllUidLoader extends AsyncTaskLoader<AppDataUsageSummary> {
     private static final String KEY_TEMPLATE = "template";
     private static final String KEY_START = "start";
     private static final String KEY_END = "end";
 
     private final NetworkStatsManager mNetworkStatsManager;
+    private final NetworkPolicyManager mNetworkPolicyManager;
     private final Bundle mArgs;
+    private final UidDataUsageCache mUsageCache;
 
     /**
      * Builds the bundle given the template, start and end.
@@ -52,10 +67,13 @@ public class SummaryForAllUidLoader extends AsyncTaskLoader<NetworkStats> {
         return args;
     }
 
-    public SummaryForAllUidLoader(Context context, NetworkStatsManager statsManager, Bundle args) {
+    public SummaryForAllUidLoader(Context context, NetworkStatsManager statsManager,
+            NetworkPolicyManager policyManager, Bundle args) {
         super(context);
         mArgs = args;
         mNetworkStatsManager = statsManager;
+        mNetworkPolicyManager = policyManager;
+        mUsageCache = UidDataUsageCache.getInstance(context);
     }
 
     @Override
@@ -65,19 +83,98 @@ public class SummaryForAllUidLoader extends AsyncTaskLoader<NetworkStats> {
     }
 
     @Override
-    public NetworkStats loadInBackground() {
+    public AppDataUsageSummary loadInBackground() {
         NetworkTemplate template = mArgs.getParcelable(KEY_TEMPLATE);
+        String subscriberId = template.getSubscriberIds().isEmpty() ? null
+                : template.getSubscriberIds().iterator().next();
         long start = mArgs.getLong(KEY_START);
         long end = mArgs.getLong(KEY_END);
+        SparseLongArray usage = mUsageCache.getUsage(subscriberId, start, end,
+                System.currentTimeMillis(),
+                new UidDataUsageCache.UsageSource() {
+                    @Override
+                    public SparseLongArray query(long start, long end) {
+                        return querySummary(subscriberId, start, end);
+                    }
+
+                    @Override
+                    public long queryBucketDuration(long start, long end) {
+                        return SummaryForAllUidLoader.this.queryBucketDuration(subscriberId,
+                                start, end);
+                    }
+                });
+        if (usage == null) {
+            // Apps restricted from using background data are still listed without any usage.
+            usage = new SparseLongArray();
+        }
+        List<UserInfo> profiles = ProfileHelper.getInstance(getContext()).getAllProfiles();
+        int[] profileUserIds = new int[profiles.size()];
+        for (int i = 0; i < profiles.size(); i++) {
+            profileUserIds[i] = profiles.get(i).id;
+        }
+        AppDataUsageSummary.Builder builder = new AppDataUsageSummary.Builder(profileUserIds,
+                UserHandle.myUserId()).setRange(start, end);
+        for (int i = 0; i < usage.size(); i++) {
+            builder.add(usage.keyAt(i), usage.valueAt(i));
+        }
+        builder.setRestricted(
+                mNetworkPolicyManager.getUidsWithPolicy(POLICY_REJECT_METERED_BACKGROUND));
+        return builder.build();
+    }
 
+    @Nullable
+    private SparseLongArray querySummary(@Nullable String subscriberId, long start, long end) {
+        NetworkStats stats;
         try {
-            String subscriberId = template.getSubscriberIds().isEmpty() ? null
-                    : template.getSubscriberIds().iterator().next();
-            return mNetworkStatsManager.querySummary(
+            stats = mNetworkStatsManager.querySummary(
                     ConnectivityManager.TYPE_MOBILE, subscriberId, start, end);
         } catch (RemoteException e) {
             return null;
         }
+        if (stats == null) {
+            return null;
+        }
+        SparseLongArray usage = new SparseLongArray();
+        try {
+            // One bucket is reused for all entries, as there can be thousands of them.
+            NetworkStats.Bucket bucket = new NetworkStats.Bucket();
+            while (stats.hasNextBucket()) {
+                stats.getNextBucket(bucket);
+                int uid = bucket.getUid();
+                usage.put(uid, usage.get(uid) + bucket.getRxBytes() + bucket.getTxBytes());
+            }
+        } finally {
+            stats.close();
+        }
+        return usage;
+    }
+
+    /**
+     * Returns the duration of the buckets of the usage history per uid, or {@code 0} if there
+     * is no history between {@code start} and {@code end}.
+     */
+    private long queryBucketDuration(@Nullable String subscriberId, long start, long end) {
+        NetworkStats stats;
+        try {
+            stats = mNetworkStatsManager.queryDetails(
+                    ConnectivityManager.TYPE_MOBILE, subscriberId, start, end);
+        } catch (RemoteException e) {
+            return 0;
+        }
+        if (stats == null) {
+            return 0;
+        }
+        try {
+            // The history of each uid is only fetched when it is enumerated, so reading the
+            // first bucket is enough.
+            NetworkStats.Bucket bucket = new NetworkStats.Bucket();
+            if (stats.getNextBucket(bucket)) {
+                return bucket.getEndTimeStamp() - bucket.getStartTimeStamp();
+            }
+        } finally {
+            stats.close();
+        }
+        return 0;
     }
 
     @Override
@@ -0,0 +1,388 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.UserHandle;
+import android.util.AtomicFile;
+import android.util.LruCache;
+import android.util.SparseLongArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of the data usage per uid of billing cycles, persisted so that opening the
+ * data usage screens does not query the network stats of a whole cycle again.
+ *
+ * <p>Usage is only cached up to a bucket boundary which is old enough for the network stats to
+ * be final. Once a cycle is over, its usage is served entirely from the cache. For the open
+ * cycle, only the range since the cached boundary is queried, and the boundary moves forward.
+ * When an app is uninstalled, its cached usage is moved to {@link
+ * android.app.usage.NetworkStats.Bucket#UID_REMOVED}, as the network stats do with its history.
+ * Apps uninstalled while Settings was not running are found when their cycles are read from the
+ * disk.
+ */
+final class UidDataUsageCache {
+    private static final Logger LOG = new Logger(UidDataUsageCache.class);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String DIRECTORY_NAME = "uid_data_usage";
+    private static final int MAX_CACHED_CYCLES_IN_MEMORY = 8;
+    private static final int MAX_CACHED_CYCLES_ON_DISK = 24;
+
+    // Usage older than this is not expected to change anymore.
+    @VisibleForTesting
+    static final long SETTLE_DURATION_MS = TimeUnit.HOURS.toMillis(6);
+
+    /** Queries the network stats. */
+    interface UsageSource {
+        /**
+         * Returns the usage per uid between {@code start} and {@code end}, or {@code null} if it
+         * could not be queried.
+         */
+        @Nullable
+        SparseLongArray query(long start, long end);
+
+        /**
+         * Returns the duration of the buckets in which the usage between {@code start} and
+         * {@code end} is persisted, or {@code 0} if it is not known.
+         */
+        long queryBucketDuration(long start, long end);
+    }
+
+    /** Usage per uid from the start of a cycle until {@link #mCoveredUntil}. */
+    private static final class Snapshot {
+        private final long mCoveredUntil;
+        private final SparseLongArray mTotals;
+
+        Snapshot(long coveredUntil, SparseLongArray totals) {
+            mCoveredUntil = coveredUntil;
+            mTotals = totals;
+        }
+    }
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static UidDataUsageCache sInstance;
+
+    private final File mDirectory;
+    private final PackageManager mPackageManager;
+    private final LruCache<String, Snapshot> mSnapshots =
+            new LruCache<>(MAX_CACHED_CYCLES_IN_MEMORY);
+    // Serializes the accesses to the files.
+    private final Object mFileLock = new Object();
+    // Incremented when cached usage is rewritten, so that usage computed from the cache before
+    // is not cached again.
+    @GuardedBy("mFileLock")
+    private int mGeneration;
+    // Duration of the buckets of the network stats, 0 until it is known.
+    private volatile long mBucketDurationMs;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            int uid = intent.getIntExtra(Intent.EXTRA_UID, -1);
+            if (uid != -1) {
+                TaskScheduler.getInstance().submit(TaskScheduler.LANE_BULK,
+                        () -> onUidRemoved(uid));
+            }
+        }
+    };
+
+    /**
+     * Returns the process-wide instance, which starts listening to removed uids when it is
+     * created.
+     */
+    static UidDataUsageCache getInstance(Context context) {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                Context applicationContext = context.getApplicationContext();
+                sInstance = new UidDataUsageCache(
+                        new File(applicationContext.getCacheDir(), DIRECTORY_NAME),
+                        applicationContext.getPackageManager());
+                applicationContext.registerReceiver(sInstance.mReceiver,
+                        new IntentFilter(Intent.ACTION_UID_REMOVED));
+            }
+            return sInstance;
+        }
+    }
+
+    @VisibleForTesting
+    UidDataUsageCache(File directory, PackageManager packageManager) {
+        mDirectory = directory;
+        mPackageManager = packageManager;
+    }
+
+    /**
+     * Returns the usage per uid of {@code subscriberId} between {@code start} and {@code end},
+     * querying {@code source} only for the usage which is not cached yet. Returns {@code null}
+     * if a query failed.
+     */
+    @Nullable
+    SparseLongArray getUsage(@Nullable String subscriberId, long start, long end, long now,
+            UsageSource source) {
+        if (end <= now && now - end < SETTLE_DURATION_MS) {
+            // A range which ends about now is a rolling window, e.g. the last weeks of a
+            // template without a policy, and would be cached under a key never used again.
+            return source.query(start, end);
+        }
+        long bucketDuration = getBucketDuration(source, start, end);
+        if (bucketDuration <= 0) {
+            // Without the bucket boundaries, the usage cannot be split exactly.
+            return source.query(start, end);
+        }
+        long settled = Math.min(end,
+                (now - SETTLE_DURATION_MS) / bucketDuration * bucketDuration);
+        if (settled <= start) {
+            // Nothing is final yet.
+            return source.query(start, end);
+        }
+        int generation = getGeneration();
+        String key = getKey(subscriberId, start, end);
+        Snapshot snapshot = getSnapshot(key);
+        if (snapshot == null || snapshot.mCoveredUntil > settled) {
+            // Not cached, or the clock went back.
+            SparseLongArray totals = source.query(start, settled);
+            if (totals == null) {
+                return null;
+            }
+            snapshot = putSnapshot(key, new Snapshot(settled, totals), generation);
+        } else if (snapshot.mCoveredUntil < settled) {
+            SparseLongArray delta = source.query(snapshot.mCoveredUntil, settled);
+            if (delta == null) {
+                return null;
+            }
+            LOG.d("Extending cached data usage from " + snapshot.mCoveredUntil + " to "
+                    + settled);
+            snapshot = putSnapshot(key, new Snapshot(settled, merge(snapshot.mTotals, delta)),
+                    generation);
+        }
+        if (settled == end) {
+            return snapshot.mTotals.clone();
+        }
+        SparseLongArray recent = source.query(settled, end);
+        if (recent == null) {
+            return null;
+        }
+        return merge(snapshot.mTotals, recent);
+    }
+
+    /**
+     * Moves the cached usage of {@code uid} to {@link
+     * android.app.usage.NetworkStats.Bucket#UID_REMOVED} in every cycle, in memory and on the
+     * disk.
+     */
+    @VisibleForTesting
+    void onUidRemoved(int uid) {
+        synchronized (mFileLock) {
+            mGeneration++;
+            mSnapshots.evictAll();
+            File[] files = mDirectory.listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                Snapshot snapshot = read(file);
+                if (snapshot == null || snapshot.mTotals.indexOfKey(uid) < 0) {
+                    continue;
+                }
+                SparseLongArray totals = snapshot.mTotals.clone();
+                moveToRemovedUid(totals, uid);
+                write(file, new Snapshot(snapshot.mCoveredUntil, totals));
+            }
+        }
+    }
+
+    private long getBucketDuration(UsageSource source, long start, long end) {
+        long bucketDuration = mBucketDurationMs;
+        if (bucketDuration <= 0) {
+            bucketDuration = source.queryBucketDuration(start, end);
+            mBucketDurationMs = bucketDuration;
+        }
+        return bucketDuration;
+    }
+
+    private int getGeneration() {
+        synchronized (mFileLock) {
+            return mGeneration;
+        }
+    }
+
+    @Nullable
+    private Snapshot getSnapshot(String key) {
+        Snapshot snapshot = mSnapshots.get(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (mFileLock) {
+            File file = new File(mDirectory, key);
+            snapshot = read(file);
+            if (snapshot != null) {
+                Snapshot validated = moveUninstalledUids(snapshot);
+                if (validated != snapshot) {
+                    write(file, validated);
+                    snapshot = validated;
+                }
+                mSnapshots.put(key, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns {@code snapshot} with the usage of apps which are not installed anymore moved to
+     * {@link android.app.usage.NetworkStats.Bucket#UID_REMOVED}, or {@code snapshot} itself if
+     * all apps are still installed.
+     */
+    private Snapshot moveUninstalledUids(Snapshot snapshot) {
+        SparseLongArray totals = null;
+        for (int i = 0; i < snapshot.mTotals.size(); i++) {
+            int uid = snapshot.mTotals.keyAt(i);
+            if (UserHandle.isApp(uid) && mPackageManager.getPackagesForUid(uid) == null) {
+                if (totals == null) {
+                    totals = snapshot.mTotals.clone();
+                }
+                moveToRemovedUid(totals, uid);
+            }
+        }
+        return totals != null ? new Snapshot(snapshot.mCoveredUntil, totals) : snapshot;
+    }
+
+    /**
+     * Caches {@code snapshot} unless cached usage was rewritten since {@code generation}, and
+     * returns it.
+     */
+    private Snapshot putSnapshot(String key, Snapshot snapshot, int generation) {
+        synchronized (mFileLock) {
+            if (generation != mGeneration) {
+                return snapshot;
+            }
+            mSnapshots.put(key, snapshot);
+            write(new File(mDirectory, key), snapshot);
+            trimLocked();
+        }
+        return snapshot;
+    }
+
+    @GuardedBy("mFileLock")
+    private void trimLocked() {
+        File[] files = mDirectory.listFiles();
+        if (files == null || files.length <= MAX_CACHED_CYCLES_ON_DISK) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_CACHED_CYCLES_ON_DISK; i++) {
+            files[i].delete();
+        }
+    }
+
+    @Nullable
+    private static Snapshot read(File file) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new AtomicFile(file).openRead()))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long coveredUntil = in.readLong();
+            int size = in.readInt();
+            SparseLongArray totals = new SparseLongArray(size);
+            for (int i = 0; i < size; i++) {
+                // Uids were written in increasing order.
+                totals.append(in.readInt(), in.readLong());
+            }
+            return new Snapshot(coveredUntil, totals);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.w("Could not read cached data usage", e);
+            return null;
+        }
+    }
+
+    private static void write(File file, Snapshot snapshot) {
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            LOG.w("Could not create " + file.getParent());
+            return;
+        }
+        AtomicFile atomicFile = new AtomicFile(file);
+        FileOutputStream stream = null;
+        try {
+            stream = atomicFile.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshot.mCoveredUntil);
+            SparseLongArray totals = snapshot.mTotals;
+            out.writeInt(totals.size());
+            for (int i = 0; i < totals.size(); i++) {
+                out.writeInt(totals.keyAt(i));
+                out.writeLong(totals.valueAt(i));
+            }
+            out.flush();
+            atomicFile.finishWrite(stream);
+        } catch (IOException e) {
+            LOG.w("Could not write cached data usage", e);
+            if (stream != null) {
+                atomicFile.failWrite(stream);
+            }
+        }
+    }
+
+    private static void moveToRemovedUid(SparseLongArray totals, int uid) {
+        long bytes = totals.get(uid);
+        totals.delete(uid);
+        totals.put(UID_REMOVED, totals.get(UID_REMOVED) + bytes);
+    }
+
+    private static SparseLongArray merge(SparseLongArray totals, SparseLongArray delta) {
+        SparseLongArray merged = totals.clone();
+        for (int i = 0; i < delta.size(); i++) {
+            int uid = delta.keyAt(i);
+            merged.put(uid, merged.get(uid) + delta.valueAt(i));
+        }
+        return merged;
+    }
+
+    private static String getKey(@Nullable String subscriberId, long start, long end) {
+        // Subscriber ids are not written to the disk.
+        String subscriber = subscriberId == null ? "none"
+                : Integer.toHexString(subscriberId.hashCode());
+        return subscriber + "_" + start + "_" + end;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
+import com.android.settingslib.net.UidDetail;
+import com.android.settingslib.net.UidDetailProvider;
+import com.android.settingslib.utils.ThreadUtils;
+
+/**
+ * Process-wide cache of the labels and icons of the apps shown by the data usage screens.
+ *
+ * <p>Details which are not cached are resolved in batches: all uids missing from one list are
+ * looked up in a single background task, and delivered to the main thread in a single callback.
+ * The cache is bounded by the memory used by the icons, and dropped when packages change or the
+ * configuration changes. Every caller gets its own copy of the icons, as a drawable must not be
+ * shared between views.
+ */
+public class UidDetailResolver {
+    private static final Logger LOG = new Logger(UidDetailResolver.class);
+
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+    // Counted for details without a bitmap icon, such as removed apps.
+    private static final int MIN_DETAIL_BYTES = 1024;
+
+    /** Receives the details resolved by {@link #resolve}, on the main thread. */
+    interface Callback {
+        /** Called with the details of the requested uids, indexed by uid. */
+        void onResolved(SparseArray<UidDetail> details);
+    }
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static UidDetailResolver sInstance;
+
+    private final UidDetailProvider mProvider;
+    private final LruCache<Integer, UidDetail> mDetails =
+            new LruCache<Integer, UidDetail>(MAX_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(Integer uid, UidDetail detail) {
+                    return getSize(detail);
+                }
+            };
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            LOG.d("Clearing app details on " + intent.getAction());
+            clear();
+        }
+    };
+
+    /**
+     * Returns the process-wide instance, which starts listening to package changes when it is
+     * created.
+     */
+    static UidDetailResolver getInstance(Context context) {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                Context applicationContext = context.getApplicationContext();
+                sInstance = new UidDetailResolver(new UidDetailProvider(applicationContext));
+                sInstance.registerReceiver(applicationContext);
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * Drops the cached details, e.g. when the configuration changes and labels have to be loaded
+     * in another language.
+     */
+    public static void clearCache() {
+        synchronized (sInstanceLock) {
+            if (sInstance != null) {
+                sInstance.clear();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    UidDetailResolver(UidDetailProvider provider) {
+        mProvider = provider;
+    }
+
+    /** Returns the details of {@code uid} if they are cached, without blocking. */
+    @Nullable
+    UidDetail getCachedDetail(int uid) {
+        UidDetail detail = mDetails.get(uid);
+        if (detail == null) {
+            detail = mProvider.getUidDetail(uid, /* blocking= */ false);
+            if (detail != null) {
+                mDetails.put(uid, detail);
+            }
+        }
+        return copyOf(detail);
+    }
+
+    /**
+     * Resolves the details of {@code uids} in one background task, and calls {@code callback}
+     * once on the main thread with all of them. Duplicate uids are only resolved once.
+     */
+    void resolve(int[] uids, Callback callback) {
+        SparseBooleanArray uniqueUids = new SparseBooleanArray(uids.length);
+        for (int uid : uids) {
+            uniqueUids.put(uid, true);
+        }
+        if (uniqueUids.size() == 0) {
+            return;
+        }
+        executeBackgroundTask(() -> {
+            SparseArray<UidDetail> details = new SparseArray<>(uniqueUids.size());
+            for (int i = 0; i < uniqueUids.size(); i++) {
+                int uid = uniqueUids.keyAt(i);
+                UidDetail detail = mDetails.get(uid);
+                if (detail == null) {
+                    detail = mProvider.getUidDetail(uid, /* blocking= */ true);
+                    if (detail != null) {
+                        mDetails.put(uid, detail);
+                    }
+                }
+                details.put(uid, copyOf(detail));
+            }
+            // The details are cached here, bounded, rather than by the provider.
+            mProvider.clearCache();
+            executeUiTask(() -> callback.onResolved(details));
+        });
+    }
+
+    @VisibleForTesting
+    void executeBackgroundTask(Runnable runnable) {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, runnable);
+    }
+
+    @VisibleForTesting
+    void executeUiTask(Runnable runnable) {
+        ThreadUtils.postOnMainThread(runnable);
+    }
+
+    private void clear() {
+        mDetails.evictAll();
+        mProvider.clearCache();
+    }
+
+    private void registerReceiver(Context context) {
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        packageFilter.addDataScheme("package");
+        context.registerReceiver(mReceiver, packageFilter);
+    }
+
+    @Nullable
+    private static UidDetail copyOf(@Nullable UidDetail detail) {
+        if (detail == null) {
+            return null;
+        }
+        UidDetail copy = new UidDetail();
+        copy.label = detail.label;
+        copy.contentDescription = detail.contentDescription;
+        copy.detailLabels = detail.detailLabels;
+        copy.detailContentDescriptions = detail.detailContentDescriptions;
+        Drawable.ConstantState iconState =
+                detail.icon != null ? detail.icon.getConstantState() : null;
+        // The copy shares the bitmap, but not the bounds, state or callback of the drawable.
+        copy.icon = iconState != null ? iconState.newDrawable() : detail.icon;
+        return copy;
+    }
+
+    private static int getSize(UidDetail detail) {
+        Drawable icon = detail.icon;
+        if (icon instanceof BitmapDrawable && ((BitmapDrawable) icon).getBitmap() != null) {
+            return Math.max(MIN_DETAIL_BYTES,
+                    ((BitmapDrawable) icon).getBitmap().getAllocationByteCount());
+        }
+        if (icon != null && icon.getIntrinsicWidth() > 0 && icon.getIntrinsicHeight() > 0) {
+            // Assume the icon is drawn into a bitmap of its intrinsic size.
+            return Math.max(MIN_DETAIL_BYTES,
+                    icon.getIntrinsicWidth() * icon.getIntrinsicHeight() * 4);
+        }
+        return MIN_DETAIL_BYTES;
+    }
+}
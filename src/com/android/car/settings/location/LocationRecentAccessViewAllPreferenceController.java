@@ -20,9 +20,9 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.BackgroundLoadingPreferenceController;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.LogicalPreferenceGroup;
-import com.android.car.settings.common.PreferenceController;
 import com.android.car.ui.preference.CarUiPreference;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settingslib.applications.RecentAppOpsAccess;
@@ -34,10 +34,11 @@ import java.util.List;
  * also included.
  */
 public class LocationRecentAccessViewAllPreferenceController
-        extends PreferenceController<LogicalPreferenceGroup> {
+        extends BackgroundLoadingPreferenceController<LogicalPreferenceGroup,
+                List<RecentAppOpsAccess.Access>> {
 
     private final RecentAppOpsAccess mRecentLocationAccesses;
-    private boolean mShowSystem = false;
+    private volatile boolean mShowSystem = false;
 
     public LocationRecentAccessViewAllPreferenceController(
             Context context,
@@ -68,13 +69,6 @@ public class LocationRecentAccessViewAllPreferenceController
         return LogicalPreferenceGroup.class;
     }
 
-    @Override
-    public void updateState(LogicalPreferenceGroup preference) {
-        super.updateState(preference);
-        List<RecentAppOpsAccess.Access> recentLocationAccesses = loadData();
-        updateUi(recentLocationAccesses);
-    }
-
     /**
      * Rebuilds the preference list to show system applications if {@code showSystem} is true.
      * System applications will be hidden otherwise.
@@ -86,11 +80,14 @@ public class LocationRecentAccessViewAllPreferenceController
         }
     }
 
-    private List<RecentAppOpsAccess.Access> loadData() {
+    @Override
+    protected List<RecentAppOpsAccess.Access> loadData() {
         return mRecentLocationAccesses.getAppListSorted(mShowSystem);
     }
 
-    private void updateUi(List<RecentAppOpsAccess.Access> recentLocationAccesses) {
+    @Override
+    protected void bind(LogicalPreferenceGroup preference,
+            List<RecentAppOpsAccess.Access> recentLocationAccesses) {
         getPreference().removeAll();
         if (recentLocationAccesses.isEmpty()) {
             getPreference().addPreference(createNoRecentAccessPreference());
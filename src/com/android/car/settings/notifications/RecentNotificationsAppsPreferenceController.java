@@ -34,6 +34,7 @@ import com.android.car.settings.applications.ApplicationDetailsFragment;
 import com.android.car.settings.applications.ApplicationListItemManager;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
 import com.android.car.ui.preference.CarUiTwoActionSwitchPreference;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.utils.ThreadUtils;
@@ -105,7 +106,7 @@ public class RecentNotificationsAppsPreferenceController extends
     }
 
     private void refresh() {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, () -> {
             reloadData();
             List<NotifyingApp> recentApps = getDisplayableRecentAppList();
             ThreadUtils.postOnMainThread(() -> {
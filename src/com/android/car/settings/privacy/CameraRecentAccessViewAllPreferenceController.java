@@ -20,9 +20,9 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.BackgroundLoadingPreferenceController;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.LogicalPreferenceGroup;
-import com.android.car.settings.common.PreferenceController;
 import com.android.car.ui.preference.CarUiPreference;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settingslib.applications.RecentAppOpsAccess;
@@ -33,10 +33,11 @@ import java.util.List;
  * This controller displays a list of recently used apps.
  */
 public class CameraRecentAccessViewAllPreferenceController extends
-        PreferenceController<LogicalPreferenceGroup> {
+        BackgroundLoadingPreferenceController<LogicalPreferenceGroup,
+                List<RecentAppOpsAccess.Access>> {
 
     private final RecentAppOpsAccess mRecentCameraAccesses;
-    private boolean mShowSystem = false;
+    private volatile boolean mShowSystem = false;
 
     public CameraRecentAccessViewAllPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -57,13 +58,6 @@ public class CameraRecentAccessViewAllPreferenceController extends
         return LogicalPreferenceGroup.class;
     }
 
-    @Override
-    public void updateState(LogicalPreferenceGroup preference) {
-        super.updateState(preference);
-        List<RecentAppOpsAccess.Access> recentCameraAccesses = loadData();
-        updateUi(recentCameraAccesses);
-    }
-
     /**
      * Rebuilds the preference list to show system applications if {@code showSystem} is true.
      * System applications will be hidden otherwise.
@@ -75,11 +69,14 @@ public class CameraRecentAccessViewAllPreferenceController extends
         }
     }
 
-    private List<RecentAppOpsAccess.Access> loadData() {
+    @Override
+    protected List<RecentAppOpsAccess.Access> loadData() {
         return mRecentCameraAccesses.getAppListSorted(mShowSystem);
     }
 
-    private void updateUi(List<RecentAppOpsAccess.Access> recentCameraAccesses) {
+    @Override
+    protected void bind(LogicalPreferenceGroup preference,
+            List<RecentAppOpsAccess.Access> recentCameraAccesses) {
         getPreference().removeAll();
         if (recentCameraAccesses.isEmpty()) {
             getPreference().addPreference(createNoRecentAccessPreference());
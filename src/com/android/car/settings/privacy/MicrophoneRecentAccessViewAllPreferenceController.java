@@ -20,9 +20,9 @@ import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.BackgroundLoadingPreferenceController;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.LogicalPreferenceGroup;
-import com.android.car.settings.common.PreferenceController;
 import com.android.car.ui.preference.CarUiPreference;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settingslib.applications.RecentAppOpsAccess;
@@ -33,10 +33,11 @@ import java.util.List;
  * This controller displays a list of recently used apps. Only non-system apps are displayed.
  */
 public class MicrophoneRecentAccessViewAllPreferenceController extends
-        PreferenceController<LogicalPreferenceGroup> {
+        BackgroundLoadingPreferenceController<LogicalPreferenceGroup,
+                List<RecentAppOpsAccess.Access>> {
 
     private final RecentAppOpsAccess mRecentMicrophoneAccesses;
-    private boolean mShowSystem = false;
+    private volatile boolean mShowSystem = false;
 
     public MicrophoneRecentAccessViewAllPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -57,13 +58,6 @@ public class MicrophoneRecentAccessViewAllPreferenceController extends
         return LogicalPreferenceGroup.class;
     }
 
-    @Override
-    public void updateState(LogicalPreferenceGroup preference) {
-        super.updateState(preference);
-        List<RecentAppOpsAccess.Access> recentMicrophoneAccesses = loadData();
-        updateUi(recentMicrophoneAccesses);
-    }
-
     /**
      * Rebuilds the preference list to show system applications if {@code showSystem} is true.
      * System applications will be hidden otherwise.
@@ -75,11 +69,14 @@ public class MicrophoneRecentAccessViewAllPreferenceController extends
         }
     }
 
-    private List<RecentAppOpsAccess.Access> loadData() {
+    @Override
+    protected List<RecentAppOpsAccess.Access> loadData() {
         return mRecentMicrophoneAccesses.getAppListSorted(mShowSystem);
     }
 
-    private void updateUi(List<RecentAppOpsAccess.Access> recentMicrophoneAccesses) {
+    @Override
+    protected void bind(LogicalPreferenceGroup preference,
+            List<RecentAppOpsAccess.Access> recentMicrophoneAccesses) {
         getPreference().removeAll();
         if (recentMicrophoneAccesses.isEmpty()) {
             getPreference().addPreference(createNoRecentAccessPreference());
@@ -16,8 +16,6 @@
 
 package com.android.car.settings.qc;
 
-import static com.android.car.settings.qc.BaseVolumeSlider.QC_VOLUME_SELF_CHANGE;
-
 import android.car.media.CarAudioManager;
 import android.content.Context;
 import android.net.Uri;
@@ -34,28 +32,23 @@ import java.io.IOException;
  */
 public abstract class BaseVolumeSliderWorker<E extends BaseVolumeSlider>
         extends SettingsQCBackgroundWorker<E> {
-    private final Context mContext;
+    // Sliders are dragged, so changes made elsewhere should show up quickly. There is no content
+    // key: the multiplexer only notifies for changes to this worker's volume groups, and reading
+    // the volumes back would cost several binder calls per notification.
+    private static final QCThrottlePolicy THROTTLE_POLICY = QCThrottlePolicy.leadingEdge(100L);
 
-    private final CarAudioManager.CarVolumeCallback mVolumeChangeCallback =
-            new CarAudioManager.CarVolumeCallback() {
-                @Override
-                public void onGroupVolumeChanged(int zoneId, int groupId, int flags) {
-                    if (flags != QC_VOLUME_SELF_CHANGE) {
-                        updateVolumeAndMute(zoneId, groupId);
-                    }
-                }
+    private final Context mContext;
 
+    private final VolumeCallbackMultiplexer.Listener mVolumeGroupListener =
+            new VolumeCallbackMultiplexer.Listener() {
                 @Override
-                public void onMasterMuteChanged(int zoneId, int flags) {
-                    // Mute is not being used yet
+                public int[] getUsages() {
+                    return BaseVolumeSliderWorker.this.getUsages();
                 }
 
                 @Override
-                public void onGroupMuteChanged(int zoneId, int groupId, int flags) {
-                    if (flags != QC_VOLUME_SELF_CHANGE) {
-                        updateVolumeAndMute(zoneId, groupId);
-                    }
-
+                public void onVolumeGroupChanged() {
+                    notifyQCItemChange();
                 }
             };
 
@@ -68,53 +61,30 @@ public abstract class BaseVolumeSliderWorker<E extends BaseVolumeSlider>
 
     @Override
     protected void onQCItemSubscribe() {
-        CarAudioManager carAudioManager = getCarAudioManager();
-        if (carAudioManager != null) {
-            carAudioManager.registerCarVolumeCallback(mVolumeChangeCallback);
-        }
+        VolumeCallbackMultiplexer.getInstance().addListener(getApplication(),
+                mVolumeGroupListener);
     }
 
     @Override
     protected void onQCItemUnsubscribe() {
-        CarAudioManager carAudioManager = getCarAudioManager();
-        if (carAudioManager != null) {
-            carAudioManager.unregisterCarVolumeCallback(mVolumeChangeCallback);
-        }
+        VolumeCallbackMultiplexer.getInstance().removeListener(mVolumeGroupListener);
     }
 
     @Override
     public void close() throws IOException {
     }
 
-    @VisibleForTesting
-    CarAudioManager.CarVolumeCallback getVolumeChangeCallback() {
-        return mVolumeChangeCallback;
-    }
-
-    private void updateVolumeAndMute(int zoneId, int groupId) {
-        // Settings only handles my audio zone changes
-        if (zoneId != getMyAudioZoneId()) {
-            return;
-        }
-        CarAudioManager carAudioManager = getCarAudioManager();
-        if (carAudioManager != null) {
-            for (int usage : getUsages()) {
-                if (carAudioManager
-                        .getVolumeGroupIdForUsage(getMyAudioZoneId(), usage) == groupId) {
-                    notifyQCItemChange();
-                    break;
-                }
-            }
-        }
+    @Override
+    protected QCThrottlePolicy getThrottlePolicy() {
+        return THROTTLE_POLICY;
     }
 
-    private int getMyAudioZoneId() {
-        return ((CarSettingsApplication) mContext.getApplicationContext())
-                .getMyAudioZoneId();
+    @VisibleForTesting
+    CarAudioManager.CarVolumeCallback getVolumeChangeCallback() {
+        return VolumeCallbackMultiplexer.getInstance().getVolumeChangeCallback();
     }
 
-    private CarAudioManager getCarAudioManager() {
-        return ((CarSettingsApplication) mContext.getApplicationContext())
-                .getCarAudioManager();
+    private CarSettingsApplication getApplication() {
+        return (CarSettingsApplication) mContext.getApplicationContext();
     }
 }
@@ -55,6 +55,7 @@ public final class HotspotQCUtils {
         return new TetheringManager.StartTetheringCallback() {
             @Override
             public void onTetheringFailed(final int result) {
+                QCItemSnapshotCache.invalidate(uri);
                 context.getContentResolver().notifyChange(uri, /* observer= */null);
             }
         };
@@ -32,6 +32,10 @@ public class PairedBluetoothDevicesWorker
         extends SettingsQCBackgroundWorker<PairedBluetoothDevices>
         implements BluetoothCallback {
 
+    // Discovery and profile connections report changes in bursts, notify once they settle.
+    private static final QCThrottlePolicy THROTTLE_POLICY =
+            QCThrottlePolicy.trailing(/* quietPeriodMs= */ 500L, /* maxWaitMs= */ 1500L);
+
     private final LocalBluetoothManager mBluetoothManager;
 
     public PairedBluetoothDevicesWorker(Context context, Uri uri) {
@@ -54,6 +58,11 @@ public class PairedBluetoothDevicesWorker
         mBluetoothManager.getEventManager().unregisterCallback(this);
     }
 
+    @Override
+    protected QCThrottlePolicy getThrottlePolicy() {
+        return THROTTLE_POLICY;
+    }
+
     @Override
     public void onBluetoothStateChanged(int bluetoothState) {
         notifyQCItemChange();
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+import android.net.Uri;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.qc.QCItem;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the {@link QCItem} last built for each subscribed uri, so that binding again without
+ * any state change does not rebuild the item.
+ *
+ * <p>Only uris with a subscribed background worker are cached, since the worker is what tells
+ * the cache that the state has changed (see {@link #invalidate(Uri)}). Each uri has a
+ * generation which is bumped on invalidation, so a snapshot built concurrently with an
+ * invalidation is dropped instead of cached.
+ */
+final class QCItemSnapshotCache {
+
+    private static final Object sLock = new Object();
+    // Uris without query parameters which may be cached.
+    @GuardedBy("sLock")
+    private static final ArraySet<Uri> sCacheableUris = new ArraySet<>();
+    @GuardedBy("sLock")
+    private static final ArrayMap<Uri, QCItem> sSnapshots = new ArrayMap<>();
+    @GuardedBy("sLock")
+    private static final ArrayMap<Uri, Long> sGenerations = new ArrayMap<>();
+    @GuardedBy("sLock")
+    private static final ArrayMap<Uri, BindStats> sBindStats = new ArrayMap<>();
+
+    private QCItemSnapshotCache() {
+    }
+
+    /** Returns the cached item for {@code uri}, or {@code null} if it has to be built. */
+    @Nullable
+    static QCItem get(Uri uri) {
+        synchronized (sLock) {
+            return sSnapshots.get(uri);
+        }
+    }
+
+    /** Returns the generation to pass to {@link #put} for an item about to be built. */
+    static long getGeneration(Uri uri) {
+        synchronized (sLock) {
+            return sGenerations.getOrDefault(SettingsQCRegistry.removeParameterFromUri(uri), 0L);
+        }
+    }
+
+    /**
+     * Caches {@code item} for {@code uri} if the uri is cacheable and has not been invalidated
+     * since {@code generation} was read.
+     */
+    static void put(Uri uri, QCItem item, long generation) {
+        Uri baseUri = SettingsQCRegistry.removeParameterFromUri(uri);
+        synchronized (sLock) {
+            if (sCacheableUris.contains(baseUri)
+                    && sGenerations.getOrDefault(baseUri, 0L) == generation) {
+                sSnapshots.put(uri, item);
+            }
+        }
+    }
+
+    /** Sets whether items for {@code uri} may be cached. */
+    static void setCacheable(Uri uri, boolean cacheable) {
+        Uri baseUri = SettingsQCRegistry.removeParameterFromUri(uri);
+        synchronized (sLock) {
+            if (cacheable) {
+                sCacheableUris.add(baseUri);
+            } else {
+                sCacheableUris.remove(baseUri);
+                invalidateLocked(baseUri);
+            }
+        }
+    }
+
+    /** Drops the items cached for {@code uri}, with any query parameters. */
+    static void invalidate(Uri uri) {
+        synchronized (sLock) {
+            invalidateLocked(SettingsQCRegistry.removeParameterFromUri(uri));
+        }
+    }
+
+    /** Drops all cached items, e.g. when the configuration changes. */
+    static void clear() {
+        synchronized (sLock) {
+            for (int i = sCacheableUris.size() - 1; i >= 0; i--) {
+                invalidateLocked(sCacheableUris.valueAt(i));
+            }
+            sSnapshots.clear();
+        }
+    }
+
+    /** Records a bind of {@code uri} which took {@code durationNanos}. */
+    static void recordBind(Uri uri, boolean hit, long durationNanos) {
+        synchronized (sLock) {
+            BindStats stats = sBindStats.get(uri);
+            if (stats == null) {
+                stats = new BindStats();
+                sBindStats.put(uri, stats);
+            }
+            stats.add(hit, durationNanos);
+        }
+    }
+
+    @VisibleForTesting
+    static int getBindCount(Uri uri) {
+        synchronized (sLock) {
+            BindStats stats = sBindStats.get(uri);
+            return stats == null ? 0 : stats.mBinds;
+        }
+    }
+
+    @VisibleForTesting
+    static int getHitCount(Uri uri) {
+        synchronized (sLock) {
+            BindStats stats = sBindStats.get(uri);
+            return stats == null ? 0 : stats.mHits;
+        }
+    }
+
+    @VisibleForTesting
+    static void reset() {
+        synchronized (sLock) {
+            sCacheableUris.clear();
+            sSnapshots.clear();
+            sGenerations.clear();
+            sBindStats.clear();
+        }
+    }
+
+    /** Dumps the bind latency and hit ratio of each uri. */
+    static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "QCItem binds (count, hit %, avg ms, max ms):");
+        synchronized (sLock) {
+            for (int i = 0; i < sBindStats.size(); i++) {
+                BindStats stats = sBindStats.valueAt(i);
+                writer.println(prefix + "  " + sBindStats.keyAt(i) + ": " + stats.mBinds + ", "
+                        + stats.mHits * 100 / stats.mBinds + ", "
+                        + toMillis(stats.mTotalNanos / stats.mBinds) + ", "
+                        + toMillis(stats.mMaxNanos));
+            }
+        }
+    }
+
+    @GuardedBy("sLock")
+    private static void invalidateLocked(Uri baseUri) {
+        sGenerations.put(baseUri, sGenerations.getOrDefault(baseUri, 0L) + 1);
+        for (int i = sSnapshots.size() - 1; i >= 0; i--) {
+            if (baseUri.equals(SettingsQCRegistry.removeParameterFromUri(sSnapshots.keyAt(i)))) {
+                sSnapshots.removeAt(i);
+            }
+        }
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static final class BindStats {
+        private int mBinds;
+        private int mHits;
+        private long mTotalNanos;
+        private long mMaxNanos;
+
+        void add(boolean hit, long durationNanos) {
+            mBinds++;
+            if (hit) {
+                mHits++;
+            }
+            mTotalNanos += durationNanos;
+            mMaxNanos = Math.max(mMaxNanos, durationNanos);
+        }
+    }
+}
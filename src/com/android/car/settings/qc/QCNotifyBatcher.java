@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Pair;
+
+import androidx.annotation.GuardedBy;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Gathers the uris of QCItems which changed within a short window, so that they are sent to the
+ * host with a single {@link ContentResolver#notifyChange(Collection, ContentObserver, int)} call
+ * instead of one binder call per uri.
+ */
+final class QCNotifyBatcher {
+
+    /** How long uris are gathered after the first one is added. */
+    static final long BATCH_WINDOW_MS = 20L;
+
+    /** Sends a batch of uri changes. */
+    interface Dispatcher {
+        /** Notifies observers of {@code uris} with {@code flags}. */
+        void notifyChange(Context context, Collection<Uri> uris, int flags);
+    }
+
+    static final Dispatcher CONTENT_RESOLVER_DISPATCHER = (context, uris, flags) ->
+            context.getContentResolver().notifyChange(uris, /* observer= */ null, flags);
+
+    private final Dispatcher mDispatcher;
+    private final Object mLock = new Object();
+    // Uris are grouped by context and flags, which have to be the same within a call.
+    @GuardedBy("mLock")
+    private final ArrayMap<Pair<Context, Integer>, ArraySet<Uri>> mPending = new ArrayMap<>();
+    @GuardedBy("mLock")
+    private long mDispatchCount;
+    @GuardedBy("mLock")
+    private long mUriCount;
+
+    QCNotifyBatcher(Dispatcher dispatcher) {
+        mDispatcher = dispatcher;
+    }
+
+    /**
+     * Adds {@code uri} to the next batch.
+     *
+     * @return whether the batch was empty, i.e. the caller has to schedule {@link #flush()}
+     */
+    boolean add(Context context, Uri uri, int flags) {
+        synchronized (mLock) {
+            boolean wasEmpty = mPending.isEmpty();
+            Pair<Context, Integer> key = Pair.create(context, flags);
+            ArraySet<Uri> uris = mPending.get(key);
+            if (uris == null) {
+                uris = new ArraySet<>();
+                mPending.put(key, uris);
+            }
+            uris.add(uri);
+            return wasEmpty;
+        }
+    }
+
+    /** Removes {@code uri} from the next batch, e.g. when its worker is unsubscribed. */
+    void remove(Uri uri) {
+        synchronized (mLock) {
+            for (int i = mPending.size() - 1; i >= 0; i--) {
+                ArraySet<Uri> uris = mPending.valueAt(i);
+                uris.remove(uri);
+                if (uris.isEmpty()) {
+                    mPending.removeAt(i);
+                }
+            }
+        }
+    }
+
+    /** Sends all pending uris, one call per context and flags. */
+    void flush() {
+        List<Pair<Context, Integer>> keys;
+        List<ArraySet<Uri>> batches;
+        synchronized (mLock) {
+            keys = new ArrayList<>(mPending.keySet());
+            batches = new ArrayList<>(mPending.values());
+            mPending.clear();
+            mDispatchCount += keys.size();
+            for (ArraySet<Uri> uris : batches) {
+                mUriCount += uris.size();
+            }
+        }
+        // Dispatch outside of the lock, as it is a binder call.
+        for (int i = 0; i < keys.size(); i++) {
+            Pair<Context, Integer> key = keys.get(i);
+            mDispatcher.notifyChange(key.first, batches.get(i), key.second);
+        }
+    }
+
+    /** Returns the number of notify calls made. */
+    long getDispatchCount() {
+        synchronized (mLock) {
+            return mDispatchCount;
+        }
+    }
+
+    /** Returns the number of uris notified. */
+    long getUriCount() {
+        synchronized (mLock) {
+            return mUriCount;
+        }
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        synchronized (mLock) {
+            writer.println(prefix + "QCItem notifications: " + mDispatchCount
+                    + " notify calls for " + mUriCount + " uris");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+/**
+ * Decides when a {@link SettingsQCBackgroundWorker} change is sent to the QC host. Workers pick
+ * a policy by overriding {@link SettingsQCBackgroundWorker#getThrottlePolicy()}.
+ *
+ * <p>All policies postpone the first update after subscribing by {@link #DEFAULT_INTERVAL_MS},
+ * to avoid it being too close to the first bind, and never notify more often than their
+ * minimum interval.
+ */
+public final class QCThrottlePolicy {
+
+    static final long DEFAULT_INTERVAL_MS = 300L;
+
+    /** Notifies at most once every {@link #DEFAULT_INTERVAL_MS}. */
+    public static final QCThrottlePolicy DEFAULT = new QCThrottlePolicy(DEFAULT_INTERVAL_MS,
+            /* quietPeriodMs= */ 0, /* maxWaitMs= */ 0);
+
+    private final long mMinIntervalMs;
+    private final long mQuietPeriodMs;
+    private final long mMaxWaitMs;
+
+    private QCThrottlePolicy(long minIntervalMs, long quietPeriodMs, long maxWaitMs) {
+        mMinIntervalMs = minIntervalMs;
+        mQuietPeriodMs = quietPeriodMs;
+        mMaxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Returns a policy which notifies as soon as a change happens, unless the last notification
+     * was less than {@code minIntervalMs} ago. Suited to items the user drags, like sliders.
+     */
+    public static QCThrottlePolicy leadingEdge(long minIntervalMs) {
+        return new QCThrottlePolicy(minIntervalMs, /* quietPeriodMs= */ 0, /* maxWaitMs= */ 0);
+    }
+
+    /**
+     * Returns a policy which waits until no change happened for {@code quietPeriodMs}, so that a
+     * burst of changes results in a single notification, but waits at most {@code maxWaitMs}
+     * after the first change. Suited to lists updated by scans.
+     */
+    public static QCThrottlePolicy trailing(long quietPeriodMs, long maxWaitMs) {
+        return new QCThrottlePolicy(DEFAULT_INTERVAL_MS, quietPeriodMs, maxWaitMs);
+    }
+
+    /** Returns a copy of this policy which notifies at most once every {@code minIntervalMs}. */
+    public QCThrottlePolicy withMinInterval(long minIntervalMs) {
+        return new QCThrottlePolicy(minIntervalMs, mQuietPeriodMs, mMaxWaitMs);
+    }
+
+    /**
+     * Returns whether every change postpones the pending notification. Otherwise, changes
+     * happening while a notification is pending are folded into it.
+     */
+    boolean isCoalescing() {
+        return mQuietPeriodMs > 0;
+    }
+
+    /**
+     * Returns the uptime at which to notify of a change happening at {@code now}.
+     *
+     * @param lastNotifyTime the uptime of the last notification, or a negative value if there
+     *         was none since subscribing
+     * @param firstPendingTime the uptime of the first change not notified yet
+     */
+    long getNotifyTime(long now, long lastNotifyTime, long firstPendingTime) {
+        long earliest = lastNotifyTime < 0
+                ? Math.max(now, firstPendingTime + DEFAULT_INTERVAL_MS)
+                : Math.max(now, lastNotifyTime + mMinIntervalMs);
+        if (!isCoalescing()) {
+            return earliest;
+        }
+        return Math.max(earliest,
+                Math.min(now + mQuietPeriodMs, firstPendingTime + mMaxWaitMs));
+    }
+}
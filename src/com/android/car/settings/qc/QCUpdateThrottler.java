@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+import android.net.Uri;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Per-uri bookkeeping of QCItem change notifications. Times are passed in by the caller so that
+ * the throttling can be driven by a fake clock in tests.
+ */
+final class QCUpdateThrottler {
+
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final ArrayMap<Uri, UriState> mStates = new ArrayMap<>();
+
+    /**
+     * Records a change of {@code uri} at {@code now} and returns the uptime at which to notify.
+     */
+    long onChange(Uri uri, QCThrottlePolicy policy, long now) {
+        synchronized (mLock) {
+            UriState state = getStateLocked(uri);
+            if (state.mFirstPendingTime < 0) {
+                state.mFirstPendingTime = now;
+            }
+            return policy.getNotifyTime(now, state.mLastNotifyTime, state.mFirstPendingTime);
+        }
+    }
+
+    /**
+     * Records that the pending notification of {@code uri} is due at {@code now}.
+     *
+     * @param contentKey the key of the content the QCItem would show, or {@code null} if unknown
+     * @return whether the host should be notified, i.e. the content may have changed since the
+     *         last notification
+     */
+    boolean onNotify(Uri uri, long now, @Nullable Object contentKey) {
+        synchronized (mLock) {
+            UriState state = getStateLocked(uri);
+            state.mFirstPendingTime = -1;
+            if (contentKey != null && Objects.equals(contentKey, state.mLastContentKey)) {
+                state.mSuppressedCount++;
+                return false;
+            }
+            state.mLastNotifyTime = now;
+            state.mLastContentKey = contentKey;
+            state.mNotifyCount++;
+            return true;
+        }
+    }
+
+    /** Forgets {@code uri}, so that its next change is handled like the first one. */
+    void reset(Uri uri) {
+        synchronized (mLock) {
+            mStates.remove(uri);
+        }
+    }
+
+    int getNotifyCount(Uri uri) {
+        synchronized (mLock) {
+            UriState state = mStates.get(uri);
+            return state == null ? 0 : state.mNotifyCount;
+        }
+    }
+
+    int getSuppressedCount(Uri uri) {
+        synchronized (mLock) {
+            UriState state = mStates.get(uri);
+            return state == null ? 0 : state.mSuppressedCount;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private UriState getStateLocked(Uri uri) {
+        UriState state = mStates.get(uri);
+        if (state == null) {
+            state = new UriState();
+            mStates.put(uri, state);
+        }
+        return state;
+    }
+
+    private static final class UriState {
+        private long mLastNotifyTime = -1;
+        private long mFirstPendingTime = -1;
+        @Nullable
+        private Object mLastContentKey;
+        private int mNotifyCount;
+        private int mSuppressedCount;
+    }
+}
@@ -17,6 +17,7 @@
 package com.android.car.settings.qc;
 
 import static android.content.ContentResolver.NOTIFY_NO_DELAY;
+import static android.content.ContentResolver.NOTIFY_SYNC_TO_NETWORK;
 
 import android.annotation.MainThread;
 import android.annotation.Nullable;
@@ -31,12 +32,14 @@ import android.os.SystemClock;
 import android.os.UserManager;
 import android.util.ArrayMap;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.car.settings.common.Logger;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -48,8 +51,6 @@ public abstract class SettingsQCBackgroundWorker<E extends SettingsQCItem> imple
 
     private static final Logger LOG = new Logger(SettingsQCBackgroundWorker.class);
 
-    private static final long QC_UPDATE_THROTTLE_INTERVAL = 300L;
-
     private static final Map<Uri, SettingsQCBackgroundWorker> LIVE_WORKERS = new ArrayMap<>();
 
     private final Context mContext;
@@ -137,6 +138,13 @@ public abstract class SettingsQCBackgroundWorker<E extends SettingsQCItem> imple
         }
     }
 
+    static void dumpNotifyStats(String prefix, PrintWriter writer) {
+        NotifyQCItemChangeHandler handler = NotifyQCItemChangeHandler.sHandler;
+        if (handler != null) {
+            handler.mBatcher.dump(prefix, writer);
+        }
+    }
+
     /**
      * Called when the QCItem is subscribed to. This is the place to register callbacks or
      * initialize scan tasks.
@@ -151,10 +159,28 @@ public abstract class SettingsQCBackgroundWorker<E extends SettingsQCItem> imple
     @MainThread
     protected abstract void onQCItemUnsubscribe();
 
+    /**
+     * Returns the policy used to throttle notifications of changes to the QCItem.
+     */
+    protected QCThrottlePolicy getThrottlePolicy() {
+        return QCThrottlePolicy.DEFAULT;
+    }
+
+    /**
+     * Returns a key describing everything the QCItem shows, or {@code null} if the worker cannot
+     * tell. When the key is equal to the one of the last notification, the change is not sent
+     * to the host. Called on a background thread.
+     */
+    @Nullable
+    protected Object getQCItemContentKey() {
+        return null;
+    }
+
     /**
      * Notify that data was updated and attempt to sync changes to the QCItem.
      */
     protected final void notifyQCItemChange() {
+        QCItemSnapshotCache.invalidate(mUri);
         NotifyQCItemChangeHandler.getInstance().updateQCItem(this);
     }
 
@@ -167,29 +193,38 @@ public abstract class SettingsQCBackgroundWorker<E extends SettingsQCItem> imple
         NotifyQCItemChangeHandler.getInstance().cancelQCItemUpdate(this);
     }
 
-    private static class NotifyQCItemChangeHandler extends Handler {
+    @VisibleForTesting
+    static class NotifyQCItemChangeHandler extends Handler {
 
         private static final int MSG_UPDATE_QCITEM = 1000;
+        private static final int MSG_FLUSH_NOTIFICATIONS = 1001;
         private static NotifyQCItemChangeHandler sHandler;
-        private final Map<Uri, Long> mLastUpdateTimeLookup = Collections.synchronizedMap(
-                new ArrayMap<>());
+        private final QCUpdateThrottler mThrottler = new QCUpdateThrottler();
+        private final QCNotifyBatcher mBatcher;
 
         private static NotifyQCItemChangeHandler getInstance() {
             if (sHandler == null) {
                 HandlerThread workerThread = new HandlerThread("NotifyQCItemChangeHandler",
                         Process.THREAD_PRIORITY_BACKGROUND);
                 workerThread.start();
-                sHandler = new NotifyQCItemChangeHandler(workerThread.getLooper());
+                sHandler = new NotifyQCItemChangeHandler(workerThread.getLooper(),
+                        QCNotifyBatcher.CONTENT_RESOLVER_DISPATCHER);
             }
             return sHandler;
         }
 
-        private NotifyQCItemChangeHandler(Looper looper) {
+        @VisibleForTesting
+        NotifyQCItemChangeHandler(Looper looper, QCNotifyBatcher.Dispatcher dispatcher) {
             super(looper);
+            mBatcher = new QCNotifyBatcher(dispatcher);
         }
 
         @Override
         public void handleMessage(Message msg) {
+            if (msg.what == MSG_FLUSH_NOTIFICATIONS) {
+                mBatcher.flush();
+                return;
+            }
             if (msg.what != MSG_UPDATE_QCITEM) {
                 return;
             }
@@ -197,38 +232,42 @@ public abstract class SettingsQCBackgroundWorker<E extends SettingsQCItem> imple
             SettingsQCBackgroundWorker worker = (SettingsQCBackgroundWorker) msg.obj;
             Uri uri = worker.getUri();
             Context context = worker.getContext();
-            mLastUpdateTimeLookup.put(uri, SystemClock.uptimeMillis());
-            if (UserManager.isVisibleBackgroundUsersEnabled()
-                    && UserManager.get(context).isUserVisible()) {
-                context.getContentResolver().notifyChange(uri, /* observer= */ null,
-                        NOTIFY_NO_DELAY);
-            } else {
-                context.getContentResolver().notifyChange(uri, /* observer= */ null);
-            }
-        }
-
-        private void updateQCItem(SettingsQCBackgroundWorker worker) {
-            if (hasMessages(MSG_UPDATE_QCITEM, worker)) {
+            if (!mThrottler.onNotify(uri, SystemClock.uptimeMillis(),
+                    worker.getQCItemContentKey())) {
+                LOG.d("Content unchanged, skipping notification: " + uri);
                 return;
             }
+            // NOTIFY_SYNC_TO_NETWORK is what notifyChange(uri, observer) uses.
+            int flags = UserManager.isVisibleBackgroundUsersEnabled()
+                    && UserManager.get(context).isUserVisible()
+                    ? NOTIFY_NO_DELAY : NOTIFY_SYNC_TO_NETWORK;
+            if (mBatcher.add(context, uri, flags)) {
+                sendEmptyMessageDelayed(MSG_FLUSH_NOTIFICATIONS,
+                        QCNotifyBatcher.BATCH_WINDOW_MS);
+            }
+        }
 
-            Message message = obtainMessage(MSG_UPDATE_QCITEM, worker);
-            long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(worker.getUri(), 0L);
-            if (lastUpdateTime == 0L) {
-                // Postpone the first update triggering by onQCItemSubscribe() to avoid being too
-                // close to the first QCItem bind.
-                sendMessageDelayed(message, QC_UPDATE_THROTTLE_INTERVAL);
-            } else if (SystemClock.uptimeMillis() - lastUpdateTime
-                    > QC_UPDATE_THROTTLE_INTERVAL) {
-                sendMessage(message);
-            } else {
-                sendMessageAtTime(message, lastUpdateTime + QC_UPDATE_THROTTLE_INTERVAL);
+        void updateQCItem(SettingsQCBackgroundWorker worker) {
+            QCThrottlePolicy policy = worker.getThrottlePolicy();
+            synchronized (this) {
+                if (hasMessages(MSG_UPDATE_QCITEM, worker)) {
+                    if (!policy.isCoalescing()) {
+                        return;
+                    }
+                    removeMessages(MSG_UPDATE_QCITEM, worker);
+                }
+                long notifyTime = mThrottler.onChange(worker.getUri(), policy,
+                        SystemClock.uptimeMillis());
+                sendMessageAtTime(obtainMessage(MSG_UPDATE_QCITEM, worker), notifyTime);
             }
         }
 
-        private void cancelQCItemUpdate(SettingsQCBackgroundWorker worker) {
-            removeMessages(MSG_UPDATE_QCITEM, worker);
-            mLastUpdateTimeLookup.remove(worker.getUri());
+        void cancelQCItemUpdate(SettingsQCBackgroundWorker worker) {
+            synchronized (this) {
+                removeMessages(MSG_UPDATE_QCITEM, worker);
+                mThrottler.reset(worker.getUri());
+                mBatcher.remove(worker.getUri());
+            }
         }
     };
 }
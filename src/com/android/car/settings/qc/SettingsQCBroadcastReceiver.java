@@ -33,9 +33,11 @@ public class SettingsQCBroadcastReceiver extends BroadcastReceiver {
     public void onReceive(Context context, Intent i) {
         String action = i.getAction();
         if (SettingsQCRegistry.isValidAction(action)) {
+            Uri uri = Uri.parse(action);
             SettingsQCItem qcItem = createQCItemInstance(context,
-                    SettingsQCRegistry.getQCClassByUri(Uri.parse(action)));
+                    SettingsQCRegistry.getQCClassByUri(uri));
             qcItem.onNotifyChange(i);
+            QCItemSnapshotCache.invalidate(uri);
         }
     }
 
@@ -18,6 +18,7 @@ package com.android.car.settings.qc;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.util.ArrayMap;
 
 import androidx.annotation.NonNull;
@@ -28,6 +29,8 @@ import com.android.car.qc.provider.BaseQCProvider;
 import com.android.car.settings.R;
 import com.android.settingslib.utils.ThreadUtils;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.Map;
 import java.util.Set;
 
@@ -49,11 +52,29 @@ public class SettingsQCProvider extends BaseQCProvider {
         return returnVal;
     }
 
+    /**
+     * Drops the cached {@link QCItem QCItems}, e.g. when the configuration or the occupant zone
+     * changes.
+     */
+    public static void clearQCItemCache() {
+        QCItemSnapshotCache.clear();
+    }
+
     @Override
     public QCItem onBind(Uri uri) {
         if (SettingsQCRegistry.isValidUri(uri)) {
-            Context context = getContext();
-            return getQCItemFromUri(context, uri).getQCItem();
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            QCItem qcItem = QCItemSnapshotCache.get(uri);
+            boolean hit = qcItem != null;
+            if (!hit) {
+                long generation = QCItemSnapshotCache.getGeneration(uri);
+                Context context = getContext();
+                qcItem = getQCItemFromUri(context, uri).getQCItem();
+                QCItemSnapshotCache.put(uri, qcItem, generation);
+            }
+            QCItemSnapshotCache.recordBind(uri, hit,
+                    SystemClock.elapsedRealtimeNanos() - startNanos);
+            return qcItem;
         }
         throw new IllegalArgumentException("Unrecognized uri: " + uri);
     }
@@ -110,17 +131,27 @@ public class SettingsQCProvider extends BaseQCProvider {
         mSubscribedWorkers.put(uri, worker);
         worker.subscribe();
         mSubscribedItems.put(uri, qcItem);
+        // The worker invalidates the cached item whenever its state changes.
+        QCItemSnapshotCache.setCacheable(uri, true);
     }
 
     private void stopBackgroundWorker(Uri uri) {
         SettingsQCBackgroundWorker worker = mSubscribedWorkers.get(uri);
         if (worker != null) {
+            QCItemSnapshotCache.setCacheable(uri, false);
             worker.unsubscribe();
             mSubscribedWorkers.remove(uri);
             mSubscribedItems.remove(uri);
         }
     }
 
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        QCItemSnapshotCache.dump("", writer);
+        SettingsQCBackgroundWorker.dumpNotifyStats("", writer);
+    }
+
     @NonNull
     @Override
     protected Set<String> getAllowlistedPackages() {
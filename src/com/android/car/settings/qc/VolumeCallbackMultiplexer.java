@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+import static android.car.media.CarAudioManager.AUDIO_FEATURE_VOLUME_GROUP_EVENTS;
+import static android.car.media.CarVolumeGroupEvent.EVENT_TYPE_ZONE_CONFIGURATION_CHANGED;
+
+import static com.android.car.settings.qc.BaseVolumeSlider.QC_VOLUME_SELF_CHANGE;
+
+import android.car.feature.Flags;
+import android.car.media.CarAudioManager;
+import android.car.media.CarVolumeGroupEvent;
+import android.car.media.CarVolumeGroupEventCallback;
+import android.util.ArraySet;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.car.settings.CarSettingsApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers a single {@link CarAudioManager.CarVolumeCallback} on behalf of all volume slider
+ * workers and routes volume group events to the workers showing that group.
+ *
+ * <p>The volume group of each usage is cached per audio zone, so that a volume key press does
+ * not cost one {@link CarAudioManager#getVolumeGroupIdForUsage} call per worker and usage. The
+ * cache is dropped when the occupant zone configuration changes, when the audio zone switches to
+ * another configuration, or when the car service reconnects.
+ *
+ * <p>Listeners added before the car service is connected are registered once it is.
+ */
+final class VolumeCallbackMultiplexer {
+
+    /** Worker interested in the volume groups of some usages. */
+    interface Listener {
+        /** Returns the usages shown by the worker. */
+        int[] getUsages();
+
+        /**
+         * Called when the volume or mute state of a group of one of the usages changed, or when
+         * the volume groups themselves may have changed.
+         */
+        void onVolumeGroupChanged();
+    }
+
+    private static final VolumeCallbackMultiplexer INSTANCE = new VolumeCallbackMultiplexer();
+
+    private final Object mLock = new Object();
+    @GuardedBy("mLock")
+    private final ArraySet<Listener> mListeners = new ArraySet<>();
+    // Audio zone id to usage to volume group id.
+    @GuardedBy("mLock")
+    private final SparseArray<SparseIntArray> mGroupIds = new SparseArray<>();
+    @GuardedBy("mLock")
+    private CarSettingsApplication mApplication;
+    @GuardedBy("mLock")
+    private CarAudioManager mCarAudioManager;
+    @GuardedBy("mLock")
+    private boolean mVolumeGroupEventsRegistered;
+
+    private final CarSettingsApplication.OnZoneInfoChangedListener mZoneInfoChangedListener =
+            this::onZoneInfoChanged;
+
+    // Audio zone configuration changes are observed through volume group events, as the
+    // configurations change callback of the car audio manager only has a single slot, which is
+    // used by the audio route selector.
+    private final CarVolumeGroupEventCallback mVolumeGroupEventCallback =
+            new CarVolumeGroupEventCallback() {
+                @Override
+                public void onVolumeGroupEvent(List<CarVolumeGroupEvent> volumeGroupEvents) {
+                    for (int i = 0; i < volumeGroupEvents.size(); i++) {
+                        if ((volumeGroupEvents.get(i).getEventTypes()
+                                & EVENT_TYPE_ZONE_CONFIGURATION_CHANGED) != 0) {
+                            onVolumeGroupsChanged();
+                            return;
+                        }
+                    }
+                }
+            };
+
+    private final CarAudioManager.CarVolumeCallback mVolumeChangeCallback =
+            new CarAudioManager.CarVolumeCallback() {
+                @Override
+                public void onGroupVolumeChanged(int zoneId, int groupId, int flags) {
+                    if (flags != QC_VOLUME_SELF_CHANGE) {
+                        onVolumeGroupChanged(zoneId, groupId);
+                    }
+                }
+
+                @Override
+                public void onMasterMuteChanged(int zoneId, int flags) {
+                    // Mute is not being used yet
+                }
+
+                @Override
+                public void onGroupMuteChanged(int zoneId, int groupId, int flags) {
+                    if (flags != QC_VOLUME_SELF_CHANGE) {
+                        onVolumeGroupChanged(zoneId, groupId);
+                    }
+                }
+            };
+
+    static VolumeCallbackMultiplexer getInstance() {
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    VolumeCallbackMultiplexer() {
+    }
+
+    /**
+     * Adds {@code listener}, registering the shared callback with the {@link CarAudioManager} of
+     * {@code application} if needed. If the car service is not connected yet, the callback is
+     * registered once it is, and the listener is notified.
+     */
+    void addListener(CarSettingsApplication application, Listener listener) {
+        synchronized (mLock) {
+            if (mApplication == null) {
+                // First listener.
+                mApplication = application;
+                application.addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+            }
+            mListeners.add(listener);
+            registerLocked(application.getCarAudioManager());
+        }
+    }
+
+    /** Removes {@code listener}, unregistering the shared callback if it was the last one. */
+    void removeListener(Listener listener) {
+        synchronized (mLock) {
+            if (mListeners.remove(listener) && mListeners.isEmpty()) {
+                unregisterLocked();
+            }
+        }
+    }
+
+    /**
+     * Returns the volume group of {@code usage} in {@code zoneId}, asking {@code
+     * carAudioManager} only if it is not cached.
+     */
+    int getVolumeGroupIdForUsage(CarAudioManager carAudioManager, int zoneId, int usage) {
+        synchronized (mLock) {
+            if (carAudioManager == mCarAudioManager) {
+                SparseIntArray groupIds = mGroupIds.get(zoneId);
+                int index = groupIds == null ? -1 : groupIds.indexOfKey(usage);
+                if (index >= 0) {
+                    return groupIds.valueAt(index);
+                }
+            }
+        }
+        int groupId = carAudioManager.getVolumeGroupIdForUsage(zoneId, usage);
+        synchronized (mLock) {
+            if (carAudioManager == mCarAudioManager) {
+                SparseIntArray groupIds = mGroupIds.get(zoneId);
+                if (groupIds == null) {
+                    groupIds = new SparseIntArray();
+                    mGroupIds.put(zoneId, groupIds);
+                }
+                groupIds.put(usage, groupId);
+            }
+        }
+        return groupId;
+    }
+
+    @VisibleForTesting
+    CarAudioManager.CarVolumeCallback getVolumeChangeCallback() {
+        return mVolumeChangeCallback;
+    }
+
+    @VisibleForTesting
+    void reset() {
+        synchronized (mLock) {
+            mListeners.clear();
+            mGroupIds.clear();
+            mCarAudioManager = null;
+            mApplication = null;
+            mVolumeGroupEventsRegistered = false;
+        }
+    }
+
+    private void onVolumeGroupChanged(int zoneId, int groupId) {
+        CarAudioManager carAudioManager;
+        List<Listener> listeners;
+        synchronized (mLock) {
+            // Settings only handles my audio zone changes
+            if (mCarAudioManager == null || zoneId != mApplication.getMyAudioZoneId()) {
+                return;
+            }
+            carAudioManager = mCarAudioManager;
+            listeners = new ArrayList<>(mListeners);
+        }
+        for (Listener listener : listeners) {
+            for (int usage : listener.getUsages()) {
+                if (getVolumeGroupIdForUsage(carAudioManager, zoneId, usage) == groupId) {
+                    listener.onVolumeGroupChanged();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void onZoneInfoChanged() {
+        synchronized (mLock) {
+            if (mApplication == null) {
+                return;
+            }
+            // The car service may have connected, or reconnected.
+            registerLocked(mApplication.getCarAudioManager());
+        }
+        onVolumeGroupsChanged();
+    }
+
+    private void onVolumeGroupsChanged() {
+        List<Listener> listeners;
+        synchronized (mLock) {
+            mGroupIds.clear();
+            listeners = new ArrayList<>(mListeners);
+        }
+        for (Listener listener : listeners) {
+            listener.onVolumeGroupChanged();
+        }
+    }
+
+    /** Moves the shared callbacks to {@code carAudioManager} if it changed. */
+    @GuardedBy("mLock")
+    private void registerLocked(@Nullable CarAudioManager carAudioManager) {
+        if (carAudioManager == mCarAudioManager) {
+            return;
+        }
+        unregisterCallbacksLocked();
+        mCarAudioManager = carAudioManager;
+        if (carAudioManager == null) {
+            return;
+        }
+        carAudioManager.registerCarVolumeCallback(mVolumeChangeCallback);
+        if (Flags.carAudioDynamicDevices()
+                && carAudioManager.isAudioFeatureEnabled(AUDIO_FEATURE_VOLUME_GROUP_EVENTS)) {
+            carAudioManager.registerCarVolumeGroupEventCallback(mApplication.getMainExecutor(),
+                    mVolumeGroupEventCallback);
+            mVolumeGroupEventsRegistered = true;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void unregisterCallbacksLocked() {
+        if (mCarAudioManager != null) {
+            mCarAudioManager.unregisterCarVolumeCallback(mVolumeChangeCallback);
+            if (mVolumeGroupEventsRegistered) {
+                mCarAudioManager.unregisterCarVolumeGroupEventCallback(mVolumeGroupEventCallback);
+            }
+        }
+        mVolumeGroupEventsRegistered = false;
+        mCarAudioManager = null;
+        mGroupIds.clear();
+    }
+
+    @GuardedBy("mLock")
+    private void unregisterLocked() {
+        unregisterCallbacksLocked();
+        if (mApplication != null) {
+            mApplication.removeOnZoneInfoChangedListener(mZoneInfoChangedListener);
+        }
+        mApplication = null;
+    }
+}
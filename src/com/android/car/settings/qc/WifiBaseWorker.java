@@ -18,43 +18,42 @@ package com.android.car.settings.qc;
 
 import android.content.Context;
 import android.net.Uri;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Looper;
-import android.os.Process;
+import android.net.wifi.WifiManager;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LifecycleRegistry;
 
-import com.android.car.settings.wifi.WifiUtil;
+import com.android.car.settings.wifi.WifiTrackerHub;
 import com.android.wifitrackerlib.WifiPickerTracker;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
- * Background worker for Wifi QCItems.
+ * Background worker for Wifi QCItems. All workers share the {@link WifiPickerTracker} owned by
+ * {@link WifiTrackerHub}.
  * @param <E> The {@link SettingsQCItem} the background worker is associated with.
  */
 public class WifiBaseWorker<E extends SettingsQCItem> extends SettingsQCBackgroundWorker<E>
         implements LifecycleOwner, WifiPickerTracker.WifiPickerTrackerCallback {
 
+    // Scans report changes in bursts, notify once they settle.
+    private static final QCThrottlePolicy THROTTLE_POLICY =
+            QCThrottlePolicy.trailing(/* quietPeriodMs= */ 500L, /* maxWaitMs= */ 1500L);
+
     private final LifecycleRegistry mLifecycleRegistry;
-    private final WifiPickerTracker mWifiPickerTracker;
-    private final HandlerThread mWorkerThread;
+    private final WifiTrackerHub mWifiTrackerHub;
+    private final WifiManager mWifiManager;
 
     protected WifiBaseWorker(Context context, Uri uri) {
         super(context, uri);
         mLifecycleRegistry = new LifecycleRegistry(/* provider= */ this);
 
-        mWorkerThread = new HandlerThread(getClass().getSimpleName()
-                + "{" + Integer.toHexString(System.identityHashCode(this)) + "}",
-                Process.THREAD_PRIORITY_BACKGROUND);
-        mWorkerThread.start();
-        mWifiPickerTracker = WifiUtil.createWifiPickerTracker(mLifecycleRegistry, context,
-                new Handler(Looper.getMainLooper()),
-                mWorkerThread.getThreadHandler(), /* listener= */ this);
+        mWifiManager = context.getSystemService(WifiManager.class);
+        mWifiTrackerHub = WifiTrackerHub.getInstance(context);
+        mWifiTrackerHub.acquire(/* subscriber= */ this);
 
         mLifecycleRegistry.setCurrentState(Lifecycle.State.CREATED);
     }
@@ -62,19 +61,33 @@ public class WifiBaseWorker<E extends SettingsQCItem> extends SettingsQCBackgrou
     @Override
     protected void onQCItemSubscribe() {
         mLifecycleRegistry.setCurrentState(Lifecycle.State.RESUMED);
+        mWifiTrackerHub.setActive(/* subscriber= */ this, /* active= */ true);
     }
 
     @Override
     protected void onQCItemUnsubscribe() {
         mLifecycleRegistry.setCurrentState(Lifecycle.State.CREATED);
+        mWifiTrackerHub.setActive(/* subscriber= */ this, /* active= */ false);
     }
 
     @Override
     public void close() throws IOException {
-        mWorkerThread.quit();
+        mWifiTrackerHub.release(/* subscriber= */ this);
         mLifecycleRegistry.setCurrentState(Lifecycle.State.DESTROYED);
     }
 
+    @Override
+    protected QCThrottlePolicy getThrottlePolicy() {
+        return THROTTLE_POLICY;
+    }
+
+    @Override
+    protected Object getQCItemContentKey() {
+        // Wi-Fi items show the state, the signal icon and the connected network.
+        return Arrays.asList(mWifiManager.getWifiState(), WifiQCUtils.getIcon(mWifiManager),
+                WifiQCUtils.getSubtitle(getContext(), mWifiManager));
+    }
+
     @NonNull
     @Override
     public Lifecycle getLifecycle() {
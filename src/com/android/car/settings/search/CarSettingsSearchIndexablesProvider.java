@@ -41,31 +41,128 @@ import static android.provider.SearchIndexablesContract.INDEXABLES_RAW_COLUMNS;
 import static android.provider.SearchIndexablesContract.INDEXABLES_XML_RES_COLUMNS;
 import static android.provider.SearchIndexablesContract.NON_INDEXABLES_KEYS_COLUMNS;
 
+import android.content.Context;
 import android.database.Cursor;
-import android.database.MatrixCursor;
+import android.os.SystemClock;
 import android.provider.SearchIndexablesProvider;
 
+import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
+
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
+import com.android.car.settings.common.TimingRecorder;
 import com.android.internal.annotations.VisibleForTesting;
+import com.android.settingslib.search.Indexable;
 import com.android.settingslib.search.SearchIndexableData;
 import com.android.settingslib.search.SearchIndexableRaw;
 import com.android.settingslib.search.SearchIndexableResources;
 import com.android.settingslib.search.SearchIndexableResourcesAuto;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Automotive Settings Provider for Search.
+ *
+ * <p>XML resource and raw data rows are served from a {@link SearchIndexSnapshot} persisted in
+ * the cache directory, which is rebuilt when the package version, locales, user or occupant zone
+ * type change. Non-indexable keys are computed on every query.
  */
 public class CarSettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     private static final Logger LOG = new Logger(CarSettingsSearchIndexablesProvider.class);
 
+    private static final String SNAPSHOT_FILE_NAME = "search_index_snapshot";
+
+    // Time a single provider may take to compute its non-indexable keys.
+    private static final long PROVIDER_BUDGET_MS = 1000L;
+    // Time all providers may take together, so that the search app is never blocked for long.
+    private static final long QUERY_BUDGET_MS = 3000L;
+    private static final long QUEUED_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50L);
+
+    private final Object mSnapshotLock = new Object();
+    @GuardedBy("mSnapshotLock")
+    private SearchIndexSnapshot mSnapshot;
+
+    // Last keys returned by each provider, used when it fails or runs out of time.
+    private final Map<Indexable.SearchIndexProvider, List<String>> mLastNonIndexableKeys =
+            new ConcurrentHashMap<>();
+
     private SearchIndexableResources mSearchIndexableResources;
+    private volatile long mProviderBudgetMs = PROVIDER_BUDGET_MS;
+    private volatile long mQueryBudgetMs = QUERY_BUDGET_MS;
 
     @Override
     public Cursor queryXmlResources(String[] projection) {
-        MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
+        return createCursor(INDEXABLES_XML_RES_COLUMNS, getSnapshot().getXmlResourceRows());
+    }
+
+    @Override
+    public Cursor queryRawData(String[] projection) {
+        return createCursor(INDEXABLES_RAW_COLUMNS, getSnapshot().getRawDataRows());
+    }
+
+    @Override
+    public Cursor queryNonIndexableKeys(String[] projection) {
+        // Availability can change without any of the snapshot inputs changing, so the keys are
+        // asked for on every query, within the query budget.
+        return createCursor(NON_INDEXABLES_KEYS_COLUMNS, buildNonIndexableKeyRows());
+    }
+
+    @Override
+    public boolean onCreate() {
+        Context context = getContext();
+        if (context != null) {
+            // Rebuild a stale snapshot before the next indexing, e.g. after a locale change.
+            executeBackgroundTask(() -> {
+                if (!SearchIndexSnapshot.getVersionKey(context).equals(
+                        SearchIndexSnapshot.readVersionKey(getSnapshotFile(context)))) {
+                    getSnapshot();
+                }
+            });
+        }
+        return true;
+    }
+
+    /** Returns the snapshot for the current version key, loading or building it if needed. */
+    private SearchIndexSnapshot getSnapshot() {
+        Context context = getContext();
+        String versionKey = SearchIndexSnapshot.getVersionKey(context);
+        synchronized (mSnapshotLock) {
+            if (mSnapshot != null && mSnapshot.getVersionKey().equals(versionKey)) {
+                return mSnapshot;
+            }
+            long startMs = SystemClock.elapsedRealtime();
+            File file = getSnapshotFile(context);
+            SearchIndexSnapshot snapshot = SearchIndexSnapshot.read(file, versionKey);
+            if (snapshot != null) {
+                LOG.d("Loaded search index snapshot in "
+                        + (SystemClock.elapsedRealtime() - startMs) + "ms");
+            } else {
+                snapshot = new SearchIndexSnapshot(versionKey, buildXmlResourceRows(),
+                        buildRawDataRows());
+                LOG.d("Built search index snapshot in "
+                        + (SystemClock.elapsedRealtime() - startMs) + "ms");
+                SearchIndexSnapshot built = snapshot;
+                executeBackgroundTask(() -> built.write(file));
+            }
+            mSnapshot = snapshot;
+            return snapshot;
+        }
+    }
 
+    private List<Object[]> buildXmlResourceRows() {
+        List<Object[]> rows = new ArrayList<>();
         getResources()
                 .getProviderValues()
                 .stream()
@@ -81,32 +178,28 @@ public class CarSettingsSearchIndexablesProvider extends SearchIndexablesProvide
                     ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
                     ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
                     ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = val.intentTargetClass;
-                    cursor.addRow(ref);
+                    rows.add(ref);
                 }));
-
-        return cursor;
+        return rows;
     }
 
-    @Override
-    public Cursor queryRawData(String[] projection) {
-        MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
-
+    private List<Object[]> buildRawDataRows() {
+        List<Object[]> rows = new ArrayList<>();
         getResources()
                 .getProviderValues()
                 .stream()
                 .map(SearchIndexableData::getSearchIndexProvider)
                 .map(p -> p.getRawDataToIndex(getContext(), true))
                 .filter(Objects::nonNull)
-                .forEach(list -> list.forEach(
-                        raw -> {
-                            cursor.addRow(createIndexableRawColumnObjects(raw));
-                        }));
-
-        return cursor;
+                .forEach(list -> list.forEach(raw -> {
+                    Object[] ref = new Object[INDEXABLES_RAW_COLUMNS.length];
+                    fillIndexableRawColumnObjects(raw, ref);
+                    rows.add(ref);
+                }));
+        return rows;
     }
 
-    private static Object[] createIndexableRawColumnObjects(SearchIndexableRaw raw) {
-        Object[] ref = new Object[INDEXABLES_RAW_COLUMNS.length];
+    private static void fillIndexableRawColumnObjects(SearchIndexableRaw raw, Object[] ref) {
         ref[COLUMN_INDEX_RAW_TITLE] = raw.title;
         ref[COLUMN_INDEX_RAW_SUMMARY_ON] = raw.summaryOn;
         ref[COLUMN_INDEX_RAW_SUMMARY_OFF] = raw.summaryOff;
@@ -120,38 +213,47 @@ public class CarSettingsSearchIndexablesProvider extends SearchIndexablesProvide
         ref[COLUMN_INDEX_RAW_INTENT_TARGET_CLASS] = raw.intentTargetClass;
         ref[COLUMN_INDEX_RAW_KEY] = raw.key;
         ref[COLUMN_INDEX_RAW_USER_ID] = raw.userId;
-        return ref;
     }
 
-    @Override
-    public Cursor queryNonIndexableKeys(String[] projection) {
-        MatrixCursor cursor = new MatrixCursor(NON_INDEXABLES_KEYS_COLUMNS);
-
-        getResources().getProviderValues()
-                .stream()
-                .map(SearchIndexableData::getSearchIndexProvider)
-                .map(provider -> {
-                    try {
-                        return provider.getNonIndexableKeys(getContext());
-                    } catch (Exception e) {
-                        LOG.w("Could not get keys for provider " + provider.toString());
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .forEach(keys ->
-                        keys.forEach(key -> {
-                            Object[] ref = new Object[NON_INDEXABLES_KEYS_COLUMNS.length];
-                            ref[COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE] = key;
-                            cursor.addRow(ref);
-                        }));
+    /**
+     * Asks every provider for its non-indexable keys in parallel. Providers which throw or do
+     * not answer within their budget are given the keys they returned last, so that one slow
+     * provider can neither block the query nor make its hidden settings searchable.
+     */
+    private List<Object[]> buildNonIndexableKeyRows() {
+        List<NonIndexableKeysTask> tasks = new ArrayList<>();
+        for (SearchIndexableData data : getResources().getProviderValues()) {
+            NonIndexableKeysTask task = new NonIndexableKeysTask(data.getSearchIndexProvider());
+            task.mFuture = TaskScheduler.getInstance().submit(TaskScheduler.LANE_FAN_OUT, task);
+            tasks.add(task);
+        }
 
-        return cursor;
+        long queryDeadlineNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(mQueryBudgetMs);
+        long providerBudgetNanos = TimeUnit.MILLISECONDS.toNanos(mProviderBudgetMs);
+        List<Object[]> rows = new ArrayList<>();
+        for (NonIndexableKeysTask task : tasks) {
+            List<String> keys = task.await(queryDeadlineNanos, providerBudgetNanos);
+            if (keys != null) {
+                mLastNonIndexableKeys.put(task.mProvider, keys);
+            } else {
+                keys = mLastNonIndexableKeys.get(task.mProvider);
+                if (keys == null) {
+                    continue;
+                }
+            }
+            keys.forEach(key -> {
+                Object[] ref = new Object[NON_INDEXABLES_KEYS_COLUMNS.length];
+                ref[COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE] = key;
+                rows.add(ref);
+            });
+        }
+        return rows;
     }
 
-    @Override
-    public boolean onCreate() {
-        return true;
+    private static Cursor createCursor(String[] columns, List<Object[]> rows) {
+        // The rows are never modified once built, so they can be shared instead of copied.
+        return new IndexableRowCursor(columns, rows);
     }
 
     private SearchIndexableResources getResources() {
@@ -161,8 +263,95 @@ public class CarSettingsSearchIndexablesProvider extends SearchIndexablesProvide
         return mSearchIndexableResources;
     }
 
+    @VisibleForTesting
+    void executeBackgroundTask(Runnable runnable) {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_BULK, runnable);
+    }
+
+    @VisibleForTesting
+    static File getSnapshotFile(Context context) {
+        return new File(context.getCacheDir(), SNAPSHOT_FILE_NAME);
+    }
+
+    @VisibleForTesting
+    void setNonIndexableKeysBudget(long providerBudgetMs, long queryBudgetMs) {
+        mProviderBudgetMs = providerBudgetMs;
+        mQueryBudgetMs = queryBudgetMs;
+    }
+
     @VisibleForTesting
     void setResources(SearchIndexableResources resources) {
         mSearchIndexableResources = resources;
+        mLastNonIndexableKeys.clear();
+        synchronized (mSnapshotLock) {
+            mSnapshot = null;
+        }
+    }
+
+    /** Gets the non-indexable keys of one provider on the fan-out lane. */
+    private final class NonIndexableKeysTask implements Callable<List<String>> {
+        private final Indexable.SearchIndexProvider mProvider;
+        // 0 until the task starts running.
+        private volatile long mStartNanos;
+        private Future<List<String>> mFuture;
+
+        NonIndexableKeysTask(Indexable.SearchIndexProvider provider) {
+            mProvider = provider;
+        }
+
+        @Override
+        public List<String> call() {
+            mStartNanos = System.nanoTime();
+            String owner = mProvider.getClass().getName();
+            long startNanos = TimingRecorder.getInstance().begin(
+                    TimingRecorder.PHASE_NON_INDEXABLE_KEYS, owner);
+            try {
+                List<String> keys = mProvider.getNonIndexableKeys(getContext());
+                return keys != null ? keys : Collections.emptyList();
+            } finally {
+                TimingRecorder.getInstance().end(TimingRecorder.PHASE_NON_INDEXABLE_KEYS, owner,
+                        startNanos);
+            }
+        }
+
+        /**
+         * Waits until the keys are available, the provider has run for {@code
+         * providerBudgetNanos} or {@code queryDeadlineNanos} is reached.
+         *
+         * @return the keys, or {@code null} if the provider failed or ran out of time
+         */
+        @Nullable
+        List<String> await(long queryDeadlineNanos, long providerBudgetNanos) {
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    long startNanos = mStartNanos;
+                    // The provider budget only starts once the task runs, so a queued task is
+                    // checked again after a short slice.
+                    long deadline = startNanos == 0
+                            ? Math.min(queryDeadlineNanos, now + QUEUED_POLL_NANOS)
+                            : Math.min(queryDeadlineNanos, startNanos + providerBudgetNanos);
+                    try {
+                        // Does not wait, but still returns a result computed while earlier
+                        // providers used up the budget.
+                        return mFuture.get(Math.max(0, deadline - now), TimeUnit.NANOSECONDS);
+                    } catch (TimeoutException e) {
+                        now = System.nanoTime();
+                        if (now >= queryDeadlineNanos || (mStartNanos != 0
+                                && now - mStartNanos >= providerBudgetNanos)) {
+                            break;
+                        }
+                    }
+                }
+            } catch (ExecutionException e) {
+                LOG.w("Could not get keys for provider " + mProvider.toString(), e.getCause());
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mFuture.cancel(/* mayInterruptIfRunning= */ true);
+            LOG.w("Timed out getting keys for provider " + mProvider.toString());
+            return null;
+        }
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import android.database.AbstractCursor;
+import android.database.CursorIndexOutOfBoundsException;
+import android.database.MatrixCursor;
+
+import java.util.List;
+
+/**
+ * Read-only cursor over rows of column values which are never modified, such as the rows of a
+ * {@link SearchIndexSnapshot}.
+ *
+ * <p>Unlike {@link MatrixCursor}, the rows are not copied into the cursor, so a query does not
+ * hold a second copy of the rows of the snapshot. The snapshot itself still keeps every row in
+ * memory. When the cursor is sent to the search app, the rows are written to one
+ * {@link android.database.CursorWindow} at a time as the search app pages through them.
+ */
+final class IndexableRowCursor extends AbstractCursor {
+    private final String[] mColumnNames;
+    private final List<Object[]> mRows;
+
+    IndexableRowCursor(String[] columnNames, List<Object[]> rows) {
+        mColumnNames = columnNames;
+        mRows = rows;
+    }
+
+    @Override
+    public int getCount() {
+        return mRows.size();
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumnNames;
+    }
+
+    @Override
+    public String getString(int column) {
+        Object value = get(column);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public short getShort(int column) {
+        Object value = get(column);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).shortValue();
+        return Short.parseShort(value.toString());
+    }
+
+    @Override
+    public int getInt(int column) {
+        Object value = get(column);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).intValue();
+        return Integer.parseInt(value.toString());
+    }
+
+    @Override
+    public long getLong(int column) {
+        Object value = get(column);
+        if (value == null) return 0;
+        if (value instanceof Number) return ((Number) value).longValue();
+        return Long.parseLong(value.toString());
+    }
+
+    @Override
+    public float getFloat(int column) {
+        Object value = get(column);
+        if (value == null) return 0.0f;
+        if (value instanceof Number) return ((Number) value).floatValue();
+        return Float.parseFloat(value.toString());
+    }
+
+    @Override
+    public double getDouble(int column) {
+        Object value = get(column);
+        if (value == null) return 0.0d;
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        return Double.parseDouble(value.toString());
+    }
+
+    @Override
+    public int getType(int column) {
+        Object value = get(column);
+        if (value == null) {
+            return FIELD_TYPE_NULL;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return FIELD_TYPE_INTEGER;
+        }
+        return FIELD_TYPE_STRING;
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return get(column) == null;
+    }
+
+    private Object get(int column) {
+        if (column < 0 || column >= mColumnNames.length) {
+            throw new CursorIndexOutOfBoundsException("Requested column: " + column
+                    + ", # of columns: " + mColumnNames.length);
+        }
+        checkPosition();
+        return mRows.get(mPos)[column];
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import android.car.CarOccupantZoneManager;
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.UserHandle;
+import android.util.AtomicFile;
+
+import androidx.annotation.Nullable;
+
+import com.android.car.settings.CarSettingsApplication;
+import com.android.car.settings.common.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of the XML resource and raw data rows returned by {@link
+ * CarSettingsSearchIndexablesProvider}, persisted so that indexing does not have to ask every
+ * search index provider again.
+ *
+ * <p>Non-indexable keys are not part of a snapshot, as they depend on state which the version
+ * key does not cover, such as whether development settings are enabled.
+ *
+ * <p>A snapshot is only valid for the version key it was built with, which covers the package
+ * version, the locales, the user and the occupant zone type.
+ */
+final class SearchIndexSnapshot {
+    private static final Logger LOG = new Logger(SearchIndexSnapshot.class);
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_STRING = 2;
+
+    private final String mVersionKey;
+    private final List<Object[]> mXmlResourceRows;
+    private final List<Object[]> mRawDataRows;
+
+    SearchIndexSnapshot(String versionKey, List<Object[]> xmlResourceRows,
+            List<Object[]> rawDataRows) {
+        mVersionKey = versionKey;
+        mXmlResourceRows = Collections.unmodifiableList(xmlResourceRows);
+        mRawDataRows = Collections.unmodifiableList(rawDataRows);
+    }
+
+    /** Returns the key which the rows built for {@code context} right now are valid for. */
+    static String getVersionKey(Context context) {
+        long versionCode = 0;
+        long lastUpdateTime = 0;
+        try {
+            PackageInfo packageInfo = context.getPackageManager().getPackageInfo(
+                    context.getPackageName(), /* flags= */ 0);
+            versionCode = packageInfo.getLongVersionCode();
+            // Development builds are often installed without bumping the version code.
+            lastUpdateTime = packageInfo.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            LOG.w("Could not get own package info", e);
+        }
+        int occupantZoneType = CarOccupantZoneManager.OCCUPANT_TYPE_INVALID;
+        if (context.getApplicationContext() instanceof CarSettingsApplication) {
+            occupantZoneType = ((CarSettingsApplication) context.getApplicationContext())
+                    .getMyOccupantZoneType();
+        }
+        return versionCode + "/" + lastUpdateTime
+                + "/" + context.getResources().getConfiguration().getLocales().toLanguageTags()
+                + "/" + UserHandle.myUserId()
+                + "/" + occupantZoneType;
+    }
+
+    String getVersionKey() {
+        return mVersionKey;
+    }
+
+    List<Object[]> getXmlResourceRows() {
+        return mXmlResourceRows;
+    }
+
+    List<Object[]> getRawDataRows() {
+        return mRawDataRows;
+    }
+
+    /**
+     * Returns the version key of the snapshot persisted in {@code file} without reading its
+     * rows, or {@code null} if there is no readable snapshot.
+     */
+    @Nullable
+    static String readVersionKey(File file) {
+        try (DataInputStream in = openForRead(file)) {
+            return readHeader(in);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.w("Could not read search index snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the snapshot persisted in {@code file}, or returns {@code null} if there is none or
+     * it is not valid for {@code versionKey}.
+     */
+    @Nullable
+    static SearchIndexSnapshot read(File file, String versionKey) {
+        try (DataInputStream in = openForRead(file)) {
+            if (!versionKey.equals(readHeader(in))) {
+                return null;
+            }
+            List<Object[]> xmlResourceRows = readRows(in);
+            List<Object[]> rawDataRows = readRows(in);
+            return new SearchIndexSnapshot(versionKey, xmlResourceRows, rawDataRows);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.w("Could not read search index snapshot", e);
+            return null;
+        }
+    }
+
+    /** Persists this snapshot to {@code file}, replacing the previous one atomically. */
+    void write(File file) {
+        AtomicFile atomicFile = new AtomicFile(file);
+        FileOutputStream stream = null;
+        try {
+            stream = atomicFile.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(mVersionKey);
+            writeRows(out, mXmlResourceRows);
+            writeRows(out, mRawDataRows);
+            out.flush();
+            atomicFile.finishWrite(stream);
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.w("Could not write search index snapshot", e);
+            if (stream != null) {
+                atomicFile.failWrite(stream);
+            }
+        }
+    }
+
+    private static DataInputStream openForRead(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new AtomicFile(file).openRead()));
+    }
+
+    @Nullable
+    private static String readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        return in.readUTF();
+    }
+
+    private static List<Object[]> readRows(DataInputStream in) throws IOException {
+        int rowCount = in.readInt();
+        List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            Object[] row = new Object[in.readInt()];
+            for (int j = 0; j < row.length; j++) {
+                byte type = in.readByte();
+                switch (type) {
+                    case TYPE_NULL:
+                        break;
+                    case TYPE_INT:
+                        row[j] = in.readInt();
+                        break;
+                    case TYPE_STRING:
+                        row[j] = in.readUTF();
+                        break;
+                    default:
+                        throw new IOException("Unknown value type: " + type);
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void writeRows(DataOutputStream out, List<Object[]> rows) throws IOException {
+        out.writeInt(rows.size());
+        for (Object[] row : rows) {
+            out.writeInt(row.length);
+            for (Object value : row) {
+                if (value == null) {
+                    out.writeByte(TYPE_NULL);
+                } else if (value instanceof Integer) {
+                    out.writeByte(TYPE_INT);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof String) {
+                    out.writeByte(TYPE_STRING);
+                    out.writeUTF((String) value);
+                } else {
+                    throw new IllegalArgumentException(
+                            "Unsupported value type: " + value.getClass());
+                }
+            }
+        }
+    }
+}
@@ -17,15 +17,16 @@
 package com.android.car.settings.security;
 
 import android.annotation.WorkerThread;
-import android.os.AsyncTask;
 import android.os.Bundle;
 
 import androidx.annotation.VisibleForTesting;
 import androidx.fragment.app.Fragment;
 
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
 import com.android.internal.widget.LockPatternUtils;
 import com.android.internal.widget.LockscreenCredential;
+import com.android.settingslib.utils.ThreadUtils;
 
 /**
  * An invisible retained worker fragment to track the AsyncWork that saves
@@ -94,7 +95,10 @@ public class SaveLockWorker extends Fragment {
      */
     private void start() {
         mFinished = false;
-        new Task().executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL, () -> {
+            boolean isSaveSuccessful = saveAndVerifyInBackground();
+            ThreadUtils.postOnMainThread(() -> finish(isSaveSuccessful));
+        });
     }
 
     /**
@@ -138,17 +142,4 @@ public class SaveLockWorker extends Fragment {
     void saveLock() {
         getUtils().setLockCredential(mEnteredCredential, mCurrentCredential, getUserId());
     }
-
-    // Save chosen lock task.
-    private class Task extends AsyncTask<Void, Void, Boolean> {
-        @Override
-        protected Boolean doInBackground(Void... params) {
-            return saveAndVerifyInBackground();
-        }
-
-        @Override
-        protected void onPostExecute(Boolean isSaveSuccessful) {
-            finish(isSaveSuccessful);
-        }
-    }
 }
@@ -19,6 +19,7 @@ package com.android.car.settings.sound;
 import static android.car.media.CarAudioManager.AUDIO_FEATURE_DYNAMIC_ROUTING;
 
 import android.car.drivingstate.CarUxRestrictions;
+import android.car.media.CarAudioManager;
 import android.content.Context;
 import android.car.feature.Flags;
 
@@ -42,7 +43,20 @@ public class AudioRouteSelectorController extends PreferenceController<ListPrefe
     private AudioRouteItem mAudioRouteItem;
     private int mUsage;
     private AudioRoutesManager.AudioZoneConfigUpdateListener mUpdateListener =
-            () -> updateState(getPreference());
+            new AudioRoutesManager.AudioZoneConfigUpdateListener() {
+                @Override
+                public void onAudioZoneConfigUpdated() {
+                    updateState(getPreference());
+                }
+
+                @Override
+                public void onAudioRoutesLoaded() {
+                    if (getPreference() != null) {
+                        updatePreferenceOptions();
+                    }
+                    refreshUi();
+                }
+            };
 
     public AudioRouteSelectorController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -81,9 +95,10 @@ public class AudioRouteSelectorController extends PreferenceController<ListPrefe
         if (!Flags.carAudioDynamicDevices()) {
             return CONDITIONALLY_UNAVAILABLE;
         }
+        CarAudioManager carAudioManager = mAudioRoutesManager.getCarAudioManager();
         if (getContext().getResources().getBoolean(R.bool.config_allow_audio_destination_selection)
-                && mAudioRoutesManager.getCarAudioManager()
-                .isAudioFeatureEnabled(AUDIO_FEATURE_DYNAMIC_ROUTING)) {
+                && carAudioManager != null
+                && carAudioManager.isAudioFeatureEnabled(AUDIO_FEATURE_DYNAMIC_ROUTING)) {
             return AVAILABLE;
         }
         return CONDITIONALLY_UNAVAILABLE;
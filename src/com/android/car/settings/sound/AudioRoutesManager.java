@@ -30,6 +30,7 @@ import android.media.AudioDeviceInfo;
 import android.util.ArrayMap;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
 import com.android.car.settings.CarSettingsApplication;
@@ -62,8 +63,18 @@ public class AudioRoutesManager {
      */
     public interface AudioZoneConfigUpdateListener {
         void onAudioZoneConfigUpdated();
+
+        /**
+         * Called once the audio routes are loaded, if the car service was not connected yet when
+         * the {@link AudioRoutesManager} was created.
+         */
+        default void onAudioRoutesLoaded() {
+        }
     }
 
+    private final CarSettingsApplication.OnZoneInfoChangedListener mZoneInfoChangedListener =
+            this::onZoneInfoChanged;
+
     private final AudioZoneConfigurationsChangeCallback mAudioZoneConfigurationsChangeCallback =
             new AudioZoneConfigurationsChangeCallback() {
                 @Override
@@ -89,20 +100,45 @@ public class AudioRoutesManager {
 
     public AudioRoutesManager(Context context, int usage) {
         mContext = context;
-        mCarAudioManager = ((CarSettingsApplication) mContext.getApplicationContext())
-                .getCarAudioManager();
-        mAudioZone = ((CarSettingsApplication) mContext.getApplicationContext())
-                .getMyAudioZoneId();
+        mCarAudioManager = getApplication().getCarAudioManager();
+        mAudioZone = getApplication().getMyAudioZoneId();
         mBluetoothManager = LocalBluetoothManager.getInstance(context, /* onInitCallback= */ null);
         mUsage = usage;
         mAudioRouteItemMap = new ArrayMap<>();
         mAddressList = new ArrayList<>();
+        if (mCarAudioManager == null) {
+            // The car service is not connected yet, the routes are loaded once it is.
+            getApplication().addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+            return;
+        }
+        setUpCarAudioManager();
+    }
+
+    private CarSettingsApplication getApplication() {
+        return (CarSettingsApplication) mContext.getApplicationContext();
+    }
+
+    private void setUpCarAudioManager() {
         mCarAudioManager.clearAudioZoneConfigsCallback();
         mCarAudioManager.setAudioZoneConfigsChangeCallback(ContextCompat.getMainExecutor(mContext),
                 mAudioZoneConfigurationsChangeCallback);
         updateAudioRoutesList();
     }
 
+    private void onZoneInfoChanged() {
+        CarAudioManager carAudioManager = getApplication().getCarAudioManager();
+        if (carAudioManager == null) {
+            return;
+        }
+        getApplication().removeOnZoneInfoChangedListener(mZoneInfoChangedListener);
+        mCarAudioManager = carAudioManager;
+        mAudioZone = getApplication().getMyAudioZoneId();
+        setUpCarAudioManager();
+        if (mUpdateListener != null) {
+            mUpdateListener.onAudioRoutesLoaded();
+        }
+    }
+
     private void updateAudioRoutesList() {
         List<CarAudioZoneConfigInfo> carAudioZoneConfigInfoList =
                 getCarAudioManager().getAudioZoneConfigInfos(mAudioZone);
@@ -172,11 +208,17 @@ public class AudioRoutesManager {
         return mActiveDeviceAddress;
     }
 
+    /**
+     * Returns the {@link CarAudioManager}, or {@code null} if the car service is not connected
+     * yet.
+     */
+    @Nullable
     public CarAudioManager getCarAudioManager() {
         return mCarAudioManager;
     }
 
     public void tearDown() {
+        getApplication().removeOnZoneInfoChangedListener(mZoneInfoChangedListener);
         if (mCarAudioManager != null) {
             mCarAudioManager.clearAudioZoneConfigsCallback();
         }
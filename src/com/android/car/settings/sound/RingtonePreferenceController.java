@@ -29,6 +29,7 @@ import androidx.fragment.app.Fragment;
 
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.PreferenceController;
+import com.android.car.settings.common.TaskScheduler;
 import com.android.settingslib.utils.ThreadUtils;
 
 /** Business logic for changing the default ringtone. */
@@ -56,7 +57,8 @@ public class RingtonePreferenceController extends PreferenceController<RingtoneP
     @Override
     public void onStartInternal() {
         super.onStartInternal();
-        ThreadUtils.postOnBackgroundThread(() -> updateSummary(getPreference()));
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_UI_CRITICAL,
+                () -> updateSummary(getPreference()));
     }
 
     @Override
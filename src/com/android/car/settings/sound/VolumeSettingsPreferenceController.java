@@ -44,6 +44,7 @@ import android.util.SparseArray;
 import android.widget.Toast;
 
 import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.XmlRes;
@@ -109,6 +110,9 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
         }
     };
 
+    private final CarSettingsApplication.OnZoneInfoChangedListener mZoneInfoChangedListener =
+            this::onZoneInfoChanged;
+
     public VolumeSettingsPreferenceController(Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
         this(context, preferenceKey, fragmentController, uxRestrictions,
@@ -126,35 +130,42 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
         mExecutor = context.getMainExecutor();
 
         CarAudioManager carAudioManager = getCarAudioManager();
-        if (carAudioManager != null) {
-            int zoneId = getMyAudioZoneId();
-            int volumeGroupCount = carAudioManager.getVolumeGroupCount(zoneId);
-            cleanUpVolumePreferences();
-            // Populates volume slider items from volume groups to UI.
-            for (int groupId = 0; groupId < volumeGroupCount; groupId++) {
-                VolumeItem volumeItem = getVolumeItemForUsages(
-                        carAudioManager.getUsagesForVolumeGroupId(zoneId, groupId));
-                VolumeSeekBarPreference volumePreference = createVolumeSeekBarPreference(
-                        groupId, volumeItem.getUsage(), volumeItem.getIcon(),
-                        volumeItem.getMuteIcon(), volumeItem.getTitle());
-                setClickableWhileDisabled(volumePreference, /* clickable= */ true, p -> {
-                    if (hasUserRestrictionByDpm(getContext(), DISALLOW_ADJUST_VOLUME)) {
-                        showActionDisabledByAdminDialog();
-                    } else {
-                        Toast.makeText(getContext(),
-                                getContext().getString(R.string.action_unavailable),
-                                Toast.LENGTH_LONG).show();
-                    }
-                });
-                mVolumePreferences.add(volumePreference);
-            }
+        if (carAudioManager == null) {
+            // The car service is not connected yet, the sliders are created once it is.
+            getApplication().addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+        } else {
+            setUpVolumePreferences(carAudioManager);
+        }
+    }
 
-            if (carAudioManager.isAudioFeatureEnabled(AUDIO_FEATURE_VOLUME_GROUP_EVENTS)) {
-                carAudioManager.registerCarVolumeGroupEventCallback(mExecutor,
-                        mCarVolumeGroupEventCallback);
-            } else {
-                carAudioManager.registerCarVolumeCallback(mVolumeChangeCallback);
-            }
+    private void setUpVolumePreferences(CarAudioManager carAudioManager) {
+        int zoneId = getMyAudioZoneId();
+        int volumeGroupCount = carAudioManager.getVolumeGroupCount(zoneId);
+        cleanUpVolumePreferences();
+        // Populates volume slider items from volume groups to UI.
+        for (int groupId = 0; groupId < volumeGroupCount; groupId++) {
+            VolumeItem volumeItem = getVolumeItemForUsages(
+                    carAudioManager.getUsagesForVolumeGroupId(zoneId, groupId));
+            VolumeSeekBarPreference volumePreference = createVolumeSeekBarPreference(
+                    groupId, volumeItem.getUsage(), volumeItem.getIcon(),
+                    volumeItem.getMuteIcon(), volumeItem.getTitle());
+            setClickableWhileDisabled(volumePreference, /* clickable= */ true, p -> {
+                if (hasUserRestrictionByDpm(getContext(), DISALLOW_ADJUST_VOLUME)) {
+                    showActionDisabledByAdminDialog();
+                } else {
+                    Toast.makeText(getContext(),
+                            getContext().getString(R.string.action_unavailable),
+                            Toast.LENGTH_LONG).show();
+                }
+            });
+            mVolumePreferences.add(volumePreference);
+        }
+
+        if (carAudioManager.isAudioFeatureEnabled(AUDIO_FEATURE_VOLUME_GROUP_EVENTS)) {
+            carAudioManager.registerCarVolumeGroupEventCallback(mExecutor,
+                    mCarVolumeGroupEventCallback);
+        } else {
+            carAudioManager.registerCarVolumeCallback(mVolumeChangeCallback);
         }
     }
 
@@ -166,9 +177,20 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
     /** Disconnect from car on destroy. */
     @Override
     protected void onDestroyInternal() {
+        getApplication().removeOnZoneInfoChangedListener(mZoneInfoChangedListener);
         cleanupAudioManager();
     }
 
+    private void onZoneInfoChanged() {
+        CarAudioManager carAudioManager = getCarAudioManager();
+        if (carAudioManager == null) {
+            return;
+        }
+        getApplication().removeOnZoneInfoChangedListener(mZoneInfoChangedListener);
+        setUpVolumePreferences(carAudioManager);
+        refreshUi();
+    }
+
     @Override
     protected void updateState(PreferenceGroup preferenceGroup) {
         for (SeekBarPreference preference : mVolumePreferences) {
@@ -249,8 +271,13 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
     }
 
     private void setGroupVolume(int volumeGroupId, int newVolume) {
+        CarAudioManager carAudioManager = getCarAudioManager();
+        if (carAudioManager == null) {
+            LOG.w("Ignoring volume change event because the car isn't connected");
+            return;
+        }
         try {
-            getCarAudioManager()
+            carAudioManager
                     .setGroupVolume(getMyAudioZoneId(), volumeGroupId, newVolume, /* flags= */ 0);
         } catch (CarNotConnectedException e) {
             LOG.w("Ignoring volume change event because the car isn't connected", e);
@@ -302,14 +329,17 @@ public class VolumeSettingsPreferenceController extends PreferenceController<Pre
                 DISABLED_BY_ADMIN_CONFIRM_DIALOG_TAG);
     }
 
+    private CarSettingsApplication getApplication() {
+        return (CarSettingsApplication) getContext().getApplicationContext();
+    }
+
     private int getMyAudioZoneId() {
-        return ((CarSettingsApplication) getContext().getApplicationContext())
-                .getMyAudioZoneId();
+        return getApplication().getMyAudioZoneId();
     }
 
+    @Nullable
     private CarAudioManager getCarAudioManager() {
-        return ((CarSettingsApplication) getContext().getApplicationContext())
-                .getCarAudioManager();
+        return getApplication().getCarAudioManager();
     }
 
     private void updateVolumeGroupForEvents(List<CarVolumeGroupEvent> volumeGroupEvents) {
@@ -30,26 +30,39 @@ import android.os.UserHandle;
 import android.util.ArraySet;
 import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.core.os.OperationCanceledException;
 
 import com.android.car.settings.common.AsyncLoader;
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
 import com.android.car.settings.profiles.ProfileHelper;
 import com.android.settingslib.applications.StorageStatsSource;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * {@link StorageAsyncLoader} is a Loader which loads categorized app information and external stats
  * for all users.
  *
- * <p>Class is taken from {@link com.android.settings.deviceinfo.storage.StorageAsyncLoader}
+ * <p>Class is taken from {@link com.android.settings.deviceinfo.storage.StorageAsyncLoader}. The
+ * stats of all users and batches of packages are queried in parallel on {@link
+ * TaskScheduler#LANE_BULK}, and merged in order of user and package. Each batch makes many binder
+ * calls, so they are kept off {@link TaskScheduler#LANE_FAN_OUT}, which is meant for short tasks.
  */
 public class StorageAsyncLoader
         extends AsyncLoader<SparseArray<StorageAsyncLoader.AppsStorageResult>> {
     private static final Logger LOG = new Logger(StorageAsyncLoader.class);
 
+    // Packages whose stats are queried by one task.
+    @VisibleForTesting
+    static final int PACKAGE_BATCH_SIZE = 32;
+
     private final StorageStatsSource mStatsManager;
     private final PackageManager mPackageManager;
     private final ProfileHelper mProfileHelper;
@@ -69,33 +82,80 @@ public class StorageAsyncLoader
 
     @Override
     public SparseArray<AppsStorageResult> loadInBackground() {
-        ArraySet<String> seenPackages = new ArraySet<>();
-        SparseArray<AppsStorageResult> result = new SparseArray<>();
         List<UserInfo> infos = mProfileHelper.getAllProfiles();
-        for (int i = 0, userCount = infos.size(); i < userCount; i++) {
-            UserInfo info = infos.get(i);
-            result.put(info.id, getStorageResultForUser(info.id, seenPackages));
+        int userCount = infos.size();
+        List<List<ApplicationInfo>> userApps = new ArrayList<>(userCount);
+        List<List<Future<AppSize[]>>> userBatches = new ArrayList<>(userCount);
+        List<Future<StorageStatsSource.ExternalStorageStats>> userExternalStats =
+                new ArrayList<>(userCount);
+        List<Future<?>> futures = new ArrayList<>();
+        TaskScheduler scheduler = TaskScheduler.getInstance();
+        try {
+            // Query the stats of all users and packages in parallel...
+            for (int i = 0; i < userCount; i++) {
+                int userId = infos.get(i).id;
+                LOG.d("Loading apps");
+                List<ApplicationInfo> applicationInfos =
+                        mPackageManager.getInstalledApplicationsAsUser(
+                                /* getAllInstalledApplications= */ 0, userId);
+                userApps.add(applicationInfos);
+                List<Future<AppSize[]>> batches = new ArrayList<>();
+                for (int start = 0; start < applicationInfos.size();
+                        start += PACKAGE_BATCH_SIZE) {
+                    List<ApplicationInfo> batch = applicationInfos.subList(start,
+                            Math.min(start + PACKAGE_BATCH_SIZE, applicationInfos.size()));
+                    Future<AppSize[]> future = scheduler.submit(TaskScheduler.LANE_BULK,
+                            () -> getAppSizes(batch, UserHandle.of(userId)));
+                    batches.add(future);
+                    futures.add(future);
+                }
+                userBatches.add(batches);
+                Future<StorageStatsSource.ExternalStorageStats> externalStats =
+                        scheduler.submit(TaskScheduler.LANE_BULK,
+                                () -> getExternalStats(userId));
+                userExternalStats.add(externalStats);
+                futures.add(externalStats);
+            }
+
+            // ...then merge them in order, so that code sizes are attributed like when querying
+            // them one after the other.
+            ArraySet<String> seenPackages = new ArraySet<>();
+            SparseArray<AppsStorageResult> result = new SparseArray<>();
+            for (int i = 0; i < userCount; i++) {
+                AppsStorageResult userResult = mergeAppSizes(userApps.get(i),
+                        userBatches.get(i), seenPackages);
+                userResult.mStorageStats = userExternalStats.get(i).get();
+                result.put(infos.get(i).id, userResult);
+            }
+            LOG.d("Obtaining result completed");
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(/* mayInterruptIfRunning= */ true);
+            }
         }
-        return result;
     }
 
-    private AppsStorageResult getStorageResultForUser(int userId, ArraySet<String> seenPackages) {
-        LOG.d("Loading apps");
-        List<ApplicationInfo> applicationInfos =
-                mPackageManager.getInstalledApplicationsAsUser(/* getAllInstalledApplications= */ 0,
-                        userId);
-        UserHandle myUser = UserHandle.of(userId);
-        long gameAppSize = 0;
-        long musicAppsSize = 0;
-        long videoAppsSize = 0;
-        long photosAppsSize = 0;
-        long otherAppsSize = 0;
-        for (int i = 0, size = applicationInfos.size(); i < size; i++) {
-            ApplicationInfo app = applicationInfos.get(i);
+    /**
+     * Returns the sizes of {@code apps} for {@code user}, or {@code null} for apps which were
+     * removed in the meantime.
+     */
+    private AppSize[] getAppSizes(List<ApplicationInfo> apps, UserHandle user) {
+        AppSize[] sizes = new AppSize[apps.size()];
+        for (int i = 0; i < apps.size(); i++) {
+            ApplicationInfo app = apps.get(i);
             StorageStatsSource.AppStorageStats stats;
             try {
                 stats = mStatsManager.getStatsForPackage(/* volumeUuid= */ null, app.packageName,
-                        myUser);
+                        user);
             } catch (NameNotFoundException | IOException e) {
                 // This may happen if the package was removed during our calculation.
                 LOG.w("App unexpectedly not found", e);
@@ -113,50 +173,84 @@ public class StorageAsyncLoader
             if (cacheQuota < cacheBytes) {
                 blamedSize = blamedSize - cacheBytes + cacheQuota;
             }
+            sizes[i] = new AppSize(blamedSize, stats.getCodeBytes());
+        }
+        return sizes;
+    }
 
-            // This isn't quite right because it slams the first user by user id with the whole code
-            // size, but this ensures that we count all apps seen once.
-            if (!seenPackages.contains(app.packageName)) {
-                blamedSize += stats.getCodeBytes();
-                seenPackages.add(app.packageName);
-            }
+    @Nullable
+    private StorageStatsSource.ExternalStorageStats getExternalStats(int userId) {
+        LOG.d("Loading external stats");
+        try {
+            return mStatsManager.getExternalStorageStats(null, UserHandle.of(userId));
+        } catch (IOException e) {
+            LOG.w("External stats not loaded" + e);
+            return null;
+        }
+    }
+
+    private static AppsStorageResult mergeAppSizes(List<ApplicationInfo> applicationInfos,
+            List<Future<AppSize[]>> batches, ArraySet<String> seenPackages)
+            throws InterruptedException, ExecutionException {
+        long gameAppSize = 0;
+        long musicAppsSize = 0;
+        long videoAppsSize = 0;
+        long photosAppsSize = 0;
+        long otherAppsSize = 0;
+        for (int batchIndex = 0; batchIndex < batches.size(); batchIndex++) {
+            AppSize[] sizes = batches.get(batchIndex).get();
+            for (int j = 0; j < sizes.length; j++) {
+                if (sizes[j] == null) {
+                    continue;
+                }
+                ApplicationInfo app = applicationInfos.get(
+                        batchIndex * PACKAGE_BATCH_SIZE + j);
+                long blamedSize = sizes[j].mBlamedBytes;
 
-            switch (app.category) {
-                case CATEGORY_GAME:
-                    gameAppSize += blamedSize;
-                    break;
-                case CATEGORY_AUDIO:
-                    musicAppsSize += blamedSize;
-                    break;
-                case CATEGORY_VIDEO:
-                    videoAppsSize += blamedSize;
-                    break;
-                case CATEGORY_IMAGE:
-                    photosAppsSize += blamedSize;
-                    break;
-                default:
-                    // The deprecated game flag does not set the category.
-                    if ((app.flags & ApplicationInfo.FLAG_IS_GAME) != 0) {
+                // This isn't quite right because it slams the first user by user id with the
+                // whole code size, but this ensures that we count all apps seen once.
+                if (!seenPackages.contains(app.packageName)) {
+                    blamedSize += sizes[j].mCodeBytes;
+                    seenPackages.add(app.packageName);
+                }
+
+                switch (app.category) {
+                    case CATEGORY_GAME:
                         gameAppSize += blamedSize;
                         break;
-                    }
-                    otherAppsSize += blamedSize;
-                    break;
+                    case CATEGORY_AUDIO:
+                        musicAppsSize += blamedSize;
+                        break;
+                    case CATEGORY_VIDEO:
+                        videoAppsSize += blamedSize;
+                        break;
+                    case CATEGORY_IMAGE:
+                        photosAppsSize += blamedSize;
+                        break;
+                    default:
+                        // The deprecated game flag does not set the category.
+                        if ((app.flags & ApplicationInfo.FLAG_IS_GAME) != 0) {
+                            gameAppSize += blamedSize;
+                            break;
+                        }
+                        otherAppsSize += blamedSize;
+                        break;
+                }
             }
         }
+        return new AppsStorageResult(gameAppSize, musicAppsSize, photosAppsSize, videoAppsSize,
+                otherAppsSize);
+    }
 
-        AppsStorageResult result = new AppsStorageResult(gameAppSize, musicAppsSize, photosAppsSize,
-                videoAppsSize, otherAppsSize);
+    /** Size attributed to an app, apart from its code, and size of its code. */
+    private static final class AppSize {
+        private final long mBlamedBytes;
+        private final long mCodeBytes;
 
-        LOG.d("Loading external stats");
-        try {
-            result.mStorageStats = mStatsManager.getExternalStorageStats(null,
-                    UserHandle.of(userId));
-        } catch (IOException e) {
-            LOG.w("External stats not loaded" + e);
+        AppSize(long blamedBytes, long codeBytes) {
+            mBlamedBytes = blamedBytes;
+            mCodeBytes = codeBytes;
         }
-        LOG.d("Obtaining result completed");
-        return result;
     }
 
     /**
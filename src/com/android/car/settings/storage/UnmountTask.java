@@ -17,7 +17,6 @@
 package com.android.car.settings.storage;
 
 import android.content.Context;
-import android.os.AsyncTask;
 import android.os.storage.StorageManager;
 import android.os.storage.VolumeInfo;
 import android.widget.Toast;
@@ -26,9 +25,11 @@ import androidx.annotation.Nullable;
 
 import com.android.car.settings.R;
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.TaskScheduler;
+import com.android.settingslib.utils.ThreadUtils;
 
 /** Task used to unmount a {@link android.os.storage.StorageVolume}. */
-public class UnmountTask extends AsyncTask<Void, Void, Exception> {
+public class UnmountTask implements Runnable {
 
     private static final Logger LOG = new Logger(UnmountTask.class);
 
@@ -44,18 +45,24 @@ public class UnmountTask extends AsyncTask<Void, Void, Exception> {
         mDescription = mStorageManager.getBestVolumeDescription(volume);
     }
 
+    /** Submits the task to the bulk lane of the shared {@link TaskScheduler}. */
+    public void execute() {
+        TaskScheduler.getInstance().submit(TaskScheduler.LANE_BULK, this);
+    }
+
     @Override
-    protected Exception doInBackground(Void... params) {
+    public void run() {
+        Exception error = null;
         try {
             mStorageManager.unmount(mVolumeId);
-            return null;
         } catch (Exception e) {
-            return e;
+            error = e;
         }
+        Exception result = error;
+        ThreadUtils.postOnMainThread(() -> onUnmountFinished(result));
     }
 
-    @Override
-    protected void onPostExecute(@Nullable Exception e) {
+    private void onUnmountFinished(@Nullable Exception e) {
         if (e == null) {
             Toast.makeText(mContext, mContext.getString(R.string.storage_unmount_success,
                     mDescription), Toast.LENGTH_SHORT).show();
@@ -23,7 +23,6 @@ import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.IPackageManager;
 import android.content.pm.PackageManager;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.IBinder;
 import android.os.RemoteException;
@@ -38,13 +37,16 @@ import androidx.annotation.XmlRes;
 import com.android.car.settings.R;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.SettingsFragment;
+import com.android.car.settings.common.TaskScheduler;
 import com.android.car.ui.toolbar.MenuItem;
 import com.android.settingslib.RestrictedLockUtils;
 import com.android.settingslib.RestrictedLockUtilsInternal;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * Presents the user with information about resetting app preferences.
@@ -55,7 +57,7 @@ public class ResetAppPrefFragment extends SettingsFragment {
 
     private MenuItem mResetButton;
     @VisibleForTesting
-    AsyncTask<Void, Void, Void> mResetTask;
+    Future<?> mResetTask;
 
     @Override
     @XmlRes
@@ -98,11 +100,11 @@ public class ResetAppPrefFragment extends SettingsFragment {
     }
 
     private void resetAppPreferences() {
-        mResetTask = new ResetTask(requireContext().getApplicationContext());
-        mResetTask.execute();
+        mResetTask = TaskScheduler.getInstance().submit(TaskScheduler.LANE_BULK,
+                new ResetTask(requireContext().getApplicationContext()));
     }
 
-    private static class ResetTask extends AsyncTask<Void, Void, Void> {
+    private static class ResetTask implements Runnable {
 
         private final WeakReference<Context> mContext;
 
@@ -111,18 +113,18 @@ public class ResetAppPrefFragment extends SettingsFragment {
         }
 
         @Override
-        protected Void doInBackground(Void... unused) {
+        public void run() {
             Context context = mContext.get();
             if (context == null) {
                 LOG.w("Unable to reset app preferences. Null context");
-                return null;
+                return;
             }
             PackageManager packageManager = context.getPackageManager();
             IBinder notificationManagerServiceBinder = ServiceManager.getService(
                     Context.NOTIFICATION_SERVICE);
             if (notificationManagerServiceBinder == null) {
                 LOG.w("Unable to reset app preferences. Null notification manager service");
-                return null;
+                return;
             }
             INotificationManager notificationManagerService =
                     INotificationManager.Stub.asInterface(notificationManagerServiceBinder);
@@ -156,7 +158,7 @@ public class ResetAppPrefFragment extends SettingsFragment {
                 IBinder packageManagerServiceBinder = ServiceManager.getService("package");
                 if (packageManagerServiceBinder == null) {
                     LOG.w("Unable to reset app preferences. Null package manager service");
-                    return null;
+                    return;
                 }
                 IPackageManager.Stub.asInterface(
                         packageManagerServiceBinder).resetApplicationPreferences(
@@ -168,17 +170,8 @@ public class ResetAppPrefFragment extends SettingsFragment {
             // Cleanup.
             context.getSystemService(AppOpsManager.class).resetAllModes();
 
-            return null;
-        }
-
-        @Override
-        protected void onPostExecute(Void unused) {
-            super.onPostExecute(unused);
-            Context context = mContext.get();
-            if (context != null) {
-                Toast.makeText(context, R.string.reset_app_pref_complete_toast,
-                        Toast.LENGTH_SHORT).show();
-            }
+            ThreadUtils.postOnMainThread(() -> Toast.makeText(context,
+                    R.string.reset_app_pref_complete_toast, Toast.LENGTH_SHORT).show());
         }
     }
 }
@@ -21,7 +21,6 @@ import android.content.ActivityNotFoundException;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.provider.Settings;
 import android.speech.tts.TextToSpeech;
@@ -41,6 +40,8 @@ import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.PreferenceController;
 import com.android.car.settings.common.SeekBarPreference;
+import com.android.car.settings.common.TaskScheduler;
+import com.android.car.settings.common.TaskScope;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -84,7 +85,7 @@ public class TtsPlaybackPreferenceController extends
     private Handler mUiHandler;
     @VisibleForTesting
     Handler mBackgroundHandler;
-    private HandlerThread mBackgroundHandlerThread;
+    private TaskScope mTaskScope;
 
     /** True if initialized with no errors. */
     private boolean mTtsInitialized = false;
@@ -133,19 +134,18 @@ public class TtsPlaybackPreferenceController extends
         mResetPreference = initResetTtsPlaybackPreference();
 
         mUiHandler = new Handler(Looper.getMainLooper());
-        mBackgroundHandlerThread = new HandlerThread(/* name= */"BackgroundHandlerThread");
-        mBackgroundHandlerThread.start();
-        mBackgroundHandler = new Handler(mBackgroundHandlerThread.getLooper());
+        mTaskScope = TaskScheduler.getInstance().createScope();
+        mBackgroundHandler = mTaskScope.createWorkerHandler();
 
         mTts = createTts();
     }
 
     @Override
     protected void onDestroyInternal() {
-        if (mBackgroundHandlerThread != null) {
-            mBackgroundHandlerThread.quit();
+        if (mTaskScope != null) {
+            mTaskScope.cancel();
             mBackgroundHandler = null;
-            mBackgroundHandlerThread = null;
+            mTaskScope = null;
         }
         if (mTts != null) {
             mTts.shutdown();
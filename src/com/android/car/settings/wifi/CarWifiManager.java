@@ -19,9 +19,6 @@ package com.android.car.settings.wifi;
 import android.content.Context;
 import android.net.wifi.SoftApConfiguration;
 import android.net.wifi.WifiManager;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Looper;
 
 import androidx.annotation.MainThread;
 import androidx.lifecycle.Lifecycle;
@@ -40,14 +37,12 @@ import java.util.concurrent.Executor;
  */
 public class CarWifiManager implements WifiPickerTracker.WifiPickerTrackerCallback,
         LifecycleObserver {
-    private static final String TAG = "CarWifiManager";
-
     private final Context mContext;
     private final Lifecycle mLifecycle;
     private final List<Listener> mListeners = new ArrayList<>();
 
-    private HandlerThread mWorkerThread;
-    private WifiPickerTracker mWifiTracker;
+    private final WifiTrackerHub mWifiTrackerHub;
+    private final WifiPickerTracker mWifiTracker;
     private WifiManager mWifiManager;
 
     public interface Listener {
@@ -75,26 +70,38 @@ public class CarWifiManager implements WifiPickerTracker.WifiPickerTrackerCallba
     public CarWifiManager(Context context, Lifecycle lifecycle) {
         mContext = context;
         mLifecycle = lifecycle;
-        mLifecycle.addObserver(this);
         mWifiManager = mContext.getSystemService(WifiManager.class);
-        mWorkerThread = new HandlerThread(TAG
-                + "{" + Integer.toHexString(System.identityHashCode(this)) + "}",
-                android.os.Process.THREAD_PRIORITY_BACKGROUND);
-        mWorkerThread.start();
-        mWifiTracker = WifiUtil.createWifiPickerTracker(lifecycle, context,
-                new Handler(Looper.getMainLooper()), mWorkerThread.getThreadHandler(),
-                /* listener= */ this);
+        mWifiTrackerHub = WifiTrackerHub.getInstance(context);
+        mWifiTracker = mWifiTrackerHub.acquire(/* subscriber= */ this);
+        // Observe last, as the lifecycle may already be started.
+        mLifecycle.addObserver(this);
+    }
+
+    /**
+     * Lifecycle method to start receiving Wi-Fi updates from the shared tracker.
+     */
+    @OnLifecycleEvent(Lifecycle.Event.ON_START)
+    @MainThread
+    public void onStart() {
+        mWifiTrackerHub.setActive(/* subscriber= */ this, /* active= */ true);
     }
 
     /**
-     * Lifecycle method to clean up worker thread on destroy.
+     * Lifecycle method to stop receiving Wi-Fi updates from the shared tracker.
+     */
+    @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+    @MainThread
+    public void onStop() {
+        mWifiTrackerHub.setActive(/* subscriber= */ this, /* active= */ false);
+    }
+
+    /**
+     * Lifecycle method to release the shared tracker on destroy.
      */
     @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
     @MainThread
     public void onDestroy() {
-        if (mWorkerThread != null) {
-            mWorkerThread.quit();
-        }
+        mWifiTrackerHub.release(/* subscriber= */ this);
         mLifecycle.removeObserver(this);
     }
 
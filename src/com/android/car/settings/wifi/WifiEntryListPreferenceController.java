@@ -30,6 +30,7 @@ import androidx.preference.PreferenceGroup;
 import com.android.car.settings.R;
 import com.android.car.settings.common.FragmentController;
 import com.android.car.settings.common.Logger;
+import com.android.car.settings.common.PreferenceGroupReconciler;
 import com.android.car.settings.wifi.details.WifiDetailsFragment;
 import com.android.wifitrackerlib.WifiEntry;
 
@@ -75,7 +76,32 @@ public class WifiEntryListPreferenceController extends
                 }
             };
 
+    private final PreferenceGroupReconciler<WifiEntry, WifiEntryPreference> mReconciler =
+            new PreferenceGroupReconciler<>(
+                    new PreferenceGroupReconciler.Binder<WifiEntry, WifiEntryPreference>() {
+                        @Override
+                        public String getKey(WifiEntry wifiEntry) {
+                            return WifiUtil.getKey(wifiEntry);
+                        }
+
+                        @Override
+                        public WifiEntryPreference createPreference(WifiEntry wifiEntry) {
+                            return createWifiEntryPreference(wifiEntry);
+                        }
+
+                        @Override
+                        public boolean updatePreference(WifiEntryPreference preference,
+                                WifiEntry wifiEntry) {
+                            // The preference keeps itself up to date through WifiEntryCallback,
+                            // only the actions depend on the list state.
+                            bindWifiEntryPreference(preference, wifiEntry,
+                                    mConnectedWifiEntries.contains(wifiEntry));
+                            return true;
+                        }
+                    });
+
     private List<WifiEntry> mWifiEntries = new ArrayList<>();
+    private List<WifiEntry> mConnectedWifiEntries = new ArrayList<>();
 
     public WifiEntryListPreferenceController(@NonNull Context context, String preferenceKey,
             FragmentController fragmentController, CarUxRestrictions uxRestrictions) {
@@ -97,21 +123,10 @@ public class WifiEntryListPreferenceController extends
         LOG.d("showing wifiEntries: " + mWifiEntries.size());
 
         preferenceGroup.setVisible(!mWifiEntries.isEmpty());
-        preferenceGroup.removeAll();
-
-        List<WifiEntry> connectedWifiEntries = getCarWifiManager().getConnectedWifiEntries();
-        for (int i = 0; i < mWifiEntries.size(); i++) {
-            WifiEntry wifiEntry = mWifiEntries.get(i);
-
-            // fetchWifiEntries() sort the connected networks to the front
-            if (i < connectedWifiEntries.size()) {
-                preferenceGroup.addPreference(
-                        createWifiEntryPreference(wifiEntry, /* connected= */  true));
-            } else {
-                preferenceGroup.addPreference(
-                        createWifiEntryPreference(wifiEntry, /* connected= */ false));
-            }
-        }
+        // fetchWifiEntries() sorts the connected networks to the front
+        mConnectedWifiEntries = mWifiEntries.subList(0, Math.min(mWifiEntries.size(),
+                getCarWifiManager().getConnectedWifiEntries().size()));
+        mReconciler.reconcile(preferenceGroup, mWifiEntries);
     }
 
     @Override
@@ -120,9 +135,14 @@ public class WifiEntryListPreferenceController extends
         // regardless of the restriction. Intentional no-op.
     }
 
+    @Override
+    protected boolean shouldCoalesceRefreshes() {
+        return true;
+    }
+
     @Override
     public void onWifiEntriesChanged() {
-        refreshUi();
+        requestRefreshUi();
     }
 
     @Override
@@ -161,11 +181,26 @@ public class WifiEntryListPreferenceController extends
         return getContext().getSystemService(WifiManager.class);
     }
 
-    private WifiEntryPreference createWifiEntryPreference(WifiEntry wifiEntry, boolean connected) {
+    @VisibleForTesting
+    PreferenceGroupReconciler<WifiEntry, WifiEntryPreference> getReconciler() {
+        return mReconciler;
+    }
+
+    private WifiEntryPreference createWifiEntryPreference(WifiEntry wifiEntry) {
         LOG.d("Adding preference for " + WifiUtil.getKey(wifiEntry));
         WifiEntryPreference wifiEntryPreference = new WifiEntryPreference(getContext(), wifiEntry);
+        bindWifiEntryPreference(wifiEntryPreference, wifiEntry,
+                mConnectedWifiEntries.contains(wifiEntry));
+        wifiEntryPreference.setClickableWhileDisabled(true);
+        wifiEntryPreference.setDisabledClickListener(p ->
+                WifiUtil.runClickableWhileDisabled(getContext(), getFragmentController()));
+        return wifiEntryPreference;
+    }
 
+    private void bindWifiEntryPreference(WifiEntryPreference wifiEntryPreference,
+            WifiEntry wifiEntry, boolean connected) {
         // Make connected secondary networks unclickable
+        wifiEntryPreference.setOnPreferenceClickListener(null);
         if (!connected || wifiEntry.isPrimaryNetwork()) {
             wifiEntryPreference.setOnPreferenceClickListener(pref -> {
                 if (connected) {
@@ -192,15 +227,12 @@ public class WifiEntryListPreferenceController extends
             wifiEntryPreference.setOnSecondaryActionClickListener(
                     () -> wifiEntry.forget(/* callback= */ null));
             wifiEntryPreference.setSecondaryActionVisible(true);
+        } else {
+            wifiEntryPreference.setSecondaryActionVisible(false);
         }
 
         // Since this preference is dynamically created, it doesn't have the dpm behaviors set
         wifiEntryPreference.setEnabled(getPreference().isEnabled());
-        wifiEntryPreference.setClickableWhileDisabled(true);
-        wifiEntryPreference.setDisabledClickListener(p ->
-                WifiUtil.runClickableWhileDisabled(getContext(), getFragmentController()));
-
-        return wifiEntryPreference;
     }
 
     private class WifiEntryConnectCallback implements WifiEntry.ConnectCallback {
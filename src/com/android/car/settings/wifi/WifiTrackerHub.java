@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.ArrayMap;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import com.android.car.settings.common.TaskScheduler;
+import com.android.car.settings.common.TaskScope;
+import com.android.wifitrackerlib.WifiPickerTracker;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide owner of a single {@link WifiPickerTracker} shared by all Wi-Fi quick controls
+ * workers and {@link CarWifiManager} instances, so that subscribing to several Wi-Fi URIs or
+ * screens does not start duplicate scans.
+ *
+ * <p>The tracker is created when the first subscriber is acquired and destroyed when the last
+ * one is released. It scans while at least one subscriber is active. Tracker callbacks are
+ * delivered on the main thread and fanned out to the active subscribers only, so that stopped
+ * screens and unsubscribed workers do not update on every scan.
+ */
+public final class WifiTrackerHub implements LifecycleOwner,
+        WifiPickerTracker.WifiPickerTrackerCallback {
+
+    private static final Object sInstanceLock = new Object();
+    @GuardedBy("sInstanceLock")
+    private static WifiTrackerHub sInstance;
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    // Subscriber to whether it is active.
+    @GuardedBy("mLock")
+    private final ArrayMap<WifiPickerTracker.WifiPickerTrackerCallback, Boolean> mSubscribers =
+            new ArrayMap<>();
+    @GuardedBy("mLock")
+    private LifecycleRegistry mLifecycleRegistry;
+    @GuardedBy("mLock")
+    private WifiPickerTracker mWifiPickerTracker;
+    @GuardedBy("mLock")
+    private TaskScope mTaskScope;
+    @GuardedBy("mLock")
+    private int mTrackersCreated;
+
+    /** Returns the process-wide instance. */
+    public static WifiTrackerHub getInstance(Context context) {
+        synchronized (sInstanceLock) {
+            if (sInstance == null) {
+                sInstance = new WifiTrackerHub(context.getApplicationContext());
+            }
+            return sInstance;
+        }
+    }
+
+    /** Dumps the state of the instance, if it has been created. */
+    public static void dumpInstance(String prefix, PrintWriter writer) {
+        WifiTrackerHub hub;
+        synchronized (sInstanceLock) {
+            hub = sInstance;
+        }
+        if (hub != null) {
+            hub.dump(prefix, writer);
+        }
+    }
+
+    @VisibleForTesting
+    WifiTrackerHub(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Adds {@code subscriber}, creating the shared tracker if needed. The subscriber starts
+     * inactive and must be released with {@link #release}.
+     *
+     * @return the shared tracker, which is valid until {@code subscriber} is released.
+     */
+    public WifiPickerTracker acquire(WifiPickerTracker.WifiPickerTrackerCallback subscriber) {
+        synchronized (mLock) {
+            if (mWifiPickerTracker == null) {
+                mLifecycleRegistry = new LifecycleRegistry(/* provider= */ this);
+                mTaskScope = TaskScheduler.getInstance().createScope();
+                mWifiPickerTracker = WifiUtil.createWifiPickerTracker(mLifecycleRegistry,
+                        mContext, new Handler(Looper.getMainLooper()),
+                        mTaskScope.createWorkerHandler(), /* listener= */ this);
+                mLifecycleRegistry.setCurrentState(Lifecycle.State.CREATED);
+                mTrackersCreated++;
+            }
+            mSubscribers.put(subscriber, false);
+            return mWifiPickerTracker;
+        }
+    }
+
+    /**
+     * Sets whether {@code subscriber} needs up to date results. The shared tracker scans while
+     * any subscriber is active, and only active subscribers receive its callbacks. A subscriber
+     * which becomes active while the tracker is already scanning is called back right away, as
+     * it missed the changes while it was inactive.
+     */
+    @MainThread
+    public void setActive(WifiPickerTracker.WifiPickerTrackerCallback subscriber,
+            boolean active) {
+        boolean catchUp;
+        synchronized (mLock) {
+            Boolean wasActive = mSubscribers.get(subscriber);
+            if (wasActive == null) {
+                return;
+            }
+            catchUp = active && !wasActive
+                    && mLifecycleRegistry.getCurrentState() == Lifecycle.State.RESUMED;
+            mSubscribers.put(subscriber, active);
+            updateLifecycleLocked();
+        }
+        if (catchUp) {
+            subscriber.onWifiStateChanged();
+            subscriber.onWifiEntriesChanged();
+        }
+    }
+
+    /** Removes {@code subscriber}, destroying the shared tracker if it was the last one. */
+    public void release(WifiPickerTracker.WifiPickerTrackerCallback subscriber) {
+        synchronized (mLock) {
+            if (mSubscribers.remove(subscriber) == null) {
+                return;
+            }
+            if (!mSubscribers.isEmpty()) {
+                updateLifecycleLocked();
+                return;
+            }
+            mTaskScope.cancel();
+            mLifecycleRegistry.setCurrentState(Lifecycle.State.DESTROYED);
+            mTaskScope = null;
+            mLifecycleRegistry = null;
+            mWifiPickerTracker = null;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Lifecycle getLifecycle() {
+        synchronized (mLock) {
+            return mLifecycleRegistry;
+        }
+    }
+
+    @Override
+    public void onWifiStateChanged() {
+        for (WifiPickerTracker.WifiPickerTrackerCallback subscriber : getSubscribers()) {
+            subscriber.onWifiStateChanged();
+        }
+    }
+
+    @Override
+    public void onWifiEntriesChanged() {
+        for (WifiPickerTracker.WifiPickerTrackerCallback subscriber : getSubscribers()) {
+            subscriber.onWifiEntriesChanged();
+        }
+    }
+
+    @Override
+    public void onNumSavedNetworksChanged() {
+        for (WifiPickerTracker.WifiPickerTrackerCallback subscriber : getSubscribers()) {
+            subscriber.onNumSavedNetworksChanged();
+        }
+    }
+
+    @Override
+    public void onNumSavedSubscriptionsChanged() {
+        for (WifiPickerTracker.WifiPickerTrackerCallback subscriber : getSubscribers()) {
+            subscriber.onNumSavedSubscriptionsChanged();
+        }
+    }
+
+    /** Returns the number of trackers created since the process started. */
+    @VisibleForTesting
+    int getTrackersCreated() {
+        synchronized (mLock) {
+            return mTrackersCreated;
+        }
+    }
+
+    /** Returns the shared tracker, or {@code null} if there are no subscribers. */
+    @VisibleForTesting
+    @Nullable
+    WifiPickerTracker getTracker() {
+        synchronized (mLock) {
+            return mWifiPickerTracker;
+        }
+    }
+
+    /** Dumps subscriber and tracker counts. */
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (mLock) {
+            writer.println(prefix + "WifiTrackerHub:");
+            writer.println(prefix + "  live trackers: " + (mWifiPickerTracker != null ? 1 : 0));
+            writer.println(prefix + "  trackers created: " + mTrackersCreated);
+            writer.println(prefix + "  subscribers: " + mSubscribers.size()
+                    + ", active: " + getActiveCountLocked());
+            writer.println(prefix + "  tracker lifecycle: " + (mLifecycleRegistry != null
+                    ? mLifecycleRegistry.getCurrentState() : Lifecycle.State.DESTROYED));
+        }
+    }
+
+    /** Returns the active subscribers. */
+    private List<WifiPickerTracker.WifiPickerTrackerCallback> getSubscribers() {
+        synchronized (mLock) {
+            List<WifiPickerTracker.WifiPickerTrackerCallback> subscribers = new ArrayList<>();
+            for (int i = 0; i < mSubscribers.size(); i++) {
+                if (mSubscribers.valueAt(i)) {
+                    subscribers.add(mSubscribers.keyAt(i));
+                }
+            }
+            return subscribers;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void updateLifecycleLocked() {
+        mLifecycleRegistry.setCurrentState(getActiveCountLocked() > 0
+                ? Lifecycle.State.RESUMED : Lifecycle.State.CREATED);
+    }
+
+    @GuardedBy("mLock")
+    private int getActiveCountLocked() {
+        int count = 0;
+        for (int i = 0; i < mSubscribers.size(); i++) {
+            if (mSubscribers.valueAt(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -19,7 +19,6 @@ package com.android.car.settings.wifi.details;
 import android.content.Context;
 import android.os.Bundle;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.view.View;
 
@@ -30,6 +29,8 @@ import androidx.annotation.XmlRes;
 import com.android.car.settings.R;
 import com.android.car.settings.common.Logger;
 import com.android.car.settings.common.SettingsFragment;
+import com.android.car.settings.common.TaskScheduler;
+import com.android.car.settings.common.TaskScope;
 import com.android.car.settings.wifi.WifiUtil;
 import com.android.wifitrackerlib.NetworkDetailsTracker;
 import com.android.wifitrackerlib.WifiEntry;
@@ -43,7 +44,6 @@ import java.util.List;
  * Wi-Fi entry, use that to render UI, e.g. show SSID etc.
  */
 public class WifiDetailsFragment extends SettingsFragment {
-    private static final String TAG = "WifiDetailsFragment";
     private static final String CHOSEN_WIFIENTRY_KEY = "chosen_wifientry_key";
     private static final Logger LOG = new Logger(WifiDetailsFragment.class);
 
@@ -53,7 +53,7 @@ public class WifiDetailsFragment extends SettingsFragment {
     private WifiInfoProvider mWifiInfoProvider;
 
     private NetworkDetailsTracker mNetworkDetailsTracker;
-    private HandlerThread mWorkerThread;
+    private final TaskScope mTaskScope = TaskScheduler.getInstance().createScope();
 
     /**
      * Gets an instance of this class.
@@ -128,9 +128,7 @@ public class WifiDetailsFragment extends SettingsFragment {
 
     @Override
     public void onDestroy() {
-        if (mWorkerThread != null) {
-            mWorkerThread.quit();
-        }
+        mTaskScope.cancel();
         super.onDestroy();
     }
 
@@ -139,12 +137,8 @@ public class WifiDetailsFragment extends SettingsFragment {
             return;
         }
 
-        mWorkerThread = new HandlerThread(TAG
-                + "{" + Integer.toHexString(System.identityHashCode(this)) + "}",
-                android.os.Process.THREAD_PRIORITY_BACKGROUND);
-        mWorkerThread.start();
         mNetworkDetailsTracker = WifiUtil.createNetworkDetailsTracker(getLifecycle(),
-                getContext(), new Handler(Looper.getMainLooper()), mWorkerThread.getThreadHandler(),
-                key);
+                getContext(), new Handler(Looper.getMainLooper()),
+                mTaskScope.createWorkerHandler(), key);
     }
 }
@@ -33,7 +33,6 @@ import android.net.wifi.WifiManager.NetworkRequestUserSelectionCallback;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.HandlerExecutor;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
 import android.text.TextUtils;
@@ -52,6 +51,8 @@ import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.car.settings.R;
+import com.android.car.settings.common.TaskScheduler;
+import com.android.car.settings.common.TaskScope;
 import com.android.car.settings.wifi.WifiUtil;
 import com.android.car.ui.AlertDialogBuilder;
 import com.android.settingslib.Utils;
@@ -70,8 +71,6 @@ import java.util.List;
 public class NetworkRequestDialogFragment extends ObservableDialogFragment implements
         DialogInterface.OnClickListener, NetworkRequestMatchCallback {
 
-    private static final String TAG = "NetworkRequestDialogFragment";
-
     /** Message sent to us to stop scanning wifi and pop up timeout dialog. */
     private static final int MESSAGE_STOP_SCAN_WIFI_LIST = 0;
 
@@ -92,7 +91,7 @@ public class NetworkRequestDialogFragment extends ObservableDialogFragment imple
     private final List<WifiEntry> mWifiEntryList = new ArrayList<>();
     private WifiPickerTracker mWifiPickerTracker;
     /** Worker thread used for WifiPickerTracker work. */
-    private HandlerThread mWorkerThread;
+    private final TaskScope mTaskScope = TaskScheduler.getInstance().createScope();
     private FilterWifiTracker mFilterWifiTracker;
     private WifiEntryAdapter mDialogAdapter;
     private NetworkRequestUserSelectionCallback mUserSelectionCallback;
@@ -132,13 +131,9 @@ public class NetworkRequestDialogFragment extends ObservableDialogFragment imple
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        mWorkerThread = new HandlerThread(
-                TAG + "{" + Integer.toHexString(System.identityHashCode(this)) + "}",
-                android.os.Process.THREAD_PRIORITY_BACKGROUND);
-        mWorkerThread.start();
         mWifiPickerTracker = WifiUtil.createWifiPickerTracker(getLifecycle(),
-                getContext(), new Handler(Looper.getMainLooper()), mWorkerThread.getThreadHandler(),
-                mWifiListener);
+                getContext(), new Handler(Looper.getMainLooper()),
+                mTaskScope.createWorkerHandler(), mWifiListener);
     }
 
     @Override
@@ -274,9 +269,7 @@ public class NetworkRequestDialogFragment extends ObservableDialogFragment imple
 
     @Override
     public void onDestroy() {
-        if (mWorkerThread != null) {
-            mWorkerThread.quit();
-        }
+        mTaskScope.cancel();
         super.onDestroy();
     }
 
@@ -96,6 +96,7 @@ public class AccountSyncDetailsPreferenceControllerTest {
         mController = helper.getController();
         mController.setAccount(mAccount);
         mController.setUserHandle(mUserHandle);
+        mController.setExecutors(Runnable::run, Runnable::run);
 
         mPreferenceGroup = new LogicalPreferenceGroup(mContext);
         helper.setPreference(mPreferenceGroup);
@@ -18,9 +18,16 @@ package com.android.car.settings.bluetooth;
 
 import static android.content.pm.PackageManager.FEATURE_BLUETOOTH;
 
+import static com.android.car.settings.common.PreferenceXmlParser.PREF_AVAILABILITY_STATUS_HIDDEN;
+
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.bluetooth.BluetoothAdapter;
@@ -52,15 +59,20 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.util.ReflectionHelpers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /** Unit test for {@link BluetoothDevicesGroupPreferenceController}. */
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowBluetoothAdapter.class, ShadowBluetoothPan.class})
 public class BluetoothDevicesGroupPreferenceControllerTest {
+    private static final int BURST_DEVICE_COUNT = 200;
 
     @Mock
     private BluetoothDeviceFilter.Filter mFilter;
@@ -255,6 +267,89 @@ public class BluetoothDevicesGroupPreferenceControllerTest {
         assertThat(mPreferenceGroup.isVisible()).isFalse();
     }
 
+    @Test
+    public void onDeviceAdded_discoveryBurst_onlyTouchesAddedDevices() {
+        List<CachedBluetoothDevice> devices = createDevices(BURST_DEVICE_COUNT);
+        when(mCachedDeviceManager.getCachedDevicesCopy()).thenReturn(devices);
+        when(mFilter.matches(any(BluetoothDevice.class))).thenReturn(true);
+        clearInvocations(mCachedDeviceManager, mFilter);
+
+        for (CachedBluetoothDevice device : devices) {
+            mController.onDeviceAdded(device);
+        }
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(BURST_DEVICE_COUNT);
+        assertThat(mPreferenceGroup.isVisible()).isTrue();
+        // One filter check per event and no full pass over the device cache.
+        verify(mFilter, times(BURST_DEVICE_COUNT)).matches(any(BluetoothDevice.class));
+        verify(mCachedDeviceManager, never()).getCachedDevicesCopy();
+    }
+
+    @Test
+    public void onDeviceAdded_discoveryBurst_reconcilesOnceAfterDelay() {
+        List<CachedBluetoothDevice> devices = createDevices(BURST_DEVICE_COUNT);
+        when(mFilter.matches(any(BluetoothDevice.class))).thenReturn(true);
+        for (CachedBluetoothDevice device : devices) {
+            mController.onDeviceAdded(device);
+        }
+        // A device dropped from the cache without a deleted event is removed by reconciliation.
+        when(mCachedDeviceManager.getCachedDevicesCopy()).thenReturn(
+                devices.subList(1, devices.size()));
+        clearInvocations(mCachedDeviceManager);
+
+        ShadowLooper.idleMainLooper(
+                BluetoothDevicesGroupPreferenceController.RECONCILE_DELAY_MS,
+                TimeUnit.MILLISECONDS);
+
+        verify(mCachedDeviceManager, times(1)).getCachedDevicesCopy();
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(BURST_DEVICE_COUNT - 1);
+    }
+
+    @Test
+    public void onDeviceAdded_filterMismatch_notAdded() {
+        when(mFilter.matches(mDevice1)).thenReturn(false);
+
+        mController.onDeviceAdded(mCachedDevice1);
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
+        assertThat(mPreferenceGroup.isVisible()).isFalse();
+    }
+
+    @Test
+    public void onDeviceAdded_noSetupRestriction_restrictsAddedPreference() {
+        mController.onUxRestrictionsChanged(new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                CarUxRestrictions.UX_RESTRICTIONS_NO_SETUP, /* timestamp= */ 0).build());
+        when(mFilter.matches(mDevice1)).thenReturn(true);
+
+        mController.onDeviceAdded(mCachedDevice1);
+
+        BluetoothDevicePreference devicePreference =
+                (BluetoothDevicePreference) mPreferenceGroup.getPreference(0);
+        assertThat(devicePreference.isUxRestricted()).isTrue();
+    }
+
+    @Test
+    public void onDeviceAdded_baselineRestriction_addedPreferenceNotRestricted() {
+        when(mFilter.matches(mDevice1)).thenReturn(true);
+
+        mController.onDeviceAdded(mCachedDevice1);
+
+        BluetoothDevicePreference devicePreference =
+                (BluetoothDevicePreference) mPreferenceGroup.getPreference(0);
+        assertThat(devicePreference.isUxRestricted()).isFalse();
+    }
+
+    @Test
+    public void onDeviceAdded_controllerUnavailable_groupHidden() {
+        when(mFilter.matches(mDevice1)).thenReturn(true);
+        mController.setAvailabilityStatusForZone(PREF_AVAILABILITY_STATUS_HIDDEN);
+
+        mController.onDeviceAdded(mCachedDevice1);
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mPreferenceGroup.isVisible()).isFalse();
+    }
+
     @Test
     public void preferenceClicked_callsOnDeviceClicked() {
         when(mCachedDeviceManager.getCachedDevicesCopy()).thenReturn(
@@ -282,6 +377,18 @@ public class BluetoothDevicesGroupPreferenceControllerTest {
                 devicePreference)).isTrue();
     }
 
+    private List<CachedBluetoothDevice> createDevices(int count) {
+        List<CachedBluetoothDevice> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CachedBluetoothDevice cachedDevice = mock(CachedBluetoothDevice.class);
+            BluetoothDevice device = BluetoothAdapter.getDefaultAdapter().getRemoteDevice(
+                    String.format("00:11:22:33:%02X:%02X", i / 256, i % 256));
+            when(cachedDevice.getDevice()).thenReturn(device);
+            devices.add(cachedDevice);
+        }
+        return devices;
+    }
+
     private ShadowBluetoothAdapter getShadowBluetoothAdapter() {
         return (ShadowBluetoothAdapter) Shadow.extract(BluetoothAdapter.getDefaultAdapter());
     }
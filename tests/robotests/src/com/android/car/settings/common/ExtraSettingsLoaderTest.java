@@ -63,6 +63,7 @@ public class ExtraSettingsLoaderTest {
         mContext = RuntimeEnvironment.application;
         ShadowApplicationPackageManager.setResources(mContext.getResources());
         mExtraSettingsLoader = new ExtraSettingsLoader(mContext);
+        mExtraSettingsLoader.setTileCache(new ExtraSettingsTileCache());
     }
 
     @After
@@ -22,6 +22,7 @@ import android.os.Bundle;
 
 import com.android.car.settings.R;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
@@ -37,6 +38,11 @@ import java.util.List;
 @RunWith(RobolectricTestRunner.class)
 public class PreferenceXmlParserTest {
 
+    @Before
+    public void setUp() {
+        PreferenceXmlParser.clearMetadataCache();
+    }
+
     @Test
     public void extractMetadata_keyAndControllerName() throws IOException, XmlPullParserException {
         List<Bundle> metadata = PreferenceXmlParser.extractMetadata(
@@ -101,4 +107,43 @@ public class PreferenceXmlParserTest {
         assertThat(metadata).hasSize(3);
         assertThat(metadata.get(2).getString(PreferenceXmlParser.METADATA_OCCUPANT_ZONE)).isNull();
     }
+
+    @Test
+    public void extractMetadata_cachesResultPerResIdAndFlags()
+            throws IOException, XmlPullParserException {
+        PreferenceXmlParser.extractMetadata(RuntimeEnvironment.application,
+                R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY);
+        PreferenceXmlParser.extractMetadata(RuntimeEnvironment.application,
+                R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY);
+        assertThat(PreferenceXmlParser.getMetadataCacheSize()).isEqualTo(1);
+
+        PreferenceXmlParser.extractMetadata(RuntimeEnvironment.application,
+                R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_SEARCHABLE);
+        assertThat(PreferenceXmlParser.getMetadataCacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void extractMetadata_cached_returnsIndependentCopies()
+            throws IOException, XmlPullParserException {
+        List<Bundle> first = PreferenceXmlParser.extractMetadata(RuntimeEnvironment.application,
+                R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY);
+        String key = first.get(0).getString(PreferenceXmlParser.METADATA_KEY);
+        first.get(0).putString(PreferenceXmlParser.METADATA_KEY, "modified");
+
+        List<Bundle> second = PreferenceXmlParser.extractMetadata(RuntimeEnvironment.application,
+                R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY);
+
+        assertThat(second).hasSize(first.size());
+        assertThat(second.get(0).getString(PreferenceXmlParser.METADATA_KEY)).isEqualTo(key);
+    }
+
+    @Test
+    public void clearMetadataCache_emptiesCache() throws IOException, XmlPullParserException {
+        PreferenceXmlParser.extractMetadata(RuntimeEnvironment.application,
+                R.xml.preference_parser, PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY);
+
+        PreferenceXmlParser.clearMetadataCache();
+
+        assertThat(PreferenceXmlParser.getMetadataCacheSize()).isEqualTo(0);
+    }
 }
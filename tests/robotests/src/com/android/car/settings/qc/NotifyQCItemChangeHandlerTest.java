@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+import static com.android.car.settings.qc.QCNotifyBatcher.BATCH_WINDOW_MS;
+import static com.android.car.settings.qc.QCThrottlePolicy.DEFAULT_INTERVAL_MS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Looper;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Unit test for the batching of QCItem notifications over time. */
+@RunWith(RobolectricTestRunner.class)
+public class NotifyQCItemChangeHandlerTest {
+    private static final String TAG = "NotifyQCItemChangeHandlerTest";
+    // Minimum interval of the volume and brightness sliders.
+    private static final long SLIDER_INTERVAL_MS = 100L;
+
+    private final Context mContext = RuntimeEnvironment.application;
+
+    private final List<Collection<Uri>> mDispatched = new ArrayList<>();
+    private SettingsQCBackgroundWorker.NotifyQCItemChangeHandler mHandler;
+    private TestWorker mBrightnessWorker;
+    private TestWorker mThemeWorker;
+    private TestWorker mVolumeWorker;
+
+    @Before
+    public void setUp() {
+        mHandler = new SettingsQCBackgroundWorker.NotifyQCItemChangeHandler(
+                Looper.getMainLooper(),
+                (dispatchContext, uris, flags) -> mDispatched.add(new ArrayList<>(uris)));
+        QCThrottlePolicy sliderPolicy = QCThrottlePolicy.leadingEdge(SLIDER_INTERVAL_MS);
+        mBrightnessWorker = new TestWorker(mContext, SettingsQCRegistry.BRIGHTNESS_SLIDER_URI,
+                sliderPolicy);
+        mThemeWorker = new TestWorker(mContext, SettingsQCRegistry.THEME_TOGGLE_URI,
+                sliderPolicy);
+        mVolumeWorker = new TestWorker(mContext, SettingsQCRegistry.MEDIA_VOLUME_SLIDER_URI,
+                sliderPolicy);
+    }
+
+    @Test
+    public void changesInOneWindow_notifiedInOneCall() {
+        mHandler.updateQCItem(mBrightnessWorker);
+        mHandler.updateQCItem(mThemeWorker);
+        mHandler.updateQCItem(mVolumeWorker);
+
+        // The first notifications are due together, and wait for the batch window.
+        idle(DEFAULT_INTERVAL_MS);
+        assertThat(mDispatched).isEmpty();
+        idle(BATCH_WINDOW_MS);
+
+        assertThat(mDispatched).hasSize(1);
+        assertThat(mDispatched.get(0)).containsExactly(mBrightnessWorker.getUri(),
+                mThemeWorker.getUri(), mVolumeWorker.getUri());
+    }
+
+    @Test
+    public void changesInSeparateWindows_notifiedInSeparateCalls() {
+        mHandler.updateQCItem(mBrightnessWorker);
+        idle(DEFAULT_INTERVAL_MS + BATCH_WINDOW_MS);
+
+        mHandler.updateQCItem(mVolumeWorker);
+        idle(DEFAULT_INTERVAL_MS + BATCH_WINDOW_MS);
+
+        assertThat(mDispatched).hasSize(2);
+        assertThat(mDispatched.get(0)).containsExactly(mBrightnessWorker.getUri());
+        assertThat(mDispatched.get(1)).containsExactly(mVolumeWorker.getUri());
+    }
+
+    @Test
+    public void rapidChanges_throttledToMinInterval() {
+        TestWorker worker = new TestWorker(mContext, SettingsQCRegistry.THEME_TOGGLE_URI,
+                QCThrottlePolicy.DEFAULT);
+        long durationMs = 10 * DEFAULT_INTERVAL_MS;
+        long changeIntervalMs = 10;
+
+        for (long time = 0; time < durationMs; time += changeIntervalMs) {
+            mHandler.updateQCItem(worker);
+            idle(changeIntervalMs);
+        }
+        idle(DEFAULT_INTERVAL_MS + BATCH_WINDOW_MS);
+
+        assertThat(mDispatched).hasSize((int) (durationMs / DEFAULT_INTERVAL_MS));
+    }
+
+    @Test
+    public void unsubscribed_pendingChangeNotNotified() {
+        mHandler.updateQCItem(mBrightnessWorker);
+        mHandler.updateQCItem(mVolumeWorker);
+        idle(DEFAULT_INTERVAL_MS);
+
+        mHandler.cancelQCItemUpdate(mVolumeWorker);
+        idle(BATCH_WINDOW_MS);
+
+        assertThat(mDispatched).hasSize(1);
+        assertThat(mDispatched.get(0)).containsExactly(mBrightnessWorker.getUri());
+    }
+
+    /**
+     * Day/night switches at 2Hz for 10 seconds, each changing brightness, theme and volume
+     * items together. Logs notify calls per second with and without batching.
+     */
+    @Test
+    public void syntheticWorkload_oneNotifyCallPerSwitch() {
+        int seconds = 10;
+        int switchesPerSecond = 2;
+        long switchIntervalMs = TimeUnit.SECONDS.toMillis(1) / switchesPerSecond;
+        TestWorker[] workers = {mBrightnessWorker, mThemeWorker, mVolumeWorker};
+
+        for (int i = 0; i < seconds * switchesPerSecond; i++) {
+            for (TestWorker worker : workers) {
+                mHandler.updateQCItem(worker);
+            }
+            idle(switchIntervalMs);
+        }
+        idle(DEFAULT_INTERVAL_MS + BATCH_WINDOW_MS);
+
+        int uriCount = 0;
+        for (Collection<Uri> uris : mDispatched) {
+            assertThat(uris).hasSize(workers.length);
+            uriCount += uris.size();
+        }
+        Log.i(TAG, "notify calls/s: unbatched=" + uriCount / seconds
+                + ", batched=" + mDispatched.size() / seconds);
+        assertThat(mDispatched).hasSize(seconds * switchesPerSecond);
+    }
+
+    private static void idle(long durationMs) {
+        ShadowLooper.idleMainLooper(durationMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class TestWorker extends SettingsQCBackgroundWorker<SettingsQCItem> {
+        private final QCThrottlePolicy mPolicy;
+
+        TestWorker(Context context, Uri uri, QCThrottlePolicy policy) {
+            super(context, uri);
+            mPolicy = policy;
+        }
+
+        @Override
+        protected QCThrottlePolicy getThrottlePolicy() {
+            return mPolicy;
+        }
+
+        @Override
+        protected void onQCItemSubscribe() {
+        }
+
+        @Override
+        protected void onQCItemUnsubscribe() {
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
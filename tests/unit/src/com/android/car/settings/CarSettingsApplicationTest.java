@@ -18,11 +18,13 @@ package com.android.car.settings;
 
 import static com.android.dx.mockito.inline.extended.ExtendedMockito.doAnswer;
 import static com.android.dx.mockito.inline.extended.ExtendedMockito.mockitoSession;
+import static com.android.dx.mockito.inline.extended.ExtendedMockito.verify;
 
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
@@ -34,6 +36,7 @@ import android.car.CarOccupantZoneManager.OccupantZoneInfo;
 import android.car.VehicleAreaSeat;
 import android.car.media.CarAudioManager;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.hardware.display.DisplayManagerGlobal;
 import android.view.Display;
 import android.view.DisplayAdjustments;
@@ -81,6 +84,9 @@ public class CarSettingsApplicationTest {
     private CarSettingsApplication mCarSettingsApplication;
     private CarServiceLifecycleListener mCarServiceLifecycleListener;
     private OccupantZoneConfigChangeListener mConfigChangeListener;
+    private int mZoneInfoChangedCount;
+    private final CarSettingsApplication.OnZoneInfoChangedListener mZoneInfoChangedListener =
+            () -> mZoneInfoChangedCount++;
 
     @Before
     public void setUp() {
@@ -98,12 +104,13 @@ public class CarSettingsApplicationTest {
             return null;
         }).when(mCarOccupantZoneManager).registerOccupantZoneConfigChangeListener(any());
 
-        mCarSettingsApplication = new CarSettingsApplication();
-        mCarSettingsApplication.onCreate();
+        getZoneInfoPreferences().edit().clear().commit();
+        mCarSettingsApplication = createApplication();
     }
 
     @After
     public void tearDown() {
+        getZoneInfoPreferences().edit().clear().commit();
         if (mSession != null) {
             mSession.finishMocking();
         }
@@ -311,4 +318,197 @@ public class CarSettingsApplicationTest {
         assertThat(mCarSettingsApplication.getMyAudioZoneId()).isEqualTo(
                 mSecondaryAudioZoneId);
     }
+
+    @Test
+    public void onCreate_cachedZoneInfo_returnedBeforeCarServiceConnected() {
+        getZoneInfoPreferences().edit()
+                .putInt("occupant_zone_type", CarOccupantZoneManager.OCCUPANT_TYPE_FRONT_PASSENGER)
+                .putInt("occupant_zone_display_id", Display.DEFAULT_DISPLAY + 1)
+                .putInt("audio_zone_id", mSecondaryAudioZoneId)
+                .commit();
+
+        CarSettingsApplication application = createApplication();
+
+        assertThat(application.getMyOccupantZoneType()).isEqualTo(
+                CarOccupantZoneManager.OCCUPANT_TYPE_FRONT_PASSENGER);
+        assertThat(application.getMyOccupantZoneDisplayId()).isEqualTo(
+                Display.DEFAULT_DISPLAY + 1);
+        assertThat(application.getMyAudioZoneId()).isEqualTo(mSecondaryAudioZoneId);
+        assertThat(application.getZoneInfoReadyFuture().isDone()).isFalse();
+    }
+
+    @Test
+    public void onCreate_cachedZoneInfo_doesNotWaitForCarService() {
+        setUpDriverZone();
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        createApplication();
+
+        verify(() -> Car.createCar(any(), any(), eq(Car.CAR_WAIT_TIMEOUT_DO_NOT_WAIT), any()));
+    }
+
+    @Test
+    public void onCreate_noCachedZoneInfo_waitsForCarService() {
+        setUpDriverZone();
+        doAnswer(invocation -> {
+            // Connects before returning, as Car does when asked to wait.
+            CarServiceLifecycleListener listener = invocation.getArgument(3);
+            listener.onLifecycleChanged(mCar, true);
+            return mCar;
+        }).when(() -> Car.createCar(any(), any(), eq(Car.CAR_WAIT_TIMEOUT_WAIT_FOREVER),
+                any()));
+
+        CarSettingsApplication application = createApplication();
+
+        assertThat(application.getMyOccupantZoneType()).isEqualTo(
+                CarOccupantZoneManager.OCCUPANT_TYPE_DRIVER);
+        assertThat(application.getMyOccupantZoneDisplayId()).isEqualTo(
+                Display.DEFAULT_DISPLAY + 1);
+        assertThat(application.getZoneInfoReadyFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void onLifecycleChanged_carServiceReady_zoneInfoPersisted() {
+        setUpDriverZone();
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        CarSettingsApplication application = createApplication();
+
+        assertThat(application.getMyOccupantZoneType()).isEqualTo(
+                CarOccupantZoneManager.OCCUPANT_TYPE_DRIVER);
+        assertThat(application.getMyAudioZoneId()).isEqualTo(mPrimaryAudioZoneId);
+        assertThat(application.getMyOccupantZoneDisplayId()).isEqualTo(
+                Display.DEFAULT_DISPLAY + 1);
+    }
+
+    @Test
+    public void getZoneInfoReadyFuture_carServiceNotConnected_notDone() {
+        assertThat(mCarSettingsApplication.getZoneInfoReadyFuture().isDone()).isFalse();
+
+        mCarServiceLifecycleListener.onLifecycleChanged(null, false);
+
+        assertThat(mCarSettingsApplication.getZoneInfoReadyFuture().isDone()).isFalse();
+    }
+
+    @Test
+    public void getZoneInfoReadyFuture_carServiceReady_done() {
+        setUpDriverZone();
+
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        assertThat(mCarSettingsApplication.getZoneInfoReadyFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void getZoneInfoReadyFuture_carServiceReady_occupantZoneServiceIsNull_done() {
+        when(mCar.getCarManager(Car.CAR_OCCUPANT_ZONE_SERVICE)).thenReturn(null);
+
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        assertThat(mCarSettingsApplication.getZoneInfoReadyFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void onZoneInfoChangedListener_carServiceReady_called() {
+        setUpDriverZone();
+        mCarSettingsApplication.addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        assertThat(mZoneInfoChangedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onZoneInfoChangedListener_carAudioManagerConnected_called() {
+        when(mCar.getCarManager(Car.AUDIO_SERVICE)).thenReturn(mCarAudioManager);
+        mCarSettingsApplication.addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        assertThat(mZoneInfoChangedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onZoneInfoChangedListener_sameZoneInfo_notCalledAgain() {
+        setUpDriverZone();
+        mCarSettingsApplication.addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        mConfigChangeListener.onOccupantZoneConfigChanged(
+                CarOccupantZoneManager.ZONE_CONFIG_CHANGE_FLAG_DISPLAY);
+
+        assertThat(mZoneInfoChangedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onZoneInfoChangedListener_zoneChanged_called() {
+        setUpDriverZone();
+        mCarSettingsApplication.addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        when(mCarOccupantZoneManager.getMyOccupantZone()).thenReturn(mZoneInfoPassenger);
+        mConfigChangeListener.onOccupantZoneConfigChanged(
+                CarOccupantZoneManager.ZONE_CONFIG_CHANGE_FLAG_USER);
+
+        assertThat(mZoneInfoChangedCount).isEqualTo(2);
+    }
+
+    @Test
+    public void onZoneInfoChangedListener_carServiceCrashed_called() {
+        when(mCar.getCarManager(Car.AUDIO_SERVICE)).thenReturn(mCarAudioManager);
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+        mCarSettingsApplication.addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+
+        mCarServiceLifecycleListener.onLifecycleChanged(null, false);
+
+        assertThat(mZoneInfoChangedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onZoneInfoChangedListener_removed_notCalled() {
+        setUpDriverZone();
+        mCarSettingsApplication.addOnZoneInfoChangedListener(mZoneInfoChangedListener);
+        mCarSettingsApplication.removeOnZoneInfoChangedListener(mZoneInfoChangedListener);
+
+        mCarServiceLifecycleListener.onLifecycleChanged(mCar, true);
+
+        assertThat(mZoneInfoChangedCount).isEqualTo(0);
+    }
+
+    private void setUpDriverZone() {
+        when(mCar.getCarManager(Car.CAR_OCCUPANT_ZONE_SERVICE)).thenReturn(mCarOccupantZoneManager);
+        when(mCarOccupantZoneManager.getMyOccupantZone()).thenReturn(mZoneInfoDriver);
+        when(mCarOccupantZoneManager.getAudioZoneIdForOccupant(
+                mZoneInfoDriver)).thenReturn(mPrimaryAudioZoneId);
+        when(mCarOccupantZoneManager.getDisplayForOccupant(mZoneInfoDriver,
+                CarOccupantZoneManager.DISPLAY_TYPE_MAIN)).thenReturn(mSecondaryDisplay);
+    }
+
+    private CarSettingsApplication createApplication() {
+        CarSettingsApplication application = new TestCarSettingsApplication(mContext);
+        application.onCreate();
+        return application;
+    }
+
+    private SharedPreferences getZoneInfoPreferences() {
+        return mContext.getSharedPreferences(CarSettingsApplication.ZONE_INFO_PREFERENCES,
+                Context.MODE_PRIVATE);
+    }
+
+    /** Runs the car service queries inline, on the test thread. */
+    private static final class TestCarSettingsApplication extends CarSettingsApplication {
+        TestCarSettingsApplication(Context context) {
+            attachBaseContext(context);
+        }
+
+        @Override
+        void executeBackgroundTask(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        void executeUiTask(Runnable runnable) {
+            runnable.run();
+        }
+    }
 }
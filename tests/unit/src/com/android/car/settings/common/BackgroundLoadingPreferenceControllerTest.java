@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+
+import androidx.lifecycle.LifecycleOwner;
+import androidx.preference.Preference;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.car.settings.testutils.TestLifecycleOwner;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+@RunWith(AndroidJUnit4.class)
+public class BackgroundLoadingPreferenceControllerTest {
+    private static final CarUxRestrictions UX_RESTRICTIONS =
+            new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                    CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0).build();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private final Queue<Runnable> mBackgroundTasks = new ArrayDeque<>();
+    private final Queue<Runnable> mMainTasks = new ArrayDeque<>();
+    private LifecycleOwner mLifecycleOwner;
+    private TestBackgroundLoadingController mController;
+
+    @Before
+    @UiThreadTest
+    public void setUp() {
+        mLifecycleOwner = new TestLifecycleOwner();
+        mController = new TestBackgroundLoadingController(mContext);
+        mController.setExecutors(mBackgroundTasks::add, mMainTasks::add);
+        mController.setPreference(new Preference(mContext));
+    }
+
+    @Test
+    @UiThreadTest
+    public void refreshUi_loadsInBackgroundThenBinds() {
+        mController.onCreate(mLifecycleOwner);
+        assertThat(mController.mBoundData).isEmpty();
+
+        runAll(mBackgroundTasks);
+        assertThat(mController.mBoundData).isEmpty();
+
+        runAll(mMainTasks);
+        assertThat(mController.mBoundData).containsExactly(1);
+    }
+
+    @Test
+    @UiThreadTest
+    public void refreshUi_supersededLoad_dropsStaleResult() {
+        mController.onCreate(mLifecycleOwner);
+        mController.refreshUi();
+
+        runAll(mBackgroundTasks);
+        runAll(mMainTasks);
+
+        assertThat(mController.mLoadCount).isEqualTo(2);
+        assertThat(mController.mBoundData).containsExactly(2);
+    }
+
+    @Test
+    @UiThreadTest
+    public void onStop_pendingLoad_resultDropped() {
+        mController.onCreate(mLifecycleOwner);
+        mController.onStart(mLifecycleOwner);
+        runAll(mBackgroundTasks);
+
+        mController.onStop(mLifecycleOwner);
+        runAll(mMainTasks);
+
+        assertThat(mController.mBoundData).isEmpty();
+    }
+
+    private static void runAll(Queue<Runnable> tasks) {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static class TestBackgroundLoadingController extends
+            BackgroundLoadingPreferenceController<Preference, Integer> {
+        private final List<Integer> mBoundData = new ArrayList<>();
+        private int mLoadCount;
+
+        TestBackgroundLoadingController(Context context) {
+            super(context, "key", /* fragmentController= */ null, UX_RESTRICTIONS);
+        }
+
+        @Override
+        protected Class<Preference> getPreferenceType() {
+            return Preference.class;
+        }
+
+        @Override
+        protected Integer loadData() {
+            return ++mLoadCount;
+        }
+
+        @Override
+        protected void bind(Preference preference, Integer data) {
+            mBoundData.add(data);
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.android.car.settings.common;
 
 import static com.android.car.settings.common.ExtraSettingsLoader.META_DATA_PREFERENCE_IS_TOP_LEVEL;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_KEY_ORDER;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_URI;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SUMMARY;
 import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SUMMARY_URI;
@@ -26,8 +27,15 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_TITL
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -35,12 +43,17 @@ import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.preference.Preference;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
+import com.android.car.settings.R;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -55,6 +68,7 @@ import java.util.Map;
 
 @RunWith(AndroidJUnit4.class)
 public class ExtraSettingsLoaderTest {
+    private static final String TAG = "ExtraSettingsLoaderTest";
     private static final String META_DATA_PREFERENCE_CATEGORY = "com.android.settings.category";
     private static final String FAKE_CATEGORY = "fake_category";
     private static final String FAKE_TITLE = "fake_title";
@@ -67,6 +81,7 @@ public class ExtraSettingsLoaderTest {
 
     private Context mContext = ApplicationProvider.getApplicationContext();
     private ExtraSettingsLoader mExtraSettingsLoader;
+    private ExtraSettingsTileCache mTileCache;
 
     @Mock
     private PackageManager mPm;
@@ -76,6 +91,8 @@ public class ExtraSettingsLoaderTest {
         MockitoAnnotations.initMocks(this);
         mExtraSettingsLoader = new ExtraSettingsLoader(mContext);
         mExtraSettingsLoader.setPackageManager(mPm);
+        mTileCache = new ExtraSettingsTileCache();
+        mExtraSettingsLoader.setTileCache(mTileCache);
     }
 
     private ResolveInfo createResolveInfo(String packageName, String className, Bundle metaData,
@@ -264,4 +281,139 @@ public class ExtraSettingsLoaderTest {
 
         assertThat(preferenceToBundleMap).hasSize(0);
     }
+
+    @Test
+    public void testLoadPreference_otherCategory_doesNotLoadResources() throws Exception {
+        Bundle bundle = new Bundle();
+        bundle.putInt(META_DATA_PREFERENCE_TITLE, R.string.settings_label);
+        bundle.putString(META_DATA_PREFERENCE_CATEGORY, DEVICE_CATEGORY);
+        ResolveInfo resolveInfo = createResolveInfo("package_name", "class_name",
+                bundle, /* isSystem= */ true);
+
+        Map<Preference, Bundle> preferenceToBundleMap =
+                executeLoadPreferences(Collections.singletonList(resolveInfo), FAKE_CATEGORY);
+
+        assertThat(preferenceToBundleMap).isEmpty();
+        verify(mPm, never()).getResourcesForApplication(anyString());
+    }
+
+    @Test
+    public void testLoadPreference_iconResource_loadsIconInBackground() {
+        List<Runnable> backgroundTasks = new ArrayList<>();
+        ExtraSettingsLoader loader = spy(mExtraSettingsLoader);
+        doAnswer(invocation -> backgroundTasks.add(invocation.getArgument(0)))
+                .when(loader).executeBackgroundTask(any());
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(loader).executeUiTask(any());
+        Bundle bundle = new Bundle();
+        bundle.putString(META_DATA_PREFERENCE_TITLE, FAKE_TITLE);
+        bundle.putString(META_DATA_PREFERENCE_CATEGORY, FAKE_CATEGORY);
+        bundle.putInt(META_DATA_PREFERENCE_ICON, R.drawable.ic_settings_about);
+        ResolveInfo resolveInfo = createResolveInfo(mContext.getPackageName(), "class_name",
+                bundle, /* isSystem= */ true);
+        Intent intent = new Intent();
+        intent.putExtra(META_DATA_PREFERENCE_CATEGORY, FAKE_CATEGORY);
+        when(mPm.queryIntentActivitiesAsUser(eq(intent), eq(PackageManager.GET_META_DATA),
+                anyInt())).thenReturn(Collections.singletonList(resolveInfo));
+
+        Preference preference = loader.loadPreferences(intent).keySet().iterator().next();
+        Drawable placeholder = preference.getIcon();
+        backgroundTasks.forEach(Runnable::run);
+
+        assertThat(placeholder).isNotNull();
+        assertThat(backgroundTasks).hasSize(1);
+        assertThat(preference.getIcon()).isNotSameInstanceAs(placeholder);
+    }
+
+    /**
+     * Loads one screen out of 500 injected settings spread over 10 categories, with titles
+     * given as resources, and logs how long the injection took.
+     */
+    @Test
+    public void testLoadPreference_manyInjectedSettings_onlyLoadsMatchingCategory()
+            throws Exception {
+        int categories = 10;
+        int settingsPerCategory = 50;
+        List<ResolveInfo> resolveInfos = new ArrayList<>();
+        for (int i = 0; i < categories * settingsPerCategory; i++) {
+            Bundle bundle = new Bundle();
+            bundle.putInt(META_DATA_PREFERENCE_TITLE, R.string.settings_label);
+            bundle.putString(META_DATA_PREFERENCE_CATEGORY, "category" + (i % categories));
+            resolveInfos.add(createResolveInfo("package_name" + i, "class_name",
+                    bundle, /* isSystem= */ true));
+        }
+        when(mPm.getResourcesForApplication(anyString())).thenReturn(mContext.getResources());
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        Map<Preference, Bundle> preferenceToBundleMap =
+                executeLoadPreferences(resolveInfos, "category0");
+        long durationUs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000;
+
+        Log.i(TAG, "Loaded " + preferenceToBundleMap.size() + " of " + resolveInfos.size()
+                + " injected settings in " + durationUs + "us");
+        assertThat(preferenceToBundleMap).hasSize(settingsPerCategory);
+        verify(mPm, times(settingsPerCategory)).getResourcesForApplication(anyString());
+    }
+
+    @Test
+    public void testLoadPreference_otherScreen_servedFromCache() {
+        Bundle bundle1 = new Bundle();
+        bundle1.putString(META_DATA_PREFERENCE_TITLE, FAKE_TITLE1);
+        bundle1.putString(META_DATA_PREFERENCE_CATEGORY, FAKE_CATEGORY);
+        Bundle bundle2 = new Bundle();
+        bundle2.putString(META_DATA_PREFERENCE_TITLE, FAKE_TITLE2);
+        bundle2.putString(META_DATA_PREFERENCE_CATEGORY, DEVICE_CATEGORY);
+        List<ResolveInfo> resolveInfos = new ArrayList<>();
+        resolveInfos.add(createResolveInfo("package_name1", "class_name1", bundle1,
+                /* isSystem= */ true));
+        resolveInfos.add(createResolveInfo("package_name2", "class_name2", bundle2,
+                /* isSystem= */ true));
+        executeLoadPreferences(resolveInfos, FAKE_CATEGORY);
+
+        ExtraSettingsLoader otherLoader = new ExtraSettingsLoader(mContext);
+        otherLoader.setPackageManager(mPm);
+        otherLoader.setTileCache(mTileCache);
+        Intent intent = new Intent();
+        intent.putExtra(META_DATA_PREFERENCE_CATEGORY, DEVICE_CATEGORY);
+        Map<Preference, Bundle> preferenceToBundleMap = otherLoader.loadPreferences(intent);
+
+        assertThat(preferenceToBundleMap).hasSize(1);
+        assertThat(preferenceToBundleMap.keySet().iterator().next().getTitle().toString())
+                .isEqualTo(FAKE_TITLE2);
+        verify(mPm, times(2)).queryIntentActivitiesAsUser(any(Intent.class), anyInt(),
+                anyInt());
+        assertThat(mTileCache.getCallCount()).isEqualTo(2);
+        assertThat(mTileCache.getSavedCallCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testLoadPreference_afterInvalidate_queriesAgain() {
+        Bundle bundle = new Bundle();
+        bundle.putString(META_DATA_PREFERENCE_TITLE, FAKE_TITLE);
+        bundle.putString(META_DATA_PREFERENCE_CATEGORY, FAKE_CATEGORY);
+        List<ResolveInfo> resolveInfos = Collections.singletonList(
+                createResolveInfo("package_name", "class_name", bundle, /* isSystem= */ true));
+        executeLoadPreferences(resolveInfos, FAKE_CATEGORY);
+
+        mTileCache.invalidate();
+        executeLoadPreferences(resolveInfos, FAKE_CATEGORY);
+
+        verify(mPm, times(4)).queryIntentActivitiesAsUser(any(Intent.class), anyInt(),
+                anyInt());
+    }
+
+    @Test
+    public void testLoadPreference_cachedTiles_metaDataNotShared() {
+        Bundle bundle = new Bundle();
+        bundle.putString(META_DATA_PREFERENCE_TITLE, FAKE_TITLE);
+        bundle.putString(META_DATA_PREFERENCE_CATEGORY, FAKE_CATEGORY);
+        List<ResolveInfo> resolveInfos = Collections.singletonList(
+                createResolveInfo("package_name", "class_name", bundle, /* isSystem= */ true));
+
+        executeLoadPreferences(resolveInfos, FAKE_CATEGORY);
+
+        assertThat(bundle.containsKey(META_DATA_PREFERENCE_IS_TOP_LEVEL)).isFalse();
+    }
 }
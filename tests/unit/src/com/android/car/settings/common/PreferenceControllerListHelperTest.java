@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.android.car.settings.common.PreferenceXmlParser.METADATA_CONTROLLER;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.car.settings.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class PreferenceControllerListHelperTest {
+    private static final String TAG = "PreferenceControllerListHelperTest";
+    private static final String TEST_KEY = "test_key";
+    private static final int BENCHMARK_ITERATIONS = 200;
+    private static final CarUxRestrictions UX_RESTRICTIONS =
+            new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                    CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0).build();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private final FragmentController mFragmentController = mock(FragmentController.class);
+
+    @Test
+    public void generatedFactory_knownController_returnsInstance() {
+        PreferenceController controller = GeneratedPreferenceControllerFactory.create(
+                DefaultRestrictionsPreferenceController.class.getName(), mContext, TEST_KEY,
+                mFragmentController, UX_RESTRICTIONS);
+
+        assertThat(controller).isInstanceOf(DefaultRestrictionsPreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(TEST_KEY);
+    }
+
+    @Test
+    public void generatedFactory_unknownController_returnsNull() {
+        assertThat(GeneratedPreferenceControllerFactory.create("com.example.Unknown", mContext,
+                TEST_KEY, mFragmentController, UX_RESTRICTIONS)).isNull();
+    }
+
+    @Test
+    public void createInstance_unknownToFactory_fallsBackToReflection() {
+        PreferenceController controller = PreferenceControllerListHelper.createInstance(
+                FakePreferenceController.class.getName(), mContext, TEST_KEY,
+                mFragmentController, UX_RESTRICTIONS, /* availabilityStatusForZone= */ null);
+
+        assertThat(controller).isInstanceOf(FakePreferenceController.class);
+    }
+
+    /**
+     * Compares controller creation cost of the generated factory against reflection for the
+     * largest screens. Results are logged under {@link #TAG}.
+     */
+    @Test
+    public void createInstance_largestScreens_generatedMatchesReflection() throws Exception {
+        for (int xmlResId : new int[]{R.xml.homepage_fragment, R.xml.apps_fragment,
+                R.xml.system_settings_fragment}) {
+            List<String> controllerNames = getControllerNames(xmlResId);
+
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            List<PreferenceController> generated = new ArrayList<>();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                generated.clear();
+                for (String name : controllerNames) {
+                    generated.add(GeneratedPreferenceControllerFactory.create(name, mContext,
+                            TEST_KEY, mFragmentController, UX_RESTRICTIONS));
+                }
+            }
+            long generatedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+
+            startNanos = SystemClock.elapsedRealtimeNanos();
+            List<PreferenceController> reflective = new ArrayList<>();
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                reflective.clear();
+                for (String name : controllerNames) {
+                    reflective.add(PreferenceControllerListHelper.createInstanceReflectively(name,
+                            mContext, TEST_KEY, mFragmentController, UX_RESTRICTIONS));
+                }
+            }
+            long reflectiveNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+
+            Log.i(TAG, mContext.getResources().getResourceEntryName(xmlResId) + ": "
+                    + controllerNames.size() + " controllers, generated="
+                    + generatedNanos / BENCHMARK_ITERATIONS + "ns/screen, reflective="
+                    + reflectiveNanos / BENCHMARK_ITERATIONS + "ns/screen");
+            for (int i = 0; i < controllerNames.size(); i++) {
+                assertThat(generated.get(i)).isNotNull();
+                assertThat(generated.get(i).getClass()).isEqualTo(reflective.get(i).getClass());
+            }
+        }
+    }
+
+    private List<String> getControllerNames(int xmlResId) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (Bundle metadata : PreferenceXmlParser.extractMetadata(mContext, xmlResId,
+                PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_CONTROLLER)) {
+            String name = metadata.getString(METADATA_CONTROLLER);
+            if (!TextUtils.isEmpty(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceGroup;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class PreferenceGroupReconcilerTest {
+    private static final String TAG = "PreferenceGroupReconcilerTest";
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private PreferenceGroup mPreferenceGroup;
+    private CountingBinder mBinder;
+    private PreferenceGroupReconciler<String, Preference> mReconciler;
+
+    @Before
+    @UiThreadTest
+    public void setUp() {
+        PreferenceManager preferenceManager = new PreferenceManager(mContext);
+        PreferenceScreen screen = preferenceManager.createPreferenceScreen(mContext);
+        mPreferenceGroup = new LogicalPreferenceGroup(mContext);
+        screen.addPreference(mPreferenceGroup);
+        mBinder = new CountingBinder();
+        mReconciler = new PreferenceGroupReconciler<>(mBinder);
+    }
+
+    @Test
+    @UiThreadTest
+    public void reconcile_initialList_createsPreferencesInOrder() {
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("a", "b", "c"));
+
+        assertThat(getKeys()).containsExactly("a", "b", "c").inOrder();
+        assertThat(mBinder.mCreated).isEqualTo(3);
+    }
+
+    @Test
+    @UiThreadTest
+    public void reconcile_sameList_updatesInPlace() {
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("a", "b"));
+        Preference first = mPreferenceGroup.getPreference(0);
+
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("a", "b"));
+
+        assertThat(mPreferenceGroup.getPreference(0)).isSameInstanceAs(first);
+        assertThat(mBinder.mCreated).isEqualTo(2);
+        assertThat(mBinder.mUpdated).isEqualTo(2);
+    }
+
+    @Test
+    @UiThreadTest
+    public void reconcile_changedList_addsRemovesAndMoves() {
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("a", "b", "c"));
+        Preference c = mReconciler.getPreference("c");
+
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("c", "d", "a"));
+
+        assertThat(getKeys()).containsExactly("c", "d", "a").inOrder();
+        assertThat(mReconciler.getPreference("c")).isSameInstanceAs(c);
+        assertThat(mReconciler.getPreference("b")).isNull();
+        assertThat(mReconciler.getCreatedCount()).isEqualTo(4);
+        assertThat(mReconciler.getRemovedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @UiThreadTest
+    public void reconcile_updateRejected_replacesPreference() {
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("a"));
+        Preference original = mPreferenceGroup.getPreference(0);
+        mBinder.mRejectUpdates = true;
+
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("a"));
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mPreferenceGroup.getPreference(0)).isNotSameInstanceAs(original);
+    }
+
+    @Test
+    @UiThreadTest
+    public void clear_removesOwnedPreferences() {
+        mReconciler.reconcile(mPreferenceGroup, Arrays.asList("a", "b"));
+
+        mReconciler.clear(mPreferenceGroup);
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
+    }
+
+    @Test
+    @UiThreadTest
+    public void reconcile_scanUpdates_createsOnlyNewPreferences() {
+        int scans = 20;
+        int networks = 30;
+        for (int scan = 0; scan < scans; scan++) {
+            // Each scan drops the oldest network and finds a new one.
+            List<String> keys = new ArrayList<>();
+            for (int i = scan; i < scan + networks; i++) {
+                keys.add("network" + i);
+            }
+            mReconciler.reconcile(mPreferenceGroup, keys);
+        }
+
+        Log.i(TAG, "Scan updates: " + scans + ", created: " + mBinder.mCreated
+                + ", updated in place: " + mBinder.mUpdated + " (removeAll/recreate would create "
+                + scans * networks + ")");
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(networks);
+        assertThat(mBinder.mCreated).isEqualTo(networks + scans - 1);
+    }
+
+    private List<String> getKeys() {
+        List<Preference> preferences = new ArrayList<>();
+        for (int i = 0; i < mPreferenceGroup.getPreferenceCount(); i++) {
+            preferences.add(mPreferenceGroup.getPreference(i));
+        }
+        preferences.sort(Preference::compareTo);
+        List<String> keys = new ArrayList<>();
+        for (Preference preference : preferences) {
+            keys.add(preference.getKey());
+        }
+        return keys;
+    }
+
+    private class CountingBinder implements PreferenceGroupReconciler.Binder<String, Preference> {
+        private int mCreated;
+        private int mUpdated;
+        private boolean mRejectUpdates;
+
+        @Override
+        public String getKey(String item) {
+            return item;
+        }
+
+        @Override
+        public Preference createPreference(String item) {
+            mCreated++;
+            Preference preference = new Preference(mContext);
+            preference.setKey(item);
+            preference.setTitle(item);
+            return preference;
+        }
+
+        @Override
+        public boolean updatePreference(Preference preference, String item) {
+            if (mRejectUpdates) {
+                return false;
+            }
+            mUpdated++;
+            preference.setTitle(item);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.car.settings.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class PreferenceXmlParserTest {
+    private static final String TAG = "PreferenceXmlParserTest";
+    private static final int BENCHMARK_ITERATIONS = 100;
+    private static final int FLAGS = PreferenceXmlParser.MetadataFlag.FLAG_NEED_KEY
+            | PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+            | PreferenceXmlParser.MetadataFlag.FLAG_NEED_PREF_DRIVER;
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    @Before
+    public void setUp() {
+        PreferenceXmlParser.clearMetadataCache();
+    }
+
+    /**
+     * Measures the cost of parsing a screen against serving it from the metadata cache. Results
+     * are logged under {@link #TAG}.
+     */
+    @Test
+    public void extractMetadata_largestScreens_cachedMatchesParsed() throws Exception {
+        for (int xmlResId : new int[]{R.xml.homepage_fragment, R.xml.apps_fragment,
+                R.xml.wifi_detail_fragment, R.xml.system_settings_fragment}) {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            List<Bundle> parsed = null;
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                parsed = PreferenceXmlParser.parseMetadata(mContext, xmlResId, FLAGS);
+            }
+            long parseNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+
+            PreferenceXmlParser.extractMetadata(mContext, xmlResId, FLAGS);
+            startNanos = SystemClock.elapsedRealtimeNanos();
+            List<Bundle> cached = null;
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                cached = PreferenceXmlParser.extractMetadata(mContext, xmlResId, FLAGS);
+            }
+            long cachedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+
+            Log.i(TAG, mContext.getResources().getResourceEntryName(xmlResId) + ": parse="
+                    + parseNanos / BENCHMARK_ITERATIONS + "ns, cached="
+                    + cachedNanos / BENCHMARK_ITERATIONS + "ns");
+            assertThat(cached).hasSize(parsed.size());
+            for (int i = 0; i < parsed.size(); i++) {
+                assertThat(cached.get(i).getString(PreferenceXmlParser.METADATA_KEY))
+                        .isEqualTo(parsed.get(i).getString(PreferenceXmlParser.METADATA_KEY));
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+import android.view.Choreographer;
+
+import androidx.lifecycle.LifecycleOwner;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.car.settings.testutils.TestLifecycleOwner;
+import com.android.car.ui.preference.CarUiPreference;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+@RunWith(AndroidJUnit4.class)
+public class RefreshSchedulerTest {
+    private static final CarUxRestrictions BASELINE_UX_RESTRICTIONS =
+            new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                    CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0).build();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private LifecycleOwner mLifecycleOwner;
+    private RefreshScheduler mRefreshScheduler;
+    private FakePreferenceController mController1;
+    private FakePreferenceController mController2;
+
+    @Mock
+    private FragmentController mFragmentController;
+    @Mock
+    private CarUiPreference mPreference;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mLifecycleOwner = new TestLifecycleOwner();
+        mRefreshScheduler = new RefreshScheduler(Choreographer.getInstance());
+        mController1 = createController("key1");
+        mController2 = createController("key2");
+    }
+
+    @Test
+    @UiThreadTest
+    public void requestRefreshUi_burst_refreshesOncePerController() {
+        int initialCount1 = mController1.getUpdateStateCallCount();
+        int initialCount2 = mController2.getUpdateStateCallCount();
+
+        for (int i = 0; i < 10; i++) {
+            mController1.requestRefreshUi();
+            mController2.requestRefreshUi();
+        }
+        mRefreshScheduler.doFrame(/* frameTimeNanos= */ 0);
+
+        assertThat(mController1.getUpdateStateCallCount()).isEqualTo(initialCount1 + 1);
+        assertThat(mController2.getUpdateStateCallCount()).isEqualTo(initialCount2 + 1);
+        assertThat(mRefreshScheduler.getRequestedRefreshCount()).isEqualTo(20);
+        assertThat(mRefreshScheduler.getExecutedRefreshCount()).isEqualTo(2);
+    }
+
+    @Test
+    @UiThreadTest
+    public void requestRefreshUi_deferredUntilFrame() {
+        int initialCount = mController1.getUpdateStateCallCount();
+
+        mController1.requestRefreshUi();
+
+        assertThat(mController1.getUpdateStateCallCount()).isEqualTo(initialCount);
+    }
+
+    @Test
+    @UiThreadTest
+    public void cancel_dropsPendingRefreshes() {
+        int initialCount = mController1.getUpdateStateCallCount();
+        mController1.requestRefreshUi();
+
+        mRefreshScheduler.cancel();
+        mRefreshScheduler.doFrame(/* frameTimeNanos= */ 0);
+
+        assertThat(mController1.getUpdateStateCallCount()).isEqualTo(initialCount);
+        assertThat(mRefreshScheduler.getExecutedRefreshCount()).isEqualTo(0);
+    }
+
+    @Test
+    @UiThreadTest
+    public void requestRefreshUi_noScheduler_refreshesImmediately() {
+        mController1.setRefreshScheduler(null);
+        int initialCount = mController1.getUpdateStateCallCount();
+
+        mController1.requestRefreshUi();
+
+        assertThat(mController1.getUpdateStateCallCount()).isEqualTo(initialCount + 1);
+    }
+
+    private FakePreferenceController createController(String key) {
+        FakePreferenceController controller = new FakePreferenceController(mContext, key,
+                mFragmentController, BASELINE_UX_RESTRICTIONS);
+        controller.setPreference(mPreference);
+        controller.setRefreshScheduler(mRefreshScheduler);
+        controller.onCreate(mLifecycleOwner);
+        return controller;
+    }
+}
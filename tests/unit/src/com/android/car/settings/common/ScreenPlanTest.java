@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.car.settings.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class ScreenPlanTest {
+    private static final String TAG = "ScreenPlanTest";
+    private static final int BENCHMARK_ITERATIONS = 50;
+    private static final CarUxRestrictions UX_RESTRICTIONS =
+            new CarUxRestrictions.Builder(/* reqOpt= */ true,
+                    CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0).build();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    @Before
+    public void setUp() {
+        ScreenPlan.clearCache();
+        PreferenceXmlParser.clearMetadataCache();
+    }
+
+    @Test
+    public void get_sameScreen_returnsCachedPlan() {
+        ScreenPlan first = ScreenPlan.get(mContext, R.xml.apps_fragment);
+        int hits = ScreenPlan.getHitCount();
+
+        ScreenPlan second = ScreenPlan.get(mContext, R.xml.apps_fragment);
+
+        assertThat(second).isSameInstanceAs(first);
+        assertThat(ScreenPlan.getHitCount()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void clearCache_rebuildsPlan() {
+        ScreenPlan first = ScreenPlan.get(mContext, R.xml.apps_fragment);
+
+        ScreenPlan.clearCache();
+
+        ScreenPlan second = ScreenPlan.get(mContext, R.xml.apps_fragment);
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(second.getControllerSpecs()).hasSize(first.getControllerSpecs().size());
+    }
+
+    @Test
+    public void getControllerSpecs_isImmutable() {
+        List<ScreenPlan.ControllerSpec> specs =
+                ScreenPlan.get(mContext, R.xml.apps_fragment).getControllerSpecs();
+
+        try {
+            specs.clear();
+        } catch (UnsupportedOperationException expected) {
+            return;
+        }
+        throw new AssertionError("Controller specs should not be modifiable");
+    }
+
+    /**
+     * Logs the cost of creating the controllers of a deep navigation flow (Apps, App info,
+     * Storage) with and without cached plans.
+     */
+    @Test
+    public void getPreferenceControllersFromXml_navigationFlow_logsAttachCost() {
+        int[] flow = {R.xml.apps_fragment, R.xml.application_details_fragment,
+                R.xml.app_storage_settings_details_fragment};
+        FragmentController fragmentController = mock(FragmentController.class);
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            for (int xmlResId : flow) {
+                ScreenPlan.clearCache();
+                PreferenceXmlParser.clearMetadataCache();
+                PreferenceControllerListHelper.getPreferenceControllersFromXml(mContext,
+                        xmlResId, fragmentController, UX_RESTRICTIONS);
+            }
+        }
+        long uncachedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+
+        startNanos = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            for (int xmlResId : flow) {
+                PreferenceControllerListHelper.getPreferenceControllersFromXml(mContext,
+                        xmlResId, fragmentController, UX_RESTRICTIONS);
+            }
+        }
+        long cachedNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+
+        Log.i(TAG, "Apps -> App info -> Storage: uncached="
+                + uncachedNanos / BENCHMARK_ITERATIONS + "ns, cached="
+                + cachedNanos / BENCHMARK_ITERATIONS + "ns");
+        assertThat(ScreenPlan.getHitCount()).isAtLeast(BENCHMARK_ITERATIONS * flow.length);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.testng.Assert.assertThrows;
+
+import android.os.Handler;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith(AndroidJUnit4.class)
+public class TaskSchedulerTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    private TaskScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TaskScheduler();
+    }
+
+    @Test
+    public void submit_runsTaskOnLane() throws Exception {
+        Future<Integer> result = mScheduler.submit(TaskScheduler.LANE_UI_CRITICAL, () -> 42);
+
+        assertThat(result.get(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isEqualTo(42);
+        assertThat(mScheduler.getCompletedTaskCount(TaskScheduler.LANE_UI_CRITICAL))
+                .isEqualTo(1);
+        assertThat(mScheduler.getCompletedTaskCount(TaskScheduler.LANE_BULK)).isEqualTo(0);
+    }
+
+    @Test
+    public void scopeCancel_dropsQueuedTasks() throws Exception {
+        CountDownLatch blockLane = new CountDownLatch(1);
+        // Occupy every thread of the bulk lane so that the scoped task stays queued.
+        Future<?> blocker1 = mScheduler.submit(TaskScheduler.LANE_BULK, () -> await(blockLane));
+        Future<?> blocker2 = mScheduler.submit(TaskScheduler.LANE_BULK, () -> await(blockLane));
+        TaskScope scope = mScheduler.createScope();
+        AtomicBoolean ran = new AtomicBoolean();
+        Future<?> scoped = scope.submit(TaskScheduler.LANE_BULK, () -> ran.set(true));
+
+        scope.cancel();
+        blockLane.countDown();
+        blocker1.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        blocker2.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        assertThat(scoped.isCancelled()).isTrue();
+        assertThat(ran.get()).isFalse();
+    }
+
+    @Test
+    public void scopeCancel_rejectsNewWork() {
+        TaskScope scope = mScheduler.createScope();
+        scope.cancel();
+
+        assertThat(scope.isCancelled()).isTrue();
+        assertThrows(CancellationException.class,
+                () -> scope.submit(TaskScheduler.LANE_UI_CRITICAL, () -> {}));
+    }
+
+    @Test
+    public void createWorkerHandler_sharesLooper() {
+        Handler first = mScheduler.createWorkerHandler();
+        Handler second = mScheduler.createWorkerHandler();
+
+        assertThat(first).isNotSameInstanceAs(second);
+        assertThat(first.getLooper()).isSameInstanceAs(second.getLooper());
+    }
+
+    @Test
+    public void dump_includesLanes() throws Exception {
+        mScheduler.submit(TaskScheduler.LANE_BULK, () -> 0).get(TIMEOUT_MS,
+                TimeUnit.MILLISECONDS);
+        StringWriter out = new StringWriter();
+
+        mScheduler.dump("", new PrintWriter(out));
+
+        assertThat(out.toString()).contains("ui:");
+        assertThat(out.toString()).contains("bulk:");
+        assertThat(out.toString()).contains("completed=1");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.common;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import androidx.fragment.app.FragmentManager;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+
+import com.android.car.settings.R;
+import com.android.car.settings.testutils.SinglePaneTestActivity;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@RunWith(AndroidJUnit4.class)
+public class TimingRecorderTest {
+    private static final String OWNER = "owner";
+
+    @Rule
+    public ActivityTestRule<SinglePaneTestActivity> mActivityTestRule =
+            new ActivityTestRule<>(SinglePaneTestActivity.class);
+
+    private final TimingRecorder mRecorder = TimingRecorder.getInstance();
+
+    @Before
+    public void setUp() {
+        ScreenPlan.clearCache();
+    }
+
+    @Test
+    public void end_recordsPhaseForOwner() {
+        TimingRecorder recorder = new TimingRecorder();
+
+        long startNanos = recorder.begin(TimingRecorder.PHASE_PARSE_XML, OWNER);
+        recorder.end(TimingRecorder.PHASE_PARSE_XML, OWNER, startNanos);
+
+        assertThat(recorder.getCount(TimingRecorder.PHASE_PARSE_XML, OWNER)).isEqualTo(1);
+        assertThat(recorder.getCount(TimingRecorder.PHASE_FIRST_REFRESH, OWNER)).isEqualTo(0);
+    }
+
+    @Test
+    public void launchActivity_recordsActivityCreate() {
+        assertThat(mRecorder.getCount(TimingRecorder.PHASE_ACTIVITY_CREATE,
+                SinglePaneTestActivity.class.getName())).isAtLeast(1);
+    }
+
+    @Test
+    public void launchFragment_recordsEachPhase() throws Throwable {
+        mRecorder.clear();
+        FragmentManager fragmentManager = mActivityTestRule.getActivity()
+                .getSupportFragmentManager();
+
+        mActivityTestRule.runOnUiThread(() -> fragmentManager.beginTransaction()
+                .replace(R.id.fragment_container,
+                        new SettingsFragmentTestCase.TestSettingsFragment())
+                .commitNow());
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        String fragment = SettingsFragmentTestCase.TestSettingsFragment.class.getName();
+        String controller = FakePreferenceController.class.getName();
+        assertThat(mRecorder.getCount(TimingRecorder.PHASE_PARSE_XML,
+                "xml/test_base_settings_fragment")).isEqualTo(1);
+        assertThat(mRecorder.getCount(TimingRecorder.PHASE_CREATE_CONTROLLERS, fragment))
+                .isEqualTo(1);
+        assertThat(mRecorder.getCount(TimingRecorder.PHASE_CONSTRUCT_CONTROLLER, controller))
+                .isAtLeast(1);
+        assertThat(mRecorder.getCount(TimingRecorder.PHASE_INFLATE_PREFERENCES, fragment))
+                .isEqualTo(1);
+        assertThat(mRecorder.getCount(TimingRecorder.PHASE_FIRST_REFRESH, controller))
+                .isAtLeast(1);
+        assertThat(mRecorder.getCount(TimingRecorder.PHASE_FRAGMENT_LAUNCH, fragment))
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void dump_includesRecordedPhases() {
+        TimingRecorder recorder = new TimingRecorder();
+        long startNanos = recorder.begin(TimingRecorder.PHASE_FIRST_REFRESH, OWNER);
+        recorder.end(TimingRecorder.PHASE_FIRST_REFRESH, OWNER, startNanos);
+        StringWriter out = new StringWriter();
+
+        recorder.dump("", new PrintWriter(out));
+
+        assertThat(out.toString()).contains(TimingRecorder.PHASE_FIRST_REFRESH);
+        assertThat(out.toString()).contains(OWNER + ": 1, ");
+    }
+}
@@ -18,19 +18,22 @@ package com.android.car.settings.datausage;
 
 import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
 
+import static com.android.car.settings.datausage.AppDataUsagePreferenceController.PAGE_SIZE;
+import static com.android.car.settings.datausage.AppDataUsagePreferenceController.SHOW_MORE_KEY;
+
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import android.app.usage.NetworkStats;
 import android.car.drivingstate.CarUxRestrictions;
 import android.content.Context;
+import android.os.Process;
+import android.os.UserHandle;
 
-import androidx.annotation.NonNull;
 import androidx.lifecycle.LifecycleOwner;
+import androidx.preference.Preference;
 import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
 import androidx.test.annotation.UiThreadTest;
@@ -42,6 +45,7 @@ import com.android.car.settings.common.LogicalPreferenceGroup;
 import com.android.car.settings.common.PreferenceControllerTestUtil;
 import com.android.car.settings.common.ProgressBarPreference;
 import com.android.car.settings.testutils.TestLifecycleOwner;
+import com.android.car.ui.preference.CarUiPreference;
 import com.android.settingslib.net.UidDetail;
 import com.android.settingslib.net.UidDetailProvider;
 
@@ -51,16 +55,13 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
-
 @RunWith(AndroidJUnit4.class)
 public class AppDataUsagePreferenceControllerTest {
 
     private Context mContext = ApplicationProvider.getApplicationContext();
     private LifecycleOwner mLifecycleOwner;
     private CarUxRestrictions mCarUxRestrictions;
-    private TestAppDataUsagePreferenceController mPreferenceController;
+    private AppDataUsagePreferenceController mPreferenceController;
     private LogicalPreferenceGroup mPreferenceGroup;
 
     @Mock
@@ -78,9 +79,9 @@ public class AppDataUsagePreferenceControllerTest {
 
         mCarUxRestrictions = new CarUxRestrictions.Builder(/* reqOpt= */ true,
                 CarUxRestrictions.UX_RESTRICTIONS_BASELINE, /* timestamp= */ 0).build();
-        mPreferenceController = new TestAppDataUsagePreferenceController(mContext,
+        mPreferenceController = new AppDataUsagePreferenceController(mContext,
                 /* preferenceKey= */ "key", mMockFragmentController,
-                mCarUxRestrictions, mMockUidDetailProvider);
+                mCarUxRestrictions, new UidDetailResolver(mMockUidDetailProvider));
         PreferenceManager preferenceManager = new PreferenceManager(mContext);
         PreferenceScreen screen = preferenceManager.createPreferenceScreen(mContext);
         mPreferenceGroup = new LogicalPreferenceGroup(mContext);
@@ -89,32 +90,6 @@ public class AppDataUsagePreferenceControllerTest {
         mPreferenceController.onCreate(mLifecycleOwner);
     }
 
-    private static class TestAppDataUsagePreferenceController
-            extends AppDataUsagePreferenceController {
-        private final Queue<NetworkStats.Bucket> mMockedBuckets = new LinkedBlockingQueue<>();
-
-        TestAppDataUsagePreferenceController(Context context, String preferenceKey,
-                FragmentController fragmentController,
-                CarUxRestrictions uxRestrictions,
-                UidDetailProvider uidDetailProvider) {
-            super(context, preferenceKey, fragmentController, uxRestrictions, uidDetailProvider);
-        }
-
-        public void addBucket(NetworkStats.Bucket bucket) {
-            mMockedBuckets.add(bucket);
-        }
-
-        @Override
-        public boolean hasNextBucket(@NonNull NetworkStats unused) {
-            return !mMockedBuckets.isEmpty();
-        }
-
-        @Override
-        public NetworkStats.Bucket getNextBucket(@NonNull NetworkStats unused) {
-            return mMockedBuckets.remove();
-        }
-    }
-
     @Test
     public void defaultInitialize_hasNoPreference() {
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
@@ -122,32 +97,24 @@ public class AppDataUsagePreferenceControllerTest {
 
     @Test
     public void onDataLoaded_dataNotLoaded_hasNoPreference() {
-        mPreferenceController.onDataLoaded(null, new int[0]);
+        mPreferenceController.onDataLoaded(null);
 
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
     }
 
     @Test
     public void onDataLoaded_statsSizeZero_hasNoPreference() {
-        mPreferenceController.onDataLoaded(mock(NetworkStats.class), new int[0]);
+        mPreferenceController.onDataLoaded(newBuilder().build());
 
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
     }
 
-    private NetworkStats.Bucket getMockBucket(int uid, long rxBytes, long txBytes) {
-        NetworkStats.Bucket ret = mock(NetworkStats.Bucket.class);
-        when(ret.getUid()).thenReturn(uid);
-        when(ret.getRxBytes()).thenReturn(rxBytes);
-        when(ret.getTxBytes()).thenReturn(txBytes);
-        return ret;
-    }
-
     @Test
     public void onDataLoaded_statsLoaded_hasTwoPreference() {
-        mPreferenceController.addBucket(getMockBucket(0, 100, 0));
-        mPreferenceController.addBucket(getMockBucket(UID_TETHERING, 200, 0));
-
-        mPreferenceController.onDataLoaded(mock(NetworkStats.class), new int[0]);
+        mPreferenceController.onDataLoaded(newBuilder()
+                .add(/* uid= */ 0, /* bytes= */ 100)
+                .add(UID_TETHERING, /* bytes= */ 200)
+                .build());
 
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(2);
     }
@@ -156,10 +123,11 @@ public class AppDataUsagePreferenceControllerTest {
     public void onDataLoaded_statsLoaded_hasOnePreference() {
         when(mMockUidDetailProvider.getUidDetail(anyInt(), anyBoolean()))
                 .thenReturn(mMockUidDetail);
-        mPreferenceController.addBucket(getMockBucket(0, 100, 0));
-        mPreferenceController.addBucket(getMockBucket(UID_TETHERING, 200, 0));
 
-        mPreferenceController.onDataLoaded(mock(NetworkStats.class), new int[0]);
+        mPreferenceController.onDataLoaded(newBuilder()
+                .add(/* uid= */ 0, /* bytes= */ 100)
+                .add(UID_TETHERING, /* bytes= */ 200)
+                .build());
 
         ProgressBarPreference preference1 =
                 (ProgressBarPreference) mPreferenceGroup.getPreference(0);
@@ -169,4 +137,85 @@ public class AppDataUsagePreferenceControllerTest {
         assertThat(preference1.getProgress()).isEqualTo(100);
         assertThat(preference2.getProgress()).isEqualTo(50);
     }
+
+    @Test
+    public void onDataLoaded_reloaded_updatesPreferencesInPlace() {
+        when(mMockUidDetailProvider.getUidDetail(anyInt(), anyBoolean()))
+                .thenReturn(mMockUidDetail);
+        mPreferenceController.onDataLoaded(newBuilder()
+                .add(/* uid= */ 0, /* bytes= */ 100)
+                .add(UID_TETHERING, /* bytes= */ 200)
+                .build());
+        Preference systemPreference = mPreferenceGroup.findPreference("0");
+
+        mPreferenceController.onDataLoaded(newBuilder()
+                .add(/* uid= */ 0, /* bytes= */ 400)
+                .build());
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mPreferenceGroup.getPreference(0)).isSameInstanceAs(systemPreference);
+        assertThat(((ProgressBarPreference) systemPreference).getProgress()).isEqualTo(100);
+    }
+
+    @Test
+    public void onDataLoaded_moreThanPageSize_showsPageAndShowMore() {
+        mPreferenceController.onDataLoaded(newBuilderWithApps(PAGE_SIZE + 5).build());
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(PAGE_SIZE + 1);
+        Preference showMore = mPreferenceGroup.findPreference(SHOW_MORE_KEY);
+        assertThat(showMore).isInstanceOf(CarUiPreference.class);
+        assertThat(showMore.getOrder()).isEqualTo(PAGE_SIZE);
+    }
+
+    @Test
+    public void showMoreClicked_showsNextPage() {
+        mPreferenceController.onDataLoaded(newBuilderWithApps(PAGE_SIZE + 5).build());
+
+        Preference showMore = mPreferenceGroup.findPreference(SHOW_MORE_KEY);
+        showMore.getOnPreferenceClickListener().onPreferenceClick(showMore);
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(PAGE_SIZE + 5);
+        assertThat((Preference) mPreferenceGroup.findPreference(SHOW_MORE_KEY)).isNull();
+    }
+
+    @Test
+    public void showMoreClicked_sameCycleReloaded_keepsPages() {
+        mPreferenceController.onDataLoaded(newBuilderWithApps(PAGE_SIZE + 5)
+                .setRange(/* start= */ 1000L, /* end= */ 2000L).build());
+        Preference showMore = mPreferenceGroup.findPreference(SHOW_MORE_KEY);
+        showMore.getOnPreferenceClickListener().onPreferenceClick(showMore);
+
+        mPreferenceController.onDataLoaded(newBuilderWithApps(PAGE_SIZE + 5)
+                .setRange(/* start= */ 1000L, /* end= */ 2000L).build());
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(PAGE_SIZE + 5);
+    }
+
+    @Test
+    public void showMoreClicked_otherCycleLoaded_showsFirstPage() {
+        mPreferenceController.onDataLoaded(newBuilderWithApps(PAGE_SIZE + 5)
+                .setRange(/* start= */ 1000L, /* end= */ 2000L).build());
+        Preference showMore = mPreferenceGroup.findPreference(SHOW_MORE_KEY);
+        showMore.getOnPreferenceClickListener().onPreferenceClick(showMore);
+
+        mPreferenceController.onDataLoaded(newBuilderWithApps(PAGE_SIZE + 5)
+                .setRange(/* start= */ 2000L, /* end= */ 3000L).build());
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(PAGE_SIZE + 1);
+        assertThat((Preference) mPreferenceGroup.findPreference(SHOW_MORE_KEY)).isNotNull();
+    }
+
+    private static AppDataUsageSummary.Builder newBuilder() {
+        return new AppDataUsageSummary.Builder(new int[]{UserHandle.myUserId()},
+                UserHandle.myUserId());
+    }
+
+    private static AppDataUsageSummary.Builder newBuilderWithApps(int count) {
+        AppDataUsageSummary.Builder builder = newBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.add(UserHandle.getUid(UserHandle.myUserId(), Process.FIRST_APPLICATION_UID + i),
+                    /* bytes= */ i + 1);
+        }
+        return builder;
+    }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class AppDataUsageSummaryTest {
+    private static final String TAG = "AppDataUsageSummaryTest";
+    private static final int CURRENT_USER_ID = 10;
+    private static final int MANAGED_USER_ID = 11;
+    private static final int REMOVED_USER_ID = 12;
+
+    private final AppDataUsageSummary.Builder mBuilder = new AppDataUsageSummary.Builder(
+            new int[]{CURRENT_USER_ID, MANAGED_USER_ID}, CURRENT_USER_ID);
+
+    @Test
+    public void build_sameUid_accumulatesUsage() {
+        int uid = UserHandle.getUid(CURRENT_USER_ID, Process.FIRST_APPLICATION_UID);
+
+        AppDataUsageSummary summary = mBuilder.add(uid, 100).add(uid, 50).build();
+
+        assertThat(summary.getItems()).hasSize(1);
+        assertThat(summary.getItems().get(0).key).isEqualTo(uid);
+        assertThat(summary.getItems().get(0).total).isEqualTo(150);
+        assertThat(summary.getLargest()).isEqualTo(150);
+    }
+
+    @Test
+    public void build_systemUids_collapsedIntoSystem() {
+        AppDataUsageSummary summary = mBuilder
+                .add(Process.ROOT_UID, 100)
+                .add(Process.PHONE_UID, 50)
+                .add(UID_TETHERING, 10)
+                .build();
+
+        assertThat(getItem(summary, Process.SYSTEM_UID).total).isEqualTo(150);
+        assertThat(getItem(summary, UID_TETHERING).total).isEqualTo(10);
+    }
+
+    @Test
+    public void build_managedProfileApp_addedToAppAndUser() {
+        int uid = UserHandle.getUid(MANAGED_USER_ID, Process.FIRST_APPLICATION_UID);
+
+        AppDataUsageSummary summary = mBuilder.add(uid, 100).build();
+
+        AppItem userItem = getItem(summary, UidDetailProvider.buildKeyForUser(MANAGED_USER_ID));
+        assertThat(userItem.category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(userItem.total).isEqualTo(100);
+        assertThat(userItem.uids.get(uid)).isTrue();
+        assertThat(getItem(summary, uid).total).isEqualTo(100);
+    }
+
+    @Test
+    public void build_removedUserApp_collapsedIntoRemoved() {
+        int uid = UserHandle.getUid(REMOVED_USER_ID, Process.FIRST_APPLICATION_UID);
+
+        AppDataUsageSummary summary = mBuilder.add(uid, 100).build();
+
+        assertThat(summary.getItems()).hasSize(1);
+        assertThat(getItem(summary, UID_REMOVED).total).isEqualTo(100);
+    }
+
+    @Test
+    public void setRestricted_unknownItem_addsItemWithoutUsage() {
+        AppDataUsageSummary summary = mBuilder.setRestricted(new int[]{CURRENT_USER_ID}).build();
+
+        AppItem item = getItem(summary, CURRENT_USER_ID);
+        assertThat(item.restricted).isTrue();
+        assertThat(item.total).isEqualTo(-1);
+        assertThat(summary.getLargest()).isEqualTo(0);
+    }
+
+    @Test
+    public void build_sortsByCategoryThenUsage() {
+        int uid1 = UserHandle.getUid(CURRENT_USER_ID, Process.FIRST_APPLICATION_UID);
+        int uid2 = UserHandle.getUid(CURRENT_USER_ID, Process.FIRST_APPLICATION_UID + 1);
+        int managedUid = UserHandle.getUid(MANAGED_USER_ID, Process.FIRST_APPLICATION_UID);
+
+        List<AppItem> items = mBuilder
+                .add(uid1, 10)
+                .add(uid2, 30)
+                .add(managedUid, 20)
+                .build()
+                .getItems();
+
+        assertThat(items.get(0).category).isEqualTo(AppItem.CATEGORY_USER);
+        for (int i = 2; i < items.size(); i++) {
+            assertThat(items.get(i - 1).total).isAtLeast(items.get(i).total);
+        }
+    }
+
+    /** Aggregates 20,000 buckets of 2,000 uids over two profiles and logs how long it took. */
+    @Test
+    public void build_manyBuckets_logsDuration() {
+        int uidCount = 2000;
+        int bucketsPerUid = 10;
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < bucketsPerUid; i++) {
+            for (int j = 0; j < uidCount; j++) {
+                int userId = j % 2 == 0 ? CURRENT_USER_ID : MANAGED_USER_ID;
+                mBuilder.add(UserHandle.getUid(userId, Process.FIRST_APPLICATION_UID + j), j);
+            }
+        }
+        AppDataUsageSummary summary = mBuilder.build();
+        long durationUs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000;
+
+        Log.i(TAG, "Aggregated " + uidCount * bucketsPerUid + " buckets into "
+                + summary.getItems().size() + " items in " + durationUs + "us");
+        // One item per uid, plus the managed user.
+        assertThat(summary.getItems()).hasSize(uidCount + 1);
+    }
+
+    @Test
+    public void getTopItems_sameOrderAsAllItems() {
+        for (int i = 0; i < 100; i++) {
+            // Many items with the same usage, which keep the order in which they were added.
+            mBuilder.add(UserHandle.getUid(CURRENT_USER_ID, Process.FIRST_APPLICATION_UID + i),
+                    (i * 7) % 13);
+        }
+        mBuilder.add(UserHandle.getUid(MANAGED_USER_ID, Process.FIRST_APPLICATION_UID), 1);
+        AppDataUsageSummary summary = mBuilder.build();
+
+        List<AppItem> items = summary.getItems();
+        List<AppItem> topItems = summary.getTopItems(10);
+
+        assertThat(topItems).hasSize(10);
+        for (int i = 0; i < topItems.size(); i++) {
+            assertThat(topItems.get(i).key).isEqualTo(items.get(i).key);
+            assertThat(topItems.get(i).total).isEqualTo(items.get(i).total);
+            assertThat(topItems.get(i).uids.size()).isEqualTo(items.get(i).uids.size());
+        }
+    }
+
+    @Test
+    public void getTopItems_moreThanItemCount_returnsAllItems() {
+        AppDataUsageSummary summary = mBuilder.add(Process.SYSTEM_UID, 100).build();
+
+        assertThat(summary.getItemCount()).isEqualTo(1);
+        assertThat(summary.getTopItems(20)).hasSize(1);
+    }
+
+    /** Ranks 2,000 uids, logging how long the top page and the full sort take. */
+    @Test
+    public void getTopItems_manyUids_logsDuration() {
+        int uidCount = 2000;
+        int pageSize = AppDataUsagePreferenceController.PAGE_SIZE;
+        for (int i = 0; i < uidCount; i++) {
+            mBuilder.add(UserHandle.getUid(CURRENT_USER_ID, Process.FIRST_APPLICATION_UID + i),
+                    (i * 7919L) % uidCount);
+        }
+        AppDataUsageSummary summary = mBuilder.build();
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        List<AppItem> topItems = summary.getTopItems(pageSize);
+        long topDurationUs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000;
+        startNanos = SystemClock.elapsedRealtimeNanos();
+        List<AppItem> items = summary.getItems();
+        long allDurationUs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000;
+
+        Log.i(TAG, "Ranked top " + pageSize + " of " + uidCount + " uids in " + topDurationUs
+                + "us, all of them in " + allDurationUs + "us");
+        assertThat(topItems).hasSize(pageSize);
+        assertThat(topItems.get(0).total).isEqualTo(uidCount - 1);
+        assertThat(topItems.get(pageSize - 1).key).isEqualTo(items.get(pageSize - 1).key);
+    }
+
+    private static AppItem getItem(AppDataUsageSummary summary, int key) {
+        for (AppItem item : summary.getItems()) {
+            if (item.key == key) {
+                return item;
+            }
+        }
+        throw new AssertionError("No item for " + key);
+    }
+}
@@ -19,12 +19,10 @@ package com.android.car.settings.datausage;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import android.app.usage.NetworkStats;
 import android.app.usage.NetworkStatsManager;
 import android.content.Context;
 import android.net.NetworkPolicyManager;
@@ -49,7 +47,8 @@ public class AppsNetworkStatsManagerTest {
     private AppsNetworkStatsManager mAppsNetworkStatsManager;
 
     @Captor
-    private ArgumentCaptor<LoaderManager.LoaderCallbacks<NetworkStats>> mCallbacksArgumentCaptor;
+    private ArgumentCaptor<LoaderManager.LoaderCallbacks<AppDataUsageSummary>>
+            mCallbacksArgumentCaptor;
     @Mock
     private AppsNetworkStatsManager.Callback mCallback1;
     @Mock
@@ -80,12 +79,12 @@ public class AppsNetworkStatsManagerTest {
         mAppsNetworkStatsManager.registerListener(mCallback1);
         mAppsNetworkStatsManager.registerListener(mCallback2);
 
-        NetworkStats networkStats = mock(NetworkStats.class);
+        AppDataUsageSummary summary = AppDataUsageSummary.EMPTY;
 
-        mCallbacksArgumentCaptor.getValue().onLoadFinished(null, networkStats);
+        mCallbacksArgumentCaptor.getValue().onLoadFinished(null, summary);
 
-        verify(mCallback1).onDataLoaded(eq(networkStats), any());
-        verify(mCallback2).onDataLoaded(eq(networkStats), any());
+        verify(mCallback1).onDataLoaded(summary);
+        verify(mCallback2).onDataLoaded(summary);
     }
 
     @Test
@@ -94,12 +93,12 @@ public class AppsNetworkStatsManagerTest {
         mAppsNetworkStatsManager.registerListener(mCallback2);
         mAppsNetworkStatsManager.unregisterListener(mCallback2);
 
-        NetworkStats networkStats = mock(NetworkStats.class);
+        AppDataUsageSummary summary = AppDataUsageSummary.EMPTY;
 
-        mCallbacksArgumentCaptor.getValue().onLoadFinished(null, networkStats);
+        mCallbacksArgumentCaptor.getValue().onLoadFinished(null, summary);
 
-        verify(mCallback1).onDataLoaded(eq(networkStats), any());
-        verify(mCallback2, never()).onDataLoaded(eq(networkStats), any());
+        verify(mCallback1).onDataLoaded(summary);
+        verify(mCallback2, never()).onDataLoaded(summary);
     }
 
     @Test
@@ -108,7 +107,7 @@ public class AppsNetworkStatsManagerTest {
         mAppsNetworkStatsManager.registerListener(mCallback2);
         mAppsNetworkStatsManager.unregisterListener(mCallback2);
 
-        verify(mCallback1, never()).onDataLoaded(any(), any());
-        verify(mCallback2, never()).onDataLoaded(any(), any());
+        verify(mCallback1, never()).onDataLoaded(any());
+        verify(mCallback2, never()).onDataLoaded(any());
     }
 }
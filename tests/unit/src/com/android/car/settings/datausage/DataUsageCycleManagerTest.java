@@ -19,6 +19,9 @@ package com.android.car.settings.datausage;
 import static com.android.car.settings.datausage.DataUsageCycleManager.NETWORK_CYCLE_LOADER_ID;
 
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -63,6 +66,7 @@ public class DataUsageCycleManagerTest {
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
+        DataUsageCycleManager.clearCache();
 
         mDataUsageCycleManager = new DataUsageCycleManager(mContext, mNetworkTemplate);
         mDataUsageCycleManager.startLoading(mLoaderManager);
@@ -109,4 +113,30 @@ public class DataUsageCycleManagerTest {
         verify(mCallback1, never()).onDataLoaded(dataList);
         verify(mCallback2, never()).onDataLoaded(dataList);
     }
+
+    @Test
+    public void startLoading_recentlyLoaded_listenerOnDataLoadedCalledFromCache() {
+        List<NetworkCycleChartData> dataList = new ArrayList<>();
+        mCallbacksArgumentCaptor.getValue().onLoadFinished(null, dataList);
+        LoaderManager loaderManager = mock(LoaderManager.class);
+
+        DataUsageCycleManager dataUsageCycleManager =
+                new DataUsageCycleManager(mContext, mNetworkTemplate);
+        dataUsageCycleManager.registerListener(mCallback1);
+        dataUsageCycleManager.startLoading(loaderManager);
+
+        verify(mCallback1).onDataLoaded(dataList);
+        verify(loaderManager, never()).restartLoader(anyInt(), any(), any());
+    }
+
+    @Test
+    public void startLoading_cacheCleared_restartsLoader() {
+        mCallbacksArgumentCaptor.getValue().onLoadFinished(null, new ArrayList<>());
+        DataUsageCycleManager.clearCache();
+        LoaderManager loaderManager = mock(LoaderManager.class);
+
+        new DataUsageCycleManager(mContext, mNetworkTemplate).startLoading(loaderManager);
+
+        verify(loaderManager).restartLoader(eq(NETWORK_CYCLE_LOADER_ID), eq(null), any());
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.net.NetworkPolicyManager;
+import android.net.NetworkTemplate;
+import android.os.UserHandle;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.AppItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class SummaryForAllUidLoaderTest {
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    @Mock
+    private NetworkStatsManager mNetworkStatsManager;
+    @Mock
+    private NetworkPolicyManager mNetworkPolicyManager;
+    @Mock
+    private NetworkTemplate mNetworkTemplate;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mNetworkTemplate.getSubscriberIds()).thenReturn(Collections.emptySet());
+    }
+
+    @Test
+    public void loadInBackground_noStats_returnsRestrictedApps() throws Exception {
+        when(mNetworkStatsManager.querySummary(anyInt(), any(), anyLong(), anyLong()))
+                .thenReturn(null);
+        when(mNetworkPolicyManager.getUidsWithPolicy(POLICY_REJECT_METERED_BACKGROUND))
+                .thenReturn(new int[]{UserHandle.myUserId()});
+        // A cycle which only starts now, so that no usage is cached for it.
+        long start = System.currentTimeMillis();
+        SummaryForAllUidLoader loader = new SummaryForAllUidLoader(mContext,
+                mNetworkStatsManager, mNetworkPolicyManager, SummaryForAllUidLoader.buildArgs(
+                        mNetworkTemplate, start, start + TimeUnit.DAYS.toMillis(1)));
+
+        AppDataUsageSummary summary = loader.loadInBackground();
+
+        assertThat(summary.getItemCount()).isEqualTo(1);
+        AppItem item = summary.getItems().get(0);
+        assertThat(item.key).isEqualTo(UserHandle.myUserId());
+        assertThat(item.restricted).isTrue();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+
+import static com.android.car.settings.datausage.UidDataUsageCache.SETTLE_DURATION_MS;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.SparseLongArray;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class UidDataUsageCacheTest {
+    private static final String SUBSCRIBER_ID = "subscriber";
+    private static final int UID_1 = 10100;
+    private static final int UID_2 = 10101;
+    // Usage of each uid per millisecond.
+    private static final long RATE_1 = 3;
+    private static final long RATE_2 = 5;
+    private static final long BUCKET_DURATION_MS = TimeUnit.HOURS.toMillis(2);
+
+    private static final long CYCLE_START = 1000 * BUCKET_DURATION_MS;
+    private static final long CYCLE_END = CYCLE_START + 100 * BUCKET_DURATION_MS;
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private final FakeUsageSource mSource = new FakeUsageSource();
+    private File mDirectory;
+    private UidDataUsageCache mCache;
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mPackageManager.getPackagesForUid(anyInt())).thenReturn(new String[]{"package"});
+        mDirectory = new File(mContext.getCacheDir(), "uid_data_usage_test");
+        mCache = new UidDataUsageCache(mDirectory, mPackageManager);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void getUsage_completedCycle_queriedOnce() {
+        long now = CYCLE_END + SETTLE_DURATION_MS;
+
+        SparseLongArray first = getUsage(now);
+        SparseLongArray second = getUsage(now + BUCKET_DURATION_MS);
+
+        assertUsage(first, CYCLE_START, CYCLE_END);
+        assertUsage(second, CYCLE_START, CYCLE_END);
+        assertThat(mSource.mRanges).containsExactly(range(CYCLE_START, CYCLE_END));
+    }
+
+    @Test
+    public void getUsage_completedCycle_servedFromDiskAfterRestart() {
+        long now = CYCLE_END + SETTLE_DURATION_MS;
+        getUsage(now);
+        mSource.mRanges.clear();
+
+        mCache = new UidDataUsageCache(mDirectory, mPackageManager);
+        SparseLongArray usage = getUsage(now);
+
+        assertUsage(usage, CYCLE_START, CYCLE_END);
+        assertThat(mSource.mRanges).isEmpty();
+    }
+
+    @Test
+    public void getUsage_openCycle_onlyQueriesSinceLastSnapshot() {
+        long settled = CYCLE_START + 10 * BUCKET_DURATION_MS;
+        long now = settled + SETTLE_DURATION_MS;
+        getUsage(now);
+        mSource.mRanges.clear();
+
+        long laterSettled = settled + 3 * BUCKET_DURATION_MS;
+        SparseLongArray usage = getUsage(laterSettled + SETTLE_DURATION_MS);
+
+        assertUsage(usage, CYCLE_START, CYCLE_END);
+        assertThat(mSource.mRanges).containsExactly(range(settled, laterSettled),
+                range(laterSettled, CYCLE_END)).inOrder();
+    }
+
+    @Test
+    public void getUsage_cycleNotSettled_notCached() {
+        long now = CYCLE_START + SETTLE_DURATION_MS;
+
+        getUsage(now);
+        getUsage(now);
+
+        assertThat(mSource.mRanges).containsExactly(range(CYCLE_START, CYCLE_END),
+                range(CYCLE_START, CYCLE_END));
+    }
+
+    @Test
+    public void getUsage_queryFails_returnsNullAndDoesNotCache() {
+        long now = CYCLE_END + SETTLE_DURATION_MS;
+        mSource.mFail = true;
+
+        assertThat(getUsage(now)).isNull();
+
+        mSource.mFail = false;
+        mSource.mRanges.clear();
+        assertUsage(getUsage(now), CYCLE_START, CYCLE_END);
+        assertThat(mSource.mRanges).hasSize(1);
+    }
+
+    @Test
+    public void getUsage_otherSubscriber_notShared() {
+        long now = CYCLE_END + SETTLE_DURATION_MS;
+        getUsage(now);
+
+        mCache.getUsage("other", CYCLE_START, CYCLE_END, now, mSource);
+
+        assertThat(mSource.mRanges).hasSize(2);
+    }
+
+    @Test
+    public void getUsage_bucketDurationUnknown_notCached() {
+        long now = CYCLE_END + SETTLE_DURATION_MS;
+        mSource.mBucketDuration = 0;
+
+        getUsage(now);
+        getUsage(now);
+
+        assertThat(mSource.mRanges).containsExactly(range(CYCLE_START, CYCLE_END),
+                range(CYCLE_START, CYCLE_END));
+    }
+
+    @Test
+    public void getUsage_longerBuckets_cachedUntilTheirBoundary() {
+        long bucketDuration = TimeUnit.DAYS.toMillis(1);
+        mSource.mBucketDuration = bucketDuration;
+        long now = CYCLE_START + 50 * BUCKET_DURATION_MS;
+        long settled = (now - SETTLE_DURATION_MS) / bucketDuration * bucketDuration;
+
+        SparseLongArray usage = getUsage(now);
+        getUsage(now);
+
+        assertUsage(usage, CYCLE_START, CYCLE_END);
+        assertThat(mSource.mRanges).containsExactly(range(CYCLE_START, settled),
+                range(settled, CYCLE_END), range(settled, CYCLE_END)).inOrder();
+        assertThat(mSource.mBucketDurationQueryCount).isEqualTo(1);
+    }
+
+    @Test
+    public void onUidRemoved_usageMovedToRemovedUid() {
+        long now = CYCLE_END + SETTLE_DURATION_MS;
+        getUsage(now);
+        mSource.mRanges.clear();
+
+        mCache.onUidRemoved(UID_1);
+        SparseLongArray usage = getUsage(now);
+        mCache = new UidDataUsageCache(mDirectory, mPackageManager);
+        SparseLongArray usageAfterRestart = getUsage(now);
+
+        assertThat(mSource.mRanges).isEmpty();
+        for (SparseLongArray cached : List.of(usage, usageAfterRestart)) {
+            assertThat(cached.size()).isEqualTo(2);
+            assertThat(cached.indexOfKey(UID_1)).isLessThan(0);
+            assertThat(cached.get(UID_REMOVED)).isEqualTo((CYCLE_END - CYCLE_START) * RATE_1);
+            assertThat(cached.get(UID_2)).isEqualTo((CYCLE_END - CYCLE_START) * RATE_2);
+        }
+    }
+
+    @Test
+    public void getUsage_rangeEndingAboutNow_notCached() {
+        long now = CYCLE_END + BUCKET_DURATION_MS;
+
+        getUsage(now);
+        getUsage(now);
+
+        assertThat(mSource.mRanges).containsExactly(range(CYCLE_START, CYCLE_END),
+                range(CYCLE_START, CYCLE_END));
+        assertThat(mDirectory.listFiles()).isNull();
+    }
+
+    @Test
+    public void getUsage_appUninstalledWhileNotRunning_usageMovedToRemovedUid() {
+        long now = CYCLE_END + SETTLE_DURATION_MS;
+        getUsage(now);
+        mSource.mRanges.clear();
+
+        when(mPackageManager.getPackagesForUid(UID_1)).thenReturn(null);
+        mCache = new UidDataUsageCache(mDirectory, mPackageManager);
+        SparseLongArray usage = getUsage(now);
+
+        assertThat(mSource.mRanges).isEmpty();
+        assertThat(usage.size()).isEqualTo(2);
+        assertThat(usage.indexOfKey(UID_1)).isLessThan(0);
+        assertThat(usage.get(UID_REMOVED)).isEqualTo((CYCLE_END - CYCLE_START) * RATE_1);
+        assertThat(usage.get(UID_2)).isEqualTo((CYCLE_END - CYCLE_START) * RATE_2);
+    }
+
+    private SparseLongArray getUsage(long now) {
+        return mCache.getUsage(SUBSCRIBER_ID, CYCLE_START, CYCLE_END, now, mSource);
+    }
+
+    private static String range(long start, long end) {
+        return start + "-" + end;
+    }
+
+    private static void assertUsage(SparseLongArray usage, long start, long end) {
+        assertThat(usage.size()).isEqualTo(2);
+        assertThat(usage.get(UID_1)).isEqualTo((end - start) * RATE_1);
+        assertThat(usage.get(UID_2)).isEqualTo((end - start) * RATE_2);
+    }
+
+    private static final class FakeUsageSource implements UidDataUsageCache.UsageSource {
+        private final List<String> mRanges = new ArrayList<>();
+        private boolean mFail;
+        private long mBucketDuration = BUCKET_DURATION_MS;
+        private int mBucketDurationQueryCount;
+
+        @Override
+        public SparseLongArray query(long start, long end) {
+            if (mFail) {
+                return null;
+            }
+            mRanges.add(range(start, end));
+            SparseLongArray usage = new SparseLongArray();
+            usage.put(UID_1, (end - start) * RATE_1);
+            usage.put(UID_2, (end - start) * RATE_2);
+            return usage;
+        }
+
+        @Override
+        public long queryBucketDuration(long start, long end) {
+            mBucketDurationQueryCount++;
+            return mBucketDuration;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.util.SparseArray;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.net.UidDetail;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class UidDetailResolverTest {
+    private static final int UID_1 = 10100;
+    private static final int UID_2 = 10101;
+    private static final String LABEL_1 = "App 1";
+    private static final String LABEL_2 = "App 2";
+
+    private final List<SparseArray<UidDetail>> mResolved = new ArrayList<>();
+    private final UidDetail mDetail1 = new UidDetail();
+    private final UidDetail mDetail2 = new UidDetail();
+    private TestUidDetailResolver mResolver;
+
+    @Mock
+    private UidDetailProvider mMockUidDetailProvider;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mDetail1.label = LABEL_1;
+        mDetail2.label = LABEL_2;
+        when(mMockUidDetailProvider.getUidDetail(UID_1, /* blocking= */ true))
+                .thenReturn(mDetail1);
+        when(mMockUidDetailProvider.getUidDetail(UID_2, /* blocking= */ true))
+                .thenReturn(mDetail2);
+        mResolver = new TestUidDetailResolver(mMockUidDetailProvider);
+    }
+
+    @Test
+    public void resolve_duplicateUids_resolvedOnceInOneTask() {
+        mResolver.resolve(new int[]{UID_1, UID_2, UID_1}, mResolved::add);
+
+        assertThat(mResolver.mBackgroundTaskCount).isEqualTo(1);
+        assertThat(mResolver.mUiTaskCount).isEqualTo(1);
+        verify(mMockUidDetailProvider, times(1)).getUidDetail(UID_1, /* blocking= */ true);
+        verify(mMockUidDetailProvider, times(1)).getUidDetail(UID_2, /* blocking= */ true);
+        assertThat(mResolved).hasSize(1);
+        assertThat(mResolved.get(0).size()).isEqualTo(2);
+        assertThat(mResolved.get(0).get(UID_1).label.toString()).isEqualTo(LABEL_1);
+        assertThat(mResolved.get(0).get(UID_2).label.toString()).isEqualTo(LABEL_2);
+    }
+
+    @Test
+    public void resolve_noUids_noTask() {
+        mResolver.resolve(new int[0], mResolved::add);
+
+        assertThat(mResolver.mBackgroundTaskCount).isEqualTo(0);
+        assertThat(mResolved).isEmpty();
+    }
+
+    @Test
+    public void getCachedDetail_afterResolve_returnsDetailWithoutProvider() {
+        mResolver.resolve(new int[]{UID_1}, mResolved::add);
+
+        assertThat(mResolver.getCachedDetail(UID_1).label.toString()).isEqualTo(LABEL_1);
+        verify(mMockUidDetailProvider, never()).getUidDetail(anyInt(), eq(false));
+    }
+
+    @Test
+    public void resolve_alreadyResolved_notResolvedAgain() {
+        mResolver.resolve(new int[]{UID_1}, mResolved::add);
+        mResolver.resolve(new int[]{UID_1, UID_2}, mResolved::add);
+
+        verify(mMockUidDetailProvider, times(1)).getUidDetail(UID_1, /* blocking= */ true);
+        assertThat(mResolved.get(1).get(UID_1).label.toString()).isEqualTo(LABEL_1);
+    }
+
+    @Test
+    public void resolve_resolvedTwice_iconNotShared() {
+        mDetail1.icon = new ColorDrawable(Color.RED);
+
+        mResolver.resolve(new int[]{UID_1}, mResolved::add);
+        mResolver.resolve(new int[]{UID_1}, mResolved::add);
+
+        ColorDrawable icon1 = (ColorDrawable) mResolved.get(0).get(UID_1).icon;
+        ColorDrawable icon2 = (ColorDrawable) mResolved.get(1).get(UID_1).icon;
+        ColorDrawable cachedIcon = (ColorDrawable) mResolver.getCachedDetail(UID_1).icon;
+        assertThat(icon1).isNotSameInstanceAs(mDetail1.icon);
+        assertThat(icon1).isNotSameInstanceAs(icon2);
+        assertThat(cachedIcon).isNotSameInstanceAs(icon1);
+        assertThat(icon1.getColor()).isEqualTo(Color.RED);
+        assertThat(cachedIcon.getColor()).isEqualTo(Color.RED);
+    }
+
+    @Test
+    public void getCachedDetail_notResolved_returnsNull() {
+        assertThat(mResolver.getCachedDetail(UID_1)).isNull();
+    }
+
+    private static final class TestUidDetailResolver extends UidDetailResolver {
+        private int mBackgroundTaskCount;
+        private int mUiTaskCount;
+
+        TestUidDetailResolver(UidDetailProvider provider) {
+            super(provider);
+        }
+
+        @Override
+        void executeBackgroundTask(Runnable runnable) {
+            mBackgroundTaskCount++;
+            runnable.run();
+        }
+
+        @Override
+        void executeUiTask(Runnable runnable) {
+            mUiTaskCount++;
+            runnable.run();
+        }
+    }
+}
@@ -93,6 +93,7 @@ public class LocationRecentAccessViewAllPreferenceControllerTest {
                         mFragmentController,
                         carUxRestrictions,
                         mRecentLocationAccesses);
+        mPreferenceController.setExecutors(Runnable::run, Runnable::run);
         PreferenceControllerTestUtil.assignPreference(mPreferenceController, mPreference);
         doNothing().when(mContext).startActivity(any());
     }
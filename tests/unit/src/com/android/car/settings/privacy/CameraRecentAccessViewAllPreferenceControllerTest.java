@@ -86,6 +86,7 @@ public class CameraRecentAccessViewAllPreferenceControllerTest {
         mPreferenceController = new CameraRecentAccessViewAllPreferenceController(mContext,
                 "key", mFragmentController, carUxRestrictions,
                 mRecentCameraAccesses);
+        mPreferenceController.setExecutors(Runnable::run, Runnable::run);
         PreferenceControllerTestUtil.assignPreference(mPreferenceController, mPreference);
         doNothing().when(mContext).startActivity(any());
     }
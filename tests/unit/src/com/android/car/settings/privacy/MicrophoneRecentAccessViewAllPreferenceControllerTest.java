@@ -87,6 +87,7 @@ public class MicrophoneRecentAccessViewAllPreferenceControllerTest {
         mPreferenceController = new MicrophoneRecentAccessViewAllPreferenceController(mContext,
                 "key", mFragmentController, carUxRestrictions,
                 mRecentMicrophoneAccesses);
+        mPreferenceController.setExecutors(Runnable::run, Runnable::run);
         PreferenceControllerTestUtil.assignPreference(mPreferenceController, mPreference);
         doNothing().when(mContext).startActivity(any());
     }
@@ -16,26 +16,41 @@
 
 package com.android.car.settings.qc;
 
+import static android.car.media.CarAudioManager.AUDIO_FEATURE_VOLUME_GROUP_EVENTS;
+import static android.car.media.CarVolumeGroupEvent.EVENT_TYPE_ZONE_CONFIGURATION_CHANGED;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import android.car.feature.Flags;
 import android.car.media.CarAudioManager;
+import android.car.media.CarVolumeGroupEvent;
+import android.car.media.CarVolumeGroupEventCallback;
 import android.content.Context;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
 import com.android.car.settings.CarSettingsApplication;
+import com.android.dx.mockito.inline.extended.ExtendedMockito;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
-import org.mockito.MockitoAnnotations;
+import org.mockito.MockitoSession;
+import org.mockito.quality.Strictness;
+
+import java.util.Collections;
 
 @RunWith(AndroidJUnit4.class)
 public class MediaVolumeSliderWorkerTest {
@@ -45,6 +60,7 @@ public class MediaVolumeSliderWorkerTest {
 
     private final Context mContext = spy(ApplicationProvider.getApplicationContext());
     private MediaVolumeSliderWorker mWorker;
+    private MockitoSession mSession;
 
     @Mock
     private CarSettingsApplication mCarSettingsApplication;
@@ -53,16 +69,30 @@ public class MediaVolumeSliderWorkerTest {
 
     @Before
     public void setUp() {
-        MockitoAnnotations.initMocks(this);
+        mSession = ExtendedMockito.mockitoSession()
+                .initMocks(this)
+                .mockStatic(Flags.class)
+                .strictness(Strictness.LENIENT)
+                .startMocking();
+        when(Flags.carAudioDynamicDevices()).thenReturn(true);
 
         when(mContext.getApplicationContext()).thenReturn(mCarSettingsApplication);
         when(mCarSettingsApplication.getCarAudioManager()).thenReturn(mCarAudioManager);
         when(mCarSettingsApplication.getMyAudioZoneId()).thenReturn(TEST_ZONE_ID);
 
+        VolumeCallbackMultiplexer.getInstance().reset();
         mWorker = new MediaVolumeSliderWorker(mContext,
                 SettingsQCRegistry.MEDIA_VOLUME_SLIDER_URI);
     }
 
+    @After
+    public void tearDown() {
+        VolumeCallbackMultiplexer.getInstance().reset();
+        if (mSession != null) {
+            mSession.finishMocking();
+        }
+    }
+
     @Test
     public void onSubscribe_registerCarVolumeCallback() {
         mWorker.onQCItemSubscribe();
@@ -78,7 +108,75 @@ public class MediaVolumeSliderWorkerTest {
 
     @Test
     public void onGroupVolumeChanged_updateVolumeAndMute() {
+        mWorker.onQCItemSubscribe();
         mWorker.getVolumeChangeCallback().onGroupVolumeChanged(TEST_ZONE_ID, GROUP_ID, FLAGS);
         verify(mCarAudioManager).getVolumeGroupIdForUsage(eq(TEST_ZONE_ID), anyInt());
     }
+
+    @Test
+    public void onGroupVolumeChanged_repeated_cachesVolumeGroup() {
+        mWorker.onQCItemSubscribe();
+
+        for (int i = 0; i < 10; i++) {
+            mWorker.getVolumeChangeCallback().onGroupVolumeChanged(TEST_ZONE_ID, GROUP_ID, FLAGS);
+        }
+
+        verify(mCarAudioManager, times(1)).getVolumeGroupIdForUsage(eq(TEST_ZONE_ID), anyInt());
+    }
+
+    @Test
+    public void onSubscribe_multipleWorkers_registerCarVolumeCallbackOnce() {
+        CallVolumeSliderWorker callWorker = new CallVolumeSliderWorker(mContext,
+                SettingsQCRegistry.CALL_VOLUME_SLIDER_URI);
+
+        mWorker.onQCItemSubscribe();
+        callWorker.onQCItemSubscribe();
+        mWorker.onQCItemUnsubscribe();
+
+        verify(mCarAudioManager, times(1)).registerCarVolumeCallback(any());
+        verify(mCarAudioManager, never()).unregisterCarVolumeCallback(any());
+    }
+
+    @Test
+    public void onSubscribe_carServiceNotConnected_registersOnceConnected() {
+        when(mCarSettingsApplication.getCarAudioManager()).thenReturn(null);
+        mWorker.onQCItemSubscribe();
+        ArgumentCaptor<CarSettingsApplication.OnZoneInfoChangedListener> captor =
+                ArgumentCaptor.forClass(CarSettingsApplication.OnZoneInfoChangedListener.class);
+        verify(mCarSettingsApplication).addOnZoneInfoChangedListener(captor.capture());
+        verify(mCarAudioManager, never()).registerCarVolumeCallback(any());
+
+        when(mCarSettingsApplication.getCarAudioManager()).thenReturn(mCarAudioManager);
+        captor.getValue().onZoneInfoChanged();
+
+        verify(mCarAudioManager).registerCarVolumeCallback(any());
+    }
+
+    @Test
+    public void onZoneConfigurationChanged_clearsCachedVolumeGroup() {
+        when(mCarAudioManager.isAudioFeatureEnabled(AUDIO_FEATURE_VOLUME_GROUP_EVENTS))
+                .thenReturn(true);
+        mWorker.onQCItemSubscribe();
+        ArgumentCaptor<CarVolumeGroupEventCallback> captor =
+                ArgumentCaptor.forClass(CarVolumeGroupEventCallback.class);
+        verify(mCarAudioManager).registerCarVolumeGroupEventCallback(any(), captor.capture());
+        mWorker.getVolumeChangeCallback().onGroupVolumeChanged(TEST_ZONE_ID, GROUP_ID, FLAGS);
+
+        CarVolumeGroupEvent event = mock(CarVolumeGroupEvent.class);
+        when(event.getEventTypes()).thenReturn(EVENT_TYPE_ZONE_CONFIGURATION_CHANGED);
+        captor.getValue().onVolumeGroupEvent(Collections.singletonList(event));
+        mWorker.getVolumeChangeCallback().onGroupVolumeChanged(TEST_ZONE_ID, GROUP_ID, FLAGS);
+
+        verify(mCarAudioManager, times(2)).getVolumeGroupIdForUsage(eq(TEST_ZONE_ID), anyInt());
+    }
+
+    @Test
+    public void onUnsubscribe_volumeGroupEventsRegistered_unregistersVolumeGroupEventCallback() {
+        when(mCarAudioManager.isAudioFeatureEnabled(AUDIO_FEATURE_VOLUME_GROUP_EVENTS))
+                .thenReturn(true);
+        mWorker.onQCItemSubscribe();
+        mWorker.onQCItemUnsubscribe();
+
+        verify(mCarAudioManager).unregisterCarVolumeGroupEventCallback(any());
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+import static android.content.ContentResolver.NOTIFY_NO_DELAY;
+import static android.content.ContentResolver.NOTIFY_SYNC_TO_NETWORK;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class QCNotifyBatcherTest {
+    private static final Uri BRIGHTNESS_URI = SettingsQCRegistry.BRIGHTNESS_SLIDER_URI;
+    private static final Uri THEME_URI = SettingsQCRegistry.THEME_TOGGLE_URI;
+    private static final Uri VOLUME_URI = SettingsQCRegistry.MEDIA_VOLUME_SLIDER_URI;
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private final List<Collection<Uri>> mDispatched = new ArrayList<>();
+    private final QCNotifyBatcher mBatcher = new QCNotifyBatcher(
+            (context, uris, flags) -> mDispatched.add(new ArrayList<>(uris)));
+
+    @Test
+    public void add_firstUri_requestsFlush() {
+        assertThat(mBatcher.add(mContext, BRIGHTNESS_URI, NOTIFY_SYNC_TO_NETWORK)).isTrue();
+        assertThat(mBatcher.add(mContext, THEME_URI, NOTIFY_SYNC_TO_NETWORK)).isFalse();
+    }
+
+    @Test
+    public void flush_sameFlags_sendsOneCall() {
+        mBatcher.add(mContext, BRIGHTNESS_URI, NOTIFY_SYNC_TO_NETWORK);
+        mBatcher.add(mContext, THEME_URI, NOTIFY_SYNC_TO_NETWORK);
+        mBatcher.add(mContext, VOLUME_URI, NOTIFY_SYNC_TO_NETWORK);
+
+        mBatcher.flush();
+
+        assertThat(mDispatched).hasSize(1);
+        assertThat(mDispatched.get(0)).containsExactly(BRIGHTNESS_URI, THEME_URI, VOLUME_URI);
+    }
+
+    @Test
+    public void flush_differentFlags_sendsOneCallPerFlags() {
+        mBatcher.add(mContext, BRIGHTNESS_URI, NOTIFY_SYNC_TO_NETWORK);
+        mBatcher.add(mContext, THEME_URI, NOTIFY_NO_DELAY);
+
+        mBatcher.flush();
+
+        assertThat(mDispatched).hasSize(2);
+    }
+
+    @Test
+    public void add_sameUriTwice_isNotifiedOnce() {
+        mBatcher.add(mContext, VOLUME_URI, NOTIFY_SYNC_TO_NETWORK);
+        mBatcher.add(mContext, VOLUME_URI, NOTIFY_SYNC_TO_NETWORK);
+
+        mBatcher.flush();
+
+        assertThat(mDispatched.get(0)).containsExactly(VOLUME_URI);
+    }
+
+    @Test
+    public void remove_pendingUri_isNotNotified() {
+        mBatcher.add(mContext, BRIGHTNESS_URI, NOTIFY_SYNC_TO_NETWORK);
+        mBatcher.add(mContext, THEME_URI, NOTIFY_SYNC_TO_NETWORK);
+
+        mBatcher.remove(THEME_URI);
+        mBatcher.flush();
+
+        assertThat(mDispatched.get(0)).containsExactly(BRIGHTNESS_URI);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.qc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.Uri;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class QCUpdateThrottlerTest {
+    private static final Uri URI = QCTestUtils.URI;
+    // A change every 10ms for 2 seconds, starting right after subscribing.
+    private static final long BURST_INTERVAL_MS = 10;
+    private static final long BURST_DURATION_MS = 2000;
+
+    private final QCUpdateThrottler mThrottler = new QCUpdateThrottler();
+
+    @Test
+    public void defaultPolicy_burst_notifiesEveryInterval() {
+        int notifies = runBurst(QCThrottlePolicy.DEFAULT);
+
+        // At 300, 600, ..., 2100ms.
+        assertThat(notifies).isEqualTo(7);
+    }
+
+    @Test
+    public void trailingPolicy_burst_coalescesUpToMaxWait() {
+        int notifies = runBurst(QCThrottlePolicy.trailing(/* quietPeriodMs= */ 500,
+                /* maxWaitMs= */ 1500));
+
+        // Once when the max wait expires at 1500ms, then once the burst has settled.
+        assertThat(notifies).isEqualTo(2);
+    }
+
+    @Test
+    public void leadingEdgePolicy_burst_notifiesMoreOftenThanDefault() {
+        int leadingNotifies = runBurst(QCThrottlePolicy.leadingEdge(100));
+
+        assertThat(leadingNotifies).isGreaterThan(runBurst(QCThrottlePolicy.DEFAULT));
+    }
+
+    @Test
+    public void leadingEdgePolicy_changeAfterInterval_notifiesImmediately() {
+        QCThrottlePolicy policy = QCThrottlePolicy.leadingEdge(100);
+        mThrottler.onNotify(URI, mThrottler.onChange(URI, policy, /* now= */ 0),
+                /* contentKey= */ null);
+
+        assertThat(mThrottler.onChange(URI, policy, /* now= */ 450)).isEqualTo(450);
+        assertThat(mThrottler.onChange(URI, QCThrottlePolicy.DEFAULT, /* now= */ 450))
+                .isEqualTo(600);
+    }
+
+    @Test
+    public void firstChange_isPostponed() {
+        assertThat(mThrottler.onChange(URI, QCThrottlePolicy.leadingEdge(100), /* now= */ 1000))
+                .isEqualTo(1000 + QCThrottlePolicy.DEFAULT_INTERVAL_MS);
+    }
+
+    @Test
+    public void withMinInterval_capsRate() {
+        QCThrottlePolicy policy = QCThrottlePolicy.trailing(/* quietPeriodMs= */ 50,
+                /* maxWaitMs= */ 100).withMinInterval(1000);
+        mThrottler.onNotify(URI, /* now= */ 1000, /* contentKey= */ null);
+
+        assertThat(mThrottler.onChange(URI, policy, /* now= */ 1200)).isEqualTo(2000);
+    }
+
+    @Test
+    public void onNotify_sameContentKey_isSuppressed() {
+        assertThat(mThrottler.onNotify(URI, /* now= */ 300, "volume=5")).isTrue();
+        assertThat(mThrottler.onNotify(URI, /* now= */ 600, "volume=5")).isFalse();
+        assertThat(mThrottler.onNotify(URI, /* now= */ 900, "volume=6")).isTrue();
+
+        assertThat(mThrottler.getNotifyCount(URI)).isEqualTo(2);
+        assertThat(mThrottler.getSuppressedCount(URI)).isEqualTo(1);
+    }
+
+    @Test
+    public void onNotify_burstWithUnchangedContent_notifiesOnce() {
+        QCThrottlePolicy policy = QCThrottlePolicy.leadingEdge(100);
+        long now = 0;
+        for (int i = 0; i < 20; i++) {
+            now = mThrottler.onChange(URI, policy, now);
+            mThrottler.onNotify(URI, now, "volume=5");
+        }
+
+        assertThat(mThrottler.getNotifyCount(URI)).isEqualTo(1);
+    }
+
+    @Test
+    public void reset_treatsNextChangeAsFirst() {
+        mThrottler.onNotify(URI, /* now= */ 300, "volume=5");
+
+        mThrottler.reset(URI);
+
+        assertThat(mThrottler.onChange(URI, QCThrottlePolicy.DEFAULT, /* now= */ 5000))
+                .isEqualTo(5000 + QCThrottlePolicy.DEFAULT_INTERVAL_MS);
+        assertThat(mThrottler.onNotify(URI, /* now= */ 5300, "volume=5")).isTrue();
+    }
+
+    /**
+     * Feeds a burst of changes to a fresh throttler the way {@code NotifyQCItemChangeHandler}
+     * does, with a fake clock, and returns the number of notifications.
+     */
+    private static int runBurst(QCThrottlePolicy policy) {
+        QCUpdateThrottler throttler = new QCUpdateThrottler();
+        long pendingTime = -1;
+        for (long now = 0; now < BURST_DURATION_MS; now += BURST_INTERVAL_MS) {
+            if (pendingTime >= 0 && pendingTime <= now) {
+                throttler.onNotify(URI, pendingTime, /* contentKey= */ null);
+                pendingTime = -1;
+            }
+            if (pendingTime >= 0 && !policy.isCoalescing()) {
+                continue;
+            }
+            pendingTime = throttler.onChange(URI, policy, now);
+        }
+        if (pendingTime >= 0) {
+            throttler.onNotify(URI, pendingTime, /* contentKey= */ null);
+        }
+        return throttler.getNotifyCount(URI);
+    }
+}
@@ -27,6 +27,7 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.platform.app.InstrumentationRegistry;
 
+import com.android.car.qc.QCItem;
 import com.android.dx.mockito.inline.extended.ExtendedMockito;
 
 import org.junit.Before;
@@ -44,6 +45,7 @@ public class SettingsQCProviderTest {
     public void setUp() {
         SettingsQCRegistry.sUriToQC.clear();
         SettingsQCRegistry.sUriToQC.put(QCTestUtils.URI, TestSettingsQCItem.class);
+        QCItemSnapshotCache.reset();
         mProvider = new SettingsQCProvider();
         ExtendedMockito.spyOn(mProvider);
         ExtendedMockito.doReturn(mContext).when(mProvider).getContext();
@@ -96,4 +98,54 @@ public class SettingsQCProviderTest {
         assertThat(testWorker.isSubscribed()).isFalse();
         assertThat(mProvider.mSubscribedWorkers.containsKey(QCTestUtils.URI)).isFalse();
     }
+
+    @Test
+    public void onBind_notSubscribed_rebuildsQCItem() {
+        mProvider.onCreate();
+        QCItem first = mProvider.onBind(QCTestUtils.URI);
+
+        QCItem second = mProvider.onBind(QCTestUtils.URI);
+
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(QCItemSnapshotCache.getHitCount(QCTestUtils.URI)).isEqualTo(0);
+    }
+
+    @Test
+    public void onBind_subscribed_returnsCachedQCItem() {
+        mProvider.onCreate();
+        mProvider.onSubscribed(QCTestUtils.URI);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        QCItem first = mProvider.onBind(QCTestUtils.URI);
+
+        QCItem second = mProvider.onBind(QCTestUtils.URI);
+
+        assertThat(second).isSameInstanceAs(first);
+        assertThat(QCItemSnapshotCache.getBindCount(QCTestUtils.URI)).isEqualTo(2);
+        assertThat(QCItemSnapshotCache.getHitCount(QCTestUtils.URI)).isEqualTo(1);
+    }
+
+    @Test
+    public void onBind_workerNotifiesChange_rebuildsQCItem() {
+        mProvider.onCreate();
+        mProvider.onSubscribed(QCTestUtils.URI);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        QCItem first = mProvider.onBind(QCTestUtils.URI);
+
+        mProvider.mSubscribedWorkers.get(QCTestUtils.URI).notifyQCItemChange();
+
+        assertThat(mProvider.onBind(QCTestUtils.URI)).isNotSameInstanceAs(first);
+    }
+
+    @Test
+    public void onBind_afterUnsubscribe_rebuildsQCItem() {
+        mProvider.onCreate();
+        mProvider.onSubscribed(QCTestUtils.URI);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        QCItem first = mProvider.onBind(QCTestUtils.URI);
+
+        mProvider.onUnsubscribed(QCTestUtils.URI);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertThat(mProvider.onBind(QCTestUtils.URI)).isNotSameInstanceAs(first);
+    }
 }
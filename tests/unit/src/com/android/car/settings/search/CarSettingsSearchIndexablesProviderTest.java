@@ -40,9 +40,13 @@ import static android.provider.SearchIndexablesContract.COLUMN_INDEX_XML_RES_RES
 
 import static com.google.common.truth.Truth.assertThat;
 
+import android.Manifest;
 import android.content.Context;
+import android.content.pm.ProviderInfo;
 import android.database.Cursor;
+import android.os.SystemClock;
 import android.provider.SearchIndexableResource;
+import android.util.Log;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -52,10 +56,12 @@ import com.android.settingslib.search.SearchIndexableData;
 import com.android.settingslib.search.SearchIndexableRaw;
 import com.android.settingslib.search.SearchIndexableResources;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -64,9 +70,13 @@ import java.util.Set;
 
 @RunWith(AndroidJUnit4.class)
 public class CarSettingsSearchIndexablesProviderTest {
+    private static final String TAG = "CarSettingsSearchIndexablesProviderTest";
+
+    private static final String AUTHORITY = "com.android.car.settings";
+
     private final Context mContext = ApplicationProvider.getApplicationContext();
 
-    private CarSettingsSearchIndexablesProvider mProvider;
+    private TestCarSettingsSearchIndexablesProvider mProvider;
     private SearchIndexableResources mSearchIndexableResources;
 
     @Before
@@ -85,8 +95,13 @@ public class CarSettingsSearchIndexablesProviderTest {
             }
         };
 
-        mProvider = new CarSettingsSearchIndexablesProvider();
-        mProvider.setResources(mSearchIndexableResources);
+        CarSettingsSearchIndexablesProvider.getSnapshotFile(mContext).delete();
+        mProvider = createProvider();
+    }
+
+    @After
+    public void tearDown() {
+        CarSettingsSearchIndexablesProvider.getSnapshotFile(mContext).delete();
     }
 
     @Test
@@ -295,6 +310,175 @@ public class CarSettingsSearchIndexablesProviderTest {
         assertThat(mProvider.queryNonIndexableKeys(null).getCount()).isEqualTo(0);
     }
 
+    @Test
+    public void queryNonIndexableKeys_providerThrows_returnsOtherKeys() {
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setNonIndexableKeys(List.of("key1"));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        TestSearchIndexProvider failingProvider = new TestSearchIndexProvider();
+        failingProvider.setNonIndexableKeysDelayMs(-1);
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, failingProvider));
+
+        assertThat(getNonIndexableKeys()).containsExactly("key1");
+    }
+
+    @Test
+    public void queryNonIndexableKeys_slowProvider_returnsWithinBudget() {
+        mProvider.setNonIndexableKeysBudget(/* providerBudgetMs= */ 200,
+                /* queryBudgetMs= */ 500);
+        for (int i = 0; i < 3; i++) {
+            TestSearchIndexProvider provider = new TestSearchIndexProvider();
+            provider.setNonIndexableKeys(List.of("fast" + i));
+            provider.setNonIndexableKeysDelayMs(10);
+            mSearchIndexableResources.addIndex(
+                    new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        }
+        TestSearchIndexProvider slowProvider = new TestSearchIndexProvider();
+        slowProvider.setNonIndexableKeys(List.of("slow"));
+        slowProvider.setNonIndexableKeysDelayMs(5000);
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, slowProvider));
+
+        long startMs = SystemClock.elapsedRealtime();
+        List<String> keys = getNonIndexableKeys();
+        long durationMs = SystemClock.elapsedRealtime() - startMs;
+
+        Log.i(TAG, "queryNonIndexableKeys with a slow provider took " + durationMs + "ms");
+        assertThat(durationMs).isLessThan(1000L);
+        assertThat(keys).containsExactly("fast0", "fast1", "fast2");
+    }
+
+    @Test
+    public void queryNonIndexableKeys_providerTimesOutAfterCompleteQuery_returnsItsLastKeys() {
+        mProvider.setNonIndexableKeysBudget(/* providerBudgetMs= */ 200,
+                /* queryBudgetMs= */ 500);
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setNonIndexableKeys(List.of("key1"));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        TestSearchIndexProvider slowProvider = new TestSearchIndexProvider();
+        slowProvider.setNonIndexableKeys(List.of("slow"));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, slowProvider));
+        assertThat(getNonIndexableKeys()).containsExactly("key1", "slow");
+
+        slowProvider.setNonIndexableKeysDelayMs(5000);
+
+        assertThat(getNonIndexableKeys()).containsExactly("key1", "slow");
+    }
+
+    @Test
+    public void queryNonIndexableKeys_providerThrowsAfterCompleteQuery_returnsItsLastKeys() {
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setNonIndexableKeys(List.of("key1"));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        assertThat(getNonIndexableKeys()).containsExactly("key1");
+
+        provider.setNonIndexableKeysDelayMs(-1);
+
+        assertThat(getNonIndexableKeys()).containsExactly("key1");
+    }
+
+    @Test
+    public void queryRawData_snapshotBuilt_servedWithoutProviders() {
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setRawData(List.of(makeRawData(/* seed= */ 1)));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        mProvider.queryRawData(null);
+
+        provider.setRawData(List.of(makeRawData(/* seed= */ 2)));
+        Cursor c = mProvider.queryRawData(null);
+
+        assertThat(provider.mRawDataQueryCount).isEqualTo(1);
+        assertThat(c.getCount()).isEqualTo(1);
+        c.moveToFirst();
+        assertThat(c.getString(COLUMN_INDEX_RAW_TITLE)).isEqualTo("1title");
+    }
+
+    @Test
+    public void queryRawData_afterRestart_servedFromPersistedSnapshot() {
+        SearchIndexableRaw rawData = makeRawData(/* seed= */ 1);
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setRawData(List.of(rawData));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        mProvider.queryRawData(null);
+        mProvider.runBackgroundTasks();
+
+        mProvider = createProvider();
+        mProvider.runBackgroundTasks();
+        Cursor c = mProvider.queryRawData(null);
+
+        assertThat(provider.mRawDataQueryCount).isEqualTo(1);
+        assertThat(c.getCount()).isEqualTo(1);
+        c.moveToFirst();
+        assertEqual(c, rawData);
+    }
+
+    @Test
+    public void onCreate_staleSnapshot_rebuiltBeforeQuery() {
+        new SearchIndexSnapshot("stale", new ArrayList<>(), new ArrayList<>())
+                .write(CarSettingsSearchIndexablesProvider.getSnapshotFile(mContext));
+        SearchIndexableRaw rawData = makeRawData(/* seed= */ 1);
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setRawData(List.of(rawData));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+
+        mProvider = createProvider();
+        mProvider.runBackgroundTasks();
+
+        assertThat(provider.mRawDataQueryCount).isEqualTo(1);
+        assertThat(SearchIndexSnapshot.readVersionKey(
+                CarSettingsSearchIndexablesProvider.getSnapshotFile(mContext)))
+                .isEqualTo(SearchIndexSnapshot.getVersionKey(mContext));
+        Cursor c = mProvider.queryRawData(null);
+        assertThat(provider.mRawDataQueryCount).isEqualTo(1);
+        assertThat(c.getCount()).isEqualTo(1);
+        c.moveToFirst();
+        assertEqual(c, rawData);
+    }
+
+    @Test
+    public void queryNonIndexableKeys_keysChanged_returnedByNextQuery() {
+        TestSearchIndexProvider provider = new TestSearchIndexProvider();
+        provider.setNonIndexableKeys(List.of("key1"));
+        mSearchIndexableResources.addIndex(
+                new SearchIndexableData(TestSearchIndexProvider.class, provider));
+        mProvider.runBackgroundTasks();
+        assertThat(getNonIndexableKeys()).containsExactly("key1");
+
+        provider.setNonIndexableKeys(List.of("key2"));
+
+        assertThat(getNonIndexableKeys()).containsExactly("key2");
+    }
+
+    private List<String> getNonIndexableKeys() {
+        List<String> keys = new ArrayList<>();
+        Cursor c = mProvider.queryNonIndexableKeys(null);
+        while (c.moveToNext()) {
+            keys.add(c.getString(COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE));
+        }
+        return keys;
+    }
+
+    private TestCarSettingsSearchIndexablesProvider createProvider() {
+        TestCarSettingsSearchIndexablesProvider provider =
+                new TestCarSettingsSearchIndexablesProvider();
+        provider.setResources(mSearchIndexableResources);
+        ProviderInfo info = new ProviderInfo();
+        info.authority = AUTHORITY;
+        info.exported = true;
+        info.grantUriPermissions = true;
+        info.readPermission = Manifest.permission.READ_SEARCH_INDEXABLES;
+        provider.attachInfo(mContext, info);
+        return provider;
+    }
+
     private SearchIndexableResource makeResource(int seed) {
         int rank = seed;
         int resId = seed + 1;
@@ -365,6 +549,9 @@ public class CarSettingsSearchIndexablesProviderTest {
         private List<SearchIndexableResource> mResources;
         private List<SearchIndexableRaw> mRawData;
         private List<String> mNonIndexableKeys;
+        // Negative to throw instead of returning the keys.
+        private long mNonIndexableKeysDelayMs;
+        private int mRawDataQueryCount;
 
         TestSearchIndexProvider() {
         }
@@ -377,6 +564,7 @@ public class CarSettingsSearchIndexablesProviderTest {
 
         @Override
         public List<SearchIndexableRaw> getRawDataToIndex(Context context, boolean enabled) {
+            mRawDataQueryCount++;
             return mRawData;
         }
 
@@ -387,6 +575,10 @@ public class CarSettingsSearchIndexablesProviderTest {
 
         @Override
         public List<String> getNonIndexableKeys(Context context) {
+            if (mNonIndexableKeysDelayMs < 0) {
+                throw new IllegalStateException("Provider failure");
+            }
+            SystemClock.sleep(mNonIndexableKeysDelayMs);
             return mNonIndexableKeys;
         }
 
@@ -401,5 +593,26 @@ public class CarSettingsSearchIndexablesProviderTest {
         void setNonIndexableKeys(List<String> nonIndexableKeys) {
             mNonIndexableKeys = nonIndexableKeys;
         }
+
+        void setNonIndexableKeysDelayMs(long delayMs) {
+            mNonIndexableKeysDelayMs = delayMs;
+        }
+    }
+
+    /** Runs the background tasks when the test asks for it, on the test thread. */
+    private static final class TestCarSettingsSearchIndexablesProvider
+            extends CarSettingsSearchIndexablesProvider {
+        private final List<Runnable> mBackgroundTasks = new ArrayList<>();
+
+        @Override
+        void executeBackgroundTask(Runnable runnable) {
+            mBackgroundTasks.add(runnable);
+        }
+
+        void runBackgroundTasks() {
+            while (!mBackgroundTasks.isEmpty()) {
+                mBackgroundTasks.remove(0).run();
+            }
+        }
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.MatrixCursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class IndexableRowCursorTest {
+    private static final String TAG = "IndexableRowCursorTest";
+    private static final String[] COLUMNS = {"title", "rank"};
+
+    @Test
+    public void moveToNext_returnsAllRowsInOrder() {
+        Cursor cursor = new IndexableRowCursor(COLUMNS, makeRows(/* count= */ 5));
+
+        assertThat(cursor.getCount()).isEqualTo(5);
+        int expected = 0;
+        while (cursor.moveToNext()) {
+            assertThat(cursor.getString(0)).isEqualTo("title" + expected);
+            assertThat(cursor.getInt(1)).isEqualTo(expected);
+            expected++;
+        }
+        assertThat(expected).isEqualTo(5);
+    }
+
+    @Test
+    public void moveToPosition_backwards_returnsRow() {
+        Cursor cursor = new IndexableRowCursor(COLUMNS, makeRows(/* count= */ 4));
+
+        cursor.moveToPosition(3);
+        cursor.moveToPosition(1);
+
+        assertThat(cursor.getInt(1)).isEqualTo(1);
+    }
+
+    @Test
+    public void getType_matchesValues() {
+        Cursor cursor = new IndexableRowCursor(COLUMNS,
+                Collections.singletonList(new Object[]{null, 7}));
+
+        cursor.moveToFirst();
+
+        assertThat(cursor.getType(0)).isEqualTo(Cursor.FIELD_TYPE_NULL);
+        assertThat(cursor.isNull(0)).isTrue();
+        assertThat(cursor.getType(1)).isEqualTo(Cursor.FIELD_TYPE_INTEGER);
+    }
+
+    @Test
+    public void fillWindow_pagesThroughRows() {
+        int rowCount = 100;
+        IndexableRowCursor cursor = new IndexableRowCursor(COLUMNS, makeRows(rowCount));
+
+        CursorWindow window = new CursorWindow("test");
+        try {
+            cursor.fillWindow(/* position= */ 60, window);
+
+            assertThat(window.getStartPosition()).isEqualTo(60);
+            assertThat(window.getNumRows()).isEqualTo(rowCount - 60);
+            assertThat(window.getString(/* row= */ 75, /* column= */ 0)).isEqualTo("title75");
+            assertThat(window.getInt(/* row= */ 75, /* column= */ 1)).isEqualTo(75);
+        } finally {
+            window.close();
+        }
+    }
+
+    /**
+     * Logs the heap used on top of 5000 snapshot rows by a {@link MatrixCursor} copy of the rows
+     * compared to this cursor. The rows themselves are held by the snapshot in both cases.
+     */
+    @Test
+    public void memoryBenchmark_logsHeapUsedPerCursor() {
+        List<Object[]> rows = makeRows(/* count= */ 5000);
+
+        long baseline = usedHeap();
+        MatrixCursor matrixCursor = new MatrixCursor(COLUMNS, rows.size());
+        for (Object[] row : rows) {
+            matrixCursor.addRow(row);
+        }
+        long matrixBytes = usedHeap() - baseline;
+
+        baseline = usedHeap();
+        IndexableRowCursor rowCursor = new IndexableRowCursor(COLUMNS, rows);
+        long rowCursorBytes = usedHeap() - baseline;
+
+        Log.i(TAG, rows.size() + " rows: MatrixCursor=" + matrixBytes
+                + " bytes, IndexableRowCursor=" + rowCursorBytes + " bytes");
+        // Heap numbers depend on the garbage collector, so only the row count is checked.
+        assertThat(rowCursor.getCount()).isEqualTo(matrixCursor.getCount());
+    }
+
+    private static List<Object[]> makeRows(int count) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{"title" + i, i});
+        }
+        return rows;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
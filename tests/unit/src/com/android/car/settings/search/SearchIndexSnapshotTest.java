@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class SearchIndexSnapshotTest {
+    private static final String VERSION_KEY = "1/2/en-US/10/0";
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private final File mFile = new File(mContext.getCacheDir(), "search_index_snapshot_test");
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void read_afterWrite_returnsSameRows() {
+        List<Object[]> xmlRows = List.of(new Object[]{1, 2, "className", null});
+        List<Object[]> rawRows = List.of(new Object[]{"title", null, 3});
+        new SearchIndexSnapshot(VERSION_KEY, xmlRows, rawRows).write(mFile);
+
+        SearchIndexSnapshot snapshot = SearchIndexSnapshot.read(mFile, VERSION_KEY);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getXmlResourceRows().get(0)).isEqualTo(xmlRows.get(0));
+        assertThat(snapshot.getRawDataRows().get(0)).isEqualTo(rawRows.get(0));
+    }
+
+    @Test
+    public void read_differentVersionKey_returnsNull() {
+        new SearchIndexSnapshot(VERSION_KEY, Collections.emptyList(), Collections.emptyList())
+                .write(mFile);
+
+        assertThat(SearchIndexSnapshot.read(mFile, VERSION_KEY + "-other")).isNull();
+        assertThat(SearchIndexSnapshot.readVersionKey(mFile)).isEqualTo(VERSION_KEY);
+    }
+
+    @Test
+    public void read_missingFile_returnsNull() {
+        assertThat(SearchIndexSnapshot.read(mFile, VERSION_KEY)).isNull();
+        assertThat(SearchIndexSnapshot.readVersionKey(mFile)).isNull();
+    }
+
+    @Test
+    public void getVersionKey_includesLocales() {
+        String locales = mContext.getResources().getConfiguration().getLocales()
+                .toLanguageTags();
+
+        assertThat(SearchIndexSnapshot.getVersionKey(mContext)).contains(locales);
+    }
+}
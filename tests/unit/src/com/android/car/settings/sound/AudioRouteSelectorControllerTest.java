@@ -18,6 +18,8 @@ package com.android.car.settings.sound;
 
 import static android.car.media.CarAudioManager.AUDIO_FEATURE_DYNAMIC_ROUTING;
 
+import static com.android.car.settings.common.PreferenceController.CONDITIONALLY_UNAVAILABLE;
+
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Mockito.verify;
@@ -134,4 +136,14 @@ public class AudioRouteSelectorControllerTest {
 
         verify(mAudioRoutesManager).updateAudioRoute(INACTIVE_ADDRESS);
     }
+
+    @Test
+    public void getAvailabilityStatus_carServiceNotConnected_conditionallyUnavailable() {
+        when(mAudioRoutesManager.getCarAudioManager()).thenReturn(null);
+
+        mPreferenceController.onCreate(mLifecycleOwner);
+
+        assertThat(mPreferenceController.getAvailabilityStatus())
+                .isEqualTo(CONDITIONALLY_UNAVAILABLE);
+    }
 }
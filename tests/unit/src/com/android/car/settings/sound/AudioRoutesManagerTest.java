@@ -24,6 +24,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
@@ -48,6 +49,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.MockitoSession;
@@ -179,6 +181,40 @@ public class AudioRoutesManagerTest {
                 .isEqualTo(mCachedBluetoothDevice);
     }
 
+    @Test
+    public void init_carServiceNotConnected_emptyAudioRouteList() {
+        when(mCarSettingsApplication.getCarAudioManager()).thenReturn(null);
+        mAudioRoutesManager = new AudioRoutesManager(mContext, USAGE);
+        mAudioRoutesManager.setUpdateListener(mUpdateListener);
+
+        assertThat(mAudioRoutesManager.getCarAudioManager()).isNull();
+        assertThat(mAudioRoutesManager.getAudioRouteList()).isEmpty();
+        verify(mCarSettingsApplication).addOnZoneInfoChangedListener(any());
+    }
+
+    @Test
+    public void carServiceConnected_loadsAudioRouteList() {
+        when(mAudioDeviceInfo.getAddress()).thenReturn(AUDIO_DEVICE_ADDRESS);
+        when(mCarVolumeGroupInfo.getAudioDeviceAttributes())
+                .thenReturn(new ArrayList<>(Collections.singleton(mAudioDeviceAttributes)));
+        when(mCarSettingsApplication.getCarAudioManager()).thenReturn(null);
+        mAudioRoutesManager = new AudioRoutesManager(mContext, USAGE);
+        mAudioRoutesManager.setUpdateListener(mUpdateListener);
+        ArgumentCaptor<CarSettingsApplication.OnZoneInfoChangedListener> captor =
+                ArgumentCaptor.forClass(CarSettingsApplication.OnZoneInfoChangedListener.class);
+        verify(mCarSettingsApplication).addOnZoneInfoChangedListener(captor.capture());
+
+        when(mCarSettingsApplication.getCarAudioManager()).thenReturn(mCarAudioManager);
+        captor.getValue().onZoneInfoChanged();
+
+        assertThat(mAudioRoutesManager.getCarAudioManager()).isEqualTo(mCarAudioManager);
+        assertThat(mAudioRoutesManager.getAudioRouteList())
+                .containsExactly(AUDIO_DEVICE_ADDRESS, BT_DEVICE_ADDRESS).inOrder();
+        assertThat(mAudioRoutesManager.getActiveDeviceAddress()).isEqualTo(AUDIO_DEVICE_ADDRESS);
+        verify(mCarSettingsApplication).removeOnZoneInfoChangedListener(captor.getValue());
+        verify(mUpdateListener).onAudioRoutesLoaded();
+    }
+
     private void initMocks() {
         MockitoAnnotations.initMocks(this);
         mSession = ExtendedMockito.mockitoSession().mockStatic(
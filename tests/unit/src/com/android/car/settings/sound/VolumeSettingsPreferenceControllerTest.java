@@ -70,6 +70,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoSession;
 import org.mockito.quality.Strictness;
@@ -221,6 +222,28 @@ public class VolumeSettingsPreferenceControllerTest {
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
     }
 
+    @Test
+    public void testRefreshUi_carServiceConnectedLater_createsPreferences() {
+        when(mCarSettingsApplication.getCarAudioManager()).thenReturn(null);
+        mPreferenceController = new TestVolumeSettingsPreferenceController(mContext,
+                "key", mFragmentController, mCarUxRestrictions, mRingtoneManager);
+        PreferenceControllerTestUtil.assignPreference(mPreferenceController, mPreferenceGroup);
+        mPreferenceController.onCreate(mLifecycleOwner);
+        mPreferenceController.refreshUi();
+        ArgumentCaptor<CarSettingsApplication.OnZoneInfoChangedListener> captor =
+                ArgumentCaptor.forClass(CarSettingsApplication.OnZoneInfoChangedListener.class);
+        verify(mCarSettingsApplication).addOnZoneInfoChangedListener(captor.capture());
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(0);
+
+        when(mCarSettingsApplication.getCarAudioManager()).thenReturn(mCarAudioManager);
+        captor.getValue().onZoneInfoChanged();
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        verify(mCarAudioManager).registerCarVolumeCallback(
+                mPreferenceController.mVolumeChangeCallback);
+        verify(mCarSettingsApplication).removeOnZoneInfoChangedListener(captor.getValue());
+    }
+
     @Test
     public void onServiceConnected_registersVolumeCallback() {
         mPreferenceController.onCreate(mLifecycleOwner);
@@ -30,8 +30,10 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.UserInfo;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.DataUnit;
+import android.util.Log;
 import android.util.SparseArray;
 
 import androidx.test.core.app.ApplicationProvider;
@@ -53,6 +55,7 @@ import java.util.List;
 
 @RunWith(AndroidJUnit4.class)
 public class StorageAsyncLoaderTest {
+    private static final String TAG = "StorageAsyncLoaderTest";
 
     private static final int PRIMARY_USER_ID = 0;
     private static final int SECONDARY_USER_ID = 10;
@@ -256,6 +259,52 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).getOtherAppsSize()).isEqualTo(DEFAULT_QUOTA + 11);
     }
 
+    /**
+     * Loads the stats of 500 packages for each of 4 users from a source which takes a millisecond
+     * per call, and logs how long it took.
+     */
+    @Test
+    public void testManyPackagesAndUsers_logsDuration() throws Exception {
+        int packageCount = 500;
+        int userCount = 4;
+        mUsers.clear();
+        for (int i = 0; i < userCount; i++) {
+            UserInfo info = new UserInfo();
+            info.id = i == 0 ? PRIMARY_USER_ID : SECONDARY_USER_ID + i;
+            mUsers.add(info);
+        }
+        List<ApplicationInfo> apps = new ArrayList<>(packageCount);
+        for (int i = 0; i < packageCount; i++) {
+            ApplicationInfo info = new ApplicationInfo();
+            info.packageName = PACKAGE_NAME_1 + i;
+            info.category = i % 2 == 0 ? ApplicationInfo.CATEGORY_GAME
+                    : ApplicationInfo.CATEGORY_UNDEFINED;
+            apps.add(info);
+        }
+        when(mMockPackageManager.getInstalledApplicationsAsUser(
+                /* getAllInstalledApplications= */ eq(0), anyInt()))
+                .thenReturn(apps);
+        StorageAsyncLoader loader = new StorageAsyncLoader(mContext,
+                new FakeStorageStatsSource(mContext), mMockPackageManager, mMockProfileHelper);
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = loader.loadInBackground();
+        long durationMs = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1_000_000;
+
+        Log.i(TAG, "Loaded stats of " + packageCount + " packages for " + userCount
+                + " users in " + durationMs + "ms");
+        assertThat(result.size()).isEqualTo(userCount);
+        // The code size is only attributed to the first user.
+        assertThat(result.get(PRIMARY_USER_ID).getGamesSize()).isEqualTo(250 * 11L);
+        assertThat(result.get(PRIMARY_USER_ID).getOtherAppsSize()).isEqualTo(250 * 11L);
+        for (int i = 1; i < userCount; i++) {
+            StorageAsyncLoader.AppsStorageResult userResult = result.get(mUsers.get(i).id);
+            assertThat(userResult.getGamesSize()).isEqualTo(250 * 10L);
+            assertThat(userResult.getOtherAppsSize()).isEqualTo(250 * 10L);
+            assertThat(userResult.getExternalStats().totalBytes).isEqualTo(9L);
+        }
+    }
+
     private ApplicationInfo createAppInfo(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStats stats = new StorageStats();
@@ -277,4 +326,31 @@ public class StorageAsyncLoaderTest {
 
         return info;
     }
+
+    /** Source which returns the same stats for every package, like a binder call would. */
+    private static final class FakeStorageStatsSource extends StorageStatsSource {
+        FakeStorageStatsSource(Context context) {
+            super(context);
+        }
+
+        @Override
+        public AppStorageStats getStatsForPackage(String volumeUuid, String packageName,
+                UserHandle user) {
+            SystemClock.sleep(1);
+            StorageStats stats = new StorageStats();
+            stats.codeBytes = 1;
+            stats.dataBytes = 10;
+            return new AppStorageStatsImpl(stats);
+        }
+
+        @Override
+        public long getCacheQuotaBytes(String volumeUuid, int uid) {
+            return DEFAULT_QUOTA;
+        }
+
+        @Override
+        public ExternalStorageStats getExternalStorageStats(String volumeUuid, UserHandle user) {
+            return new ExternalStorageStats(9, 2, 3, 4, 0);
+        }
+    }
 }
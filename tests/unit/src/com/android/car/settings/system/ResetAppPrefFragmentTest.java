@@ -31,7 +31,6 @@ import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.IPackageManager;
 import android.content.pm.PackageManager;
-import android.os.AsyncTask;
 import android.os.IBinder;
 import android.os.ServiceManager;
 import android.os.UserHandle;
@@ -198,8 +197,7 @@ public class ResetAppPrefFragmentTest {
         mActivityTestRule.runOnUiThread(() -> mResetButton.performClick());
         InstrumentationRegistry.getInstrumentation().waitForIdleSync();
         // wait for async task
-        PollingCheck.waitFor(
-                () -> mFragment.mResetTask.getStatus() == AsyncTask.Status.FINISHED);
+        PollingCheck.waitFor(() -> mFragment.mResetTask.isDone());
     }
 
     private void setUpFragment() throws Throwable {
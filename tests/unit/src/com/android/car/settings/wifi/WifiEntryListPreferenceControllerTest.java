@@ -39,6 +39,7 @@ import android.os.UserManager;
 
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
+import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
@@ -144,6 +145,37 @@ public class WifiEntryListPreferenceControllerTest {
         assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(wifiEntryList.size());
     }
 
+    @Test
+    public void refreshUi_scanUpdate_reusesExistingPreferences() {
+        List<WifiEntry> wifiEntryList = Arrays.asList(mMockWifiEntry1, mMockWifiEntry2);
+        when(mMockCarWifiManager.getAllWifiEntries()).thenReturn(wifiEntryList);
+        mPreferenceController.onCreate(mLifecycleOwner);
+        Preference first = mPreferenceGroup.getPreference(0);
+
+        mPreferenceController.refreshUi();
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(wifiEntryList.size());
+        assertThat(mPreferenceGroup.getPreference(0)).isSameInstanceAs(first);
+        assertThat(mPreferenceController.getReconciler().getCreatedCount())
+                .isEqualTo(wifiEntryList.size());
+    }
+
+    @Test
+    public void refreshUi_entryRemoved_removesOnlyItsPreference() {
+        when(mMockCarWifiManager.getAllWifiEntries())
+                .thenReturn(Arrays.asList(mMockWifiEntry1, mMockWifiEntry2));
+        mPreferenceController.onCreate(mLifecycleOwner);
+        Preference first = mPreferenceGroup.getPreference(0);
+
+        when(mMockCarWifiManager.getAllWifiEntries())
+                .thenReturn(Arrays.asList(mMockWifiEntry1));
+        mPreferenceController.refreshUi();
+
+        assertThat(mPreferenceGroup.getPreferenceCount()).isEqualTo(1);
+        assertThat(mPreferenceGroup.getPreference(0)).isSameInstanceAs(first);
+        assertThat(mPreferenceController.getReconciler().getRemovedCount()).isEqualTo(1);
+    }
+
     @Test
     public void refreshUi_notSavedWifiEntry_noForgetButton() {
         when(mMockWifiEntry1.isSaved()).thenReturn(false);
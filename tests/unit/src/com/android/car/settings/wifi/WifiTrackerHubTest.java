@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.car.settings.wifi;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import android.content.Context;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.wifitrackerlib.WifiPickerTracker;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@RunWith(AndroidJUnit4.class)
+public class WifiTrackerHubTest {
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+    private WifiTrackerHub mHub;
+
+    @Mock
+    private WifiPickerTracker.WifiPickerTrackerCallback mTileSubscriber;
+    @Mock
+    private WifiPickerTracker.WifiPickerTrackerCallback mRowSubscriber;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mHub = new WifiTrackerHub(mContext);
+    }
+
+    @Test
+    @UiThreadTest
+    public void acquire_multipleSubscribers_sharesOneTracker() {
+        WifiPickerTracker tileTracker = mHub.acquire(mTileSubscriber);
+        WifiPickerTracker rowTracker = mHub.acquire(mRowSubscriber);
+
+        assertThat(rowTracker).isSameInstanceAs(tileTracker);
+        assertThat(mHub.getTrackersCreated()).isEqualTo(1);
+    }
+
+    @Test
+    @UiThreadTest
+    public void setActive_anySubscriberActive_resumesTracker() {
+        mHub.acquire(mTileSubscriber);
+        mHub.acquire(mRowSubscriber);
+
+        mHub.setActive(mTileSubscriber, true);
+        mHub.setActive(mRowSubscriber, true);
+        mHub.setActive(mTileSubscriber, false);
+
+        assertThat(mHub.getLifecycle().getCurrentState()).isEqualTo(Lifecycle.State.RESUMED);
+    }
+
+    @Test
+    @UiThreadTest
+    public void setActive_noSubscriberActive_stopsTracker() {
+        mHub.acquire(mTileSubscriber);
+        mHub.setActive(mTileSubscriber, true);
+
+        mHub.setActive(mTileSubscriber, false);
+
+        assertThat(mHub.getLifecycle().getCurrentState()).isEqualTo(Lifecycle.State.CREATED);
+    }
+
+    @Test
+    @UiThreadTest
+    public void release_lastSubscriber_destroysTracker() {
+        mHub.acquire(mTileSubscriber);
+        mHub.acquire(mRowSubscriber);
+
+        mHub.release(mTileSubscriber);
+        assertThat(mHub.getTracker()).isNotNull();
+        mHub.release(mRowSubscriber);
+
+        assertThat(mHub.getTracker()).isNull();
+        mHub.acquire(mTileSubscriber);
+        assertThat(mHub.getTrackersCreated()).isEqualTo(2);
+    }
+
+    @Test
+    @UiThreadTest
+    public void onWifiEntriesChanged_notifiesActiveSubscribers() {
+        mHub.acquire(mTileSubscriber);
+        mHub.acquire(mRowSubscriber);
+        mHub.setActive(mTileSubscriber, true);
+        mHub.setActive(mRowSubscriber, true);
+
+        mHub.onWifiEntriesChanged();
+
+        verify(mTileSubscriber).onWifiEntriesChanged();
+        verify(mRowSubscriber).onWifiEntriesChanged();
+    }
+
+    @Test
+    @UiThreadTest
+    public void trackerCallbacks_inactiveSubscriber_notNotified() {
+        mHub.acquire(mTileSubscriber);
+        mHub.acquire(mRowSubscriber);
+        mHub.setActive(mTileSubscriber, true);
+
+        mHub.onWifiStateChanged();
+        mHub.onWifiEntriesChanged();
+        mHub.onNumSavedNetworksChanged();
+        mHub.onNumSavedSubscriptionsChanged();
+
+        verify(mTileSubscriber).onWifiEntriesChanged();
+        verifyNoMoreInteractions(mRowSubscriber);
+    }
+
+    @Test
+    @UiThreadTest
+    public void setActive_trackerAlreadyScanning_notifiesSubscriberOnce() {
+        mHub.acquire(mTileSubscriber);
+        mHub.acquire(mRowSubscriber);
+        mHub.setActive(mTileSubscriber, true);
+
+        mHub.setActive(mRowSubscriber, true);
+        mHub.setActive(mRowSubscriber, true);
+
+        verify(mRowSubscriber).onWifiStateChanged();
+        verify(mRowSubscriber).onWifiEntriesChanged();
+        verify(mTileSubscriber, never()).onWifiEntriesChanged();
+    }
+
+    @Test
+    @UiThreadTest
+    public void dump_reportsTrackerAndSubscriberCounts() {
+        mHub.acquire(mTileSubscriber);
+        mHub.acquire(mRowSubscriber);
+        mHub.setActive(mRowSubscriber, true);
+        StringWriter out = new StringWriter();
+
+        mHub.dump("", new PrintWriter(out));
+
+        assertThat(out.toString()).contains("live trackers: 1");
+        assertThat(out.toString()).contains("subscribers: 2, active: 1");
+    }
+}
@@ -0,0 +1,146 @@
+#!/usr/bin/env python3
+#
+# Copyright (C) 2024 The Android Open Source Project
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Generates GeneratedPreferenceControllerFactory.java.
+
+Scans the preference XMLs for settings:controller attributes and emits a switch which calls the
+controller constructors directly, so PreferenceControllerListHelper does not need reflection for
+controllers known at build time. Controllers whose source cannot be found or which do not declare
+the standard public constructor are skipped and keep using the reflective fallback.
+"""
+
+import argparse
+import os
+import re
+import sys
+import xml.etree.ElementTree as ET
+
+RES_AUTO_NAMESPACE = '{http://schemas.android.com/apk/res-auto}'
+CONTROLLER_ATTR = RES_AUTO_NAMESPACE + 'controller'
+
+HEADER = '''/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Generated by tools/generate_controller_factory.py. Do not edit.
+
+package com.android.car.settings.common;
+
+import android.car.drivingstate.CarUxRestrictions;
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Creates the {@link PreferenceController} instances declared in the preference XMLs without
+ * reflection.
+ */
+final class GeneratedPreferenceControllerFactory {
+    private GeneratedPreferenceControllerFactory() {
+    }
+
+    /**
+     * Returns a new instance of {@code controllerName}, or {@code null} if the controller was not
+     * known at build time.
+     */
+    @Nullable
+    static PreferenceController create(String controllerName, Context context,
+            String preferenceKey, FragmentController fragmentController,
+            CarUxRestrictions uxRestrictions) {
+        switch (controllerName) {
+'''
+
+FOOTER = '''            default:
+                return null;
+        }
+    }
+}
+'''
+
+
+def find_controllers(xml_files):
+    controllers = set()
+    for xml_file in xml_files:
+        try:
+            root = ET.parse(xml_file).getroot()
+        except ET.ParseError as e:
+            sys.exit('Failed to parse %s: %s' % (xml_file, e))
+        for element in root.iter():
+            controller = element.get(CONTROLLER_ATTR)
+            if controller:
+                controllers.add(controller)
+    return controllers
+
+
+def has_standard_constructor(class_name, source_file):
+    with open(source_file, encoding='utf-8') as f:
+        source = f.read()
+    simple_name = class_name.rsplit('.', 1)[-1]
+    if not re.search(r'public\s+(final\s+)?class\s+%s\b' % simple_name, source):
+        return False
+    annotation = r'(?:@\w+\s+)*'
+    constructor = (r'public\s+%s\s*\(\s*' % simple_name
+                   + annotation + r'Context\s+\w+\s*,\s*'
+                   + annotation + r'String\s+\w+\s*,\s*'
+                   + annotation + r'FragmentController\s+\w+\s*,\s*'
+                   + annotation + r'CarUxRestrictions\s+\w+\s*\)')
+    return re.search(constructor, source) is not None
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__)
+    parser.add_argument('--out', required=True, help='Output java file')
+    parser.add_argument('inputs', nargs='+', help='Preference XMLs and java sources')
+    args = parser.parse_args()
+
+    xml_files = [f for f in args.inputs if f.endswith('.xml')]
+    java_files = {}
+    for f in args.inputs:
+        if f.endswith('.java'):
+            java_files[os.path.normpath(f)] = f
+
+    cases = []
+    for controller in sorted(find_controllers(xml_files)):
+        suffix = os.path.normpath(controller.replace('.', os.sep) + '.java')
+        source = next((path for norm, path in java_files.items()
+                       if norm.endswith(os.sep + suffix) or norm == suffix), None)
+        if source is None or not has_standard_constructor(controller, source):
+            continue
+        cases.append('            case "%s":\n'
+                     '                return new %s(context, preferenceKey,\n'
+                     '                        fragmentController, uxRestrictions);\n'
+                     % (controller, controller))
+
+    with open(args.out, 'w', encoding='utf-8') as out:
+        out.write(HEADER)
+        out.writelines(cases)
+        out.write(FOOTER)
+
+
+if __name__ == '__main__':
+    main()